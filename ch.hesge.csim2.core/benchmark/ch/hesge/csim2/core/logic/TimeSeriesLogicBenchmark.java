@@ -0,0 +1,76 @@
+package ch.hesge.csim2.core.logic;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.hesge.csim2.core.model.TimeSeries;
+import ch.hesge.csim2.core.model.TimeSeriesPyramid;
+
+/**
+ * Measure all segmentation paths (run-length, pyramid and filtered) on a
+ * random trace of 10M steps.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class TimeSeriesLogicBenchmark {
+
+	// Private attributes
+	private TimeSeries timeSeries;
+	private TimeSeriesPyramid pyramid;
+
+	@Param({ "10000000" })
+	private int stepCount;
+
+	@Param({ "999" })
+	private int segmentCount;
+
+	@Param({ "0.5" })
+	private double threshold;
+
+	@Setup
+	public void setup() {
+		timeSeries = TimeSeriesTestData.createTimeSeries(new Random(2014), stepCount, 20, 200, 8);
+		pyramid = TimeSeriesLogic.getTimeSeriesPyramid(timeSeries, threshold);
+	}
+
+	@Benchmark
+	public TimeSeries runLengthSegmentation() {
+		return TimeSeriesLogic.getSegmentedTimeSeries(timeSeries, segmentCount, threshold);
+	}
+
+	@Benchmark
+	public TimeSeries filteredSegmentation() {
+		return TimeSeriesLogic.getFilteredTimeSeries(timeSeries, segmentCount, threshold, null);
+	}
+
+	@Benchmark
+	public TimeSeriesPyramid pyramidCreation() {
+		return TimeSeriesLogic.getTimeSeriesPyramid(timeSeries, threshold);
+	}
+
+	@Benchmark
+	public TimeSeries pyramidSegmentation() {
+		return TimeSeriesLogic.getSegmentedTimeSeries(pyramid, segmentCount);
+	}
+}
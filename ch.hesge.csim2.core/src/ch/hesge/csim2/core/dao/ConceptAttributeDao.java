@@ -8,6 +8,8 @@ import java.util.Map;
 
 import ch.hesge.csim2.core.model.Concept;
 import ch.hesge.csim2.core.model.ConceptAttribute;
+import ch.hesge.csim2.core.model.Ontology;
+import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.utils.ConnectionUtils;
 import ch.hesge.csim2.core.utils.Console;
 import ch.hesge.csim2.core.utils.IDataRow;
@@ -33,6 +35,8 @@ public class ConceptAttributeDao {
 	private static String DELETE = "DELETE FROM concept_attributes WHERE concept_id=?conceptId";
 
 	private static String FIND_BY_CONCEPT = "SELECT key_id, concept_id, name, identifier FROM concept_attributes WHERE concept_id=?conceptId ORDER BY name";
+	private static String FIND_BY_ONTOLOGY = "SELECT a.key_id, a.concept_id, a.name, a.identifier FROM concept_attributes a INNER JOIN concepts c ON a.concept_id = c.key_id WHERE c.ontology_id=?ontologyId ORDER BY a.name";
+	private static String FIND_BY_PROJECT = "SELECT a.key_id, a.concept_id, a.name, a.identifier FROM concept_attributes a INNER JOIN concepts c ON a.concept_id = c.key_id INNER JOIN ontologies o ON c.ontology_id = o.key_id WHERE o.project_id=?projectId ORDER BY a.name";
 
 	/**
 	 * Retrieves all concept attributes.
@@ -57,6 +61,69 @@ public class ConceptAttributeDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return attributeList;
+	}
+
+	/**
+	 * Retrieves all attributes owned by an ontology, in a single query.
+	 * 
+	 * @param ontology
+	 *            the ontology owning all attributes
+	 * @return a list of attributes or null
+	 */
+	public static List<ConceptAttribute> findByOntology(Ontology ontology) {
+
+		List<ConceptAttribute> attributeList = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("ontologyId", ontology.getKeyId());
+
+			// Execute the query
+			attributeList = QueryEngine.queryForList(connection, ConceptAttributeDao.FIND_BY_ONTOLOGY, paramMap, getRowMapper());
+		}
+		catch (SQLException e) {
+			Console.writeError(ConceptAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return attributeList;
+	}
+
+	/**
+	 * Retrieves all attributes owned by a project, in a single query.
+	 * 
+	 * @param project
+	 *            the project owning all attributes
+	 * @return a list of attributes or null
+	 */
+	public static List<ConceptAttribute> findByProject(Project project) {
+
+		List<ConceptAttribute> attributeList = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
+
+			// Execute the query
+			attributeList = QueryEngine.queryForList(connection, ConceptAttributeDao.FIND_BY_PROJECT, paramMap, getRowMapper());
+		}
+		catch (SQLException e) {
+			Console.writeError(ConceptAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return attributeList;
 	}
@@ -85,6 +152,9 @@ public class ConceptAttributeDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -108,6 +178,9 @@ public class ConceptAttributeDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -127,6 +200,9 @@ public class ConceptAttributeDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -8,6 +8,8 @@ import java.util.Map;
 
 import ch.hesge.csim2.core.model.Concept;
 import ch.hesge.csim2.core.model.ConceptClass;
+import ch.hesge.csim2.core.model.Ontology;
+import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.utils.ConnectionUtils;
 import ch.hesge.csim2.core.utils.Console;
 import ch.hesge.csim2.core.utils.IDataRow;
@@ -33,6 +35,8 @@ public class ConceptClassDao {
 	private static String DELETE = "DELETE FROM concept_classes WHERE concept_id=?conceptId";
 
 	private static String FIND_BY_CONCEPT = "SELECT key_id, concept_id, name, identifier FROM concept_classes WHERE concept_id=?conceptId ORDER BY name";
+	private static String FIND_BY_ONTOLOGY = "SELECT k.key_id, k.concept_id, k.name, k.identifier FROM concept_classes k INNER JOIN concepts c ON k.concept_id = c.key_id WHERE c.ontology_id=?ontologyId ORDER BY k.name";
+	private static String FIND_BY_PROJECT = "SELECT k.key_id, k.concept_id, k.name, k.identifier FROM concept_classes k INNER JOIN concepts c ON k.concept_id = c.key_id INNER JOIN ontologies o ON c.ontology_id = o.key_id WHERE o.project_id=?projectId ORDER BY k.name";
 
 	/**
 	 * Retrieves all concept classes for a concept.
@@ -57,6 +61,69 @@ public class ConceptClassDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return classList;
+	}
+
+	/**
+	 * Retrieves all classes owned by an ontology, in a single query.
+	 * 
+	 * @param ontology
+	 *            the ontology owning all classes
+	 * @return a list of classes or null
+	 */
+	public static List<ConceptClass> findByOntology(Ontology ontology) {
+
+		List<ConceptClass> classList = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("ontologyId", ontology.getKeyId());
+
+			// Execute the query
+			classList = QueryEngine.queryForList(connection, ConceptClassDao.FIND_BY_ONTOLOGY, paramMap, getRowMapper());
+		}
+		catch (SQLException e) {
+			Console.writeError(ConceptClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return classList;
+	}
+
+	/**
+	 * Retrieves all classes owned by a project, in a single query.
+	 * 
+	 * @param project
+	 *            the project owning all classes
+	 * @return a list of classes or null
+	 */
+	public static List<ConceptClass> findByProject(Project project) {
+
+		List<ConceptClass> classList = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
+
+			// Execute the query
+			classList = QueryEngine.queryForList(connection, ConceptClassDao.FIND_BY_PROJECT, paramMap, getRowMapper());
+		}
+		catch (SQLException e) {
+			Console.writeError(ConceptClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return classList;
 	}
@@ -84,6 +151,9 @@ public class ConceptClassDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -107,6 +177,9 @@ public class ConceptClassDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -126,6 +199,9 @@ public class ConceptClassDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -30,8 +30,8 @@ import ch.hesge.csim2.core.utils.StringUtils;
 public class ConceptDao {
 
 	// Private static SQL queries
-	private static String INSERT = "INSERT INTO concepts SET ontology_id=?ontologyId, name='?name', bounds='?bounds', action=?action";
-	private static String UPDATE = "UPDATE concepts SET ontology_id=?ontologyId, name='?name', bounds='?bounds', action=?action WHERE key_id=?keyId";
+	private static String INSERT = "INSERT INTO concepts SET ontology_id=?ontologyId, name=?name, bounds=?bounds, action=?action";
+	private static String UPDATE = "UPDATE concepts SET ontology_id=?ontologyId, name=?name, bounds=?bounds, action=?action WHERE key_id=?keyId";
 	private static String DELETE = "DELETE FROM concepts WHERE key_id=?keyId";
 
 	private static String FIND_BY_PROJECT  = "SELECT c.key_id, c.ontology_id, c.name, c.bounds, c.action FROM concepts c INNER JOIN ontologies o ON c.ontology_id = o.key_id INNER JOIN projects p ON o.project_id = p.key_id WHERE p.key_id = ?projectId ORDER BY c.name";
@@ -60,6 +60,9 @@ public class ConceptDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return conceptList;
 	}
@@ -87,6 +90,9 @@ public class ConceptDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return conceptList;
 	}
@@ -103,11 +109,11 @@ public class ConceptDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(ConceptDao.INSERT, getParamMapper(), concept);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(concept);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, ConceptDao.INSERT, paramMap);
 
 			// Update keyId defined by database
 			concept.setKeyId(QueryEngine.queryForLastInsertedIdentifier(connection));
@@ -115,6 +121,9 @@ public class ConceptDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -129,15 +138,18 @@ public class ConceptDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(ConceptDao.UPDATE, getParamMapper(), concept);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(concept);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, ConceptDao.UPDATE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(ConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -161,6 +173,9 @@ public class ConceptDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -220,7 +235,7 @@ public class ConceptDao {
 
 				String boundsAsString = row.getString("bounds");
 
-				if (boundsAsString != null && !boundsAsString.equals("null") && boundsAsString.trim().length() > 0) {
+				if (boundsAsString != null && boundsAsString.trim().length() > 0) {
 					String[] boundsItems = boundsAsString.split(",");
 					Rectangle bounds = new Rectangle();
 					bounds.x = (int) Integer.valueOf(boundsItems[0]);
@@ -8,6 +8,8 @@ import java.util.Map;
 
 import ch.hesge.csim2.core.model.Concept;
 import ch.hesge.csim2.core.model.ConceptLink;
+import ch.hesge.csim2.core.model.Ontology;
+import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.utils.ConnectionUtils;
 import ch.hesge.csim2.core.utils.Console;
 import ch.hesge.csim2.core.utils.IDataRow;
@@ -28,10 +30,12 @@ import ch.hesge.csim2.core.utils.StringUtils;
 public class ConceptLinkDao {
 
 	// Private static SQL queries
-	private static String INSERT = "INSERT INTO concept_links SET source_id=?sourceId, target_id=?targetId, qualifier='?qualifier'";
+	private static String INSERT = "INSERT INTO concept_links SET source_id=?sourceId, target_id=?targetId, qualifier=?qualifier";
 	private static String DELETE = "DELETE FROM concept_links WHERE source_id=?conceptId OR target_id=?conceptId";
 
 	private static String FIND_BY_CONCEPT = "SELECT source_id, target_id, qualifier FROM concept_links WHERE source_id=?sourceId";
+	private static String FIND_BY_ONTOLOGY = "SELECT l.source_id, l.target_id, l.qualifier FROM concept_links l INNER JOIN concepts c ON l.source_id = c.key_id WHERE c.ontology_id=?ontologyId";
+	private static String FIND_BY_PROJECT = "SELECT l.source_id, l.target_id, l.qualifier FROM concept_links l INNER JOIN concepts c ON l.source_id = c.key_id INNER JOIN ontologies o ON c.ontology_id = o.key_id WHERE o.project_id=?projectId";
 
 	/**
 	 * Retrieves all links owned by a concept. In other words return all links starting from a specific concept.
@@ -57,6 +61,69 @@ public class ConceptLinkDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptLinkDao.class, "an unexpected error has occured: " + StringUtils.toString(e) + " - " + queryString);
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return links;
+	}
+
+	/**
+	 * Retrieves all links owned by an ontology, in a single query.
+	 * 
+	 * @param ontology
+	 *            the ontology owning all links
+	 * @return a list of links or null
+	 */
+	public static List<ConceptLink> findByOntology(Ontology ontology) {
+
+		List<ConceptLink> links = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("ontologyId", ontology.getKeyId());
+
+			// Execute the query
+			links = QueryEngine.queryForList(connection, ConceptLinkDao.FIND_BY_ONTOLOGY, paramMap, getRowMapper());
+		}
+		catch (SQLException e) {
+			Console.writeError(ConceptLinkDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return links;
+	}
+
+	/**
+	 * Retrieves all links owned by a project, in a single query.
+	 * 
+	 * @param project
+	 *            the project owning all links
+	 * @return a list of links or null
+	 */
+	public static List<ConceptLink> findByProject(Project project) {
+
+		List<ConceptLink> links = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
+
+			// Execute the query
+			links = QueryEngine.queryForList(connection, ConceptLinkDao.FIND_BY_PROJECT, paramMap, getRowMapper());
+		}
+		catch (SQLException e) {
+			Console.writeError(ConceptLinkDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return links;
 	}
@@ -71,18 +138,19 @@ public class ConceptLinkDao {
 
 		Connection connection = ConnectionUtils.createConnection();
 
-		String queryString = null;
-
 		try {
 
-			// Build the query to execute
-			/* String */queryString = QueryBuilder.create(ConceptLinkDao.INSERT, getParamMapper(), link);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(link);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, ConceptLinkDao.INSERT, paramMap);
 		}
 		catch (SQLException e) {
-			Console.writeError(ConceptLinkDao.class, "an unexpected error has occured: " + StringUtils.toString(e) + " - " + queryString);
+			Console.writeError(ConceptLinkDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
 		}
 	}
 
@@ -107,6 +175,9 @@ public class ConceptLinkDao {
 		catch (SQLException e) {
 			Console.writeError(ConceptLinkDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -149,14 +220,7 @@ public class ConceptLinkDao {
 				link.setSourceId(row.getInteger("source_id"));
 				link.setTargetId(row.getInteger("target_id"));
 
-				String qualifier = row.getString("qualifier");
-
-				if (qualifier == null || qualifier.equals("null")) {
-					link.setQualifier(null);
-				}
-				else {
-					link.setQualifier(qualifier);
-				}
+				link.setQualifier(row.getString("qualifier"));
 
 				return link;
 			}
@@ -0,0 +1,324 @@
+package ch.hesge.csim2.core.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.hesge.csim2.core.model.IMethodConceptMatcher;
+import ch.hesge.csim2.core.model.MethodConceptMatch;
+import ch.hesge.csim2.core.model.Project;
+import ch.hesge.csim2.core.model.StemConcept;
+import ch.hesge.csim2.core.model.StemMethod;
+import ch.hesge.csim2.core.utils.ConnectionUtils;
+import ch.hesge.csim2.core.utils.Console;
+import ch.hesge.csim2.core.utils.IDataRow;
+import ch.hesge.csim2.core.utils.IParamMapper;
+import ch.hesge.csim2.core.utils.IRowMapper;
+import ch.hesge.csim2.core.utils.QueryBuilder;
+import ch.hesge.csim2.core.utils.QueryEngine;
+import ch.hesge.csim2.core.utils.StringUtils;
+
+/**
+ * Class responsible to manage DAO access for MethodConceptMatch.
+ *
+ * Matchings are identified by project, matcher name and version, and
+ * threshold. Matching stems are stored as comma separated stem ids:
+ *
+ * <pre>
+ * 		keyId,keyId,keyId
+ * </pre>
+ *
+ * and retrieved as stems with only their keyId initialized.
+ *
+ * Each computation is also recorded by matcher, so that a matcher having
+ * found no matching can be told apart from a matcher never run.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class MethodConceptMatchDao {
+
+	// Private static SQL queries
+	private static String INSERT_MATCHER = "INSERT INTO method_concept_matchers (project_id, matcher_name, matcher_version, threshold) VALUES (?projectId, ?matcherName, ?matcherVersion, ?threshold)";
+	private static String DELETE_MATCHER = "DELETE FROM method_concept_matchers WHERE project_id=?projectId AND matcher_name=?matcherName AND matcher_version=?matcherVersion AND threshold=?threshold";
+	private static String DELETE_MATCHERS_BY_PROJECT = "DELETE FROM method_concept_matchers WHERE project_id=?projectId";
+	private static String COUNT_MATCHERS = "SELECT count(*) FROM method_concept_matchers WHERE project_id=?projectId AND matcher_name=?matcherName AND matcher_version=?matcherVersion AND threshold=?threshold";
+
+	private static String INSERT_BATCH = "INSERT INTO method_concept_matches (project_id, matcher_name, matcher_version, threshold, method_id, concept_id, weight, stem_concept_ids, stem_method_ids) VALUES (?projectId, ?matcherName, ?matcherVersion, ?threshold, ?methodId, ?conceptId, ?weight, ?stemConceptIds, ?stemMethodIds)";
+	private static String DELETE_BY_MATCHER = "DELETE FROM method_concept_matches WHERE project_id=?projectId AND matcher_name=?matcherName AND matcher_version=?matcherVersion AND threshold=?threshold";
+	private static String DELETE_BY_PROJECT = "DELETE FROM method_concept_matches WHERE project_id=?projectId";
+
+	private static String FIND_BY_MATCHER = "SELECT key_id, method_id, concept_id, weight, stem_concept_ids, stem_method_ids FROM method_concept_matches WHERE project_id=?projectId AND matcher_name=?matcherName AND matcher_version=?matcherVersion AND threshold=?threshold ORDER BY key_id";
+
+	/**
+	 * Retrieves all matchings computed by a matcher on a project.
+	 *
+	 * @param project
+	 *        the project owning the matchings
+	 * @param matcher
+	 *        the matcher used to compute matchings
+	 * @param threshold
+	 *        the threshold used when selecting matching
+	 * @return a list of matchings (in the order they were saved), empty if
+	 *         the matcher found no matching, or null if the matcher was not
+	 *         run
+	 */
+	public static List<MethodConceptMatch> findByMatcher(Project project, IMethodConceptMatcher matcher, float threshold) {
+
+		List<MethodConceptMatch> matchList = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = getMatcherParams(project, matcher, threshold);
+
+			// Check if matchings have been computed
+			Number matcherCount = QueryEngine.queryForScalar(connection, MethodConceptMatchDao.COUNT_MATCHERS, paramMap);
+
+			// Execute the query
+			if (matcherCount != null && matcherCount.intValue() > 0) {
+				matchList = QueryEngine.queryForList(connection, MethodConceptMatchDao.FIND_BY_MATCHER, paramMap, getRowMapper());
+			}
+		}
+		catch (SQLException e) {
+			Console.writeError(MethodConceptMatchDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return matchList;
+	}
+
+	/**
+	 * Replace all matchings computed by a matcher on a project.
+	 *
+	 * Previous matchings are removed and new ones inserted through a single
+	 * JDBC batch, all within a single transaction. Either all changes are
+	 * committed, or none.
+	 *
+	 * @param project
+	 *        the project owning the matchings
+	 * @param matcher
+	 *        the matcher used to compute matchings
+	 * @param threshold
+	 *        the threshold used when selecting matching
+	 * @param matchings
+	 *        the matchings to save
+	 */
+	public static void saveByMatcher(Project project, IMethodConceptMatcher matcher, float threshold, List<MethodConceptMatch> matchings) {
+
+		try {
+
+			Connection connection = ConnectionUtils.beginTransaction();
+
+			try {
+
+				Map<String, Object> paramMap = getMatcherParams(project, matcher, threshold);
+
+				// Remove previous matchings
+				QueryEngine.executeQuery(connection, MethodConceptMatchDao.DELETE_MATCHER, paramMap);
+				QueryEngine.executeQuery(connection, MethodConceptMatchDao.DELETE_BY_MATCHER, paramMap);
+
+				// Record the computation, even without matching
+				QueryEngine.executeQuery(connection, MethodConceptMatchDao.INSERT_MATCHER, paramMap);
+
+				// Insert new matchings
+				if (!matchings.isEmpty()) {
+
+					List<Integer> keyIds = QueryEngine.executeBatch(connection, MethodConceptMatchDao.INSERT_BATCH, getParamMapper(project, matcher, threshold), matchings);
+
+					// Update keyId defined by database
+					for (int i = 0; i < keyIds.size() && i < matchings.size(); i++) {
+						matchings.get(i).setKeyId(keyIds.get(i));
+					}
+				}
+
+				ConnectionUtils.commitTransaction();
+			}
+			catch (SQLException e) {
+				ConnectionUtils.rollbackTransaction();
+				throw e;
+			}
+		}
+		catch (SQLException e) {
+			Console.writeError(MethodConceptMatchDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+	}
+
+	/**
+	 * Remove all matchings owned by a project, whatever the matcher.
+	 *
+	 * @param project
+	 *        the project whose matchings should be removed from database
+	 */
+	public static void deleteByProject(Project project) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
+
+			// Execute the queries, computations first, so that remaining
+			// matchings are never taken as complete
+			QueryEngine.executeQuery(connection, MethodConceptMatchDao.DELETE_MATCHERS_BY_PROJECT, paramMap);
+			QueryEngine.executeQuery(connection, MethodConceptMatchDao.DELETE_BY_PROJECT, paramMap);
+		}
+		catch (SQLException e) {
+			Console.writeError(MethodConceptMatchDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Build the parameters identifying the matchings of a matcher.
+	 */
+	private static Map<String, Object> getMatcherParams(Project project, IMethodConceptMatcher matcher, float threshold) {
+
+		Map<String, Object> paramMap = new HashMap<>();
+
+		paramMap.put("projectId", project.getKeyId());
+		paramMap.put("matcherName", matcher.getName());
+		paramMap.put("matcherVersion", matcher.getVersion());
+		paramMap.put("threshold", String.valueOf(threshold));
+
+		return paramMap;
+	}
+
+	/**
+	 * Convert stem concepts into a string of ids.
+	 */
+	private static String toStemConceptIds(List<StemConcept> stems) {
+
+		StringBuilder builder = new StringBuilder();
+
+		for (StemConcept stem : stems) {
+
+			if (builder.length() > 0) {
+				builder.append(',');
+			}
+
+			builder.append(stem.getKeyId());
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Convert stem methods into a string of ids.
+	 */
+	private static String toStemMethodIds(List<StemMethod> stems) {
+
+		StringBuilder builder = new StringBuilder();
+
+		for (StemMethod stem : stems) {
+
+			if (builder.length() > 0) {
+				builder.append(',');
+			}
+
+			builder.append(stem.getKeyId());
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Rebuild stem concepts, with only their keyId, from a string of ids.
+	 */
+	private static void populateStemConcepts(List<StemConcept> stems, String stemIds) {
+
+		if (stemIds == null || stemIds.isEmpty()) {
+			return;
+		}
+
+		for (String stemId : stemIds.split(",")) {
+
+			StemConcept stem = new StemConcept();
+			stem.setKeyId(Integer.parseInt(stemId));
+
+			stems.add(stem);
+		}
+	}
+
+	/**
+	 * Rebuild stem methods, with only their keyId, from a string of ids.
+	 */
+	private static void populateStemMethods(List<StemMethod> stems, String stemIds) {
+
+		if (stemIds == null || stemIds.isEmpty()) {
+			return;
+		}
+
+		for (String stemId : stemIds.split(",")) {
+
+			StemMethod stem = new StemMethod();
+			stem.setKeyId(Integer.parseInt(stemId));
+
+			stems.add(stem);
+		}
+	}
+
+	/**
+	 * Declare a generic parameter mapper for MethodConceptMatch object.
+	 *
+	 * This class is responsible to extract all attributes of an object and put
+	 * them into a <property-name, property-value> map. This map can then be
+	 * used to replace all parameters of an sql query.
+	 */
+	private static IParamMapper<MethodConceptMatch> getParamMapper(final Project project, final IMethodConceptMatcher matcher, final float threshold) {
+		return new IParamMapper<MethodConceptMatch>() {
+
+			@Override
+			public Map<String, Object> mapParameters(MethodConceptMatch match) {
+
+				Map<String, Object> map = getMatcherParams(project, matcher, threshold);
+
+				map.put("methodId", match.getSourceMethod().getKeyId());
+				map.put("conceptId", match.getConcept().getKeyId());
+				map.put("weight", match.getWeight());
+				map.put("stemConceptIds", toStemConceptIds(match.getStemConcepts()));
+				map.put("stemMethodIds", toStemMethodIds(match.getStemMethods()));
+
+				return map;
+			}
+		};
+	}
+
+	/**
+	 * Declare a generic row mapper for MethodConceptMatch object.
+	 *
+	 * This class is responsible to extract all fields from a database row
+	 * (IDataRow) and to create a plain java object, with all its attributes
+	 * initialized with these values. That is in one sentence,
+	 * to map all row values into one single object.
+	 */
+	private static IRowMapper<MethodConceptMatch> getRowMapper() {
+		return new IRowMapper<MethodConceptMatch>() {
+
+			@Override
+			public MethodConceptMatch mapRow(IDataRow row) {
+
+				MethodConceptMatch match = new MethodConceptMatch();
+
+				match.setKeyId(row.getInteger("key_id"));
+				match.setSourceMethodId(row.getInteger("method_id"));
+				match.setConceptId(row.getInteger("concept_id"));
+				match.setWeight(row.getDouble("weight"));
+				populateStemConcepts(match.getStemConcepts(), row.getString("stem_concept_ids"));
+				populateStemMethods(match.getStemMethods(), row.getString("stem_method_ids"));
+
+				return match;
+			}
+		};
+	}
+}
@@ -56,6 +56,9 @@ public class OntologyDao {
 		catch (SQLException e) {
 			Console.writeError(OntologyDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return ontologyList;
 	}
@@ -83,6 +86,9 @@ public class OntologyDao {
 		catch (SQLException e) {
 			Console.writeError(OntologyDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return ontology;
 	}
@@ -110,6 +116,9 @@ public class OntologyDao {
 		catch (SQLException e) {
 			Console.writeError(OntologyDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return ontologyList;
 	}
@@ -138,6 +147,9 @@ public class OntologyDao {
 		catch (SQLException e) {
 			Console.writeError(OntologyDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -162,6 +174,9 @@ public class OntologyDao {
 		catch (SQLException e) {
 			Console.writeError(OntologyDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -185,6 +200,9 @@ public class OntologyDao {
 		catch (SQLException e) {
 			Console.writeError(OntologyDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -54,6 +54,9 @@ public class ProjectDao {
 		catch (SQLException e) {
 			Console.writeError(ProjectDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return projectList;
 	}
@@ -81,6 +84,9 @@ public class ProjectDao {
 		catch (SQLException e) {
 			Console.writeError(ProjectDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return project;
 	}
@@ -109,6 +115,9 @@ public class ProjectDao {
 		catch (SQLException e) {
 			Console.writeError(ProjectDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -132,6 +141,9 @@ public class ProjectDao {
 		catch (SQLException e) {
 			Console.writeError(ProjectDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -155,6 +167,9 @@ public class ProjectDao {
 		catch (SQLException e) {
 			Console.writeError(ProjectDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -56,6 +56,9 @@ public class ScenarioDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return scenarioList;
 	}
@@ -85,6 +88,9 @@ public class ScenarioDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return scenario;
 	}
@@ -112,6 +118,9 @@ public class ScenarioDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return scenarioList;
 	}
@@ -140,6 +149,9 @@ public class ScenarioDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -163,6 +175,9 @@ public class ScenarioDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -186,6 +201,9 @@ public class ScenarioDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
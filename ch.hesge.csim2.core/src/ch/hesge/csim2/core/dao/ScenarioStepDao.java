@@ -59,6 +59,9 @@ public class ScenarioStepDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioStepDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return scenarioSteps;
 	}
@@ -91,6 +94,9 @@ public class ScenarioStepDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioStepDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return scenarioStep;
 	}
@@ -119,6 +125,9 @@ public class ScenarioStepDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioStepDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -142,6 +151,9 @@ public class ScenarioStepDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioStepDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -165,6 +177,9 @@ public class ScenarioStepDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioStepDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -188,6 +203,9 @@ public class ScenarioStepDao {
 		catch (SQLException e) {
 			Console.writeError(ScenarioStepDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
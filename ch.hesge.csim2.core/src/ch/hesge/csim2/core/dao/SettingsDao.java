@@ -58,6 +58,9 @@ public class SettingsDao {
 		catch (SQLException e) {
 			Console.writeError(SettingsDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return properties;
 	}
@@ -85,6 +88,9 @@ public class SettingsDao {
 		catch (SQLException e) {
 			Console.writeError(SettingsDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return settingValue;
 	}
@@ -119,6 +125,9 @@ public class SettingsDao {
 		catch (SQLException e) {
 			Console.writeError(SettingsDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -150,5 +159,8 @@ public class SettingsDao {
 		catch (SQLException e) {
 			Console.writeError(SettingsDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 }
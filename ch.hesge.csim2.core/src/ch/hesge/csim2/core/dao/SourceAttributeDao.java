@@ -32,8 +32,10 @@ public class SourceAttributeDao {
 	private static String INSERT = "INSERT INTO source_attributes SET class_id=?classId, name='?name', value='?value', type='?type'";
 	private static String UPDATE = "UPDATE source_attributes SET class_id=?classId, name='?name', value='?value', type='?type' WHERE key_id=?keyId";
 	private static String DELETE = "DELETE FROM source_attributes WHERE class_id in (SELECT key_id FROM source_classes WHERE project_id=?projectId)";
+	private static String DELETE_BY_CLASS = "DELETE FROM source_attributes WHERE class_id=?keyId";
 
 	private static String FIND_BY_CLASS = "SELECT key_id, class_id, name, value, type FROM source_attributes WHERE class_id=?classId ORDER BY name";
+	private static String FIND_BY_PROJECT = "SELECT a.key_id, a.class_id, a.name, a.value, a.type FROM source_attributes a INNER JOIN source_classes c ON a.class_id = c.key_id WHERE c.project_id=?projectId ORDER BY a.name";
 
 	/**
 	 * Retrieves all source attributes owned by an source class.
@@ -57,6 +59,39 @@ public class SourceAttributeDao {
 		catch (SQLException e) {
 			Console.writeError(SourceAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return attributeList;
+	}
+
+	/**
+	 * Retrieves all attributes owned by a project, in a single query.
+	 * 
+	 * @param project
+	 *        the project owning all attributes
+	 * @return a list of attributes or null
+	 */
+	public static List<SourceAttribute> findByProject(Project project) {
+
+		List<SourceAttribute> attributeList = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
+
+			// Execute the query
+			attributeList = QueryEngine.queryForList(connection, SourceAttributeDao.FIND_BY_PROJECT, paramMap, getRowMapper());
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return attributeList;
 	}
@@ -85,6 +120,9 @@ public class SourceAttributeDao {
 		catch (SQLException e) {
 			Console.writeError(SourceAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -108,6 +146,9 @@ public class SourceAttributeDao {
 		catch (SQLException e) {
 			Console.writeError(SourceAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -129,6 +170,35 @@ public class SourceAttributeDao {
 		catch (SQLException e) {
 			Console.writeError(SourceAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Remove all attributes owned by a list of source classes.
+	 * 
+	 * All classes are handled through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param sourceClasses
+	 *        the classes whose attributes should be removed
+	 */
+	public static void deleteByClasses(List<SourceClass> sourceClasses) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all classes
+			QueryEngine.executeBatch(connection, SourceAttributeDao.DELETE_BY_CLASS, SourceClassDao.getParamMapper(), sourceClasses);
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceAttributeDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
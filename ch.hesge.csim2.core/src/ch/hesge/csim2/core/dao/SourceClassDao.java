@@ -29,11 +29,12 @@ import ch.hesge.csim2.core.utils.StringUtils;
 public class SourceClassDao {
 
 	// Private static SQL queries
-	private static String INSERT = "INSERT INTO source_classes SET project_id=?projectId, superclass_id=?superclassId, filename='?filename', name='?name', type='?type'";
-	private static String UPDATE = "UPDATE source_classes SET project_id=?projectId, superclass_id=?superclassId, filename='?filename', name='?name', type='?type' WHERE key_id=?keyId";
+	private static String INSERT = "INSERT INTO source_classes SET project_id=?projectId, superclass_id=?superclassId, file_id=?fileId, filename=?filename, name=?name, type=?type, superclass_name=?superclassName";
+	private static String UPDATE = "UPDATE source_classes SET project_id=?projectId, superclass_id=?superclassId, file_id=?fileId, filename=?filename, name=?name, type=?type, superclass_name=?superclassName WHERE key_id=?keyId";
 	private static String DELETE = "DELETE FROM source_classes WHERE project_id = ?projectId";
+	private static String DELETE_BY_KEY = "DELETE FROM source_classes WHERE key_id=?keyId";
 
-	private static String FIND_BY_PROJECT = "SELECT key_id, project_id, superclass_id, filename, name, type FROM source_classes WHERE project_id=?projectId ORDER BY name";
+	private static String FIND_BY_PROJECT = "SELECT key_id, project_id, superclass_id, file_id, filename, name, type, superclass_name FROM source_classes WHERE project_id=?projectId ORDER BY name";
 	private static String FIND_CLASS_AND_METHOD_SIGNATURES = "SELECT c.name, m.signature FROM source_methods m INNER JOIN source_classes c ON m.class_id = c.key_id WHERE project_id=?projectId";
 
 	/**
@@ -59,6 +60,9 @@ public class SourceClassDao {
 		catch (SQLException e) {
 			Console.writeError(SourceClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return classList;
 	}
@@ -105,6 +109,9 @@ public class SourceClassDao {
 		catch (SQLException e) {
 			Console.writeError(SourceClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return classnamesMap;
 	}
@@ -120,11 +127,11 @@ public class SourceClassDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(SourceClassDao.INSERT, getParamMapper(), sourceClass);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(sourceClass);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, SourceClassDao.INSERT, paramMap);
 
 			// Update keyId defined by database
 			sourceClass.setKeyId(QueryEngine.queryForLastInsertedIdentifier(connection));
@@ -132,6 +139,9 @@ public class SourceClassDao {
 		catch (SQLException e) {
 			Console.writeError(SourceClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -145,15 +155,70 @@ public class SourceClassDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(SourceClassDao.UPDATE, getParamMapper(), sourceClass);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(sourceClass);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, SourceClassDao.UPDATE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(SourceClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Update a list of source classes already persisted.
+	 * 
+	 * All classes are updated through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param sourceClasses
+	 *        the classes whose attributes should be updated on the database
+	 */
+	public static void updateBatch(List<SourceClass> sourceClasses) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all classes
+			QueryEngine.executeBatch(connection, SourceClassDao.UPDATE, getParamMapper(), sourceClasses);
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Remove a list of source classes, without their dependencies.
+	 * 
+	 * All classes are removed through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param sourceClasses
+	 *        the classes to remove from the database
+	 */
+	public static void deleteBatch(List<SourceClass> sourceClasses) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all classes
+			QueryEngine.executeBatch(connection, SourceClassDao.DELETE_BY_KEY, getParamMapper(), sourceClasses);
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -175,6 +240,9 @@ public class SourceClassDao {
 		catch (SQLException e) {
 			Console.writeError(SourceClassDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -184,7 +252,7 @@ public class SourceClassDao {
 	 * them into a <property-name, property-value> map. This map can then be
 	 * used to replace all parameters of an sql query.
 	 */
-	private static IParamMapper<SourceClass> getParamMapper() {
+	public static IParamMapper<SourceClass> getParamMapper() {
 		return new IParamMapper<SourceClass>() {
 
 			@Override
@@ -195,9 +263,11 @@ public class SourceClassDao {
 				map.put("keyId", sourceClass.getKeyId());
 				map.put("projectId", sourceClass.getProjectId());
 				map.put("superclassId", sourceClass.getSuperClassId());
+				map.put("fileId", sourceClass.getFileId());
 				map.put("filename", sourceClass.getFilename());
 				map.put("name", sourceClass.getName());
 				map.put("type", sourceClass.getType());
+				map.put("superclassName", sourceClass.getSuperClassName());
 
 				return map;
 			}
@@ -224,9 +294,11 @@ public class SourceClassDao {
 				sourceClass.setKeyId(row.getInteger("key_id"));
 				sourceClass.setProjectId(row.getInteger("project_id"));
 				sourceClass.setSuperClassId(row.getInteger("superclass_id"));
+				sourceClass.setFileId(row.getInteger("file_id"));
 				sourceClass.setFilename(row.getString("filename"));
 				sourceClass.setName(row.getString("name"));
 				sourceClass.setType(row.getString("type"));
+				sourceClass.setSuperClassName(row.getString("superclass_name"));
 
 				return sourceClass;
 			}
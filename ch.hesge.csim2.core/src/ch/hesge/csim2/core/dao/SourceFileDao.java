@@ -0,0 +1,221 @@
+package ch.hesge.csim2.core.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.hesge.csim2.core.model.Project;
+import ch.hesge.csim2.core.model.SourceFile;
+import ch.hesge.csim2.core.utils.ConnectionUtils;
+import ch.hesge.csim2.core.utils.Console;
+import ch.hesge.csim2.core.utils.IDataRow;
+import ch.hesge.csim2.core.utils.IParamMapper;
+import ch.hesge.csim2.core.utils.IRowMapper;
+import ch.hesge.csim2.core.utils.QueryBuilder;
+import ch.hesge.csim2.core.utils.QueryEngine;
+import ch.hesge.csim2.core.utils.StringUtils;
+
+/**
+ * Class responsible to manage DAO access for SourceFile.
+ * 
+ * Names of the classes declared by a file are stored as comma separated
+ * names:
+ * 
+ * <pre>
+ * 		name,name,name
+ * </pre>
+ * 
+ * Copyright HEG Geneva 2014, Switzerland
+ * 
+ * @author Eric Harth
+ */
+
+public class SourceFileDao {
+
+	// Private static SQL queries
+	private static String INSERT_BATCH = "INSERT INTO source_files (project_id, filename, content_hash, class_names) VALUES (?projectId, ?filename, ?contentHash, ?classNames)";
+	private static String DELETE = "DELETE FROM source_files WHERE project_id=?projectId";
+	private static String DELETE_BY_KEY = "DELETE FROM source_files WHERE key_id=?keyId";
+
+	private static String FIND_BY_PROJECT = "SELECT key_id, project_id, filename, content_hash, class_names FROM source_files WHERE project_id=?projectId";
+
+	/**
+	 * Retrieves all files analyzed for a project.
+	 * 
+	 * @param project
+	 *        the project owning files
+	 * @return a list of files or null
+	 */
+	public static List<SourceFile> findByProject(Project project) {
+
+		List<SourceFile> fileList = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
+
+			// Execute the query
+			fileList = QueryEngine.queryForList(connection, SourceFileDao.FIND_BY_PROJECT, paramMap, getRowMapper());
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceFileDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return fileList;
+	}
+
+	/**
+	 * Add a list of new files into the database.
+	 * 
+	 * All files are inserted through a single JDBC batch, within a single
+	 * transaction. On success, each file keyId is updated with the
+	 * identifier defined by the database.
+	 * 
+	 * @param sourceFiles
+	 *        the files to add into the database
+	 */
+	public static void addBatch(List<SourceFile> sourceFiles) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all files
+			List<Integer> keyIds = QueryEngine.executeBatch(connection, SourceFileDao.INSERT_BATCH, getParamMapper(), sourceFiles);
+
+			// Update keyId defined by database
+			for (int i = 0; i < keyIds.size() && i < sourceFiles.size(); i++) {
+				sourceFiles.get(i).setKeyId(keyIds.get(i));
+			}
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceFileDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Remove a list of files from the database.
+	 * 
+	 * All files are removed through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param sourceFiles
+	 *        the files to remove from the database
+	 */
+	public static void deleteBatch(List<SourceFile> sourceFiles) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all files
+			QueryEngine.executeBatch(connection, SourceFileDao.DELETE_BY_KEY, getParamMapper(), sourceFiles);
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceFileDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Remove all files analyzed for a project.
+	 * 
+	 * @param project
+	 *        the project whose files should be removed
+	 */
+	public static void deleteByProject(Project project) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
+
+			// Execute the query
+			QueryEngine.executeQuery(connection, SourceFileDao.DELETE, paramMap);
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceFileDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Declare a generic parameter mapper for model object.
+	 * 
+	 * This class is responsible to extract all attributes of an object and put
+	 * them into a <property-name, property-value> map. This map can then be
+	 * used to replace all parameters of an sql query.
+	 */
+	private static IParamMapper<SourceFile> getParamMapper() {
+		return new IParamMapper<SourceFile>() {
+
+			@Override
+			public Map<String, Object> mapParameters(SourceFile sourceFile) {
+
+				Map<String, Object> map = new HashMap<>();
+
+				map.put("keyId", sourceFile.getKeyId());
+				map.put("projectId", sourceFile.getProjectId());
+				map.put("filename", sourceFile.getFilename());
+				map.put("contentHash", sourceFile.getContentHash());
+				map.put("classNames", sourceFile.getClassNames() == null ? null : String.join(",", sourceFile.getClassNames()));
+
+				return map;
+			}
+		};
+	}
+
+	/**
+	 * Declare a generic row mapper for model object.
+	 * 
+	 * This class is responsible to extract all fields from a database row
+	 * (IDataRow) and to create a plain java object, with all its attributes
+	 * initialized with these values. That is in one sentence, to map all row
+	 * values into one single object.
+	 */
+	private static IRowMapper<SourceFile> getRowMapper() {
+		return new IRowMapper<SourceFile>() {
+
+			@Override
+			public SourceFile mapRow(IDataRow row) {
+
+				SourceFile sourceFile = new SourceFile();
+
+				sourceFile.setKeyId(row.getInteger("key_id"));
+				sourceFile.setProjectId(row.getInteger("project_id"));
+				sourceFile.setFilename(row.getString("filename"));
+				sourceFile.setContentHash(row.getString("content_hash"));
+
+				String classNames = row.getString("class_names");
+
+				// Files analyzed before class names were saved have none recorded
+				if (classNames == null) {
+					sourceFile.setClassNames(null);
+				}
+				else if (!classNames.isEmpty()) {
+					for (String className : classNames.split(",")) {
+						sourceFile.getClassNames().add(className);
+					}
+				}
+
+				return sourceFile;
+			}
+		};
+	}
+}
@@ -29,13 +29,14 @@ import ch.hesge.csim2.core.utils.StringUtils;
 public class SourceMethodDao {
 
 	// Private static SQL queries
-	private static String INSERT = "INSERT INTO source_methods SET filename='?filename', name='?name', class_id=?classId, signature='?signature', return_type='?returnType'";
-	private static String UPDATE = "UPDATE source_methods SET filename='?filename', name='?name', class_id=?classId, signature='?signature', return_type='?returnType' WHERE key_id=?keyId";
+	private static String INSERT = "INSERT INTO source_methods SET filename=?filename, name=?name, class_id=?classId, signature=?signature, return_type=?returnType";
+	private static String UPDATE = "UPDATE source_methods SET filename=?filename, name=?name, class_id=?classId, signature=?signature, return_type=?returnType WHERE key_id=?keyId";
 	private static String DELETE = "DELETE FROM source_methods WHERE class_id in (SELECT key_id FROM source_classes WHERE project_id=?projectId)";
+	private static String DELETE_BY_CLASS = "DELETE FROM source_methods WHERE class_id=?keyId";
 
 	private static String FIND_BY_CLASS = "SELECT key_id, filename, name, class_id, signature, return_type FROM source_methods WHERE class_id=?classId ORDER BY name";
 	private static String FIND_BY_PROJECT = "SELECT m.key_id, m.filename, m.name, m.class_id, m.signature, m.return_type FROM source_methods m INNER JOIN source_classes c ON m.class_id = c.key_id WHERE c.project_id=?projectId ORDER BY m.signature";
-	private static String FIND_BY_CLASS_AND_SIGNATURE = "SELECT * FROM source_methods WHERE class_id = (SELECT key_id FROM source_classes WHERE project_id=?projectId AND name = '?classname') AND signature = '?signature'";
+	private static String FIND_BY_CLASS_AND_SIGNATURE = "SELECT * FROM source_methods WHERE class_id = (SELECT key_id FROM source_classes WHERE project_id=?projectId AND name = ?classname) AND signature = ?signature";
 			
 	/**
 	 * Retrieves all source methods owned by an source class.
@@ -50,15 +51,18 @@ public class SourceMethodDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(SourceMethodDao.FIND_BY_CLASS, "classId", sourceClass.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("classId", sourceClass.getKeyId());
 
 			// Execute the query
-			methodList = QueryEngine.queryForList(connection, queryString, getRowMapper());
+			methodList = QueryEngine.queryForList(connection, SourceMethodDao.FIND_BY_CLASS, paramMap, getRowMapper());
 		}
 		catch (SQLException e) {
 			Console.writeError(SourceMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return methodList;
 	}
@@ -76,15 +80,18 @@ public class SourceMethodDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(SourceMethodDao.FIND_BY_PROJECT, "projectId", project.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
 
 			// Execute the query
-			methodList = QueryEngine.queryForList(connection, queryString, getRowMapper());
+			methodList = QueryEngine.queryForList(connection, SourceMethodDao.FIND_BY_PROJECT, paramMap, getRowMapper());
 		}
 		catch (SQLException e) {
 			Console.writeError(SourceMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return methodList;
 	}
@@ -110,15 +117,15 @@ public class SourceMethodDao {
 			parametersMap.put("classname", classname);
 			parametersMap.put("signature", signature);
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(SourceMethodDao.FIND_BY_CLASS_AND_SIGNATURE, parametersMap);
-
 			// Execute the query
-			sourceMethod = QueryEngine.queryForObject(connection, queryString, getRowMapper());
+			sourceMethod = QueryEngine.queryForObject(connection, SourceMethodDao.FIND_BY_CLASS_AND_SIGNATURE, parametersMap, getRowMapper());
 		}
 		catch (SQLException e) {
 			Console.writeError(SourceMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return sourceMethod;
 	}
@@ -135,11 +142,11 @@ public class SourceMethodDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(SourceMethodDao.INSERT, getParamMapper(), sourceMethod);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(sourceMethod);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, SourceMethodDao.INSERT, paramMap);
 
 			// Update keyId defined by database
 			sourceMethod.setKeyId(QueryEngine.queryForLastInsertedIdentifier(connection));
@@ -147,6 +154,9 @@ public class SourceMethodDao {
 		catch (SQLException e) {
 			Console.writeError(SourceMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -161,15 +171,18 @@ public class SourceMethodDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(SourceMethodDao.UPDATE, getParamMapper(), sourceMethod);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(sourceMethod);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, SourceMethodDao.UPDATE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(SourceMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -182,15 +195,44 @@ public class SourceMethodDao {
 		Connection connection = ConnectionUtils.createConnection();
 
 		try {
-			// Build the query to execute
-			String queryString = QueryBuilder.create(SourceMethodDao.DELETE, "projectId", project.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, SourceMethodDao.DELETE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(SourceMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Remove all methods owned by a list of source classes.
+	 * 
+	 * All classes are handled through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param sourceClasses
+	 *        the classes whose methods should be removed
+	 */
+	public static void deleteByClasses(List<SourceClass> sourceClasses) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all classes
+			QueryEngine.executeBatch(connection, SourceMethodDao.DELETE_BY_CLASS, SourceClassDao.getParamMapper(), sourceClasses);
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
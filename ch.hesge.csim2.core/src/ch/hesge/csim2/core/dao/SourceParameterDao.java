@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import ch.hesge.csim2.core.model.Project;
+import ch.hesge.csim2.core.model.SourceClass;
 import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.SourceParameter;
 import ch.hesge.csim2.core.utils.ConnectionUtils;
@@ -32,6 +33,7 @@ public class SourceParameterDao {
 	private static String INSERT = "INSERT INTO source_parameters SET method_id=?methodId, name='?name', type='?type'";
 	private static String UPDATE = "UPDATE source_parameters SET method_id=?methodId, name='?name', type='?type' WHERE key_id=?keyId";
 	private static String DELETE = "DELETE FROM source_parameters WHERE method_id in (SELECT key_id FROM source_methods WHERE class_id in (SELECT key_id FROM source_classes WHERE project_id=?projectId))";
+	private static String DELETE_BY_CLASS = "DELETE FROM source_parameters WHERE method_id in (SELECT key_id FROM source_methods WHERE class_id=?keyId)";
 
 	private static String FIND_METHOD = "SELECT key_id, method_id, name, type FROM source_parameters WHERE method_id=?methodId ORDER BY name";
 	private static String FIND_BY_PROJECT = "SELECT p.key_id, p.method_id, p.name, p.type FROM source_parameters p INNER JOIN source_methods m ON p.method_id = m.key_id INNER JOIN source_classes c ON m.class_id = c.key_id WHERE c.project_id=?projectId";
@@ -60,6 +62,9 @@ public class SourceParameterDao {
 		catch (SQLException e) {
 			Console.writeError(SourceParameterDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return referenceList;
 	}
@@ -88,6 +93,9 @@ public class SourceParameterDao {
 		catch (SQLException e) {
 			Console.writeError(SourceParameterDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return referenceList;
 	}
@@ -116,6 +124,9 @@ public class SourceParameterDao {
 		catch (SQLException e) {
 			Console.writeError(SourceParameterDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -139,6 +150,9 @@ public class SourceParameterDao {
 		catch (SQLException e) {
 			Console.writeError(SourceParameterDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -160,6 +174,35 @@ public class SourceParameterDao {
 		catch (SQLException e) {
 			Console.writeError(SourceParameterDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Remove all method parameters owned by a list of source classes.
+	 * 
+	 * All classes are handled through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param sourceClasses
+	 *        the classes whose method parameters should be removed
+	 */
+	public static void deleteByClasses(List<SourceClass> sourceClasses) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all classes
+			QueryEngine.executeBatch(connection, SourceParameterDao.DELETE_BY_CLASS, SourceClassDao.getParamMapper(), sourceClasses);
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceParameterDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import ch.hesge.csim2.core.model.Project;
+import ch.hesge.csim2.core.model.SourceClass;
 import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.SourceReference;
 import ch.hesge.csim2.core.model.SourceReferenceOrigin;
@@ -33,6 +34,7 @@ public class SourceReferenceDao {
 	private static String INSERT = "INSERT INTO source_references SET method_id=?methodId, name='?name', type='?type', origin=?origin";
 	private static String UPDATE = "UPDATE source_references SET method_id=?methodId, name='?name', type='?type', origin=?origin WHERE key_id=?keyId";
 	private static String DELETE = "DELETE FROM source_references WHERE method_id in (SELECT key_id FROM source_methods WHERE class_id in (SELECT key_id FROM source_classes WHERE project_id=?projectId))";
+	private static String DELETE_BY_CLASS = "DELETE FROM source_references WHERE method_id in (SELECT key_id FROM source_methods WHERE class_id=?keyId)";
 
 	private static String FIND_BY_METHOD = "SELECT key_id, method_id, name, type, origin FROM source_references WHERE method_id=?methodId ORDER BY name";
 	private static String FIND_BY_PROJECT = "SELECT r.key_id, r.method_id, r.name, r.type, r.origin FROM source_references r INNER JOIN source_methods m ON r.method_id = m.key_id INNER JOIN source_classes c ON m.class_id = c.key_id WHERE c.project_id=?projectId";
@@ -61,6 +63,9 @@ public class SourceReferenceDao {
 		catch (SQLException e) {
 			Console.writeError(SourceReferenceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return referenceList;
 	}
@@ -89,6 +94,9 @@ public class SourceReferenceDao {
 		catch (SQLException e) {
 			Console.writeError(SourceReferenceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return referenceList;
 	}
@@ -117,6 +125,9 @@ public class SourceReferenceDao {
 		catch (SQLException e) {
 			Console.writeError(SourceReferenceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -140,6 +151,9 @@ public class SourceReferenceDao {
 		catch (SQLException e) {
 			Console.writeError(SourceReferenceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -161,6 +175,35 @@ public class SourceReferenceDao {
 		catch (SQLException e) {
 			Console.writeError(SourceReferenceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Remove all method references owned by a list of source classes.
+	 * 
+	 * All classes are handled through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param sourceClasses
+	 *        the classes whose method references should be removed
+	 */
+	public static void deleteByClasses(List<SourceClass> sourceClasses) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all classes
+			QueryEngine.executeBatch(connection, SourceReferenceDao.DELETE_BY_CLASS, SourceClassDao.getParamMapper(), sourceClasses);
+		}
+		catch (SQLException e) {
+			Console.writeError(SourceReferenceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
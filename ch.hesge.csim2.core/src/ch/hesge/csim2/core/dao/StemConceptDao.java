@@ -31,8 +31,9 @@ import ch.hesge.csim2.core.utils.StringUtils;
 public class StemConceptDao {
 
 	// Private static SQL queries
-	private static String INSERT = "INSERT INTO stem_concepts SET project_id=?projectId, parent_id=?parentId, concept_id=?conceptId, term='?term', stem_type=?stemType";
-	private static String UPDATE = "UPDATE stem_concepts SET project_id=?projectId, parent_id=?parentId, concept_id=?conceptId, term='?term', stem_type=?stemType WHERE key_id=?keyId";
+	private static String INSERT = "INSERT INTO stem_concepts SET project_id=?projectId, parent_id=?parentId, concept_id=?conceptId, term=?term, stem_type=?stemType";
+	private static String UPDATE = "UPDATE stem_concepts SET project_id=?projectId, parent_id=?parentId, concept_id=?conceptId, term=?term, stem_type=?stemType WHERE key_id=?keyId";
+	private static String INSERT_BATCH = "INSERT INTO stem_concepts (project_id, parent_id, concept_id, term, stem_type) VALUES (?projectId, ?parentId, ?conceptId, ?term, ?stemType)";
 	private static String DELETE = "DELETE FROM stem_concepts WHERE concept_id in (SELECT key_id FROM concepts WHERE ontology_id=?ontologyId)";
 	private static String DELETE_BY_PROJECT = "DELETE FROM stem_concepts WHERE project_id = ?projectId";
 
@@ -52,15 +53,18 @@ public class StemConceptDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemConceptDao.FIND_BY_CONCEPT, "conceptId", concept.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("conceptId", concept.getKeyId());
 
 			// Execute the query
-			stemList = QueryEngine.queryForList(connection, queryString, getRowMapper());
+			stemList = QueryEngine.queryForList(connection, StemConceptDao.FIND_BY_CONCEPT, paramMap, getRowMapper());
 		}
 		catch (SQLException e) {
 			Console.writeError(StemConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return stemList;
 	}
@@ -79,15 +83,18 @@ public class StemConceptDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemConceptDao.FIND_BY_PROJECT, "projectId", project.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
 
 			// Execute the query
-			stemList = QueryEngine.queryForList(connection, queryString, getRowMapper());
+			stemList = QueryEngine.queryForList(connection, StemConceptDao.FIND_BY_PROJECT, paramMap, getRowMapper());
 		}
 		catch (SQLException e) {
 			Console.writeError(StemConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return stemList;
 	}
@@ -104,11 +111,11 @@ public class StemConceptDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemConceptDao.INSERT, getParamMapper(), stemConcept);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(stemConcept);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, StemConceptDao.INSERT, paramMap);
 
 			// Update keyId defined by database
 			stemConcept.setKeyId(QueryEngine.queryForLastInsertedIdentifier(connection));
@@ -116,6 +123,66 @@ public class StemConceptDao {
 		catch (SQLException e) {
 			Console.writeError(StemConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Add a list of new stem concepts into the database.
+	 * 
+	 * All stems are inserted through a single JDBC batch, within a single
+	 * transaction. On success, each stem keyId is updated with the
+	 * identifier defined by the database.
+	 * 
+	 * Failures are thrown, so that a caller saving a tree level by level
+	 * stops before saving children of stems without keyId.
+	 * 
+	 * @param stems
+	 *            the stems to add into the database
+	 * @throws SQLException
+	 */
+	public static void addBatch(List<StemConcept> stems) throws SQLException {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all stems
+			List<Integer> keyIds = QueryEngine.executeBatch(connection, StemConceptDao.INSERT_BATCH, getParamMapper(), stems);
+
+			// Update keyId defined by database
+			for (int i = 0; i < keyIds.size() && i < stems.size(); i++) {
+				stems.get(i).setKeyId(keyIds.get(i));
+			}
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Update a list of stem concepts already persisted.
+	 * 
+	 * All stems are updated through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param stems
+	 *            the stems whose attributes should be updated on the database
+	 * @throws SQLException
+	 */
+	public static void updateBatch(List<StemConcept> stems) throws SQLException {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all stems
+			QueryEngine.executeBatch(connection, StemConceptDao.UPDATE, getParamMapper(), stems);
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -130,15 +197,18 @@ public class StemConceptDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemConceptDao.UPDATE, getParamMapper(), stemConcept);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(stemConcept);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, StemConceptDao.UPDATE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(StemConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -153,15 +223,18 @@ public class StemConceptDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemConceptDao.DELETE, "ontologyId", ontology.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("ontologyId", ontology.getKeyId());
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, StemConceptDao.DELETE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(StemConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -176,15 +249,18 @@ public class StemConceptDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemConceptDao.DELETE_BY_PROJECT, "projectId", project.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, StemConceptDao.DELETE_BY_PROJECT, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(StemConceptDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import ch.hesge.csim2.core.model.Project;
+import ch.hesge.csim2.core.model.SourceClass;
 import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.SourceReferenceOrigin;
 import ch.hesge.csim2.core.model.StemMethod;
@@ -31,9 +32,11 @@ import ch.hesge.csim2.core.utils.StringUtils;
 public class StemMethodDao {
 
 	// Private static SQL queries
-	private static String INSERT = "INSERT INTO stem_methods SET project_id=?projectId, parent_id=?parentId, method_id=?methodId, term='?term', stem_type=?stemType, ref_origin=?refOrigin";
-	private static String UPDATE = "UPDATE stem_methods SET project_id=?projectId, parent_id=?parentId, method_id=?methodId, term='?term', stem_type=?stemType, ref_origin=?refOrigin WHERE key_id=?keyId";
+	private static String INSERT = "INSERT INTO stem_methods SET project_id=?projectId, parent_id=?parentId, method_id=?methodId, term=?term, stem_type=?stemType, ref_origin=?refOrigin";
+	private static String UPDATE = "UPDATE stem_methods SET project_id=?projectId, parent_id=?parentId, method_id=?methodId, term=?term, stem_type=?stemType, ref_origin=?refOrigin WHERE key_id=?keyId";
+	private static String INSERT_BATCH = "INSERT INTO stem_methods (project_id, parent_id, method_id, term, stem_type, ref_origin) VALUES (?projectId, ?parentId, ?methodId, ?term, ?stemType, ?refOrigin)";
 	private static String DELETE = "DELETE FROM stem_methods WHERE project_id=?projectId";
+	private static String DELETE_BY_CLASS = "DELETE FROM stem_methods WHERE method_id in (SELECT key_id FROM source_methods WHERE class_id=?keyId)";
 
 	private static String FIND_BY_METHOD  = "SELECT key_id, project_id, parent_id, method_id, term, stem_type, ref_origin FROM stem_methods WHERE method_id=?methodId";
 	private static String FIND_BY_PROJECT = "SELECT key_id, project_id, parent_id, method_id, term, stem_type, ref_origin FROM stem_methods WHERE project_id=?projectId";
@@ -52,15 +55,18 @@ public class StemMethodDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemMethodDao.FIND_BY_METHOD, "methodId", method.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("methodId", method.getKeyId());
 
 			// Execute the query
-			stemList = QueryEngine.queryForList(connection, queryString, getRowMapper());
+			stemList = QueryEngine.queryForList(connection, StemMethodDao.FIND_BY_METHOD, paramMap, getRowMapper());
 		}
 		catch (SQLException e) {
 			Console.writeError(StemMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return stemList;
 	}
@@ -79,15 +85,18 @@ public class StemMethodDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemMethodDao.FIND_BY_PROJECT, "projectId", project.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
 
 			// Execute the query
-			stemList = QueryEngine.queryForList(connection, queryString, getRowMapper());
+			stemList = QueryEngine.queryForList(connection, StemMethodDao.FIND_BY_PROJECT, paramMap, getRowMapper());
 		}
 		catch (SQLException e) {
 			Console.writeError(StemMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return stemList;
 	}
@@ -104,11 +113,11 @@ public class StemMethodDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemMethodDao.INSERT, getParamMapper(), stemMethod);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(stemMethod);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, StemMethodDao.INSERT, paramMap);
 
 			// Update keyId defined by database
 			stemMethod.setKeyId(QueryEngine.queryForLastInsertedIdentifier(connection));
@@ -116,6 +125,66 @@ public class StemMethodDao {
 		catch (SQLException e) {
 			Console.writeError(StemMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Add a list of new stem methods into the database.
+	 * 
+	 * All stems are inserted through a single JDBC batch, within a single
+	 * transaction. On success, each stem keyId is updated with the
+	 * identifier defined by the database.
+	 * 
+	 * Failures are thrown, so that a caller saving a tree level by level
+	 * stops before saving children of stems without keyId.
+	 * 
+	 * @param stems
+	 *        the stems to add into the database
+	 * @throws SQLException
+	 */
+	public static void addBatch(List<StemMethod> stems) throws SQLException {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all stems
+			List<Integer> keyIds = QueryEngine.executeBatch(connection, StemMethodDao.INSERT_BATCH, getParamMapper(), stems);
+
+			// Update keyId defined by database
+			for (int i = 0; i < keyIds.size() && i < stems.size(); i++) {
+				stems.get(i).setKeyId(keyIds.get(i));
+			}
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Update a list of stem methods already persisted.
+	 * 
+	 * All stems are updated through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param stems
+	 *        the stems whose attributes should be updated on the database
+	 * @throws SQLException
+	 */
+	public static void updateBatch(List<StemMethod> stems) throws SQLException {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all stems
+			QueryEngine.executeBatch(connection, StemMethodDao.UPDATE, getParamMapper(), stems);
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -130,15 +199,18 @@ public class StemMethodDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemMethodDao.UPDATE, getParamMapper(), stemMethod);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(stemMethod);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, StemMethodDao.UPDATE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(StemMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -153,15 +225,44 @@ public class StemMethodDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(StemMethodDao.DELETE, "projectId", project.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("projectId", project.getKeyId());
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, StemMethodDao.DELETE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(StemMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Remove all stems of methods owned by a list of source classes.
+	 * 
+	 * All classes are handled through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param sourceClasses
+	 *        the classes whose method stems should be removed
+	 */
+	public static void deleteByClasses(List<SourceClass> sourceClasses) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all classes
+			QueryEngine.executeBatch(connection, StemMethodDao.DELETE_BY_CLASS, SourceClassDao.getParamMapper(), sourceClasses);
+		}
+		catch (SQLException e) {
+			Console.writeError(StemMethodDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -0,0 +1,244 @@
+package ch.hesge.csim2.core.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+
+import ch.hesge.csim2.core.model.Scenario;
+import ch.hesge.csim2.core.model.Trace;
+import ch.hesge.csim2.core.model.TraceCheckpoint;
+import ch.hesge.csim2.core.utils.ConnectionUtils;
+import ch.hesge.csim2.core.utils.Console;
+import ch.hesge.csim2.core.utils.IDataRow;
+import ch.hesge.csim2.core.utils.IParamMapper;
+import ch.hesge.csim2.core.utils.IRowMapper;
+import ch.hesge.csim2.core.utils.QueryBuilder;
+import ch.hesge.csim2.core.utils.QueryEngine;
+import ch.hesge.csim2.core.utils.StringUtils;
+
+/**
+ * Class responsible to manage DAO access for TraceCheckpoint.
+ *
+ * Open traces of each thread are stored as a single string:
+ *
+ * <pre>
+ * 		threadId:keyId/timestamp,keyId/timestamp;threadId:keyId/timestamp
+ * </pre>
+ *
+ * each stack being listed from bottom to top.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class TraceCheckpointDao {
+
+	// Private static SQL queries
+	private static String REPLACE = "REPLACE INTO trace_checkpoints (scenario_id, filename, position, trace_counter, line_counter, time_scale, open_traces) VALUES (?scenarioId, ?filename, ?position, ?traceCounter, ?lineCounter, ?timeScale, ?openTraces)";
+	private static String DELETE = "DELETE FROM trace_checkpoints WHERE scenario_id=?scenarioId";
+
+	private static String FIND_BY_SCENARIO = "SELECT scenario_id, filename, position, trace_counter, line_counter, time_scale, open_traces FROM trace_checkpoints WHERE scenario_id=?scenarioId";
+
+	/**
+	 * Retrieves the checkpoint of the last trace loading of a scenario.
+	 *
+	 * @param scenario
+	 *        the scenario whose traces are loaded
+	 * @return the checkpoint or null
+	 */
+	public static TraceCheckpoint findByScenario(Scenario scenario) {
+
+		TraceCheckpoint checkpoint = null;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build query string
+			String queryString = QueryBuilder.create(TraceCheckpointDao.FIND_BY_SCENARIO, "scenarioId", scenario.getKeyId());
+
+			// Execute the query
+			checkpoint = QueryEngine.queryForObject(connection, queryString, getRowMapper());
+		}
+		catch (SQLException e) {
+			Console.writeError(TraceCheckpointDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return checkpoint;
+	}
+
+	/**
+	 * Save a checkpoint within the current transaction of a connection.
+	 *
+	 * @param connection
+	 *        the connection used to save traces
+	 * @param checkpoint
+	 *        the checkpoint to save
+	 * @throws SQLException
+	 */
+	static void save(Connection connection, TraceCheckpoint checkpoint) throws SQLException {
+		QueryEngine.executeBatch(connection, TraceCheckpointDao.REPLACE, getParamMapper(), Arrays.asList(checkpoint));
+	}
+
+	/**
+	 * Remove the checkpoint of a scenario.
+	 *
+	 * @param scenario
+	 *        the scenario whose checkpoint should be removed from database
+	 */
+	public static void deleteByScenario(Scenario scenario) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query to execute
+			String queryString = QueryBuilder.create(TraceCheckpointDao.DELETE, "scenarioId", scenario.getKeyId());
+
+			// Execute the query
+			QueryEngine.executeQuery(connection, queryString);
+		}
+		catch (SQLException e) {
+			Console.writeError(TraceCheckpointDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Convert open traces of all threads into a string.
+	 */
+	private static String toString(Map<Long, Stack<Trace>> threadTraces) {
+
+		StringBuilder builder = new StringBuilder();
+
+		for (Long threadId : threadTraces.keySet()) {
+
+			Stack<Trace> threadStack = threadTraces.get(threadId);
+
+			if (threadStack.isEmpty()) {
+				continue;
+			}
+
+			if (builder.length() > 0) {
+				builder.append(';');
+			}
+
+			builder.append(threadId).append(':');
+
+			for (int i = 0; i < threadStack.size(); i++) {
+
+				Trace trace = threadStack.get(i);
+
+				if (i > 0) {
+					builder.append(',');
+				}
+
+				builder.append(trace.getKeyId()).append('/').append(trace.getTimestamp());
+			}
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Rebuild open traces of all threads from a string.
+	 */
+	private static Map<Long, Stack<Trace>> toThreadTraces(String openTraces, int scenarioId) {
+
+		Map<Long, Stack<Trace>> threadTraces = new HashMap<>();
+
+		if (openTraces == null || openTraces.isEmpty()) {
+			return threadTraces;
+		}
+
+		for (String threadEntry : openTraces.split(";")) {
+
+			String[] threadParts = threadEntry.split(":");
+			Long threadId = Long.valueOf(threadParts[0]);
+			Stack<Trace> threadStack = new Stack<>();
+
+			for (String traceEntry : threadParts[1].split(",")) {
+
+				String[] traceParts = traceEntry.split("/");
+
+				Trace trace = new Trace();
+				trace.setKeyId(Integer.parseInt(traceParts[0]));
+				trace.setTimestamp(Long.parseLong(traceParts[1]));
+				trace.setScenarioId(scenarioId);
+				trace.setThreadId(threadId);
+				trace.setEnteringTrace(true);
+
+				threadStack.push(trace);
+			}
+
+			threadTraces.put(threadId, threadStack);
+		}
+
+		return threadTraces;
+	}
+
+	/**
+	 * Declare a generic parameter mapper for TraceCheckpoint object.
+	 *
+	 * This class is responsible to extract all attributes of an object and put
+	 * them into a <property-name, property-value> map. This map can then be
+	 * used to replace all parameters of an sql query.
+	 */
+	private static IParamMapper<TraceCheckpoint> getParamMapper() {
+		return new IParamMapper<TraceCheckpoint>() {
+
+			@Override
+			public Map<String, Object> mapParameters(TraceCheckpoint checkpoint) {
+
+				Map<String, Object> map = new HashMap<>();
+
+				map.put("scenarioId", checkpoint.getScenarioId());
+				map.put("filename", checkpoint.getFilename());
+				map.put("position", checkpoint.getPosition());
+				map.put("traceCounter", checkpoint.getTraceCounter());
+				map.put("lineCounter", checkpoint.getLineCounter());
+				map.put("timeScale", checkpoint.getTimeScale());
+				map.put("openTraces", TraceCheckpointDao.toString(checkpoint.getThreadTraces()));
+
+				return map;
+			}
+		};
+	}
+
+	/**
+	 * Declare a generic row mapper for TraceCheckpoint object.
+	 *
+	 * This class is responsible to extract all fields from a database row
+	 * (IDataRow) and to create a plain java object, with all its attributes
+	 * initialized with these values. That is in one sentence,
+	 * to map all row values into one single object.
+	 */
+	private static IRowMapper<TraceCheckpoint> getRowMapper() {
+		return new IRowMapper<TraceCheckpoint>() {
+
+			@Override
+			public TraceCheckpoint mapRow(IDataRow row) {
+
+				TraceCheckpoint checkpoint = new TraceCheckpoint();
+
+				checkpoint.setScenarioId(row.getInteger("scenario_id"));
+				checkpoint.setFilename(row.getString("filename"));
+				checkpoint.setPosition(row.getLong("position"));
+				checkpoint.setTraceCounter(row.getInteger("trace_counter"));
+				checkpoint.setLineCounter(row.getInteger("line_counter"));
+				checkpoint.setTimeScale(row.getLong("time_scale"));
+				checkpoint.setThreadTraces(toThreadTraces(row.getString("open_traces"), checkpoint.getScenarioId()));
+
+				return checkpoint;
+			}
+		};
+	}
+}
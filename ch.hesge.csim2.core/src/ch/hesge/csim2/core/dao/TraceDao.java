@@ -8,10 +8,12 @@ import java.util.Map;
 
 import ch.hesge.csim2.core.model.Scenario;
 import ch.hesge.csim2.core.model.Trace;
+import ch.hesge.csim2.core.model.TraceCheckpoint;
 import ch.hesge.csim2.core.utils.ConnectionUtils;
 import ch.hesge.csim2.core.utils.Console;
 import ch.hesge.csim2.core.utils.IDataRow;
 import ch.hesge.csim2.core.utils.IParamMapper;
+import ch.hesge.csim2.core.utils.IRowHandler;
 import ch.hesge.csim2.core.utils.IRowMapper;
 import ch.hesge.csim2.core.utils.QueryBuilder;
 import ch.hesge.csim2.core.utils.QueryEngine;
@@ -28,16 +30,21 @@ import ch.hesge.csim2.core.utils.StringUtils;
 public class TraceDao {
 
 	// Private static SQL queries
-	private static String INSERT = "INSERT INTO traces SET key_id=?keyId, scenario_id=?scenarioId, sequence_number=?sequenceNumber, is_entering=?isEntering, dynamic_package='?dynamicPackage', dynamic_class='?dynamicClass', instance_id='?instanceId', static_package='?staticPackage', static_class='?staticClass', thread_id=?threadId, signature='?signature', parameters='?parameters', return_type='?returnType', timestamp=?timestamp, duration=?duration";
-	private static String UPDATE = "UPDATE traces SET key_id=?keyId, scenario_id=?scenarioId, sequence_number=?sequenceNumber, is_entering=?isEntering, dynamic_package='?dynamicPackage', dynamic_class='?dynamicClass', instance_id='?instanceId', static_package='?staticPackage', static_class='?staticClass', thread_id=?threadId, signature='?signature', parameters='?parameters', return_type='?returnType', timestamp=?timestamp, duration=?duration WHERE key_id=?keyId";
+	private static String INSERT = "INSERT INTO traces SET key_id=?keyId, scenario_id=?scenarioId, sequence_number=?sequenceNumber, is_entering=?isEntering, dynamic_package=?dynamicPackage, dynamic_class=?dynamicClass, instance_id=?instanceId, static_package=?staticPackage, static_class=?staticClass, thread_id=?threadId, signature=?signature, parameters=?parameters, return_type=?returnType, timestamp=?timestamp, duration=?duration";
+	private static String UPDATE = "UPDATE traces SET key_id=?keyId, scenario_id=?scenarioId, sequence_number=?sequenceNumber, is_entering=?isEntering, dynamic_package=?dynamicPackage, dynamic_class=?dynamicClass, instance_id=?instanceId, static_package=?staticPackage, static_class=?staticClass, thread_id=?threadId, signature=?signature, parameters=?parameters, return_type=?returnType, timestamp=?timestamp, duration=?duration WHERE key_id=?keyId";
 	private static String DELETE = "DELETE FROM traces WHERE scenario_id=?scenarioId";
 
+	private static String INSERT_BATCH = "INSERT INTO traces (scenario_id, sequence_number, is_entering, dynamic_package, dynamic_class, instance_id, static_package, static_class, thread_id, signature, parameters, return_type, timestamp, duration) VALUES (?scenarioId, ?sequenceNumber, ?isEntering, ?dynamicPackage, ?dynamicClass, ?instanceId, ?staticPackage, ?staticClass, ?threadId, ?signature, ?parameters, ?returnType, ?timestamp, ?duration)";
+	private static String UPDATE_DURATION_BATCH = "UPDATE traces SET duration=?duration WHERE key_id=?keyId";
+
 	private static String FIND_MIN_SEQUENCE_NUMBER = "SELECT min(t.sequence_number) FROM traces t WHERE scenario_id = ?scenarioId";
 	private static String FIND_MAX_SEQUENCE_NUMBER = "SELECT max(t.sequence_number) FROM traces t WHERE scenario_id = ?scenarioId";
 
 	private static String FIND_BY_ID = "SELECT key_id, scenario_id, instance_id, sequence_number, is_entering, dynamic_package, dynamic_class, static_package, static_class, thread_id, signature, parameters, return_type, timestamp, duration FROM traces WHERE key_id=?keyId";
 	private static String FIND_BY_SCENARIO = "SELECT t.key_id, t.scenario_id, t.instance_id, t.sequence_number, t.is_entering, t.dynamic_package, t.dynamic_class, t.static_package, t.static_class, t.thread_id, t.signature, t.parameters, t.return_type, t.timestamp, t.duration, c.key_id as class_id, m.key_id as method_id FROM traces t INNER JOIN source_classes c ON c.name = t.static_class INNER JOIN source_methods m ON c.key_id = m.class_id AND m.signature = t.signature WHERE scenario_id = ?scenarioId ORDER BY sequence_number";
 	private static String FIND_DISTINCT_METHOD_IDS = "SELECT distinct(m.key_id) FROM traces t INNER JOIN source_classes c ON t.static_class = c.name INNER JOIN source_methods m ON t.signature = m.signature WHERE scenario_id = ?scenarioId";
+	private static String COUNT_STEPS_BY_SCENARIO = "SELECT count(*) FROM traces t INNER JOIN source_classes c ON c.name = t.static_class INNER JOIN source_methods m ON c.key_id = m.class_id AND m.signature = t.signature WHERE scenario_id = ?scenarioId AND t.is_entering = 1";
+	private static String FIND_STEPS_BY_SCENARIO = "SELECT t.sequence_number, m.key_id as method_id FROM traces t INNER JOIN source_classes c ON c.name = t.static_class INNER JOIN source_methods m ON c.key_id = m.class_id AND m.signature = t.signature WHERE scenario_id = ?scenarioId AND t.is_entering = 1 ORDER BY sequence_number";
 	private static String FIND_METHOD_BETWEEN_SEQUENCE_NUMBER = "SELECT distinct(m.key_id) FROM traces t INNER JOIN source_classes c ON t.static_class = c.name INNER JOIN source_methods m ON t.signature = m.signature WHERE scenario_id = ?scenarioId AND sequence_number between ?startSequence AND ?endSequence";
 
 	/**
@@ -54,15 +61,18 @@ public class TraceDao {
 
 		try {
 
-			// Build query string
-			String queryString = QueryBuilder.create(TraceDao.FIND_BY_ID, "keyId", keyId);
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("keyId", keyId);
 
 			// Build the query to execute
-			trace = QueryEngine.queryForObject(connection, queryString, getRowMapper());
+			trace = QueryEngine.queryForObject(connection, TraceDao.FIND_BY_ID, paramMap, getRowMapper());
 		}
 		catch (SQLException e) {
 			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return trace;
 	}
@@ -81,19 +91,95 @@ public class TraceDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(TraceDao.FIND_BY_SCENARIO, "scenarioId", scenario.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("scenarioId", scenario.getKeyId());
 
 			// Execute the query
-			traceList = QueryEngine.queryForList(connection, queryString, getRowMapper());
+			traceList = QueryEngine.queryForList(connection, TraceDao.FIND_BY_SCENARIO, paramMap, getRowMapper());
 		}
 		catch (SQLException e) {
 			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return traceList;
 	}
 
+	/**
+	 * Count the steps of a scenario, that is all entering traces whose
+	 * method is known (the traces returned by findByScenario and kept as
+	 * steps by TraceLogic.getTraces).
+	 * 
+	 * @param scenario
+	 *        the scenario owning traces
+	 * @return the number of steps
+	 */
+	public static int countStepsByScenario(Scenario scenario) {
+
+		int stepCount = 0;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("scenarioId", scenario.getKeyId());
+
+			// Execute the query
+			Number rowCount = QueryEngine.queryForScalar(connection, TraceDao.COUNT_STEPS_BY_SCENARIO, paramMap);
+
+			if (rowCount != null) {
+				stepCount = rowCount.intValue();
+			}
+		}
+		catch (SQLException e) {
+			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return stepCount;
+	}
+
+	/**
+	 * Read all steps of a scenario in a single pass, ordered by sequence
+	 * number, without loading them in memory. Each row handed to the handler
+	 * contains the sequence_number and the method_id of a step.
+	 * 
+	 * The handler should not access the database, the connection being busy
+	 * until all steps are read.
+	 * 
+	 * @param scenario
+	 *        the scenario owning traces
+	 * @param rowHandler
+	 *        the handler called for each step
+	 * @return the number of steps read
+	 */
+	public static int findStepsByScenario(Scenario scenario, IRowHandler rowHandler) {
+
+		int stepCount = 0;
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("scenarioId", scenario.getKeyId());
+
+			// Execute the query
+			stepCount = QueryEngine.queryForEach(connection, TraceDao.FIND_STEPS_BY_SCENARIO, paramMap, rowHandler);
+		}
+		catch (SQLException e) {
+			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+
+		return stepCount;
+	}
+
 	/**
 	 * Retrieves the first sequence number of all traces owned by a scenario.
 	 * 
@@ -108,15 +194,18 @@ public class TraceDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(TraceDao.FIND_MIN_SEQUENCE_NUMBER, "scenarioId", scenario.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("scenarioId", scenario.getKeyId());
 
 			// Execute the query
-			smallestSequenceNumber = QueryEngine.queryForScalar(connection, queryString);
+			smallestSequenceNumber = QueryEngine.queryForScalar(connection, TraceDao.FIND_MIN_SEQUENCE_NUMBER, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return smallestSequenceNumber;
 	}
@@ -135,15 +224,18 @@ public class TraceDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(TraceDao.FIND_MAX_SEQUENCE_NUMBER, "scenarioId", scenario.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("scenarioId", scenario.getKeyId());
 
 			// Execute the query
-			greatestSequenceNumber = QueryEngine.queryForScalar(connection, queryString);
+			greatestSequenceNumber = QueryEngine.queryForScalar(connection, TraceDao.FIND_MAX_SEQUENCE_NUMBER, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return greatestSequenceNumber;
 	}
@@ -162,11 +254,11 @@ public class TraceDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(TraceDao.FIND_DISTINCT_METHOD_IDS, "scenarioId", scenario.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("scenarioId", scenario.getKeyId());
 
 			// Execute the query
-			uniqueMethodIds = QueryEngine.queryForList(connection, queryString, new IRowMapper<Integer>() {
+			uniqueMethodIds = QueryEngine.queryForList(connection, TraceDao.FIND_DISTINCT_METHOD_IDS, paramMap, new IRowMapper<Integer>() {
 				@Override
 				public Integer mapRow(IDataRow row) {
 					return (Integer) row.getFieldValue(1);
@@ -177,6 +269,9 @@ public class TraceDao {
 		catch (SQLException e) {
 			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return uniqueMethodIds;
 	}
@@ -206,11 +301,8 @@ public class TraceDao {
 			paramMap.put("startSequence", startSequenceNumber);
 			paramMap.put("endSequence", endSequenceNumber);
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(TraceDao.FIND_METHOD_BETWEEN_SEQUENCE_NUMBER, paramMap);
-
 			// Execute the query
-			uniqueMethodIds = QueryEngine.queryForList(connection, queryString, new IRowMapper<Integer>() {
+			uniqueMethodIds = QueryEngine.queryForList(connection, TraceDao.FIND_METHOD_BETWEEN_SEQUENCE_NUMBER, paramMap, new IRowMapper<Integer>() {
 				@Override
 				public Integer mapRow(IDataRow row) {
 					return (Integer) row.getFieldValue(1);
@@ -221,6 +313,9 @@ public class TraceDao {
 		catch (SQLException e) {
 			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 
 		return uniqueMethodIds;
 	}
@@ -238,11 +333,11 @@ public class TraceDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(TraceDao.INSERT, getParamMapper(), trace);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(trace);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, TraceDao.INSERT, paramMap);
 
 			// Update keyId defined by database
 			trace.setKeyId(QueryEngine.queryForLastInsertedIdentifier(connection));
@@ -250,6 +345,123 @@ public class TraceDao {
 		catch (SQLException e) {
 			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Add a list of new traces into the database.
+	 * 
+	 * All traces are inserted through a single JDBC batch, within a single
+	 * transaction. On success, each trace keyId is updated with the
+	 * identifier defined by the database.
+	 * 
+	 * @param traces
+	 *        the traces to add into the database
+	 */
+	public static void addBatch(List<Trace> traces) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all traces
+			List<Integer> keyIds = QueryEngine.executeBatch(connection, TraceDao.INSERT_BATCH, getParamMapper(), traces);
+
+			// Update keyId defined by database
+			for (int i = 0; i < keyIds.size() && i < traces.size(); i++) {
+				traces.get(i).setKeyId(keyIds.get(i));
+			}
+		}
+		catch (SQLException e) {
+			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Update the duration of a list of traces already persisted.
+	 * 
+	 * All traces are updated through a single JDBC batch, within a single
+	 * transaction.
+	 * 
+	 * @param traces
+	 *        the traces whose duration should be updated on the database
+	 */
+	public static void updateBatch(List<Trace> traces) {
+
+		Connection connection = ConnectionUtils.createConnection();
+
+		try {
+
+			// Execute the query for all traces
+			QueryEngine.executeBatch(connection, TraceDao.UPDATE_DURATION_BATCH, getParamMapper(), traces);
+		}
+		catch (SQLException e) {
+			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
+	}
+
+	/**
+	 * Add new traces, update durations of traces already persisted and save
+	 * the loading checkpoint, all within a single transaction. Either all
+	 * changes are committed, or none.
+	 * 
+	 * Failures are not only logged but thrown, so that a caller saving
+	 * traces in sequence may stop with the last checkpoint committed.
+	 * 
+	 * @param newTraces
+	 *        the traces to add into the database
+	 * @param persistedTraces
+	 *        the traces whose duration should be updated on the database
+	 * @param checkpoint
+	 *        the checkpoint to save with traces
+	 * @throws SQLException
+	 */
+	public static void saveBatch(List<Trace> newTraces, List<Trace> persistedTraces, TraceCheckpoint checkpoint) throws SQLException {
+
+		Connection connection = ConnectionUtils.beginTransaction();
+
+		try {
+
+			// Insert new traces
+			if (!newTraces.isEmpty()) {
+
+				List<Integer> keyIds = QueryEngine.executeBatch(connection, TraceDao.INSERT_BATCH, getParamMapper(), newTraces);
+
+				// Update keyId defined by database
+				for (int i = 0; i < keyIds.size() && i < newTraces.size(); i++) {
+					newTraces.get(i).setKeyId(keyIds.get(i));
+				}
+			}
+
+			// Update durations
+			if (!persistedTraces.isEmpty()) {
+				QueryEngine.executeBatch(connection, TraceDao.UPDATE_DURATION_BATCH, getParamMapper(), persistedTraces);
+			}
+
+			// Save checkpoint, with keyIds just defined
+			TraceCheckpointDao.save(connection, checkpoint);
+
+			ConnectionUtils.commitTransaction();
+		}
+		catch (SQLException e) {
+
+			ConnectionUtils.rollbackTransaction();
+
+			// New traces are not persisted anymore
+			for (Trace trace : newTraces) {
+				trace.setKeyId(0);
+			}
+
+			throw e;
+		}
 	}
 
 	/**
@@ -264,15 +476,18 @@ public class TraceDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(TraceDao.UPDATE, getParamMapper(), trace);
+			// Build the query parameters
+			Map<String, Object> paramMap = getParamMapper().mapParameters(trace);
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, TraceDao.UPDATE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -288,15 +503,18 @@ public class TraceDao {
 
 		try {
 
-			// Build the query to execute
-			String queryString = QueryBuilder.create(TraceDao.DELETE, "scenarioId", scenario.getKeyId());
+			// Build the query parameters
+			Map<String, Object> paramMap = QueryBuilder.createParams("scenarioId", scenario.getKeyId());
 
 			// Execute the query
-			QueryEngine.executeQuery(connection, queryString);
+			QueryEngine.executeQuery(connection, TraceDao.DELETE, paramMap);
 		}
 		catch (SQLException e) {
 			Console.writeError(TraceDao.class, "an unexpected error has occured: " + StringUtils.toString(e));
 		}
+		finally {
+			ConnectionUtils.releaseConnection(connection);
+		}
 	}
 
 	/**
@@ -366,7 +584,7 @@ public class TraceDao {
 				trace.setParameters(row.getString("parameters"));
 				trace.setReturnType(row.getString("return_type"));
 				trace.setTimestamp(row.getLong("timestamp"));
-				trace.setDuration(row.getInteger("duration"));
+				trace.setDuration(row.getLong("duration"));
 
 				// By default, MySql JDBC driver doesn't support alias defined 
 				// in a standard query. 
@@ -3,6 +3,9 @@ package ch.hesge.csim2.core.logic;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.FileSystems;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -23,13 +26,17 @@ import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.model.Scenario;
 import ch.hesge.csim2.core.model.ScenarioStep;
 import ch.hesge.csim2.core.model.SourceClass;
+import ch.hesge.csim2.core.model.SourceFile;
 import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.StemConcept;
 import ch.hesge.csim2.core.model.StemMethod;
 import ch.hesge.csim2.core.model.TimeSeries;
+import ch.hesge.csim2.core.model.TimeSeriesPyramid;
 import ch.hesge.csim2.core.model.Trace;
+import ch.hesge.csim2.core.model.TraceCheckpoint;
 import ch.hesge.csim2.core.utils.ConnectionUtils;
 import ch.hesge.csim2.core.utils.Console;
+import ch.hesge.csim2.core.utils.StemTermIndex;
 import ch.hesge.csim2.core.utils.StringUtils;
 
 /**
@@ -63,6 +70,7 @@ public class ApplicationLogic {
 	private static final String DATABASE_CONNECTION_PROPERTY = "database-connection";
 	private static final String DATABASE_USER_PROPERTY       = "database-user";
 	private static final String DATABASE_PASSWORD_PROPERTY   = "database-password";
+	private static final String DATABASE_POOL_SIZE_PROPERTY  = "database-pool-size";
 
 	/**
 	 * Private constructor
@@ -100,6 +108,7 @@ public class ApplicationLogic {
 	 */
 	public void shutdownApplication(Application application) {
 		CacheManager.getInstance().shutdown();
+		ConnectionUtils.closeConnection();
 		System.exit(0);
 	}
 
@@ -119,6 +128,88 @@ public class ApplicationLogic {
 	public void clearCache() {
 		APPCACHE.removeAll();
 	}
+
+	/**
+	 * Remove all data in cache depending on the sources of a project.
+	 * 
+	 * @param project
+	 *        the project whose sources have changed
+	 * @param deletedClasses
+	 *        the classes deleted from the project
+	 */
+	private void removeSourceEntries(Project project, List<SourceClass> deletedClasses) {
+
+		APPCACHE.remove("getSourceClassMap_" + project.getKeyId());
+		APPCACHE.remove("getSourceClassTree_" + project.getKeyId());
+		APPCACHE.remove("getSourceMethodMap_" + project.getKeyId());
+
+		// Remove methods retrieved by signature from deleted classes
+		if (!deletedClasses.isEmpty()) {
+
+			String keyPrefix = "getSourceMethodByClassAndSignature_";
+			Set<String> classPrefixes = new HashSet<>();
+
+			for (SourceClass sourceClass : deletedClasses) {
+				classPrefixes.add(keyPrefix + sourceClass.getKeyId() + "_");
+			}
+
+			for (Object cacheKey : new ArrayList<Object>(APPCACHE.getKeys())) {
+
+				String key = cacheKey.toString();
+
+				if (key.startsWith(keyPrefix) && classPrefixes.contains(key.substring(0, key.indexOf('_', keyPrefix.length()) + 1))) {
+					APPCACHE.remove(cacheKey);
+				}
+			}
+		}
+
+		removeStemMethodEntries(project);
+	}
+
+	/**
+	 * Remove all data in cache depending on the stem methods of a project,
+	 * and all matchings saved.
+	 * 
+	 * @param project
+	 *        the project whose stem methods have changed
+	 */
+	private void removeStemMethodEntries(Project project) {
+
+		MatchingLogic.deleteMethodMatchings(project);
+
+		APPCACHE.remove("getStemMethodTreeMap_" + project.getKeyId());
+		APPCACHE.remove("getStemMethodsByTermMap_" + project.getKeyId());
+		APPCACHE.remove("getStemTermIndex_" + project.getKeyId());
+
+		String matchingPrefix = "getMethodConceptMap_" + project.getKeyId() + "_";
+		String timeSeriesPrefix = "getTimeSeries_" + project.getKeyId() + "_";
+		String pyramidPrefix = "getTimeSeriesPyramid_" + project.getKeyId() + "_";
+
+		for (Object cacheKey : new ArrayList<Object>(APPCACHE.getKeys())) {
+
+			String key = cacheKey.toString();
+
+			if (key.startsWith(matchingPrefix) || key.startsWith(timeSeriesPrefix) || key.startsWith(pyramidPrefix)) {
+				APPCACHE.remove(cacheKey);
+			}
+		}
+	}
+
+	/**
+	 * Remove all data in cache depending on the stem concepts of a project,
+	 * and all matchings saved.
+	 * 
+	 * @param project
+	 *        the project whose stem concepts have changed
+	 */
+	private void removeStemConceptEntries(Project project) {
+
+		MatchingLogic.deleteMethodMatchings(project);
+
+		APPCACHE.remove("getStemConceptTree_" + project.getKeyId());
+		APPCACHE.remove("getStemConceptsByTermMap_" + project.getKeyId());
+		APPCACHE.remove("getStemTermIndex_" + project.getKeyId());
+	}
 	
 	/**
 	 * Load all local settings:
@@ -185,12 +276,17 @@ public class ApplicationLogic {
 		String connectionString = properties.getProperty(DATABASE_CONNECTION_PROPERTY);
 		String databaseUser = properties.getProperty(DATABASE_USER_PROPERTY);
 		String databasePassword = properties.getProperty(DATABASE_PASSWORD_PROPERTY);
+		String databasePoolSize = properties.getProperty(DATABASE_POOL_SIZE_PROPERTY);
 
 		// Initialize parameters used to database connection
 		ConnectionUtils.setUrl(connectionString);
 		ConnectionUtils.setUser(databaseUser);
 		ConnectionUtils.setPassword(databasePassword);
 
+		if (databasePoolSize != null) {
+			ConnectionUtils.setPoolSize(Integer.parseInt(databasePoolSize.trim()));
+		}
+
 		// Load properties from database
 		Properties settings = SettingsDao.findAll();
 		properties.putAll(settings);
@@ -669,7 +765,7 @@ public class ApplicationLogic {
 	 *        the source class to populate
 	 */
 	public void populateMethodParametersAndReferences(Project project, Map<Integer, SourceClass> sourceClassMap) {
-		SourceLogic.populateMethodParametersAndReferences(sourceClassMap);
+		SourceLogic.populateMethodParametersAndReferences(project, sourceClassMap);
 	}
 	
 	/**
@@ -843,6 +939,37 @@ public class ApplicationLogic {
 		return result;
 	}
 
+	/**
+	 * Retrieve an inverted index of all stem terms in project, giving for
+	 * each term the methods and concepts using it.
+	 * 
+	 * @param project
+	 *        the project owning stems
+	 * 
+	 * @return
+	 *         the term index
+	 */
+	public StemTermIndex getStemTermIndex(Project project) {
+
+		StemTermIndex result = null;
+		
+		try {
+			
+			String cacheKey = "getStemTermIndex_" + project.getKeyId();
+
+			if (APPCACHE.get(cacheKey) == null) {
+				APPCACHE.put(new Element(cacheKey, StemLogic.getStemTermIndex(project)));
+			}
+
+			result = (StemTermIndex) APPCACHE.get(cacheKey).getObjectValue();
+		}
+		catch (Exception e) {
+			Console.writeError(ApplicationLogic.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+		
+		return result;
+	}
+
 	/**
 	 * Return a set of all terms which are intersecting among stem concepts and stem methods.	 
 	 *  
@@ -996,6 +1123,95 @@ public class ApplicationLogic {
 		return TimeSeriesLogic.getFilteredTimeSeries(timeSeries, segmentCount, threshold, concepts);
 	}
 
+	/**
+	 * Retrieve the segmented time series associated to a scenario traces,
+	 * streaming trace steps from the database instead of loading them.
+	 * 
+	 * @param project
+	 *        the project owning the traces
+	 * @param scenario
+	 *        the scenario owning the traces
+	 * @param matcher
+	 *        the matcher used to associate concepts to method
+	 * @param matchingThreshold
+	 *        the threshold to use when selecting matching
+	 * @param segmentCount
+	 *        the total number of segment to generate
+	 * @param threshold
+	 *        the concept weight threshold to use to select concepts
+	 * @return the segmented TimeSeries object gathering trace information
+	 */
+	public TimeSeries getSegmentedTimeSeries(Project project, Scenario scenario, IMethodConceptMatcher matcher, float matchingThreshold, int segmentCount, double threshold) {
+		return TimeSeriesLogic.getSegmentedTimeSeries(project, scenario, matcher, matchingThreshold, segmentCount, threshold);
+	}
+
+	/**
+	 * Retrieve the pyramid of concept occurrences associated to a scenario
+	 * traces, built once for each threshold.
+	 * 
+	 * @param project
+	 *        the project owning the traces
+	 * @param scenario
+	 *        the scenario owning the traces
+	 * @param matcher
+	 *        the matcher used to associate concepts to method
+	 * @param matchingThreshold
+	 *        the threshold to use when selecting matching
+	 * @param threshold
+	 *        the concept weight threshold to use to select concepts
+	 * @return the TimeSeriesPyramid object gathering trace information
+	 */
+	public TimeSeriesPyramid getTimeSeriesPyramid(Project project, Scenario scenario, IMethodConceptMatcher matcher, float matchingThreshold, double threshold) {
+
+		TimeSeriesPyramid result = null;
+
+		try {
+
+			String cacheKey = "getTimeSeriesPyramid_" + project.getKeyId() + "_" + scenario.getKeyId() + "_" + matcher.toString() + "_" + matchingThreshold + "_" + threshold;
+
+			if (APPCACHE.get(cacheKey) == null) {
+				TimeSeries timeSeries = getTimeSeries(project, scenario, matcher, matchingThreshold);
+				APPCACHE.put(new Element(cacheKey, TimeSeriesLogic.getTimeSeriesPyramid(timeSeries, threshold)));
+			}
+
+			result = (TimeSeriesPyramid) APPCACHE.get(cacheKey).getObjectValue();
+		}
+		catch (Exception e) {
+			Console.writeError(ApplicationLogic.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Create a segmented time series from a pyramid.
+	 * 
+	 * @param pyramid
+	 *        the pyramid of the time series to compress
+	 * @param segmentCount
+	 *        the total number of segment to generate
+	 * @return
+	 *         a new time series instance with segmented trace
+	 */
+	public TimeSeries getSegmentedTimeSeries(TimeSeriesPyramid pyramid, int segmentCount) {
+		return TimeSeriesLogic.getSegmentedTimeSeries(pyramid, segmentCount);
+	}
+
+	/**
+	 * Create a filtered time series from a segmented one.
+	 * 
+	 * @param segmentedSeries
+	 *        the segmented time series to filter
+	 * @param concepts
+	 *        a subset of segmented series concepts
+	 * @return
+	 *         a new time series instance with only history of concepts passed
+	 *         in argument
+	 */
+	public TimeSeries getFilteredTimeSeries(TimeSeries segmentedSeries, List<Concept> concepts) {
+		return TimeSeriesLogic.getFilteredTimeSeries(segmentedSeries, concepts);
+	}
+
 	/**
 	 * Create a new project.
 	 * 
@@ -1110,6 +1326,27 @@ public class ApplicationLogic {
 		TraceLogic.deleteTraces(scenario);
 	}
 
+	/**
+	 * Retrieve the checkpoint of the last trace loading of a scenario.
+	 * 
+	 * @param scenario
+	 *        the scenario
+	 * @return the checkpoint or null
+	 */
+	public TraceCheckpoint getTraceCheckpoint(Scenario scenario) {
+		return TraceLogic.getTraceCheckpoint(scenario);
+	}
+
+	/**
+	 * Delete the checkpoint of the last trace loading of a scenario.
+	 * 
+	 * @param scenario
+	 *        the scenario
+	 */
+	public void deleteTraceCheckpoint(Scenario scenario) {
+		TraceLogic.deleteTraceCheckpoint(scenario);
+	}
+
 	/**
 	 * Delete all sources owned by an project. Thas is class, attribute, method,
 	 * parameter and reference.
@@ -1118,7 +1355,7 @@ public class ApplicationLogic {
 	 *        the project to clean sources
 	 */
 	public void deleteSources(Project project) {
-		SourceLogic.deleteSources(project);
+		removeSourceEntries(project, SourceLogic.deleteSources(project));
 	}
 
 	/**
@@ -1200,7 +1437,49 @@ public class ApplicationLogic {
 	 *        the list of SourceClass to save
 	 */
 	public void saveSourceClasses(Project project, List<SourceClass> sourceClasses) {
-		SourceLogic.saveSourceClasses(project, sourceClasses);
+		removeSourceEntries(project, SourceLogic.saveSourceClasses(project, sourceClasses));
+	}
+
+	/**
+	 * Save project's source classes, with the files analyzed to find them.
+	 * 
+	 * @param project
+	 *        the owning project
+	 * @param sourceClasses
+	 *        the list of SourceClass to save
+	 * @param sourceFiles
+	 *        all files analyzed, with their content hash
+	 */
+	public void saveSourceClasses(Project project, List<SourceClass> sourceClasses, List<SourceFile> sourceFiles) {
+		removeSourceEntries(project, SourceLogic.saveSourceClasses(project, sourceClasses, sourceFiles));
+	}
+
+	/**
+	 * Update project's source classes after the analysis of the files
+	 * changed since the previous analysis. Classes of files changed or
+	 * deleted are replaced, others are kept with their stems.
+	 * 
+	 * @param project
+	 *        the owning project
+	 * @param sourceFiles
+	 *        all files currently present, with their content hash
+	 * @param sourceClasses
+	 *        the classes found in files changed or added
+	 */
+	public void updateSourceClasses(Project project, List<SourceFile> sourceFiles, List<SourceClass> sourceClasses) {
+		removeSourceEntries(project, SourceLogic.updateSourceClasses(project, sourceFiles, sourceClasses));
+	}
+
+	/**
+	 * Retrieve all files analyzed for a project, with their content hash at
+	 * the time of the analysis, as a map of (filename, SourceFile).
+	 * 
+	 * @param project
+	 *        the owner
+	 * @return a map of (filename, SourceFile)
+	 */
+	public Map<String, SourceFile> getSourceFileMap(Project project) {
+		return SourceLogic.getSourceFileMap(project);
 	}
 
 	/**
@@ -1247,6 +1526,31 @@ public class ApplicationLogic {
 		TraceLogic.saveTrace(trace);
 	}
 
+	/**
+	 * Save a list of traces passed in argument, through database batches.
+	 * 
+	 * @param traces
+	 *        the traces to save
+	 */
+	public void saveTraces(List<Trace> traces) {
+		TraceLogic.saveTraces(traces);
+	}
+
+	/**
+	 * Save a list of traces passed in argument, together with the checkpoint
+	 * of the loading in progress, within a single transaction.
+	 * 
+	 * @param traces
+	 *        the traces to save
+	 * @param checkpoint
+	 *        the loading checkpoint
+	 * @throws SQLException
+	 *         if the transaction has been rolled back
+	 */
+	public void saveTraces(List<Trace> traces, TraceCheckpoint checkpoint) throws SQLException {
+		TraceLogic.saveTraces(traces, checkpoint);
+	}
+
 	/**
 	 * Save a list of stem concept.
 	 * 
@@ -1254,9 +1558,15 @@ public class ApplicationLogic {
 	 *        the project owning the stems to save
 	 * @param stems
 	 *        a list of StemConcept to save
+	 * @throws SQLException
 	 */
-	public void saveStemConcepts(Project project, List<StemConcept> stems) {
-		StemLogic.saveStemConcepts(project, stems);
+	public void saveStemConcepts(Project project, List<StemConcept> stems) throws SQLException {
+		try {
+			StemLogic.saveStemConcepts(project, stems);
+		}
+		finally {
+			removeStemConceptEntries(project);
+		}
 	}
 
 	/**
@@ -1266,9 +1576,33 @@ public class ApplicationLogic {
 	 *        the project owning stems to save
 	 * @param stem
 	 *        the StemMethod list to save
+	 * @throws SQLException
 	 */
-	public void saveStemMethods(Project project, List<StemMethod> stems) {
-		StemLogic.saveStemMethods(project, stems);
+	public void saveStemMethods(Project project, List<StemMethod> stems) throws SQLException {
+		try {
+			StemLogic.saveStemMethods(project, stems);
+		}
+		finally {
+			removeStemMethodEntries(project);
+		}
+	}
+
+	/**
+	 * Add a list of stem method, keeping stems already saved.
+	 * 
+	 * @param project
+	 *        the project owning stems to save
+	 * @param stem
+	 *        the StemMethod list to add
+	 * @throws SQLException
+	 */
+	public void addStemMethods(Project project, List<StemMethod> stems) throws SQLException {
+		try {
+			StemLogic.addStemMethods(project, stems);
+		}
+		finally {
+			removeStemMethodEntries(project);
+		}
 	}
 
 	/**
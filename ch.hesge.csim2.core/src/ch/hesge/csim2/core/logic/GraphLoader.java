@@ -0,0 +1,325 @@
+package ch.hesge.csim2.core.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.hesge.csim2.core.dao.ConceptAttributeDao;
+import ch.hesge.csim2.core.dao.ConceptClassDao;
+import ch.hesge.csim2.core.dao.ConceptDao;
+import ch.hesge.csim2.core.dao.ConceptLinkDao;
+import ch.hesge.csim2.core.dao.SourceAttributeDao;
+import ch.hesge.csim2.core.dao.SourceClassDao;
+import ch.hesge.csim2.core.dao.SourceMethodDao;
+import ch.hesge.csim2.core.dao.SourceParameterDao;
+import ch.hesge.csim2.core.dao.SourceReferenceDao;
+import ch.hesge.csim2.core.model.Concept;
+import ch.hesge.csim2.core.model.ConceptAttribute;
+import ch.hesge.csim2.core.model.ConceptClass;
+import ch.hesge.csim2.core.model.ConceptLink;
+import ch.hesge.csim2.core.model.Ontology;
+import ch.hesge.csim2.core.model.Project;
+import ch.hesge.csim2.core.model.SourceAttribute;
+import ch.hesge.csim2.core.model.SourceClass;
+import ch.hesge.csim2.core.model.SourceMethod;
+import ch.hesge.csim2.core.model.SourceParameter;
+import ch.hesge.csim2.core.model.SourceReference;
+import ch.hesge.csim2.core.utils.ObjectSorter;
+
+/**
+ * This class loads object graphs (sources and concepts) with a single query
+ * per table, all rows of a project or an ontology being retrieved at once,
+ * and then assembles objects in memory through their foreign keys.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+class GraphLoader {
+
+	/**
+	 * Load all source classes owned by a project, with their attributes,
+	 * methods and class hierarchy.
+	 *
+	 * @param project
+	 *        the owner
+	 * @return a map of (classId, SourceClass)
+	 */
+	public static Map<Integer, SourceClass> loadSourceClasses(Project project) {
+
+		List<SourceClass> sourceClasses = nullToEmpty(SourceClassDao.findByProject(project));
+		List<SourceAttribute> sourceAttributes = nullToEmpty(SourceAttributeDao.findByProject(project));
+		List<SourceMethod> sourceMethods = nullToEmpty(SourceMethodDao.findByProject(project));
+
+		return buildSourceClasses(sourceClasses, sourceAttributes, sourceMethods);
+	}
+
+	/**
+	 * Assemble source classes with their attributes, methods and class
+	 * hierarchy.
+	 *
+	 * @param sourceClasses
+	 *        the classes to assemble
+	 * @param sourceAttributes
+	 *        the attributes of all classes
+	 * @param sourceMethods
+	 *        the methods of all classes
+	 * @return a map of (classId, SourceClass)
+	 */
+	public static Map<Integer, SourceClass> buildSourceClasses(List<SourceClass> sourceClasses, List<SourceAttribute> sourceAttributes, List<SourceMethod> sourceMethods) {
+
+		ObjectSorter.sortSourceClasses(sourceClasses);
+
+		Map<Integer, SourceClass> classMap = new HashMap<>();
+
+		// First populate the class map
+		for (SourceClass sourceClass : sourceClasses) {
+			classMap.put(sourceClass.getKeyId(), sourceClass);
+		}
+
+		// Populate class attributes
+		for (SourceAttribute sourceAttribute : sourceAttributes) {
+
+			SourceClass sourceClass = classMap.get(sourceAttribute.getClassId());
+
+			if (sourceClass != null) {
+				sourceAttribute.setSourceClass(sourceClass);
+				sourceClass.getAttributes().add(sourceAttribute);
+			}
+		}
+
+		// Populate class methods
+		for (SourceMethod sourceMethod : sourceMethods) {
+
+			SourceClass sourceClass = classMap.get(sourceMethod.getClassId());
+
+			if (sourceClass != null) {
+				sourceMethod.setSourceClass(sourceClass);
+				sourceClass.getMethods().add(sourceMethod);
+			}
+		}
+
+		// Populate superclasses
+		for (SourceClass sourceClass : sourceClasses) {
+
+			SourceClass superclass = classMap.get(sourceClass.getSuperClassId());
+
+			if (superclass != null) {
+				sourceClass.setSuperClass(superclass);
+				superclass.getSubClasses().add(sourceClass);
+			}
+		}
+
+		// Finally sort all dependencies
+		for (SourceClass sourceClass : sourceClasses) {
+			ObjectSorter.sortSourceAttributes(sourceClass.getAttributes());
+			ObjectSorter.sortSourceMethods(sourceClass.getMethods());
+			ObjectSorter.sortSourceClasses(sourceClass.getSubClasses());
+		}
+
+		return classMap;
+	}
+
+	/**
+	 * Load parameters and references of all methods owned by a project.
+	 *
+	 * @param project
+	 *        the owner
+	 * @param sourceClassMap
+	 *        the source classes whose methods should be populated
+	 */
+	public static void loadMethodParametersAndReferences(Project project, Map<Integer, SourceClass> sourceClassMap) {
+
+		List<SourceParameter> sourceParameters = nullToEmpty(SourceParameterDao.findByProject(project));
+		List<SourceReference> sourceReferences = nullToEmpty(SourceReferenceDao.findByProject(project));
+
+		buildMethodParametersAndReferences(sourceClassMap, sourceParameters, sourceReferences);
+	}
+
+	/**
+	 * Assemble methods with their parameters and references.
+	 *
+	 * @param sourceClassMap
+	 *        the source classes whose methods should be populated
+	 * @param sourceParameters
+	 *        the parameters of all methods
+	 * @param sourceReferences
+	 *        the references of all methods
+	 */
+	public static void buildMethodParametersAndReferences(Map<Integer, SourceClass> sourceClassMap, List<SourceParameter> sourceParameters, List<SourceReference> sourceReferences) {
+
+		Map<Integer, SourceMethod> methodMap = new HashMap<>();
+
+		// First populate the method map
+		for (SourceClass sourceClass : sourceClassMap.values()) {
+			for (SourceMethod sourceMethod : sourceClass.getMethods()) {
+				sourceMethod.getParameters().clear();
+				sourceMethod.getReferences().clear();
+				methodMap.put(sourceMethod.getKeyId(), sourceMethod);
+			}
+		}
+
+		// Populate method parameters
+		for (SourceParameter sourceParameter : sourceParameters) {
+
+			SourceMethod sourceMethod = methodMap.get(sourceParameter.getMethodId());
+
+			if (sourceMethod != null) {
+				sourceMethod.getParameters().add(sourceParameter);
+			}
+		}
+
+		// Populate method references
+		for (SourceReference sourceReference : sourceReferences) {
+
+			SourceMethod sourceMethod = methodMap.get(sourceReference.getMethodId());
+
+			if (sourceMethod != null) {
+				sourceMethod.getReferences().add(sourceReference);
+			}
+		}
+
+		// Sort parameters and references by name
+		for (SourceMethod sourceMethod : methodMap.values()) {
+			ObjectSorter.sortSourceParameters(sourceMethod.getParameters());
+			ObjectSorter.sortSourceReferences(sourceMethod.getReferences());
+		}
+	}
+
+	/**
+	 * Load all concepts owned by an ontology, with their attributes, classes
+	 * and links.
+	 *
+	 * @param ontology
+	 *        the owner
+	 * @return the list of concepts
+	 */
+	public static List<Concept> loadConcepts(Ontology ontology) {
+
+		List<Concept> concepts = nullToEmpty(ConceptDao.findByOntology(ontology));
+		List<ConceptAttribute> conceptAttributes = nullToEmpty(ConceptAttributeDao.findByOntology(ontology));
+		List<ConceptClass> conceptClasses = nullToEmpty(ConceptClassDao.findByOntology(ontology));
+		List<ConceptLink> conceptLinks = nullToEmpty(ConceptLinkDao.findByOntology(ontology));
+
+		buildConcepts(concepts, conceptAttributes, conceptClasses, conceptLinks);
+
+		return concepts;
+	}
+
+	/**
+	 * Load all concepts owned by a project, with their attributes, classes
+	 * and links.
+	 *
+	 * @param project
+	 *        the owner
+	 * @return the list of concepts
+	 */
+	public static List<Concept> loadConcepts(Project project) {
+
+		List<Concept> concepts = nullToEmpty(ConceptDao.findByProject(project));
+		List<ConceptAttribute> conceptAttributes = nullToEmpty(ConceptAttributeDao.findByProject(project));
+		List<ConceptClass> conceptClasses = nullToEmpty(ConceptClassDao.findByProject(project));
+		List<ConceptLink> conceptLinks = nullToEmpty(ConceptLinkDao.findByProject(project));
+
+		buildConcepts(concepts, conceptAttributes, conceptClasses, conceptLinks);
+
+		return concepts;
+	}
+
+	/**
+	 * Assemble concepts with their attributes, classes and links. Concept
+	 * hierarchy and parts are deduced from links.
+	 *
+	 * @param concepts
+	 *        the concepts to assemble
+	 * @param conceptAttributes
+	 *        the attributes of all concepts
+	 * @param conceptClasses
+	 *        the classes of all concepts
+	 * @param conceptLinks
+	 *        the links starting from all concepts
+	 */
+	public static void buildConcepts(List<Concept> concepts, List<ConceptAttribute> conceptAttributes, List<ConceptClass> conceptClasses, List<ConceptLink> conceptLinks) {
+
+		ObjectSorter.sortConcepts(concepts);
+
+		Map<Integer, Concept> conceptMap = new HashMap<>();
+
+		// First populate the concept map
+		for (Concept concept : concepts) {
+			conceptMap.put(concept.getKeyId(), concept);
+		}
+
+		// Populate concept attributes
+		for (ConceptAttribute conceptAttribute : conceptAttributes) {
+
+			Concept concept = conceptMap.get(conceptAttribute.getConceptId());
+
+			if (concept != null) {
+				conceptAttribute.setConcept(concept);
+				concept.getAttributes().add(conceptAttribute);
+			}
+		}
+
+		// Populate concept classes
+		for (ConceptClass conceptClass : conceptClasses) {
+
+			Concept concept = conceptMap.get(conceptClass.getConceptId());
+
+			if (concept != null) {
+				conceptClass.setConcept(concept);
+				concept.getClasses().add(conceptClass);
+			}
+		}
+
+		// Populate links between concepts
+		for (ConceptLink link : conceptLinks) {
+
+			Concept concept = conceptMap.get(link.getSourceId());
+
+			if (concept == null) {
+				continue;
+			}
+
+			// Update concept with instances
+			link.setSourceConcept(concept);
+			link.setTargetConcept(conceptMap.get(link.getTargetId()));
+
+			// Add the link to the concept
+			concept.getLinks().add(link);
+
+			if (link.getTargetConcept() == null) {
+				continue;
+			}
+
+			// Detect concept hierarchy
+			if (OntologyLogic.isSubsumptionLink(link)) {
+				concept.setSuperConcept(link.getTargetConcept());
+				link.getTargetConcept().getSubConcepts().add(concept);
+			}
+
+			// Detect part relationship
+			if (OntologyLogic.isMereologyLink(link)) {
+				link.getTargetConcept().getParts().add(concept);
+			}
+		}
+
+		// Finally sort all dependencies
+		for (Concept concept : concepts) {
+			ObjectSorter.sortConceptAttributes(concept.getAttributes());
+			ObjectSorter.sortConceptClasses(concept.getClasses());
+			ObjectSorter.sortConcepts(concept.getSubConcepts());
+			ObjectSorter.sortConcepts(concept.getParts());
+		}
+	}
+
+	/**
+	 * Replace a null list (returned on database error) by an empty one.
+	 */
+	private static <T> List<T> nullToEmpty(List<T> list) {
+		return list == null ? Collections.<T> emptyList() : list;
+	}
+}
@@ -11,13 +11,19 @@ import java.io.OutputStreamWriter;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import ch.hesge.csim2.core.dao.MethodConceptMatchDao;
+import ch.hesge.csim2.core.model.Concept;
 import ch.hesge.csim2.core.model.IMethodConceptMatcher;
 import ch.hesge.csim2.core.model.MethodConceptMatch;
 import ch.hesge.csim2.core.model.Project;
+import ch.hesge.csim2.core.model.SourceMethod;
+import ch.hesge.csim2.core.model.StemConcept;
+import ch.hesge.csim2.core.model.StemMethod;
 import ch.hesge.csim2.core.utils.Console;
 import ch.hesge.csim2.core.utils.FileUtils;
 import ch.hesge.csim2.core.utils.PluginManager;
@@ -56,6 +62,9 @@ class MatchingLogic {
 	/**
 	 * Retrieve all matchings between a method and a concept.
 	 * 
+	 * Matchings already saved for the same matcher version and threshold are
+	 * reused. Otherwise, they are computed by the matcher and saved.
+	 * 
 	 * @param project
 	 *        the project to analyse
 	 * @param matcher
@@ -66,7 +75,136 @@ class MatchingLogic {
 	 *         a map of (MethodId, List<MethodConceptMatch>)
 	 */
 	public static Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(Project project, IMethodConceptMatcher matcher, float threshold) {
-		return matcher.getMethodMatchingMap(project, threshold);
+
+		// First try to reuse matchings already saved
+		Map<Integer, List<MethodConceptMatch>> matchMap = loadMethodMatchingMap(project, matcher, threshold);
+
+		if (matchMap == null) {
+
+			matchMap = matcher.getMethodMatchingMap(project, threshold);
+
+			List<MethodConceptMatch> matchings = new ArrayList<>();
+
+			for (List<MethodConceptMatch> methodMatchings : matchMap.values()) {
+				matchings.addAll(methodMatchings);
+			}
+
+			// Save matchings for future use
+			MethodConceptMatchDao.saveByMatcher(project, matcher, threshold, matchings);
+		}
+
+		return matchMap;
+	}
+
+	/**
+	 * Load all matchings saved for a matcher, with their concept, method and
+	 * stems.
+	 * 
+	 * Matchings referring to a concept, a method or a stem no longer
+	 * existing are out of date, and should be computed again.
+	 * 
+	 * @param project
+	 *        the project to analyse
+	 * @param matcher
+	 *        the matcher used to compute matching
+	 * @param threshold
+	 *        the threshold used when selecting matching
+	 * @return
+	 *         a map of (MethodId, List<MethodConceptMatch>), empty if the
+	 *         matcher found no matching, or null if the matcher was not run
+	 *         or if its matchings are out of date
+	 */
+	private static Map<Integer, List<MethodConceptMatch>> loadMethodMatchingMap(Project project, IMethodConceptMatcher matcher, float threshold) {
+
+		List<MethodConceptMatch> matchings = MethodConceptMatchDao.findByMatcher(project, matcher, threshold);
+
+		if (matchings == null) {
+			return null;
+		}
+		else if (matchings.isEmpty()) {
+			return new HashMap<>();
+		}
+
+		ApplicationLogic applicationLogic = ApplicationLogic.UNIQUE_INSTANCE;
+		Map<Integer, Concept> conceptMap = applicationLogic.getConceptMap(project);
+		Map<Integer, SourceMethod> methodMap = applicationLogic.getSourceMethodMap(project);
+		Map<Integer, StemConcept> stemConceptMap = new HashMap<>();
+		Map<Integer, StemMethod> stemMethodMap = new HashMap<>();
+
+		// Retrieve all stems by id
+		for (StemConcept rootStem : applicationLogic.getStemConceptTreeMap(project).values()) {
+			for (StemConcept stem : applicationLogic.inflateStemConcepts(rootStem)) {
+				stemConceptMap.put(stem.getKeyId(), stem);
+			}
+		}
+
+		for (StemMethod rootStem : applicationLogic.getStemMethodTreeMap(project).values()) {
+			for (StemMethod stem : applicationLogic.inflateStemMethods(rootStem)) {
+				stemMethodMap.put(stem.getKeyId(), stem);
+			}
+		}
+
+		Map<Integer, List<MethodConceptMatch>> matchMap = new HashMap<>();
+
+		for (MethodConceptMatch match : matchings) {
+
+			Concept concept = conceptMap.get(match.getConceptId());
+			SourceMethod sourceMethod = methodMap.get(match.getSourceMethodId());
+
+			if (concept == null || sourceMethod == null) {
+				Console.writeDebug(MatchingLogic.class, "saved matchings out of date, computing them again.");
+				return null;
+			}
+
+			// Replace stems loaded (with only their id) by their instance
+			for (int i = 0; i < match.getStemConcepts().size(); i++) {
+
+				StemConcept stem = stemConceptMap.get(match.getStemConcepts().get(i).getKeyId());
+
+				if (stem == null) {
+					Console.writeDebug(MatchingLogic.class, "saved matchings out of date, computing them again.");
+					return null;
+				}
+
+				match.getStemConcepts().set(i, stem);
+			}
+
+			for (int i = 0; i < match.getStemMethods().size(); i++) {
+
+				StemMethod stem = stemMethodMap.get(match.getStemMethods().get(i).getKeyId());
+
+				if (stem == null) {
+					Console.writeDebug(MatchingLogic.class, "saved matchings out of date, computing them again.");
+					return null;
+				}
+
+				match.getStemMethods().set(i, stem);
+			}
+
+			match.setProject(project);
+			match.setConcept(concept);
+			match.setSourceMethod(sourceMethod);
+			match.setSourceClass(sourceMethod.getSourceClass());
+
+			// Classify matchings by method
+			if (!matchMap.containsKey(sourceMethod.getKeyId())) {
+				matchMap.put(sourceMethod.getKeyId(), new ArrayList<>());
+			}
+
+			matchMap.get(sourceMethod.getKeyId()).add(match);
+		}
+
+		return matchMap;
+	}
+
+	/**
+	 * Delete all matchings saved for a project, whatever the matcher.
+	 * 
+	 * @param project
+	 *        the project whose matchings are out of date
+	 */
+	public static void deleteMethodMatchings(Project project) {
+		MethodConceptMatchDao.deleteByProject(project);
 	}
 
 	/**
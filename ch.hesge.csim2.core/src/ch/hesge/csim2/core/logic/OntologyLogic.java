@@ -121,54 +121,7 @@ public class OntologyLogic {
 	 *         the list of concept
 	 */
 	public static List<Concept> getConcepts(Ontology ontology) {
-
-		List<Concept> concepts = ConceptDao.findByOntology(ontology);
-		ObjectSorter.sortConcepts(concepts);
-
-		Map<Integer, Concept> conceptMap = new HashMap<>();
-
-		// First populate the concept map
-		for (Concept concept : concepts) {
-			conceptMap.put(concept.getKeyId(), concept);
-		}
-
-		// Then populate dependencies
-		for (Concept concept : concepts) {
-			
-			// Populate attributes
-			concept.getAttributes().addAll(ConceptAttributeDao.findByConcept(concept));
-			ObjectSorter.sortConceptAttributes(concept.getAttributes());
-
-			// Populate concept classes
-			concept.getClasses().addAll(ConceptClassDao.findByConcept(concept));
-			ObjectSorter.sortConceptClasses(concept.getClasses());
-			
-			// Populate links between concepts
-			for (ConceptLink link : ConceptLinkDao.findByConcept(concept)) {
-
-				// Update concept with instances
-				link.setSourceConcept(concept);
-				link.setTargetConcept(conceptMap.get(link.getTargetId()));
-
-				// Add the link to the concept
-				concept.getLinks().add(link);
-
-				// Detect concept hierarchy
-				if (isSubsumptionLink(link)) {
-					concept.setSuperConcept(link.getTargetConcept());
-					link.getTargetConcept().getSubConcepts().add(concept);
-					ObjectSorter.sortConcepts(link.getTargetConcept().getSubConcepts());
-				}
-
-				// Detect part relationship
-				if (isMereologyLink(link)) {
-					link.getTargetConcept().getParts().add(concept);
-					ObjectSorter.sortConcepts(link.getTargetConcept().getParts());
-				}
-			}
-		}
-		
-		return concepts;
+		return GraphLoader.loadConcepts(ontology);
 	}
 
 	/**
@@ -181,54 +134,7 @@ public class OntologyLogic {
 	 *         the list of concept
 	 */
 	public static List<Concept> getConcepts(Project project) {
-
-		List<Concept> concepts = ConceptDao.findByProject(project);
-		ObjectSorter.sortConcepts(concepts);
-
-		Map<Integer, Concept> conceptMap = new HashMap<>();
-
-		// First populate the concept map
-		for (Concept concept : concepts) {
-			conceptMap.put(concept.getKeyId(), concept);
-		}
-
-		// Then populate dependencies
-		for (Concept concept : concepts) {
-			
-			// Populate attributes
-			concept.getAttributes().addAll(ConceptAttributeDao.findByConcept(concept));
-			ObjectSorter.sortConceptAttributes(concept.getAttributes());
-
-			// Populate concept classes
-			concept.getClasses().addAll(ConceptClassDao.findByConcept(concept));
-			ObjectSorter.sortConceptClasses(concept.getClasses());
-			
-			// Populate links between concepts
-			for (ConceptLink link : ConceptLinkDao.findByConcept(concept)) {
-
-				// Update concept with instances
-				link.setSourceConcept(concept);
-				link.setTargetConcept(conceptMap.get(link.getTargetId()));
-
-				// Add the link to the concept
-				concept.getLinks().add(link);
-
-				// Detect concept hierarchy
-				if (isSubsumptionLink(link)) {
-					concept.setSuperConcept(link.getTargetConcept());
-					link.getTargetConcept().getSubConcepts().add(concept);
-					ObjectSorter.sortConcepts(link.getTargetConcept().getSubConcepts());
-				}
-
-				// Detect part relationship
-				if (isMereologyLink(link)) {
-					link.getTargetConcept().getParts().add(concept);
-					ObjectSorter.sortConcepts(link.getTargetConcept().getParts());
-				}
-			}
-		}
-		
-		return concepts;
+		return GraphLoader.loadConcepts(project);
 	}
 	
 	/**
@@ -245,63 +151,19 @@ public class OntologyLogic {
 
 		Map<Integer, Ontology> ontologyMap = new HashMap<>();
 		Map<Integer, Concept> conceptMap = new HashMap<>();
-		List<Concept> concepts = ConceptDao.findByProject(project);
 
-		// First populate the concept map
+		// First populate the ontology map
 		for (Ontology ontology : getOntologies(project)) {
 			ontologyMap.put(ontology.getKeyId(), ontology);
 		}
-		
+
 		// Then populate the concept map
-		for (Concept concept : concepts) {
-			conceptMap.put(concept.getKeyId(), concept);
-		}
+		for (Concept concept : GraphLoader.loadConcepts(project)) {
 
-		// Then populate dependencies
-		for (Concept concept : concepts) {
-			
 			// Attach correct ontology
 			concept.setOntology(ontologyMap.get(concept.getOntologyId()));
-			
-			// Populate concept attributes
-			for (ConceptAttribute conceptAttribute : ConceptAttributeDao.findByConcept(concept)) {
-				conceptAttribute.setConcept(concept);
-				concept.getAttributes().add(conceptAttribute);				
-			}
-
-			ObjectSorter.sortConceptAttributes(concept.getAttributes());
-
-			// Populate concept classes
-			for (ConceptClass conceptClass : ConceptClassDao.findByConcept(concept)) {
-				conceptClass.setConcept(concept);
-				concept.getClasses().add(conceptClass);				
-			}
-			
-			ObjectSorter.sortConceptClasses(concept.getClasses());
-			
-			// Populate links between concepts
-			for (ConceptLink link : ConceptLinkDao.findByConcept(concept)) {
-
-				// Update concept with instances
-				link.setSourceConcept(concept);
-				link.setTargetConcept(conceptMap.get(link.getTargetId()));
-
-				// Add the link to the concept
-				concept.getLinks().add(link);
-
-				// Detect concept hierarchy
-				if (isSubsumptionLink(link)) {
-					concept.setSuperConcept(link.getTargetConcept());
-					link.getTargetConcept().getSubConcepts().add(concept);
-					ObjectSorter.sortConcepts(link.getTargetConcept().getSubConcepts());
-				}
 
-				// Detect part relationship
-				if (isMereologyLink(link)) {
-					link.getTargetConcept().getParts().add(concept);
-					ObjectSorter.sortConcepts(link.getTargetConcept().getParts());
-				}
-			}
+			conceptMap.put(concept.getKeyId(), concept);
 		}
 
 		return conceptMap;
@@ -101,6 +101,7 @@ class ProjectLogic {
 		OntologyLogic.deleteOntologies(project);
 		ScenarioLogic.deleteScenarios(project);
 		StemLogic.deleteStems(project);
+		MatchingLogic.deleteMethodMatchings(project);
 		ProjectDao.delete(project);
 	}
 }
@@ -6,17 +6,22 @@ package ch.hesge.csim2.core.logic;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import ch.hesge.csim2.core.dao.SourceAttributeDao;
 import ch.hesge.csim2.core.dao.SourceClassDao;
+import ch.hesge.csim2.core.dao.SourceFileDao;
 import ch.hesge.csim2.core.dao.SourceMethodDao;
 import ch.hesge.csim2.core.dao.SourceParameterDao;
 import ch.hesge.csim2.core.dao.SourceReferenceDao;
+import ch.hesge.csim2.core.dao.StemMethodDao;
 import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.model.SourceAttribute;
 import ch.hesge.csim2.core.model.SourceClass;
+import ch.hesge.csim2.core.model.SourceFile;
 import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.SourceParameter;
 import ch.hesge.csim2.core.model.SourceReference;
@@ -43,47 +48,7 @@ class SourceLogic {
 	 * @return a map of (classId, SourceClass)
 	 */
 	public static Map<Integer, SourceClass> getSourceClassMap(Project project) {
-
-		List<SourceClass> sourceClasses = SourceClassDao.findByProject(project);
-		ObjectSorter.sortSourceClasses(sourceClasses);
-
-		Map<Integer, SourceClass> classMap = new HashMap<>();
-
-		// First populate the class map
-		for (SourceClass sourceClass : sourceClasses) {
-			classMap.put(sourceClass.getKeyId(), sourceClass);
-		}
-
-		// Then populate dependencies
-		for (SourceClass sourceClass : sourceClasses) {
-			
-			// Populate class attributes
-			for (SourceAttribute sourceAttribute : SourceAttributeDao.findByClass(sourceClass)) {
-				sourceAttribute.setSourceClass(sourceClass);
-				sourceClass.getAttributes().add(sourceAttribute);				
-			}
-
-			ObjectSorter.sortSourceAttributes(sourceClass.getAttributes());
-
-			// Populate class method
-			for (SourceMethod sourceMethod : SourceMethodDao.findByClass(sourceClass)) {
-				sourceMethod.setSourceClass(sourceClass);
-				sourceClass.getMethods().add(sourceMethod);				
-			}
-
-			ObjectSorter.sortSourceMethods(sourceClass.getMethods());
-			
-			// Populate superclass
-			SourceClass superclass = classMap.get(sourceClass.getSuperClassId());
-			
-			if (superclass != null) {
-				sourceClass.setSuperClass(superclass);
-				superclass.getSubClasses().add(sourceClass);
-				ObjectSorter.sortSourceClasses(superclass.getSubClasses());
-			}			
-		}
-		
-		return classMap;
+		return GraphLoader.loadSourceClasses(project);
 	}
 
 	/**
@@ -181,60 +146,273 @@ class SourceLogic {
 	/**
 	 * Retrieve all method parameters and references.
 	 * 
+	 * @param project
+	 *        the project owning sources
 	 * @param sourceClassMap
 	 *        the source class to populate
 	 */
-	public static void populateMethodParametersAndReferences(Map<Integer, SourceClass> sourceClassMap) {
-		
-		for (SourceClass sourceClass : sourceClassMap.values()) {
-			for (SourceMethod sourceMethod : sourceClass.getMethods()) {
-				
-				// Retrieve method parameters
-				List<SourceParameter> parameters = SourceParameterDao.findByMethod(sourceMethod);
-				sourceMethod.getParameters().clear();
-				sourceMethod.getParameters().addAll(parameters);
-
-				// Retrieve method references
-				List<SourceReference> references = SourceReferenceDao.findByMethod(sourceMethod);
-				sourceMethod.getReferences().clear();
-				sourceMethod.getReferences().addAll(references);
+	public static void populateMethodParametersAndReferences(Project project, Map<Integer, SourceClass> sourceClassMap) {
+		GraphLoader.loadMethodParametersAndReferences(project, sourceClassMap);
+	}
+	
+	/**
+	 * Retrieve all files analyzed for a project as a map of (filename,
+	 * SourceFile).
+	 * 
+	 * @param project
+	 *        the owner
+	 * 
+	 * @return a map of (filename, SourceFile)
+	 */
+	public static Map<String, SourceFile> getSourceFileMap(Project project) {
+
+		Map<String, SourceFile> fileMap = new HashMap<>();
+		List<SourceFile> sourceFiles = SourceFileDao.findByProject(project);
+
+		if (sourceFiles != null) {
+			for (SourceFile sourceFile : sourceFiles) {
+				fileMap.put(sourceFile.getFilename(), sourceFile);
 			}
 		}
+
+		return fileMap;
 	}
-	
+
 	/**
 	 * Delete all sources and their dependencies owned by an project. 
-	 * Thas is class, attribute, method, parameter and reference.
+	 * Thas is class, attribute, method, parameter, reference, method stems
+	 * and files analyzed.
 	 * 
 	 * @param project
 	 *        the project to clean sources
+	 * @return the classes deleted
 	 */
-	public static void deleteSources(Project project) {
+	public static List<SourceClass> deleteSources(Project project) {
+
+		List<SourceClass> deletedClasses = SourceClassDao.findByProject(project);
 
+		StemMethodDao.deleteByProject(project);
 		SourceAttributeDao.deleteByProject(project);
 		SourceReferenceDao.deleteByProject(project);
 		SourceParameterDao.deleteByProject(project);
 		SourceMethodDao.deleteByProject(project);
 		SourceClassDao.deleteByProject(project);
+		SourceFileDao.deleteByProject(project);
+
+		return deletedClasses == null ? new ArrayList<SourceClass>() : deletedClasses;
 	}
 
 	/**
-	 * Save all sources passed in argument.
+	 * Save all sources passed in argument, replacing all sources of the
+	 * project.
 	 * 
 	 * @param project
 	 *        the project owning classes
 	 * @param sourceClasses
 	 *        the sourceClasses to save
+	 * @return the classes deleted
 	 */
-	public static void saveSourceClasses(Project project, List<SourceClass> sourceClasses) {
+	public static List<SourceClass> saveSourceClasses(Project project, List<SourceClass> sourceClasses) {
+		return saveSourceClasses(project, sourceClasses, new ArrayList<SourceFile>());
+	}
+
+	/**
+	 * Save all sources passed in argument, with the files they were found
+	 * in, replacing all sources of the project.
+	 * 
+	 * @param project
+	 *        the project owning classes
+	 * @param sourceClasses
+	 *        the sourceClasses to save
+	 * @param sourceFiles
+	 *        all files analyzed
+	 * @return the classes deleted
+	 */
+	public static List<SourceClass> saveSourceClasses(Project project, List<SourceClass> sourceClasses, List<SourceFile> sourceFiles) {
 
 		// First delete all sources associated to project
-		deleteSources(project);
+		List<SourceClass> deletedClasses = deleteSources(project);
+
+		saveSourceFiles(project, sourceFiles);
+		addSourceClasses(project, sourceClasses, new HashMap<String, SourceClass>());
+
+		return deletedClasses;
+	}
+
+	/**
+	 * Update sources of a project after the analysis of files changed only.
+	 * 
+	 * Files are compared with those of the previous analysis through their
+	 * content hash. Classes found in files changed or deleted since then are
+	 * deleted, with their dependencies and method stems, and replaced by
+	 * classes passed in argument. Classes of unchanged files are kept, as
+	 * well as their stems, and linked again to their superclass.
+	 * 
+	 * A class of an unchanged file is also replaced by the class with the
+	 * same name passed in argument, if any. The analyzer is expected to parse
+	 * again all files declaring a class also declared by a file changed or
+	 * deleted, so that such a class gathers all its declarations, as with a
+	 * full analysis.
+	 * 
+	 * @param project
+	 *        the project owning classes
+	 * @param sourceFiles
+	 *        all files currently present, with their content hash
+	 * @param sourceClasses
+	 *        the classes found in files changed or added, and in files
+	 *        sharing a class with them
+	 * @return the classes deleted
+	 */
+	public static List<SourceClass> updateSourceClasses(Project project, List<SourceFile> sourceFiles, List<SourceClass> sourceClasses) {
+
+		Map<String, SourceFile> storedFileMap = getSourceFileMap(project);
+		List<SourceFile> deletedFiles = new ArrayList<>();
+		List<SourceFile> changedFiles = new ArrayList<>();
+		Set<Integer> unchangedFileIds = new HashSet<>();
+
+		// Compare files with those previously analyzed
+		for (SourceFile sourceFile : sourceFiles) {
+
+			SourceFile storedFile = storedFileMap.remove(sourceFile.getFilename());
+
+			if (storedFile != null && sourceFile.getContentHash().equals(storedFile.getContentHash())) {
+				sourceFile.setKeyId(storedFile.getKeyId());
+				unchangedFileIds.add(storedFile.getKeyId());
+			}
+			else {
+
+				if (storedFile != null) {
+					deletedFiles.add(storedFile);
+				}
+
+				changedFiles.add(sourceFile);
+			}
+		}
 
-		// Create a map of all classes
+		// Files no longer present
+		deletedFiles.addAll(storedFileMap.values());
+
+		List<SourceClass> storedClasses = SourceClassDao.findByProject(project);
+		List<SourceClass> keptClasses = new ArrayList<>();
+		List<SourceClass> deletedClasses = new ArrayList<>();
+		Map<Integer, String> classNames = new HashMap<>();
 		Map<String, SourceClass> sourceClassMap = new HashMap<>();
+		Set<String> parsedClassNames = new HashSet<>();
+
+		for (SourceClass sourceClass : sourceClasses) {
+			parsedClassNames.add(sourceClass.getName());
+		}
+
+		// Keep classes found in unchanged files only, and not parsed again
+		if (storedClasses != null) {
+			for (SourceClass storedClass : storedClasses) {
+
+				classNames.put(storedClass.getKeyId(), storedClass.getName());
+
+				if (unchangedFileIds.contains(storedClass.getFileId()) && !parsedClassNames.contains(storedClass.getName())) {
+					keptClasses.add(storedClass);
+					sourceClassMap.put(storedClass.getName(), storedClass);
+				}
+				else {
+					deletedClasses.add(storedClass);
+				}
+			}
+		}
+
+		// Delete obsolete classes and files
+		if (!deletedClasses.isEmpty()) {
+			deleteSourceClasses(deletedClasses);
+		}
+
+		if (!deletedFiles.isEmpty()) {
+			SourceFileDao.deleteBatch(deletedFiles);
+		}
+
+		saveSourceFiles(project, changedFiles);
+
+		// Add all classes parsed
+		addSourceClasses(project, sourceClasses, sourceClassMap);
+
+		// Link kept classes again to their superclass
+		List<SourceClass> relinkedClasses = new ArrayList<>();
+		for (SourceClass keptClass : keptClasses) {
+
+			String superclassName = keptClass.getSuperClassName();
+
+			// Classes saved without superclass name
+			if (superclassName == null) {
+				superclassName = classNames.get(keptClass.getSuperClassId());
+			}
+
+			SourceClass superclass = sourceClassMap.get(superclassName);
+			int superclassId = superclass == null ? -1 : superclass.getKeyId();
+
+			if (keptClass.getSuperClassId() != superclassId) {
+				keptClass.setSuperClassId(superclassId);
+				relinkedClasses.add(keptClass);
+			}
+		}
+
+		if (!relinkedClasses.isEmpty()) {
+			SourceClassDao.updateBatch(relinkedClasses);
+		}
+
+		return deletedClasses;
+	}
+
+	/**
+	 * Delete a list of classes with all their dependencies, including their
+	 * method stems.
+	 * 
+	 * @param sourceClasses
+	 *        the classes to delete
+	 */
+	private static void deleteSourceClasses(List<SourceClass> sourceClasses) {
+
+		StemMethodDao.deleteByClasses(sourceClasses);
+		SourceAttributeDao.deleteByClasses(sourceClasses);
+		SourceReferenceDao.deleteByClasses(sourceClasses);
+		SourceParameterDao.deleteByClasses(sourceClasses);
+		SourceMethodDao.deleteByClasses(sourceClasses);
+		SourceClassDao.deleteBatch(sourceClasses);
+	}
+
+	/**
+	 * Save the files analyzed for a project.
+	 * 
+	 * @param project
+	 *        the project owning files
+	 * @param sourceFiles
+	 *        the files to save
+	 */
+	private static void saveSourceFiles(Project project, List<SourceFile> sourceFiles) {
+
+		for (SourceFile sourceFile : sourceFiles) {
+			sourceFile.setProjectId(project.getKeyId());
+		}
+
+		if (!sourceFiles.isEmpty()) {
+			SourceFileDao.addBatch(sourceFiles);
+		}
+	}
+
+	/**
+	 * Add new classes with all their dependencies.
+	 * 
+	 * @param project
+	 *        the project owning classes
+	 * @param sourceClasses
+	 *        the sourceClasses to add
+	 * @param sourceClassMap
+	 *        the classes already saved, by name, used to retrieve
+	 *        superclasses
+	 */
+	private static void addSourceClasses(Project project, List<SourceClass> sourceClasses, Map<String, SourceClass> sourceClassMap) {
+
+		// Register all classes
 		for (SourceClass sourceClass : sourceClasses) {
 			sourceClass.setProjectId(project.getKeyId());
+			sourceClass.setFileId(sourceClass.getSourceFile() == null ? -1 : sourceClass.getSourceFile().getKeyId());
 			SourceClassDao.add(sourceClass);
 			sourceClassMap.put(sourceClass.getName(), sourceClass);
 		}
@@ -4,10 +4,12 @@
  */
 package ch.hesge.csim2.core.logic;
 
+import java.sql.SQLException;
 import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,6 +26,7 @@ import ch.hesge.csim2.core.model.StemMethod;
 import ch.hesge.csim2.core.model.StemMethodType;
 import ch.hesge.csim2.core.utils.DaoUtils;
 import ch.hesge.csim2.core.utils.ObjectSorter;
+import ch.hesge.csim2.core.utils.StemTermIndex;
 import ch.hesge.csim2.core.utils.StringUtils;
 
 /**
@@ -475,6 +478,26 @@ class StemLogic {
 		return stemMap;
 	}
 
+	/**
+	 * Build an inverted index of all stem terms in project, giving for each
+	 * term the methods and concepts using it.
+	 * 
+	 * @param project
+	 *        the project owning stems
+	 * 
+	 * @return
+	 *         the term index
+	 */
+	public static StemTermIndex getStemTermIndex(Project project) {
+
+		ApplicationLogic applicationLogic = ApplicationLogic.UNIQUE_INSTANCE;
+
+		Map<String, List<StemMethod>> stemMethodMap = applicationLogic.getStemMethodByTermMap(project);
+		Map<String, List<StemConcept>> stemConceptMap = applicationLogic.getStemConceptByTermMap(project);
+
+		return new StemTermIndex(stemMethodMap, stemConceptMap);
+	}
+
 	/**
 	 * Return a set of all terms which are intersecting among stem concepts and
 	 * stem methods.
@@ -518,27 +541,53 @@ class StemLogic {
 	/**
 	 * Save a list of stem concept.
 	 * 
+	 * Stems are saved level by level of their tree, each level through a
+	 * single batch, so that parent keyIds are known before their children
+	 * are saved.
+	 * 
 	 * @param project
 	 *        the project owning the stems to save
 	 * @param stems
 	 *        a list of StemConcept to save
+	 * @throws SQLException
+	 *         if a level could not be saved, its children are not saved
 	 */
-	public static void saveStemConcepts(Project project, List<StemConcept> stems) {
+	public static void saveStemConcepts(Project project, List<StemConcept> stems) throws SQLException {
 
 		StemConceptDao.deleteByProject(project);
 
+		// Build the parent map
+		Map<StemConcept, StemConcept> parentMap = new IdentityHashMap<>();
 		for (StemConcept stem : stems) {
-			
-			// Update dependent ids
-			stem.setProjectId(stem.getProject().getKeyId());
-			stem.setParentId(stem.getParent() == null ? -1 : stem.getParent().getKeyId());
-			stem.setConceptId(stem.getConcept().getKeyId());
+			parentMap.put(stem, stem.getParent());
+		}
+
+		for (List<StemConcept> levelStems : getTreeLevels(stems, parentMap)) {
+
+			List<StemConcept> newStems = new ArrayList<>();
+			List<StemConcept> persistedStems = new ArrayList<>();
+
+			for (StemConcept stem : levelStems) {
+
+				// Update dependent ids
+				stem.setProjectId(stem.getProject().getKeyId());
+				stem.setParentId(stem.getParent() == null ? -1 : stem.getParent().getKeyId());
+				stem.setConceptId(stem.getConcept().getKeyId());
 
-			if (DaoUtils.isNewObject(stem)) {
-				StemConceptDao.add(stem);
+				if (DaoUtils.isNewObject(stem)) {
+					newStems.add(stem);
+				}
+				else {
+					persistedStems.add(stem);
+				}
 			}
-			else {
-				StemConceptDao.update(stem);
+
+			if (!newStems.isEmpty()) {
+				StemConceptDao.addBatch(newStems);
+			}
+
+			if (!persistedStems.isEmpty()) {
+				StemConceptDao.updateBatch(persistedStems);
 			}
 		}
 	}
@@ -546,28 +595,128 @@ class StemLogic {
 	/**
 	 * Save a list of stem method.
 	 * 
+	 * Stems are saved level by level of their tree, each level through a
+	 * single batch, so that parent keyIds are known before their children
+	 * are saved.
+	 * 
 	 * @param project
 	 *        the project owning stems to save
 	 * @param stem
 	 *        the StemMethod list to save
+	 * @throws SQLException
+	 *         if a level could not be saved, its children are not saved
 	 */
-	public static void saveStemMethods(Project project, List<StemMethod> stems) {
+	public static void saveStemMethods(Project project, List<StemMethod> stems) throws SQLException {
 		
 		StemMethodDao.deleteByProject(project);
+		addStemMethods(project, stems);
+	}
 
+	/**
+	 * Save a list of stem method, without removing stems already saved for
+	 * the project.
+	 * 
+	 * Stems are saved level by level of their tree, each level through a
+	 * single batch, so that parent keyIds are known before their children
+	 * are saved.
+	 * 
+	 * @param project
+	 *        the project owning stems to save
+	 * @param stem
+	 *        the StemMethod list to save
+	 * @throws SQLException
+	 *         if a level could not be saved, its children are not saved
+	 */
+	public static void addStemMethods(Project project, List<StemMethod> stems) throws SQLException {
+
+		// Build the parent map
+		Map<StemMethod, StemMethod> parentMap = new IdentityHashMap<>();
 		for (StemMethod stem : stems) {
-			
-			// Update dependency ids
-			stem.setProjectId(stem.getProject().getKeyId());
-			stem.setParentId(stem.getParent() == null ? -1 : stem.getParent().getKeyId());
-			stem.setSourceMethodId(stem.getSourceMethod().getKeyId());
-			
-			if (DaoUtils.isNewObject(stem)) {
-				StemMethodDao.add(stem);
+			parentMap.put(stem, stem.getParent());
+		}
+
+		for (List<StemMethod> levelStems : getTreeLevels(stems, parentMap)) {
+
+			List<StemMethod> newStems = new ArrayList<>();
+			List<StemMethod> persistedStems = new ArrayList<>();
+
+			for (StemMethod stem : levelStems) {
+
+				// Update dependency ids
+				stem.setProjectId(stem.getProject().getKeyId());
+				stem.setParentId(stem.getParent() == null ? -1 : stem.getParent().getKeyId());
+				stem.setSourceMethodId(stem.getSourceMethod().getKeyId());
+
+				if (DaoUtils.isNewObject(stem)) {
+					newStems.add(stem);
+				}
+				else {
+					persistedStems.add(stem);
+				}
+			}
+
+			if (!newStems.isEmpty()) {
+				StemMethodDao.addBatch(newStems);
+			}
+
+			if (!persistedStems.isEmpty()) {
+				StemMethodDao.updateBatch(persistedStems);
+			}
+		}
+	}
+
+	/**
+	 * Split a list of stems into the levels of their tree. The first level
+	 * contains stems without parent (or whose parent is not in the list),
+	 * the next one their children, and so on. Stems keep their original
+	 * order within each level.
+	 * 
+	 * @param stems
+	 *        the stems to split
+	 * @param parentMap
+	 *        the parent of each stem
+	 * @return a list of levels
+	 */
+	private static <T> List<List<T>> getTreeLevels(List<T> stems, Map<T, T> parentMap) {
+
+		List<List<T>> levels = new ArrayList<>();
+		Map<T, Integer> levelMap = new IdentityHashMap<>();
+
+		for (T stem : stems) {
+
+			int level = getTreeLevel(stem, parentMap, levelMap);
+
+			while (levels.size() <= level) {
+				levels.add(new ArrayList<T>());
+			}
+
+			levels.get(level).add(stem);
+		}
+
+		return levels;
+	}
+
+	/**
+	 * Retrieve the level of a stem within its tree.
+	 */
+	private static <T> int getTreeLevel(T stem, Map<T, T> parentMap, Map<T, Integer> levelMap) {
+
+		Integer level = levelMap.get(stem);
+
+		if (level == null) {
+
+			T parent = parentMap.get(stem);
+
+			if (parent != null && parentMap.containsKey(parent)) {
+				level = getTreeLevel(parent, parentMap, levelMap) + 1;
 			}
 			else {
-				StemMethodDao.update(stem);
+				level = 0;
 			}
+
+			levelMap.put(stem, level);
 		}
+
+		return level;
 	}
 }
\ No newline at end of file
@@ -2,8 +2,10 @@ package ch.hesge.csim2.core.logic;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import ch.hesge.csim2.core.dao.TraceDao;
 import ch.hesge.csim2.core.model.Concept;
@@ -12,10 +14,15 @@ import ch.hesge.csim2.core.model.MethodConceptMatch;
 import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.model.Scenario;
 import ch.hesge.csim2.core.model.TimeSeries;
-import ch.hesge.csim2.core.model.Trace;
+import ch.hesge.csim2.core.model.TimeSeriesPyramid;
+import ch.hesge.csim2.core.utils.IDataRow;
+import ch.hesge.csim2.core.utils.IRowHandler;
+import ch.hesge.csim2.core.utils.IntIndexMap;
 import ch.hesge.csim2.core.utils.ObjectSorter;
+import ch.hesge.csim2.core.utils.RunLengthMatrix;
 import ch.hesge.csim2.core.utils.SimpleMatrix;
 import ch.hesge.csim2.core.utils.SimpleVector;
+import ch.hesge.csim2.core.utils.SparseVector;
 
 /**
  * This class implement all logical rules associated to timeseries.
@@ -27,6 +34,9 @@ import ch.hesge.csim2.core.utils.SimpleVector;
 
 class TimeSeriesLogic {
 
+	// Private constants
+	private static final int MAX_PYRAMID_BLOCKS = 8192;
+
 	/**
 	 * <code>
 	 * Retrieve the time series associated to a scenario traces.
@@ -46,6 +56,10 @@ class TimeSeriesLogic {
 	 * 
 	 * 		trace steps:		0	1	2	3	...
 	 * 
+	 * The matrix is run-length encoded: each method column is stored once,
+	 * shared by all steps calling the method, and consecutive steps calling
+	 * the same method are stored as a single run.
+	 * 
 	 * </code>
 	 * 
 	 * @param project
@@ -61,68 +75,101 @@ class TimeSeriesLogic {
 	public static TimeSeries getTimeSeries(Project project, Scenario scenario, IMethodConceptMatcher matcher, float threshold) {
 
 		ApplicationLogic applicationLogic = ApplicationLogic.UNIQUE_INSTANCE;
-		Map<Integer, Concept> conceptsInTrace = new HashMap<>();
 		Map<Integer, List<MethodConceptMatch>> matchMap = applicationLogic.getMethodMatchingMap(project, matcher, threshold);
 
-		// First retrieve unique methods found in trace
-		List<Integer> uniqueIds = TraceDao.findDistinctMethodIds(scenario);
+		// Retrieve all concepts matching methods found in trace
+		List<Concept> traceConcepts = getTraceConcepts(scenario, matchMap);
 
-		// Then for each method, retrieve its matching concepts
-		for (Integer methodId : uniqueIds) {
+		// Retrieve row associated to each concept
+		IntIndexMap conceptIndexMap = getConceptIndexMap(traceConcepts);
 
-			// Handle only methods with at least one matching
-			if (matchMap.containsKey(methodId)) {
+		// Create an empty matrix, filled step by step
+		final RunLengthMatrix stepMatrix = new RunLengthMatrix(traceConcepts.size());
 
-				// Scan all concepts matching method
-				for (MethodConceptMatch match : matchMap.get(methodId)) {
+		// Create a vector for global concept occurrences
+		final SimpleVector occurrenceVector = new SimpleVector(traceConcepts.size());
 
-					// If concept is not already include, put it on map
-					if (!conceptsInTrace.containsKey(match.getConcept().getKeyId())) {
-						conceptsInTrace.put(match.getConcept().getKeyId(), match.getConcept());
-					}
-				}
-			}
-		}
+		// Retrieve the concept weights associated to each method
+		final StepColumns stepColumns = new StepColumns(matchMap, conceptIndexMap, traceConcepts.size());
 
-		// Finally sort all concepts by name
-		List<Concept> traceConcepts = new ArrayList<>(conceptsInTrace.values());
-		ObjectSorter.sortConcepts(traceConcepts);
+		// Read all trace steps for specified scenario
+		TraceDao.findStepsByScenario(scenario, new IRowHandler() {
+			@Override
+			public void handleRow(IDataRow row) {
 
-		// Retrieve all trace for specified scenario
-		List<Trace> scenarioTraces = ApplicationLogic.UNIQUE_INSTANCE.getTraces(scenario);
+				SparseVector stepColumn = stepColumns.getColumn(row.getInteger("method_id"));
 
-		// Create an empty matrix
-		SimpleMatrix traceMatrix  = new SimpleMatrix(traceConcepts.size(), scenarioTraces.size());
+				// Append weights of concepts matching current step
+				stepMatrix.appendColumn(stepColumn);
 
-		// Create a vector for global concept occurrences
-		SimpleVector occurrenceVector = new SimpleVector(traceConcepts.size());
+				// Update global concept occurrences (actually global weights)
+				for (int k = 0; k < stepColumn.getNonZeroCount(); k++) {
+					occurrenceVector.addValue(stepColumn.getNonZeroIndex(k), stepColumn.getNonZeroValue(k));
+				}
+			}
+		});
 
-		for (int i = 0; i < scenarioTraces.size(); i++) {
+		TimeSeries timeSeries = new TimeSeries();
 
-			Trace traceStep = scenarioTraces.get(i);
+		// Initialize time series
+		timeSeries.setProject(project);
+		timeSeries.setScenario(scenario);
+		timeSeries.setTraceConcepts(traceConcepts);
+		timeSeries.setStepMatrix(stepMatrix);
+		timeSeries.setOccurrences(occurrenceVector);
+		timeSeries.setStepCount(stepMatrix.getColumnDimension());
 
-			// Check if current step has some concept matching
-			if (matchMap.containsKey(traceStep.getMethodId())) {
+		return timeSeries;
+	}
 
-				// Scan all matching for current method
-				for (MethodConceptMatch match : matchMap.get(traceStep.getMethodId())) {
+	/**
+	 * <code>
+	 * Retrieve the segmented time series associated to a scenario traces,
+	 * reading trace steps from the database in a single pass.
+	 * 
+	 * The result is the same as segmenting the time series returned by
+	 * getTimeSeries (see getSegmentedTimeSeries), but neither the trace list
+	 * nor the full trace matrix are built: memory is proportional to the
+	 * number of concepts times the number of segments, whatever the trace
+	 * length.
+	 * 
+	 * This suits a one-shot segmentation. When the segment count changes
+	 * interactively, prefer getTimeSeriesPyramid, which reads traces once
+	 * for all segment counts but keeps the run-length step matrix.
+	 * </code>
+	 * 
+	 * @param project
+	 *        the project owning the traces
+	 * @param scenario
+	 *        the scenario owning the traces
+	 * @param matcher
+	 *        the matcher used to associate concepts to method
+	 * @param matchingThreshold
+	 *        the threshold to use when selecting matching
+	 * @param segmentCount
+	 *        the total number of segment to generate
+	 * @param threshold
+	 *        the concept weight threshold to use to select concepts
+	 * @return a time series with segmented trace matrix gathering concept
+	 *         occurrences (not weight).
+	 */
+	public static TimeSeries getSegmentedTimeSeries(Project project, Scenario scenario, IMethodConceptMatcher matcher, float matchingThreshold, int segmentCount, double threshold) {
 
-					// Retrieve matching concept
-					Concept concept = match.getConcept();
+		ApplicationLogic applicationLogic = ApplicationLogic.UNIQUE_INSTANCE;
+		Map<Integer, List<MethodConceptMatch>> matchMap = applicationLogic.getMethodMatchingMap(project, matcher, matchingThreshold);
 
-					// And its position within the trace concepts
-					int conceptIndex = traceConcepts.indexOf(concept);
+		// Retrieve all concepts matching methods found in trace
+		List<Concept> traceConcepts = getTraceConcepts(scenario, matchMap);
+		IntIndexMap conceptIndexMap = getConceptIndexMap(traceConcepts);
 
-					// Update associated column in matrix with weight associated to the concept
-					if (conceptIndex != -1) {
-						traceMatrix.setValue(conceptIndex, i, match.getWeight());
-					}
-				}
-			}
+		// Retrieve the number of steps to spread over segments
+		int stepCount = TraceDao.countStepsByScenario(scenario);
 
-			// Update global concept occurrences (actually global weights)
-			occurrenceVector.add(traceMatrix.getColumnVector(i));
-		}
+		// Read all steps and count concept occurrences in each segment
+		StepColumns stepColumns = new StepColumns(matchMap, conceptIndexMap, traceConcepts.size());
+		SegmentBuilder segmentBuilder = new SegmentBuilder(stepColumns, traceConcepts.size(), segmentCount, stepCount, threshold);
+		TraceDao.findStepsByScenario(scenario, segmentBuilder);
+		segmentBuilder.flush();
 
 		TimeSeries timeSeries = new TimeSeries();
 
@@ -130,8 +177,9 @@ class TimeSeriesLogic {
 		timeSeries.setProject(project);
 		timeSeries.setScenario(scenario);
 		timeSeries.setTraceConcepts(traceConcepts);
-		timeSeries.setTraceMatrix(traceMatrix);
-		timeSeries.setOccurrences(occurrenceVector);
+		timeSeries.setTraceMatrix(segmentBuilder.segmentedMatrix);
+		timeSeries.setOccurrences(getOccurrences(segmentBuilder.segmentedMatrix));
+		timeSeries.setStepCount(stepCount);
 
 		return timeSeries;
 	}
@@ -193,13 +241,34 @@ class TimeSeriesLogic {
 	 */
 	public static TimeSeries getFilteredTimeSeries(TimeSeries timeSeries, int segmentCount, double threshold, List<Concept> concepts) {
 
-		SimpleMatrix reducedMatrix = null;
-		SimpleVector occurrenceVector = null;
-
 		// Retrieve segmented time series (for all available concepts in trace)
 		TimeSeries segmentedSeries = getSegmentedTimeSeries(timeSeries, segmentCount, threshold);
 
+		return getFilteredTimeSeries(segmentedSeries, concepts);
+	}
+
+	/**
+	 * Create a filtered time series from a segmented one, by keeping only
+	 * concepts found in segments and passed in argument.
+	 * 
+	 * Notice: if concepts list is empty all concepts are selected in resulting
+	 * time series.
+	 * 
+	 * @param segmentedSeries
+	 *        the segmented time series to filter
+	 * @param concepts
+	 *        all concepts found in segmented time series
+	 * @return a new time series instance gathering only information
+	 *         associated to concepts passed in argument.
+	 */
+	public static TimeSeries getFilteredTimeSeries(TimeSeries segmentedSeries, List<Concept> concepts) {
+
+		SimpleMatrix reducedMatrix = null;
+		SimpleVector occurrenceVector = null;
+
+		int segmentCount = segmentedSeries.getTraceMatrix().getColumnDimension();
 		List<Concept> traceConcepts = new ArrayList<>();
+		Set<Concept> selectedConcepts = concepts == null ? null : new HashSet<>(concepts);
 
 		// Retrieve the list of concepts found in segments, based on occurrences
 		for (int i = 0; i < segmentedSeries.getOccurrences().getDimension(); i++) {
@@ -209,7 +278,7 @@ class TimeSeriesLogic {
 				Concept elligibleConcept = segmentedSeries.getTraceConcepts().get(i);
 
 				// Include concept only if specified in entry
-				if (concepts == null || concepts.isEmpty() || concepts.contains(elligibleConcept)) {
+				if (selectedConcepts == null || selectedConcepts.isEmpty() || selectedConcepts.contains(elligibleConcept)) {
 					traceConcepts.add(elligibleConcept);
 				}
 			}
@@ -221,41 +290,32 @@ class TimeSeriesLogic {
 			// Create a reduced matrix with a subset of all concepts
 			reducedMatrix = new SimpleMatrix(traceConcepts.size(), segmentCount);
 
-			// Create a vector for global concept occurrences
-			occurrenceVector = new SimpleVector(traceConcepts.size());
-
-			// Now convert each column vector into reduced vector
-			for (int i = 0; i < segmentCount; i++) {
+			// Retrieve row of each concept within the segmented matrix
+			IntIndexMap segmentedIndexMap = getConceptIndexMap(segmentedSeries.getTraceConcepts());
 
-				SimpleVector originalVector = segmentedSeries.getTraceMatrix().getColumnVector(i);
-				SimpleVector reducedVector = new SimpleVector(traceConcepts.size());
+			// Keep all occurrences for specified concepts
+			for (int j = 0; j < traceConcepts.size(); j++) {
 
-				// Keep all occurrences for specified concepts
-				for (int j = 0; j < traceConcepts.size(); j++) {
+				int foundIndex = segmentedIndexMap.get(traceConcepts.get(j).getKeyId());
 
-					Concept concept = traceConcepts.get(j);
-					int foundIndex = segmentedSeries.getTraceConcepts().indexOf(concept);
-
-					if (foundIndex != -1) {
-						double conceptCount = originalVector.getValue(foundIndex);
-						reducedVector.setValue(j, conceptCount);
+				if (foundIndex != -1) {
+					for (int i = 0; i < segmentCount; i++) {
+						reducedMatrix.setValue(j, i, segmentedSeries.getTraceMatrix().getValue(foundIndex, i));
 					}
 				}
-
-				// Update reduced matrix column with current vector
-				reducedMatrix.setColumnVector(i, reducedVector);
-
-				// Update global concept occurrences
-				occurrenceVector = occurrenceVector.add(reducedVector);
 			}
+
+			// Update global concept occurrences
+			occurrenceVector = getOccurrences(reducedMatrix);
 		}
 
 		TimeSeries newTimeSeries = new TimeSeries();
-		newTimeSeries.setProject(timeSeries.getProject());
-		newTimeSeries.setScenario(timeSeries.getScenario());
+		newTimeSeries.setProject(segmentedSeries.getProject());
+		newTimeSeries.setScenario(segmentedSeries.getScenario());
 		newTimeSeries.setTraceConcepts(traceConcepts);
 		newTimeSeries.setTraceMatrix(reducedMatrix);
 		newTimeSeries.setOccurrences(occurrenceVector);
+		newTimeSeries.setStepCount(segmentedSeries.getStepCount());
 
 		return newTimeSeries;
 	}
@@ -300,6 +360,9 @@ class TimeSeriesLogic {
 	 * 
 	 * 	Note: the resulting matrix contains occurrence count (njot weight) depending of threshold specified
 	 * 
+	 * 	When the number of steps is not a multiple of segment-count, remaining
+	 * 	steps are spread over segments, whose sizes then differ by one step.
+	 * 
 	 * @param timeSeries
 	 *        the time series to compress
 	 * @param segmentCount
@@ -309,65 +372,494 @@ class TimeSeriesLogic {
 	 * @return a new time series instance with segmented trace matrix gathering
 	 *         only concept occurrences (not weight).
 	 */
-	private static TimeSeries getSegmentedTimeSeries(TimeSeries timeSeries, int segmentCount, double threshold) {
+	static TimeSeries getSegmentedTimeSeries(TimeSeries timeSeries, int segmentCount, double threshold) {
 
 		List<Concept> traceConcepts = timeSeries.getTraceConcepts();
+		RunLengthMatrix stepMatrix = timeSeries.getStepMatrix();
 
 		// Create an empty segmented matrix
 		SimpleMatrix segmentedMatrix = new SimpleMatrix(traceConcepts.size(), segmentCount);
 
-		// Retrieve size of each segment (based on segment count)
-		int segmentSize = timeSeries.getTraceMatrix().getColumnDimension() / segmentCount;
+		int stepCount = stepMatrix.getColumnDimension();
 
-		// Create a vector for global concept occurrences
-		SimpleVector occurrenceVector = new SimpleVector(traceConcepts.size());
+		// Count steps of each segment
+		for (int segmentNumber = 0; segmentNumber < segmentCount; segmentNumber++) {
+			int startStep = getSegmentStart(segmentNumber, segmentCount, stepCount);
+			int endStep = getSegmentStart(segmentNumber + 1, segmentCount, stepCount);
+			countOccurrences(stepMatrix, startStep, endStep, segmentedMatrix, segmentNumber, threshold);
+		}
 
-		int traceNumber = 0;
+		TimeSeries newTimeSeries = new TimeSeries();
+		newTimeSeries.setProject(timeSeries.getProject());
+		newTimeSeries.setScenario(timeSeries.getScenario());
+		newTimeSeries.setTraceConcepts(timeSeries.getTraceConcepts());
+		newTimeSeries.setTraceMatrix(segmentedMatrix);
+		newTimeSeries.setOccurrences(getOccurrences(segmentedMatrix));
+		newTimeSeries.setStepCount(timeSeries.getStepCount());
 
-		// Compute each segment value
-		for (int segmentNumber = 0; segmentNumber < segmentCount; segmentNumber++) {
+		return newTimeSeries;
+	}
+
+	/**
+	 * <code>
+	 * Build the pyramid of a time series, gathering concept occurrences by
+	 * blocks of steps at several resolutions.
+	 * 
+	 * Base blocks hold a power-of-two number of steps, chosen so that the
+	 * base level remains small, and each level merges two consecutive blocks
+	 * of the previous one:
+	 * 
+	 * 		level 2:	|               8               |
+	 * 		level 1:	|       4       |       4       |
+	 * 		level 0:	|   2   |   2   |   2   |   2   |
+	 * 		steps:		| 1 | 1 | 1 | 1 | 1 | 1 | 1 | 1 |
+	 * 
+	 * Any segment is then counted from a few blocks, whatever its size, plus
+	 * the steps at its borders not filling a whole base block.
+	 * 
+	 * Border steps are counted from the raw time series, so the pyramid
+	 * keeps its run-length matrix: memory grows with the number of runs in
+	 * trace, not only with the number of blocks.
+	 * </code>
+	 * 
+	 * @param timeSeries
+	 *        the raw time series to aggregate
+	 * @param threshold
+	 *        the concept weight threshold to use to select concepts
+	 * @return the pyramid of concept occurrences (not weight)
+	 */
+	public static TimeSeriesPyramid getTimeSeriesPyramid(TimeSeries timeSeries, double threshold) {
 
-			SimpleVector matrixVector = new SimpleVector(traceConcepts.size());
+		RunLengthMatrix stepMatrix = timeSeries.getStepMatrix();
+		int conceptCount = timeSeries.getTraceConcepts().size();
 
-			// Scan steps in segment
-			for (int i = traceNumber; i < traceNumber + segmentSize; i++) {
+		// Retrieve the smallest base block size keeping base level small
+		int baseLevel = 0;
+		while ((stepMatrix.getColumnDimension() >> baseLevel) > MAX_PYRAMID_BLOCKS) {
+			baseLevel++;
+		}
 
-				// Retrieve concept vector from original matrix
-				SimpleVector traceVector = timeSeries.getTraceMatrix().getColumnVector(i);
+		int blockSize = 1 << baseLevel;
+		int blockCount = stepMatrix.getColumnDimension() >> baseLevel;
 
-				for (int j = 0; j < traceVector.getDimension(); j++) {
+		// Count steps of each base block
+		SimpleMatrix levelMatrix = new SimpleMatrix(conceptCount, blockCount);
 
-					// Detect vector component based on threshold
-					if (traceVector.getValue(j) >= threshold) {
-						traceVector.setValue(j, 1d);
-					}
-					else {
-						traceVector.setValue(j, 0d);
-					}
+		for (int blockNumber = 0; blockNumber < blockCount; blockNumber++) {
+			int startStep = blockNumber * blockSize;
+			countOccurrences(stepMatrix, startStep, startStep + blockSize, levelMatrix, blockNumber, threshold);
+		}
+
+		List<SimpleMatrix> levels = new ArrayList<>();
+		levels.add(levelMatrix);
+
+		// Merge blocks two by two, up to the whole trace
+		while (levelMatrix.getColumnDimension() > 1) {
+
+			SimpleMatrix upperMatrix = new SimpleMatrix(conceptCount, levelMatrix.getColumnDimension() / 2);
+
+			for (int j = 0; j < upperMatrix.getColumnDimension(); j++) {
+				for (int i = 0; i < conceptCount; i++) {
+					upperMatrix.setValue(i, j, levelMatrix.getValue(i, 2 * j) + levelMatrix.getValue(i, 2 * j + 1));
 				}
+			}
+
+			levels.add(upperMatrix);
+			levelMatrix = upperMatrix;
+		}
+
+		TimeSeriesPyramid pyramid = new TimeSeriesPyramid();
+		pyramid.setProject(timeSeries.getProject());
+		pyramid.setScenario(timeSeries.getScenario());
+		pyramid.setTraceConcepts(timeSeries.getTraceConcepts());
+		pyramid.setStepMatrix(stepMatrix);
+		pyramid.setThreshold(threshold);
+		pyramid.setBaseLevel(baseLevel);
+		pyramid.setLevels(levels);
+
+		return pyramid;
+	}
 
-				// Add current vector the new concept vector,
-				// So it will sum up, for current segment, all concepts occurrences
-				matrixVector = matrixVector.add(traceVector);
+	/**
+	 * Create a segmented time series from a pyramid.
+	 * 
+	 * The result is the same as segmenting the raw time series with the
+	 * pyramid threshold (see getSegmentedTimeSeries), but each segment is
+	 * counted by merging the largest pre-aggregated blocks it contains.
+	 * 
+	 * @param pyramid
+	 *        the pyramid of the time series to compress
+	 * @param segmentCount
+	 *        the total number of segment to generate
+	 * @return a new time series instance with segmented trace matrix gathering
+	 *         only concept occurrences (not weight).
+	 */
+	public static TimeSeries getSegmentedTimeSeries(TimeSeriesPyramid pyramid, int segmentCount) {
+
+		RunLengthMatrix stepMatrix = pyramid.getStepMatrix();
+		List<SimpleMatrix> levels = pyramid.getLevels();
+		int conceptCount = pyramid.getTraceConcepts().size();
+		int baseLevel = pyramid.getBaseLevel();
+
+		// Create an empty segmented matrix
+		SimpleMatrix segmentedMatrix = new SimpleMatrix(conceptCount, segmentCount);
+
+		int stepCount = stepMatrix.getColumnDimension();
+
+		for (int segmentNumber = 0; segmentNumber < segmentCount; segmentNumber++) {
+
+			int startStep = getSegmentStart(segmentNumber, segmentCount, stepCount);
+			int endStep = getSegmentStart(segmentNumber + 1, segmentCount, stepCount);
+
+			// Retrieve base blocks entirely within segment
+			int startBlock = (startStep + (1 << baseLevel) - 1) >> baseLevel;
+			int endBlock = endStep >> baseLevel;
+
+			if (startBlock >= endBlock) {
+				countOccurrences(stepMatrix, startStep, endStep, segmentedMatrix, segmentNumber, pyramid.getThreshold());
+				continue;
 			}
 
-			// Update matrix column for current segment
-			segmentedMatrix.setColumnVector(segmentNumber, matrixVector);
+			// Count steps at segment borders
+			countOccurrences(stepMatrix, startStep, startBlock << baseLevel, segmentedMatrix, segmentNumber, pyramid.getThreshold());
+			countOccurrences(stepMatrix, endBlock << baseLevel, endStep, segmentedMatrix, segmentNumber, pyramid.getThreshold());
 
-			// Update global concept occurrences
-			occurrenceVector = occurrenceVector.add(matrixVector);
+			// Count blocks, using the largest one starting at each position
+			int blockNumber = startBlock;
+
+			while (blockNumber < endBlock) {
+
+				int level = 0;
+
+				while (level + 1 < levels.size() && (blockNumber & ((2 << level) - 1)) == 0 && blockNumber + (2 << level) <= endBlock) {
+					level++;
+				}
+
+				SimpleMatrix levelMatrix = levels.get(level);
+
+				for (int i = 0; i < conceptCount; i++) {
+					segmentedMatrix.addValue(i, segmentNumber, levelMatrix.getValue(i, blockNumber >> level));
+				}
 
-			// Move to next segment
-			traceNumber += segmentSize;
+				blockNumber += 1 << level;
+			}
 		}
 
 		TimeSeries newTimeSeries = new TimeSeries();
-		newTimeSeries.setProject(timeSeries.getProject());
-		newTimeSeries.setScenario(timeSeries.getScenario());
-		newTimeSeries.setTraceConcepts(timeSeries.getTraceConcepts());
+		newTimeSeries.setProject(pyramid.getProject());
+		newTimeSeries.setScenario(pyramid.getScenario());
+		newTimeSeries.setTraceConcepts(pyramid.getTraceConcepts());
 		newTimeSeries.setTraceMatrix(segmentedMatrix);
-		newTimeSeries.setOccurrences(occurrenceVector);
+		newTimeSeries.setOccurrences(getOccurrences(segmentedMatrix));
+		newTimeSeries.setStepCount(stepMatrix.getColumnDimension());
 
 		return newTimeSeries;
 	}
+
+	/**
+	 * Retrieve the first step of a segment.
+	 * 
+	 * Steps are spread over segments so that segment sizes differ by one
+	 * step at most, instead of dropping the remainder of the division.
+	 * 
+	 * @param segmentNumber
+	 *        the segment (segmentCount for the end of the last segment)
+	 * @param segmentCount
+	 *        the total number of segment
+	 * @param stepCount
+	 *        the total number of steps
+	 * @return the first step of the segment
+	 */
+	private static int getSegmentStart(int segmentNumber, int segmentCount, int stepCount) {
+		return (int) ((long) segmentNumber * stepCount / segmentCount);
+	}
+
+	/**
+	 * Compute global concept occurrences, as the sum of all segments.
+	 * 
+	 * @param segmentedMatrix
+	 *        the matrix of concept occurrences by segment
+	 * @return a vector of concept occurrences
+	 */
+	private static SimpleVector getOccurrences(SimpleMatrix segmentedMatrix) {
+
+		SimpleVector occurrenceVector = new SimpleVector(segmentedMatrix.getRowDimension());
+
+		for (int j = 0; j < segmentedMatrix.getColumnDimension(); j++) {
+			for (int i = 0; i < segmentedMatrix.getRowDimension(); i++) {
+				occurrenceVector.addValue(i, segmentedMatrix.getValue(i, j));
+			}
+		}
+
+		return occurrenceVector;
+	}
+
+	/**
+	 * Build a map of (conceptId, index) from a list of concepts.
+	 * 
+	 * @param concepts
+	 *        the concepts to index
+	 * @return a map of each concept position within the list
+	 */
+	private static IntIndexMap getConceptIndexMap(List<Concept> concepts) {
+
+		IntIndexMap conceptIndexMap = new IntIndexMap(concepts.size());
+
+		for (int i = 0; i < concepts.size(); i++) {
+			conceptIndexMap.put(concepts.get(i).getKeyId(), i);
+		}
+
+		return conceptIndexMap;
+	}
+
+	/**
+	 * Retrieve all concepts matching the methods found in the traces of a
+	 * scenario, sorted by name.
+	 * 
+	 * @param scenario
+	 *        the scenario owning the traces
+	 * @param matchMap
+	 *        the matching map used to associate concepts to method
+	 * @return a list of concepts
+	 */
+	private static List<Concept> getTraceConcepts(Scenario scenario, Map<Integer, List<MethodConceptMatch>> matchMap) {
+
+		Map<Integer, Concept> conceptsInTrace = new HashMap<>();
+
+		// First retrieve unique methods found in trace
+		List<Integer> uniqueIds = TraceDao.findDistinctMethodIds(scenario);
+
+		// Then for each method, retrieve its matching concepts
+		for (Integer methodId : uniqueIds) {
+
+			// Handle only methods with at least one matching
+			if (matchMap.containsKey(methodId)) {
+
+				// Scan all concepts matching method
+				for (MethodConceptMatch match : matchMap.get(methodId)) {
+
+					// If concept is not already include, put it on map
+					if (!conceptsInTrace.containsKey(match.getConcept().getKeyId())) {
+						conceptsInTrace.put(match.getConcept().getKeyId(), match.getConcept());
+					}
+				}
+			}
+		}
+
+		// Finally sort all concepts by name
+		List<Concept> traceConcepts = new ArrayList<>(conceptsInTrace.values());
+		ObjectSorter.sortConcepts(traceConcepts);
+
+		return traceConcepts;
+	}
+
+	/**
+	 * Count the occurrences of all concepts within a range of steps, into a
+	 * single segment.
+	 * 
+	 * @param stepMatrix
+	 *        the matrix of concept weights by step
+	 * @param startStep
+	 *        the first step to count (inclusive)
+	 * @param endStep
+	 *        the last step to count (exclusive)
+	 * @param segmentedMatrix
+	 *        the segmented matrix to update
+	 * @param segmentNumber
+	 *        the segment the steps belong to
+	 * @param threshold
+	 *        the concept weight threshold to use to select concepts
+	 */
+	private static void countOccurrences(RunLengthMatrix stepMatrix, int startStep, int endStep, SimpleMatrix segmentedMatrix, int segmentNumber, double threshold) {
+
+		if (startStep >= endStep) {
+			return;
+		}
+
+		int runNumber = stepMatrix.getRunIndex(startStep);
+		int stepNumber = startStep;
+
+		// Count identical steps of each run at once
+		while (stepNumber < endStep) {
+
+			int runEnd = Math.min(stepMatrix.getRunEnd(runNumber), endStep);
+
+			countOccurrences(segmentedMatrix, stepMatrix.getRunColumn(runNumber), segmentNumber, runEnd - stepNumber, threshold);
+
+			stepNumber = runEnd;
+			runNumber++;
+		}
+	}
+
+	/**
+	 * Count the occurrences of all concepts of a step column within a
+	 * segment, that is concepts whose weight reaches the threshold.
+	 * 
+	 * A concept not matching the step has a null weight, which is counted
+	 * when threshold is not positive.
+	 * 
+	 * @param segmentedMatrix
+	 *        the segmented matrix to update
+	 * @param stepColumn
+	 *        the concept weights of the step
+	 * @param segmentNumber
+	 *        the segment the step belongs to
+	 * @param stepCount
+	 *        the number of identical steps to count
+	 * @param threshold
+	 *        the concept weight threshold to use to select concepts
+	 */
+	private static void countOccurrences(SimpleMatrix segmentedMatrix, SparseVector stepColumn, int segmentNumber, int stepCount, double threshold) {
+
+		if (0d >= threshold) {
+
+			// All concepts are counted, except those below threshold
+			for (int i = 0; i < segmentedMatrix.getRowDimension(); i++) {
+				segmentedMatrix.addValue(i, segmentNumber, stepCount);
+			}
+
+			for (int k = 0; k < stepColumn.getNonZeroCount(); k++) {
+				if (stepColumn.getNonZeroValue(k) < threshold) {
+					segmentedMatrix.addValue(stepColumn.getNonZeroIndex(k), segmentNumber, -stepCount);
+				}
+			}
+		}
+		else {
+
+			// Only concepts matching the step may reach threshold
+			for (int k = 0; k < stepColumn.getNonZeroCount(); k++) {
+				if (stepColumn.getNonZeroValue(k) >= threshold) {
+					segmentedMatrix.addValue(stepColumn.getNonZeroIndex(k), segmentNumber, stepCount);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Concept weights associated to each method found in trace, built once
+	 * per method and shared by all steps calling it.
+	 * 
+	 * As in the original trace matrix, a concept matched several times by a
+	 * method keeps its last weight.
+	 */
+	private static class StepColumns {
+
+		private Map<Integer, List<MethodConceptMatch>>	matchMap;
+		private IntIndexMap								conceptIndexMap;
+		private IntIndexMap								methodIndexMap;
+		private List<SparseVector>						methodColumns;
+		private SparseVector							emptyColumn;
+
+		public StepColumns(Map<Integer, List<MethodConceptMatch>> matchMap, IntIndexMap conceptIndexMap, int conceptCount) {
+			this.matchMap = matchMap;
+			this.conceptIndexMap = conceptIndexMap;
+			this.methodIndexMap = new IntIndexMap(matchMap.size());
+			this.methodColumns = new ArrayList<>();
+			this.emptyColumn = new SparseVector(conceptCount);
+		}
+
+		/**
+		 * Retrieve the concept weights of a method. The vector returned is
+		 * shared and must not be modified.
+		 */
+		public SparseVector getColumn(int methodId) {
+
+			int methodIndex = methodIndexMap.get(methodId);
+
+			if (methodIndex == -1) {
+
+				SparseVector methodColumn = emptyColumn;
+
+				// Check if method has some concept matching
+				if (matchMap.containsKey(methodId)) {
+
+					methodColumn = new SparseVector(emptyColumn.getDimension());
+
+					for (MethodConceptMatch match : matchMap.get(methodId)) {
+
+						int conceptIndex = conceptIndexMap.get(match.getConcept().getKeyId());
+
+						if (conceptIndex != -1) {
+							methodColumn.setValue(conceptIndex, match.getWeight());
+						}
+					}
+				}
+
+				methodIndex = methodColumns.size();
+				methodIndexMap.put(methodId, methodIndex);
+				methodColumns.add(methodColumn);
+			}
+
+			return methodColumns.get(methodIndex);
+		}
+	}
+
+	/**
+	 * Row handler counting, step by step, concept occurrences within each
+	 * segment. Consecutive steps sharing the same column are counted at once.
+	 * 
+	 * Steps are spread over segments as in getSegmentedTimeSeries, and flush
+	 * must be called once all steps have been read.
+	 */
+	private static class SegmentBuilder implements IRowHandler {
+
+		private StepColumns		stepColumns;
+		private int				segmentCount;
+		private int				stepCount;
+		private double			threshold;
+		private int				stepNumber;
+		private int				segmentNumber;
+		private int				segmentEnd;
+		private SparseVector	pendingColumn;
+		private int				pendingCount;
+		private SimpleMatrix	segmentedMatrix;
+
+		public SegmentBuilder(StepColumns stepColumns, int conceptCount, int segmentCount, int stepCount, double threshold) {
+			this.stepColumns = stepColumns;
+			this.segmentCount = segmentCount;
+			this.stepCount = stepCount;
+			this.threshold = threshold;
+			this.segmentEnd = getSegmentStart(1, segmentCount, stepCount);
+			this.segmentedMatrix = new SimpleMatrix(conceptCount, segmentCount);
+		}
+
+		@Override
+		public void handleRow(IDataRow row) {
+
+			// Skip steps added since steps were counted
+			if (stepNumber >= stepCount) {
+				return;
+			}
+
+			// Move to the segment holding current step
+			while (stepNumber >= segmentEnd) {
+				flush();
+				segmentNumber++;
+				segmentEnd = getSegmentStart(segmentNumber + 1, segmentCount, stepCount);
+			}
+
+			SparseVector stepColumn = stepColumns.getColumn(row.getInteger("method_id"));
+
+			if (stepColumn != pendingColumn) {
+				flush();
+				pendingColumn = stepColumn;
+			}
+
+			pendingCount++;
+			stepNumber++;
+		}
+
+		/**
+		 * Count steps pending in current segment.
+		 */
+		public void flush() {
+
+			if (pendingCount > 0) {
+				countOccurrences(segmentedMatrix, pendingColumn, segmentNumber, pendingCount, threshold);
+			}
+
+			pendingColumn = null;
+			pendingCount = 0;
+		}
+	}
 }
@@ -1,11 +1,14 @@
 package ch.hesge.csim2.core.logic;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import ch.hesge.csim2.core.dao.TraceCheckpointDao;
 import ch.hesge.csim2.core.dao.TraceDao;
 import ch.hesge.csim2.core.model.Scenario;
 import ch.hesge.csim2.core.model.Trace;
+import ch.hesge.csim2.core.model.TraceCheckpoint;
 import ch.hesge.csim2.core.utils.Console;
 import ch.hesge.csim2.core.utils.DaoUtils;
 
@@ -125,4 +128,85 @@ class TraceLogic {
 			TraceDao.update(trace);
 		}
 	}
+
+	/**
+	 * Save a list of traces passed in argument.
+	 * 
+	 * New traces are inserted through a single batch, whereas traces already
+	 * persisted have their duration updated through a second one.
+	 * 
+	 * @param traces
+	 *        the traces to save
+	 */
+	public static void saveTraces(List<Trace> traces) {
+
+		List<Trace> newTraces = new ArrayList<>();
+		List<Trace> persistedTraces = new ArrayList<>();
+
+		for (Trace trace : traces) {
+			if (DaoUtils.isNewObject(trace)) {
+				newTraces.add(trace);
+			}
+			else {
+				persistedTraces.add(trace);
+			}
+		}
+
+		if (!newTraces.isEmpty()) {
+			TraceDao.addBatch(newTraces);
+		}
+
+		if (!persistedTraces.isEmpty()) {
+			TraceDao.updateBatch(persistedTraces);
+		}
+	}
+
+	/**
+	 * Save a list of traces passed in argument, together with the checkpoint
+	 * of the loading in progress, within a single transaction.
+	 * 
+	 * @param traces
+	 *        the traces to save
+	 * @param checkpoint
+	 *        the loading checkpoint
+	 * @throws SQLException
+	 *         if the transaction has been rolled back
+	 */
+	public static void saveTraces(List<Trace> traces, TraceCheckpoint checkpoint) throws SQLException {
+
+		List<Trace> newTraces = new ArrayList<>();
+		List<Trace> persistedTraces = new ArrayList<>();
+
+		for (Trace trace : traces) {
+			if (DaoUtils.isNewObject(trace)) {
+				newTraces.add(trace);
+			}
+			else {
+				persistedTraces.add(trace);
+			}
+		}
+
+		TraceDao.saveBatch(newTraces, persistedTraces, checkpoint);
+	}
+
+	/**
+	 * Retrieve the checkpoint of the last trace loading of a scenario.
+	 * 
+	 * @param scenario
+	 *        the scenario
+	 * @return the checkpoint or null
+	 */
+	public static TraceCheckpoint getTraceCheckpoint(Scenario scenario) {
+		return TraceCheckpointDao.findByScenario(scenario);
+	}
+
+	/**
+	 * Delete the checkpoint of the last trace loading of a scenario.
+	 * 
+	 * @param scenario
+	 *        the scenario
+	 */
+	public static void deleteTraceCheckpoint(Scenario scenario) {
+		TraceCheckpointDao.deleteByScenario(scenario);
+	}
 }
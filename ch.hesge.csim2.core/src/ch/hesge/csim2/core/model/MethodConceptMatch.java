@@ -9,7 +9,7 @@ import java.util.List;
 
 /**
  * Represents a single match between a method and a concept.
- * this class is never persisted on database.
+ * Matches are persisted by matcher, to be reused without being computed again.
  * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
@@ -20,6 +20,8 @@ public class MethodConceptMatch {
 
 	// Private attributes
 	private int keyId;
+	private int conceptId;
+	private int sourceMethodId;
 	private Project project;
 	private Concept concept;
 	private SourceClass sourceClass;
@@ -45,6 +47,22 @@ public class MethodConceptMatch {
 		this.keyId = keyId;
 	}
 
+	public int getConceptId() {
+		return conceptId;
+	}
+
+	public void setConceptId(int conceptId) {
+		this.conceptId = conceptId;
+	}
+
+	public int getSourceMethodId() {
+		return sourceMethodId;
+	}
+
+	public void setSourceMethodId(int sourceMethodId) {
+		this.sourceMethodId = sourceMethodId;
+	}
+
 	public Project getProject() {
 		return project;
 	}
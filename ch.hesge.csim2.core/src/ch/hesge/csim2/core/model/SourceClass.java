@@ -21,12 +21,14 @@ public class SourceClass {
 	private int keyId;
 	private int projectId;
 	private int superClassId;
+	private int fileId;
 	private String filename;
 	private String name;
 	private String type;
 	private String superclassName;
 	private Project project;
 	private SourceClass superclass;
+	private SourceFile sourceFile;
 	private List<SourceAttribute> attributes;
 	private List<SourceMethod> methods;
 	private List<SourceClass> subclasses;
@@ -64,6 +66,14 @@ public class SourceClass {
 		this.superClassId = superClassId;
 	}
 
+	public int getFileId() {
+		return fileId;
+	}
+
+	public void setFileId(int fileId) {
+		this.fileId = fileId;
+	}
+
 	public String getFilename() {
 		return filename;
 	}
@@ -112,6 +122,14 @@ public class SourceClass {
 		this.superclass = superclass;
 	}
 
+	public SourceFile getSourceFile() {
+		return sourceFile;
+	}
+
+	public void setSourceFile(SourceFile sourceFile) {
+		this.sourceFile = sourceFile;
+	}
+
 	public List<SourceClass> getSubClasses() {
 		return subclasses;
 	}
@@ -0,0 +1,84 @@
+package ch.hesge.csim2.core.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a source file analyzed within a project, with the hash of its
+ * content and the names of the classes it declares at the time of the
+ * analysis.
+ * 
+ * Copyright HEG Geneva 2014, Switzerland
+ * 
+ * @author Eric Harth
+ */
+
+public class SourceFile {
+
+	// Private attributes
+	private int keyId;
+	private int projectId;
+	private String filename;
+	private String contentHash;
+	private List<String> classNames;
+
+	/**
+	 * Default constructor
+	 */
+	public SourceFile() {
+		classNames = new ArrayList<>();
+	}
+
+	/**
+	 * Parameterized constructor
+	 */
+	public SourceFile(String filename, String contentHash) {
+		this();
+		this.filename = filename;
+		this.contentHash = contentHash;
+	}
+
+	public int getKeyId() {
+		return keyId;
+	}
+
+	public void setKeyId(int keyId) {
+		this.keyId = keyId;
+	}
+
+	public int getProjectId() {
+		return projectId;
+	}
+
+	public void setProjectId(int projectId) {
+		this.projectId = projectId;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	public void setFilename(String filename) {
+		this.filename = filename;
+	}
+
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public void setContentHash(String contentHash) {
+		this.contentHash = contentHash;
+	}
+
+	/**
+	 * Retrieve the names of the classes declared by the file, or null if
+	 * they were never recorded (file analyzed before they were saved).
+	 */
+	public List<String> getClassNames() {
+		return classNames;
+	}
+
+	public void setClassNames(List<String> classNames) {
+		this.classNames = classNames;
+	}
+}
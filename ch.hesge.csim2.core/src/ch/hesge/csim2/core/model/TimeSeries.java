@@ -7,6 +7,7 @@ package ch.hesge.csim2.core.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import ch.hesge.csim2.core.utils.RunLengthMatrix;
 import ch.hesge.csim2.core.utils.SimpleMatrix;
 import ch.hesge.csim2.core.utils.SimpleVector;
 
@@ -14,6 +15,10 @@ import ch.hesge.csim2.core.utils.SimpleVector;
  * Represents a scenario time series describing trace evolution from the concept
  * point of view.
  * 
+ * A raw time series holds concept weights of each trace step in a step
+ * matrix, run-length encoded. Segmented time series hold concept occurrences
+ * of each segment in their trace matrix.
+ * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
  * @author Eric Harth
@@ -27,6 +32,8 @@ public class TimeSeries {
 	private List<Concept> concepts;
 	private SimpleVector occurrences;
 	private SimpleMatrix matrix;
+	private RunLengthMatrix stepMatrix;
+	private int stepCount;
 
 	/**
 	 * Default constructor
@@ -67,6 +74,14 @@ public class TimeSeries {
 		this.matrix = matrix;
 	}
 
+	public RunLengthMatrix getStepMatrix() {
+		return stepMatrix;
+	}
+
+	public void setStepMatrix(RunLengthMatrix stepMatrix) {
+		this.stepMatrix = stepMatrix;
+	}
+
 	public SimpleVector getOccurrences() {
 		return occurrences;
 	}
@@ -75,4 +90,12 @@ public class TimeSeries {
 		this.occurrences = occurrences;
 	}
 
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	public void setStepCount(int stepCount) {
+		this.stepCount = stepCount;
+	}
+
 }
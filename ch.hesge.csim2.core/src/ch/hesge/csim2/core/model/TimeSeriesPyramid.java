@@ -0,0 +1,101 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package ch.hesge.csim2.core.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.hesge.csim2.core.utils.RunLengthMatrix;
+import ch.hesge.csim2.core.utils.SimpleMatrix;
+
+/**
+ * Represents concept occurrences of a scenario time series, pre-aggregated
+ * by blocks of steps at several resolutions.
+ * 
+ * Level 0 blocks hold 2^baseLevel steps, and each following level merges two
+ * consecutive blocks of the previous one. Each level is a matrix of concept
+ * occurrences (rows) by block (columns), for a given threshold.
+ * 
+ * Copyright HEG Geneva 2014, Switzerland
+ * 
+ * @author Eric Harth
+ */
+
+public class TimeSeriesPyramid {
+
+	// Private attributes
+	private Project project;
+	private Scenario scenario;
+	private List<Concept> concepts;
+	private RunLengthMatrix stepMatrix;
+	private double threshold;
+	private int baseLevel;
+	private List<SimpleMatrix> levels;
+
+	/**
+	 * Default constructor
+	 */
+	public TimeSeriesPyramid() {
+		concepts = new ArrayList<>();
+		levels = new ArrayList<>();
+	}
+
+	public Project getProject() {
+		return project;
+	}
+
+	public void setProject(Project project) {
+		this.project = project;
+	}
+
+	public Scenario getScenario() {
+		return scenario;
+	}
+
+	public void setScenario(Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	public List<Concept> getTraceConcepts() {
+		return concepts;
+	}
+
+	public void setTraceConcepts(List<Concept> concepts) {
+		this.concepts = concepts;
+	}
+
+	public RunLengthMatrix getStepMatrix() {
+		return stepMatrix;
+	}
+
+	public void setStepMatrix(RunLengthMatrix stepMatrix) {
+		this.stepMatrix = stepMatrix;
+	}
+
+	public double getThreshold() {
+		return threshold;
+	}
+
+	public void setThreshold(double threshold) {
+		this.threshold = threshold;
+	}
+
+	public int getBaseLevel() {
+		return baseLevel;
+	}
+
+	public void setBaseLevel(int baseLevel) {
+		this.baseLevel = baseLevel;
+	}
+
+	public List<SimpleMatrix> getLevels() {
+		return levels;
+	}
+
+	public void setLevels(List<SimpleMatrix> levels) {
+		this.levels = levels;
+	}
+
+}
@@ -9,6 +9,7 @@ import java.util.List;
 
 /**
  * Represents a single trace entry generated by an code instrumentor.
+ * Timestamp and duration are expressed in nanoseconds.
  * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
@@ -0,0 +1,89 @@
+package ch.hesge.csim2.core.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * Represents the state of a trace loading, saved with each batch of traces
+ * so that an interrupted loading may be resumed.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class TraceCheckpoint {
+
+	// Private attributes
+	private int		scenarioId;
+	private String	filename;
+	private long	position;
+	private int		traceCounter;
+	private int		lineCounter;
+	private long	timeScale;
+	private Map<Long, Stack<Trace>> threadTraces;
+
+	/**
+	 * Default constructor
+	 */
+	public TraceCheckpoint() {
+		threadTraces = new HashMap<>();
+	}
+
+	public int getScenarioId() {
+		return scenarioId;
+	}
+
+	public void setScenarioId(int scenarioId) {
+		this.scenarioId = scenarioId;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	public void setFilename(String filename) {
+		this.filename = filename;
+	}
+
+	public long getPosition() {
+		return position;
+	}
+
+	public void setPosition(long position) {
+		this.position = position;
+	}
+
+	public int getTraceCounter() {
+		return traceCounter;
+	}
+
+	public void setTraceCounter(int traceCounter) {
+		this.traceCounter = traceCounter;
+	}
+
+	public int getLineCounter() {
+		return lineCounter;
+	}
+
+	public void setLineCounter(int lineCounter) {
+		this.lineCounter = lineCounter;
+	}
+
+	public long getTimeScale() {
+		return timeScale;
+	}
+
+	public void setTimeScale(long timeScale) {
+		this.timeScale = timeScale;
+	}
+
+	public Map<Long, Stack<Trace>> getThreadTraces() {
+		return threadTraces;
+	}
+
+	public void setThreadTraces(Map<Long, Stack<Trace>> threadTraces) {
+		this.threadTraces = threadTraces;
+	}
+}
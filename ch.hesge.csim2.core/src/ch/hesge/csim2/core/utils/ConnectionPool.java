@@ -0,0 +1,341 @@
+package ch.hesge.csim2.core.utils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of database connections.
+ *
+ * At most maxSize connections are borrowed at the same time, other callers
+ * waiting until a connection is released. Idle connections are validated
+ * before being handed out again and replaced when broken.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class ConnectionPool {
+
+	// Private attributes
+	private String								url;
+	private Properties							properties;
+	private int									maxSize;
+	private Semaphore							permits;
+	private LinkedBlockingDeque<IdleConnection>	idleConnections;
+	private volatile boolean					isClosed;
+
+	// Pool metrics
+	private AtomicLong							createdCount;
+	private AtomicLong							discardedCount;
+	private AtomicLong							borrowedCount;
+	private AtomicLong							timeoutCount;
+	private AtomicLong							waitTime;
+	private AtomicLong							maxWaitTime;
+
+	// Private constants
+	private static final int					VALIDATION_TIMEOUT	= 2;
+	private static final long					VALIDATION_INTERVAL	= 1000;
+
+	/**
+	 * Create a pool of connections to a database.
+	 *
+	 * @param url
+	 *        the connection string
+	 * @param properties
+	 *        the properties passed to the database driver (user, password)
+	 * @param maxSize
+	 *        the maximum number of connections borrowed at the same time
+	 */
+	public ConnectionPool(String url, Properties properties, int maxSize) {
+
+		this.url = url;
+		this.properties = properties;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize, true);
+		this.idleConnections = new LinkedBlockingDeque<>();
+
+		this.createdCount = new AtomicLong();
+		this.discardedCount = new AtomicLong();
+		this.borrowedCount = new AtomicLong();
+		this.timeoutCount = new AtomicLong();
+		this.waitTime = new AtomicLong();
+		this.maxWaitTime = new AtomicLong();
+	}
+
+	/**
+	 * Borrow a connection from the pool, waiting until one is available.
+	 * The connection is in auto-commit mode and should be handed back
+	 * through release.
+	 *
+	 * @param timeout
+	 *        the maximum time to wait, in milliseconds
+	 * @return a valid connection
+	 * @throws SQLException
+	 *         if no connection is available in time or cannot be created
+	 */
+	public Connection borrow(long timeout) throws SQLException {
+
+		if (isClosed) {
+			throw new SQLException("connection pool is closed !");
+		}
+
+		long startTime = System.nanoTime();
+
+		try {
+			if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+				timeoutCount.incrementAndGet();
+				throw new SQLException("no database connection available after " + timeout + " ms !");
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("interrupted while waiting for a database connection !");
+		}
+
+		// Update wait metrics
+		long elapsedTime = System.nanoTime() - startTime;
+		waitTime.addAndGet(elapsedTime);
+
+		long maxTime = maxWaitTime.get();
+		while (elapsedTime > maxTime && !maxWaitTime.compareAndSet(maxTime, elapsedTime)) {
+			maxTime = maxWaitTime.get();
+		}
+
+		try {
+
+			Connection connection = null;
+
+			// Reuse most recently released connections first
+			IdleConnection idleConnection;
+			while (connection == null && (idleConnection = idleConnections.pollFirst()) != null) {
+
+				if (isValid(idleConnection)) {
+					connection = idleConnection.connection;
+				}
+				else {
+					discard(idleConnection.connection);
+				}
+			}
+
+			if (connection == null) {
+				connection = DriverManager.getConnection(url, properties);
+				createdCount.incrementAndGet();
+
+				Console.writeDebug(ConnectionPool.class, "connection to the database '" + url + "' created.");
+			}
+
+			borrowedCount.incrementAndGet();
+
+			return connection;
+		}
+		catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Hand back a connection previously borrowed. Connections left in a
+	 * transaction are rolled back and broken ones are closed.
+	 *
+	 * @param connection
+	 *        the connection to release
+	 */
+	public void release(Connection connection) {
+
+		try {
+
+			if (connection.isClosed()) {
+				discard(connection);
+				return;
+			}
+
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+
+			if (isClosed) {
+				discard(connection);
+			}
+			else {
+				idleConnections.offerFirst(new IdleConnection(connection, System.currentTimeMillis()));
+			}
+		}
+		catch (SQLException e) {
+			discard(connection);
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Close all idle connections. Connections still borrowed are closed
+	 * when released.
+	 */
+	public void close() {
+
+		isClosed = true;
+
+		IdleConnection idleConnection;
+		while ((idleConnection = idleConnections.pollFirst()) != null) {
+			discard(idleConnection.connection);
+		}
+
+		Console.writeDebug(ConnectionPool.class, "connection pool closed: " + toString());
+	}
+
+	/**
+	 * Check if an idle connection may be handed out. Connections released
+	 * very recently are considered valid without asking the database.
+	 */
+	private boolean isValid(IdleConnection idleConnection) {
+
+		if (System.currentTimeMillis() - idleConnection.releaseTime < VALIDATION_INTERVAL) {
+			return true;
+		}
+
+		try {
+			return idleConnection.connection.isValid(VALIDATION_TIMEOUT);
+		}
+		catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Close a connection removed from the pool.
+	 */
+	private void discard(Connection connection) {
+
+		discardedCount.incrementAndGet();
+		StatementCache.clear(connection);
+
+		try {
+			connection.close();
+		}
+		catch (SQLException e) {
+			// Do nothing
+		}
+	}
+
+	/**
+	 * Return the maximum number of connections borrowed at the same time.
+	 *
+	 * @return the pool size
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Return the number of connections currently borrowed.
+	 *
+	 * @return the number of active connections
+	 */
+	public int getActiveCount() {
+		return maxSize - permits.availablePermits();
+	}
+
+	/**
+	 * Return the number of connections waiting in the pool.
+	 *
+	 * @return the number of idle connections
+	 */
+	public int getIdleCount() {
+		return idleConnections.size();
+	}
+
+	/**
+	 * Return the number of threads waiting for a connection.
+	 *
+	 * @return the number of waiting threads
+	 */
+	public int getWaitingCount() {
+		return permits.getQueueLength();
+	}
+
+	/**
+	 * Return the number of connections opened since pool creation.
+	 *
+	 * @return the number of connections created
+	 */
+	public long getCreatedCount() {
+		return createdCount.get();
+	}
+
+	/**
+	 * Return the number of connections closed because broken or released
+	 * after pool shutdown.
+	 *
+	 * @return the number of connections discarded
+	 */
+	public long getDiscardedCount() {
+		return discardedCount.get();
+	}
+
+	/**
+	 * Return the number of successful borrows since pool creation.
+	 *
+	 * @return the number of borrows
+	 */
+	public long getBorrowedCount() {
+		return borrowedCount.get();
+	}
+
+	/**
+	 * Return the number of borrows which failed because no connection was
+	 * available in time.
+	 *
+	 * @return the number of timeouts
+	 */
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+
+	/**
+	 * Return the total time spent waiting for a connection, in milliseconds.
+	 *
+	 * @return the cumulated wait time
+	 */
+	public long getWaitTime() {
+		return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+	}
+
+	/**
+	 * Return the longest time spent waiting for a connection, in
+	 * milliseconds.
+	 *
+	 * @return the maximum wait time
+	 */
+	public long getMaxWaitTime() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get());
+	}
+
+	@Override
+	public String toString() {
+		return "size=" + maxSize + ", active=" + getActiveCount() + ", idle=" + getIdleCount() + ", waiting=" + getWaitingCount() + ", created=" + getCreatedCount() + ", discarded=" + getDiscardedCount() + ", borrowed=" + getBorrowedCount() + ", timeouts=" + getTimeoutCount() + ", wait-time=" + getWaitTime() + " ms, max-wait-time=" + getMaxWaitTime() + " ms";
+	}
+
+	/**
+	 * A connection waiting in the pool, with the time it was released.
+	 */
+	private static class IdleConnection {
+
+		private Connection	connection;
+		private long		releaseTime;
+
+		public IdleConnection(Connection connection, long releaseTime) {
+			this.connection = connection;
+			this.releaseTime = releaseTime;
+		}
+	}
+}
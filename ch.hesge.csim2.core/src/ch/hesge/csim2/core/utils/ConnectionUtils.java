@@ -5,7 +5,6 @@
 package ch.hesge.csim2.core.utils;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -15,6 +14,10 @@ import java.util.Properties;
  * This class provide centralized way to create a connection to the database and
  * to reuse it internally if necessary.
  * 
+ * Connections are borrowed from a bounded pool and bound to the calling
+ * thread until released, so that nested calls on the same thread share the
+ * same connection and may take part in the same transaction.
+ * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
  * @author Eric Harth
@@ -22,11 +25,18 @@ import java.util.Properties;
 
 public class ConnectionUtils {
 
+	// Private constants
+	private static final int	DEFAULT_POOL_SIZE	= 16;
+	private static final long	DEFAULT_TIMEOUT		= 60000;
+
 	// Private attributes
 	private static String		dbUrl;
 	private static String		dbUser;
 	private static String		dbPassword;
-	private static Connection	dbConnection;
+	private static int			dbPoolSize	= DEFAULT_POOL_SIZE;
+	private static long			dbTimeout	= DEFAULT_TIMEOUT;
+	private static ConnectionPool	dbPool;
+	private static ThreadLocal<ThreadConnection> threadConnections = new ThreadLocal<>();
 
 	/**
 	 * Retrieve the url used while connecting to database.
@@ -89,61 +99,249 @@ public class ConnectionUtils {
 	}
 
 	/**
-	 * Create a new connection to the database.
+	 * Retrieve the maximum number of connections opened at the same time.
+	 * 
+	 * @return the pool size
+	 */
+	public static int getPoolSize() {
+		return dbPoolSize;
+	}
+
+	/**
+	 * Sets the maximum number of connections opened at the same time. The
+	 * size is applied when the pool is created, that is on first connection.
 	 * 
-	 * @return Connection a new JDBC connection to the database
+	 * @param poolSize
+	 *            the pool size
 	 */
-	public static synchronized Connection createConnection() {
+	public static void setPoolSize(int poolSize) {
+		dbPoolSize = poolSize;
+	}
 
-		if (dbConnection == null) {
+	/**
+	 * Retrieve the maximum time to wait for a free connection, in
+	 * milliseconds.
+	 * 
+	 * @return the timeout
+	 */
+	public static long getTimeout() {
+		return dbTimeout;
+	}
 
-			try {
+	/**
+	 * Sets the maximum time to wait for a free connection, in milliseconds.
+	 * 
+	 * @param timeout
+	 *            the timeout
+	 */
+	public static void setTimeout(long timeout) {
+		dbTimeout = timeout;
+	}
 
-				// Initialize connection properties
-				Properties properties = new Properties();
+	/**
+	 * Retrieve the pool of connections, to inspect its metrics.
+	 * 
+	 * @return the connection pool or null if no connection was created yet
+	 */
+	public static synchronized ConnectionPool getPool() {
+		return dbPool;
+	}
 
-				if (dbUser != null) {
-					properties.put("user", dbUser);
-				}
+	/**
+	 * Retrieve the pool of connections, creating it if necessary.
+	 */
+	private static synchronized ConnectionPool getOrCreatePool() {
 
-				if (dbPassword != null) {
-					properties.put("password", dbPassword);
-				}
+		if (dbPool == null) {
 
-				// Create a new database connection
-				dbConnection = DriverManager.getConnection(dbUrl, properties);
+			// Initialize connection properties
+			Properties properties = new Properties();
 
-				Console.writeDebug(ConnectionUtils.class, "connection to the database '" + dbUrl + "' created.");
+			if (dbUser != null) {
+				properties.put("user", dbUser);
 			}
-			catch (SQLException e) {
-				Console.writeError(ConnectionUtils.class, "an unexpected error has occured: " + StringUtils.toString(e));
+
+			if (dbPassword != null) {
+				properties.put("password", dbPassword);
 			}
+
+			dbPool = new ConnectionPool(dbUrl, properties, dbPoolSize);
 		}
 
-		return dbConnection;
+		return dbPool;
 	}
 
 	/**
-	 * Close current database connection.
+	 * Borrow a connection to the database. If the current thread already
+	 * holds a connection, the same one is returned. Each call should be
+	 * matched by a call to releaseConnection, usually within a finally block.
+	 * 
+	 * @return Connection a JDBC connection to the database
 	 */
-	public static synchronized void closeConnection() {
+	public static Connection createConnection() {
 
-		if (dbConnection != null) {
-			try {
-				dbConnection.close();
-				dbConnection = null;
+		ThreadConnection threadConnection = threadConnections.get();
 
-				Console.writeDebug(ConnectionUtils.class, "connection to the database closed.");
+		if (threadConnection == null) {
+
+			try {
+				threadConnection = new ThreadConnection(getOrCreatePool().borrow(dbTimeout));
+				threadConnections.set(threadConnection);
 			}
 			catch (SQLException e) {
 				Console.writeError(ConnectionUtils.class, "an unexpected error has occured: " + StringUtils.toString(e));
+				return null;
 			}
 		}
+
+		threadConnection.useCount++;
+
+		return threadConnection.connection;
+	}
+
+	/**
+	 * Release a connection obtained through createConnection. The connection
+	 * returns to the pool once all its users on the current thread have
+	 * released it and no transaction is pending.
+	 * 
+	 * @param connection
+	 *            the connection to release
+	 */
+	public static void releaseConnection(Connection connection) {
+
+		ThreadConnection threadConnection = threadConnections.get();
+
+		if (connection == null || threadConnection == null || threadConnection.connection != connection) {
+			return;
+		}
+
+		threadConnection.useCount--;
+
+		if (threadConnection.useCount <= 0 && !threadConnection.isTransaction) {
+			threadConnections.remove();
+			getOrCreatePool().release(connection);
+		}
+	}
+
+	/**
+	 * Start a transaction on the current thread. Until commitTransaction or
+	 * rollbackTransaction is called, all connections created on this thread
+	 * take part in the transaction.
+	 * 
+	 * @return the connection bound to the transaction
+	 * @throws SQLException
+	 */
+	public static Connection beginTransaction() throws SQLException {
+
+		Connection connection = createConnection();
+
+		if (connection == null) {
+			throw new SQLException("unable to connect to the database !");
+		}
+
+		ThreadConnection threadConnection = threadConnections.get();
+
+		if (threadConnection.isTransaction) {
+			releaseConnection(connection);
+			throw new SQLException("a transaction is already pending on this thread !");
+		}
+
+		try {
+			connection.setAutoCommit(false);
+			threadConnection.isTransaction = true;
+		}
+		catch (SQLException e) {
+			releaseConnection(connection);
+			throw e;
+		}
+
+		return connection;
+	}
+
+	/**
+	 * Check if a transaction is pending on the current thread.
+	 * 
+	 * @return true if a transaction is pending
+	 */
+	public static boolean isTransaction() {
+		ThreadConnection threadConnection = threadConnections.get();
+		return threadConnection != null && threadConnection.isTransaction;
+	}
+
+	/**
+	 * Commit the transaction pending on the current thread. If the commit
+	 * fails, the transaction is still pending and should be rolled back.
+	 * 
+	 * @throws SQLException
+	 */
+	public static void commitTransaction() throws SQLException {
+
+		ThreadConnection threadConnection = threadConnections.get();
+
+		if (threadConnection == null || !threadConnection.isTransaction) {
+			throw new SQLException("no transaction pending on this thread !");
+		}
+
+		threadConnection.connection.commit();
+		endTransaction(threadConnection);
+	}
+
+	/**
+	 * Rollback the transaction pending on the current thread, if any.
+	 * 
+	 * @throws SQLException
+	 */
+	public static void rollbackTransaction() throws SQLException {
+
+		ThreadConnection threadConnection = threadConnections.get();
+
+		if (threadConnection == null || !threadConnection.isTransaction) {
+			return;
+		}
+
+		try {
+			threadConnection.connection.rollback();
+		}
+		finally {
+			endTransaction(threadConnection);
+		}
+	}
+
+	/**
+	 * Restore auto-commit mode and release the connection bound to a
+	 * transaction.
+	 */
+	private static void endTransaction(ThreadConnection threadConnection) {
+
+		threadConnection.isTransaction = false;
+
+		try {
+			threadConnection.connection.setAutoCommit(true);
+		}
+		catch (SQLException e) {
+			Console.writeError(ConnectionUtils.class, "an unexpected error has occured: " + StringUtils.toString(e));
+		}
+
+		releaseConnection(threadConnection.connection);
+	}
+
+	/**
+	 * Close all database connections. A new pool is created on next
+	 * connection.
+	 */
+	public static synchronized void closeConnection() {
+
+		if (dbPool != null) {
+			dbPool.close();
+			dbPool = null;
+
+			Console.writeDebug(ConnectionUtils.class, "connection to the database closed.");
+		}
 	}
 
 	/**
 	 * Close quietly all database objects passed in argument. This utility
-	 * method is applicable to: ResultSet, Statement and Connection
+	 * method is applicable to: ResultSet and Statement
 	 * 
 	 * @param objectList
 	 *            the object to close
@@ -154,11 +352,11 @@ public class ConnectionUtils {
 			try {
 
 				if (o != null) {
-					if (o.getClass().isAssignableFrom(ResultSet.class)) {
+					if (o instanceof ResultSet) {
 						((ResultSet) o).close();
 					}
 
-					if (o.getClass().isAssignableFrom(Statement.class)) {
+					if (o instanceof Statement) {
 						((Statement) o).close();
 					}
 				}
@@ -168,4 +366,18 @@ public class ConnectionUtils {
 			}
 		}
 	}
+
+	/**
+	 * The connection held by a thread, with the number of its users.
+	 */
+	private static class ThreadConnection {
+
+		private Connection	connection;
+		private int			useCount;
+		private boolean		isTransaction;
+
+		public ThreadConnection(Connection connection) {
+			this.connection = connection;
+		}
+	}
 }
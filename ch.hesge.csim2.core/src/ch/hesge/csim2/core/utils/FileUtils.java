@@ -2,6 +2,7 @@ package ch.hesge.csim2.core.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -11,6 +12,8 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -109,6 +112,44 @@ public class FileUtils {
 		return Files.readAllLines(filepath, Charset.defaultCharset());
 	}
 
+	/**
+	 * Compute the SHA-1 hash of a file content, as an hexadecimal string.
+	 * 
+	 * @param filepath
+	 *            the path to the file to hash
+	 * @return the content hash
+	 * @throws IOException
+	 *             If the file could not be read
+	 */
+	public static String getContentHash(Path filepath) throws IOException {
+
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+
+		byte[] buffer = new byte[8192];
+
+		try (InputStream input = Files.newInputStream(filepath)) {
+
+			int count;
+			while ((count = input.read(buffer)) > 0) {
+				digest.update(buffer, 0, count);
+			}
+		}
+
+		StringBuilder contentHash = new StringBuilder();
+		for (byte b : digest.digest()) {
+			contentHash.append(String.format("%02x", b & 0xff));
+		}
+
+		return contentHash.toString();
+	}
+
 	/**
 	 * Recursively delete all files contained within a folder
 	 * 
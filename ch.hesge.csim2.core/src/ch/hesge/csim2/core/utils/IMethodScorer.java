@@ -0,0 +1,22 @@
+package ch.hesge.csim2.core.utils;
+
+import java.util.List;
+
+import ch.hesge.csim2.core.model.MethodConceptMatch;
+import ch.hesge.csim2.core.model.SourceMethod;
+
+/**
+ * This interface allow scoring a single method against concepts, returning
+ * all matchings found for the method. The method index is its position
+ * among all methods scored. Implementations are called concurrently by
+ * MatchingEngine and should only read shared data.
+ * 
+ * Copyright HEG Geneva 2014, Switzerland
+ * 
+ * @author Eric Harth
+ */
+
+public interface IMethodScorer {
+
+	List<MethodConceptMatch> scoreMethod(SourceMethod method, int methodIndex);
+}
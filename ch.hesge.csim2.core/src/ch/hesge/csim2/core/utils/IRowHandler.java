@@ -0,0 +1,15 @@
+package ch.hesge.csim2.core.utils;
+
+/**
+ * This interface allow processing database rows one by one, as they are
+ * read from a result-set, without keeping them in memory.
+ * 
+ * Copyright HEG Geneva 2014, Switzerland
+ * 
+ * @author Eric Harth
+ */
+
+public interface IRowHandler {
+
+	void handleRow(IDataRow row);
+}
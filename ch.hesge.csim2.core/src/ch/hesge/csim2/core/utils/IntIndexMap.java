@@ -0,0 +1,180 @@
+package ch.hesge.csim2.core.utils;
+
+import java.util.Arrays;
+
+/**
+ * This class maps object ids to their index (row or column) within a
+ * matrix or a list.
+ *
+ * Keys and indices are stored in primitive arrays with open addressing, so
+ * that a lookup costs a few array accesses, without boxing, instead of the
+ * linear scan of List.indexOf.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class IntIndexMap {
+
+	// Private attributes
+	private int[]				keys;
+	private int[]				indices;
+	private int					size;
+	private int					mask;
+
+	// Private constants
+	private static final int	NO_INDEX			= -1;
+	private static final int	MIN_CAPACITY		= 16;
+	private static final float	LOAD_FACTOR			= 0.5f;
+
+	/**
+	 * Create an empty map.
+	 */
+	public IntIndexMap() {
+		this(0);
+	}
+
+	/**
+	 * Create an empty map, large enough to hold a number of ids without
+	 * being resized.
+	 *
+	 * @param expectedSize
+	 *        the number of ids expected
+	 */
+	public IntIndexMap(int expectedSize) {
+		allocate(getCapacity(expectedSize));
+	}
+
+	/**
+	 * Register the index of an id.
+	 *
+	 * @param key
+	 *        the id
+	 * @param index
+	 *        the index associated to the id (not negative)
+	 * @return the previous index of the id, or -1 if none
+	 */
+	public int put(int key, int index) {
+
+		if (index < 0) {
+			throw new IllegalArgumentException("negative index not allowed.");
+		}
+
+		int slot = findSlot(key);
+
+		if (indices[slot] != NO_INDEX) {
+			int previousIndex = indices[slot];
+			indices[slot] = index;
+			return previousIndex;
+		}
+
+		keys[slot] = key;
+		indices[slot] = index;
+		size++;
+
+		// Grow table when too full
+		if (size > keys.length * LOAD_FACTOR) {
+			rehash(keys.length * 2);
+		}
+
+		return NO_INDEX;
+	}
+
+	/**
+	 * Retrieve the index of an id.
+	 *
+	 * @param key
+	 *        the id
+	 * @return the index of the id, or -1 if the id is not registered
+	 */
+	public int get(int key) {
+		return indices[findSlot(key)];
+	}
+
+	/**
+	 * Check if an id is registered.
+	 *
+	 * @param key
+	 *        the id
+	 * @return true if the map contains the id
+	 */
+	public boolean containsKey(int key) {
+		return get(key) != NO_INDEX;
+	}
+
+	/**
+	 * Return the number of ids registered.
+	 *
+	 * @return the map size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the slot of an id, that is either the slot holding the id or the
+	 * empty slot where it should be stored.
+	 */
+	private int findSlot(int key) {
+
+		int slot = mix(key) & mask;
+
+		while (indices[slot] != NO_INDEX && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Spread id bits, since ids are often consecutive numbers.
+	 */
+	private static int mix(int key) {
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Compute the table capacity (a power of two) for a number of ids.
+	 */
+	private static int getCapacity(int expectedSize) {
+
+		int capacity = MIN_CAPACITY;
+
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity *= 2;
+		}
+
+		return capacity;
+	}
+
+	/**
+	 * Allocate empty tables.
+	 */
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		indices = new int[capacity];
+		mask = capacity - 1;
+		Arrays.fill(indices, NO_INDEX);
+	}
+
+	/**
+	 * Move all ids into larger tables.
+	 */
+	private void rehash(int capacity) {
+
+		int[] oldKeys = keys;
+		int[] oldIndices = indices;
+
+		allocate(capacity);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldIndices[i] != NO_INDEX) {
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				indices[slot] = oldIndices[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package ch.hesge.csim2.core.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import ch.hesge.csim2.core.model.MethodConceptMatch;
+import ch.hesge.csim2.core.model.SourceMethod;
+
+/**
+ * This class allows method/concept matchers to score methods in parallel.
+ * 
+ * Methods are split into partitions scored by a fork/join pool, each method
+ * being scored independently. Matchings are then gathered by method in the
+ * order methods were passed, so that the result does not depend on thread
+ * scheduling.
+ * 
+ * Copyright HEG Geneva 2014, Switzerland
+ * 
+ * @author Eric Harth
+ */
+
+public class MatchingEngine {
+
+	// Private constants
+	private static final int TASKS_PER_THREAD = 8;
+
+	/**
+	 * Score all methods on the common fork/join pool and retrieve a map of
+	 * all MethodConceptMatch classified by method Id.
+	 * 
+	 * @param methods
+	 *        the methods to score
+	 * @param scorer
+	 *        the scorer to call for each method
+	 * @return a map of (MethodId, List<MethodConceptMatch>)
+	 */
+	public static Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(Collection<SourceMethod> methods, IMethodScorer scorer) {
+		return getMethodMatchingMap(methods, scorer, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Score all methods on a fork/join pool and retrieve a map of all
+	 * MethodConceptMatch classified by method Id.
+	 * 
+	 * @param methods
+	 *        the methods to score
+	 * @param scorer
+	 *        the scorer to call for each method, with the index of the
+	 *        method within the collection
+	 * @param pool
+	 *        the pool running scoring tasks
+	 * @return a map of (MethodId, List<MethodConceptMatch>)
+	 */
+	public static Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(Collection<SourceMethod> methods, IMethodScorer scorer, ForkJoinPool pool) {
+
+		List<SourceMethod> methodList = new ArrayList<>(methods);
+		AtomicReferenceArray<List<MethodConceptMatch>> methodMatchings = new AtomicReferenceArray<>(methodList.size());
+
+		// Create enough partitions to balance load among threads
+		int partitionSize = Math.max(1, methodList.size() / (pool.getParallelism() * TASKS_PER_THREAD));
+
+		// Score all methods
+		pool.invoke(new ScoringTask(methodList, scorer, methodMatchings, 0, methodList.size(), partitionSize));
+
+		Map<Integer, List<MethodConceptMatch>> matchingMap = new HashMap<>();
+
+		// Now, aggregate all matchings by method
+		for (int i = 0; i < methodList.size(); i++) {
+
+			List<MethodConceptMatch> matchings = methodMatchings.get(i);
+
+			if (matchings != null && !matchings.isEmpty()) {
+
+				int methodId = methodList.get(i).getKeyId();
+
+				// Create an method list if not already initialized
+				if (!matchingMap.containsKey(methodId)) {
+					matchingMap.put(methodId, new ArrayList<>());
+				}
+
+				// Add the matchings to the array for the specific method
+				matchingMap.get(methodId).addAll(matchings);
+			}
+		}
+
+		return matchingMap;
+	}
+
+	/**
+	 * A task scoring a range of methods, split in two halves until the
+	 * range is not greater than the partition size.
+	 */
+	@SuppressWarnings("serial")
+	private static class ScoringTask extends RecursiveAction {
+
+		private List<SourceMethod>								methods;
+		private IMethodScorer									scorer;
+		private AtomicReferenceArray<List<MethodConceptMatch>>	methodMatchings;
+		private int												start;
+		private int												end;
+		private int												partitionSize;
+
+		public ScoringTask(List<SourceMethod> methods, IMethodScorer scorer, AtomicReferenceArray<List<MethodConceptMatch>> methodMatchings, int start, int end, int partitionSize) {
+			this.methods = methods;
+			this.scorer = scorer;
+			this.methodMatchings = methodMatchings;
+			this.start = start;
+			this.end = end;
+			this.partitionSize = partitionSize;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (end - start <= partitionSize) {
+				for (int i = start; i < end; i++) {
+					methodMatchings.set(i, scorer.scoreMethod(methods.get(i), i));
+				}
+			}
+			else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new ScoringTask(methods, scorer, methodMatchings, start, middle, partitionSize), new ScoringTask(methods, scorer, methodMatchings, middle, end, partitionSize));
+			}
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package ch.hesge.csim2.core.utils;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * This class implements various helper to build a single SQL query as a string.
@@ -13,6 +16,9 @@ import java.util.regex.Matcher;
 
 public class QueryBuilder {
 
+	// Private static attributes
+	private static Pattern namedParamPattern = Pattern.compile("\\?(\\w+)");
+
 	/**
 	 * Build a query by replacing all parameter occurences, within the query
 	 * string passed in argument, by the value passed in argument.
@@ -66,4 +72,50 @@ public class QueryBuilder {
 		Map<String, Object> map = mapper.mapParameters(paramObject);
 		return QueryBuilder.create(queryString, map);
 	}
+
+	/**
+	 * Build a parameter map with a single named parameter, to be used with
+	 * queries executed through a prepared statement.
+	 * 
+	 * @param paramName
+	 *            the parameter name, within the query
+	 * @param paramValue
+	 *            the value bound to the parameter
+	 * @return the map of parameter of name/value
+	 */
+	public static Map<String, Object> createParams(String paramName, Object paramValue) {
+		Map<String, Object> paramMap = new HashMap<>();
+		paramMap.put(paramName, paramValue);
+		return paramMap;
+	}
+
+	/**
+	 * Build a query suitable for a prepared statement, by replacing all named
+	 * parameters (?paramName) by a positional marker (?). Parameter names are
+	 * appended to the list passed in argument, in the order they appear
+	 * within the query.
+	 * 
+	 * Named parameters should not be quoted in the original query string,
+	 * since values are bound by the JDBC driver.
+	 * 
+	 * @param queryString
+	 *            the original query string
+	 * @param paramNames
+	 *            the list receiving parameter names (by position)
+	 * @return the new query string with positional markers
+	 */
+	public static String createPrepared(String queryString, List<String> paramNames) {
+
+		StringBuffer preparedQuery = new StringBuffer();
+		Matcher regexMatcher = namedParamPattern.matcher(queryString);
+
+		while (regexMatcher.find()) {
+			paramNames.add(regexMatcher.group(1));
+			regexMatcher.appendReplacement(preparedQuery, "?");
+		}
+
+		regexMatcher.appendTail(preparedQuery);
+
+		return preparedQuery.toString();
+	}
 }
@@ -2,16 +2,25 @@ package ch.hesge.csim2.core.utils;
 
 import java.math.BigInteger;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import ch.hesge.csim2.core.utils.StatementCache.PreparedQuery;
 
 /**
  * This class implements various helper allowing query execution and mapping to
  * JavaBean objects.
  * 
+ * Queries may either be plain strings built by QueryBuilder.create, or
+ * contain named parameters (?paramName) whose values are bound through a
+ * prepared statement. Prepared statements are kept open per connection by
+ * StatementCache.
+ * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
  * @author Eric Harth
@@ -19,6 +28,9 @@ import java.util.List;
 
 public class QueryEngine {
 
+	// Private constants
+	private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
 	/**
 	 * Execute a standard SQL query (for instance UPDATE), without the need to
 	 * map the resulting rows to be mapped to object.
@@ -45,6 +57,93 @@ public class QueryEngine {
 		return result;
 	}
 
+	/**
+	 * Execute a single query (for instance INSERT or UPDATE) once for each
+	 * object passed in argument, using JDBC batching. The query should contain
+	 * named parameters (?paramName), without quotes, whose values are
+	 * provided by the mapper for each object.
+	 * 
+	 * If the connection is in auto-commit mode, the whole batch is executed
+	 * within a single transaction, otherwise it participates to the
+	 * transaction already started by the caller.
+	 * 
+	 * @param connection
+	 *            the connection to the database
+	 * @param queryString
+	 *            the SQL query to execute for each object
+	 * @param mapper
+	 *            the mapper used to extract parameter values from objects
+	 * @param paramObjects
+	 *            the objects containing parameter values
+	 * @return the list of identifiers generated by the database (by object
+	 *         position), or an empty list if none were generated
+	 * @throws SQLException
+	 */
+	public static <T> List<Integer> executeBatch(Connection connection, String queryString, IParamMapper<T> mapper, List<T> paramObjects) throws SQLException {
+
+		List<Integer> generatedKeys = new ArrayList<>();
+		PreparedQuery preparedQuery = StatementCache.getPreparedQuery(queryString);
+		List<String> paramNames = preparedQuery.getParamNames();
+
+		boolean isAutoCommit = connection.getAutoCommit();
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+
+		try {
+
+			if (isAutoCommit) {
+				connection.setAutoCommit(false);
+			}
+
+			statement = StatementCache.borrow(connection, preparedQuery.getQueryText(), true);
+
+			// Bind parameters of each object
+			for (T paramObject : paramObjects) {
+				bindParameters(statement, paramNames, mapper.mapParameters(paramObject));
+				statement.addBatch();
+			}
+
+			statement.executeBatch();
+
+			// Retrieve identifiers defined by database
+			resultSet = statement.getGeneratedKeys();
+
+			while (resultSet.next()) {
+				generatedKeys.add(resultSet.getInt(1));
+			}
+
+			if (isAutoCommit) {
+				connection.commit();
+			}
+		}
+		catch (SQLException e) {
+
+			if (isAutoCommit) {
+				connection.rollback();
+			}
+
+			// Do not reuse a statement left in an unknown state
+			ConnectionUtils.closeQuietly(statement);
+			statement = null;
+
+			throw e;
+		}
+		finally {
+
+			ConnectionUtils.closeQuietly(resultSet);
+
+			if (statement != null) {
+				StatementCache.release(connection, preparedQuery.getQueryText(), true, statement);
+			}
+
+			if (isAutoCommit) {
+				connection.setAutoCommit(true);
+			}
+		}
+
+		return generatedKeys;
+	}
+
 	/**
 	 * Execute a SELECT query and retrieve the result as a scalar (number).
 	 * 
@@ -212,6 +311,265 @@ public class QueryEngine {
 		return dataRows;
 	}
 
+	/**
+	 * Execute a standard SQL query (for instance UPDATE) containing named
+	 * parameters (?paramName), without quotes, through a prepared statement.
+	 * 
+	 * @param connection
+	 *            the connection to the database
+	 * @param queryString
+	 *            the SQL query to execute
+	 * @param paramMap
+	 *            the map of parameter of name/value
+	 * @return the row count modified by the query or -1
+	 * @throws SQLException
+	 */
+	public static int executeQuery(Connection connection, String queryString, Map<String, Object> paramMap) throws SQLException {
+
+		PreparedQuery preparedQuery = StatementCache.getPreparedQuery(queryString);
+		PreparedStatement statement = StatementCache.borrow(connection, preparedQuery.getQueryText(), false);
+
+		try {
+			bindParameters(statement, preparedQuery.getParamNames(), paramMap);
+			return statement.executeUpdate();
+		}
+		finally {
+			StatementCache.release(connection, preparedQuery.getQueryText(), false, statement);
+		}
+	}
+
+	/**
+	 * Execute a SELECT query containing named parameters (?paramName) and
+	 * retrieve the result as a scalar (number).
+	 * 
+	 * @param connection
+	 *            the connection to the database
+	 * @param queryString
+	 *            the SQL query to execute
+	 * @param paramMap
+	 *            the map of parameter of name/value
+	 * @return a scalar (int, double or float)
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T queryForScalar(Connection connection, String queryString, Map<String, Object> paramMap) throws SQLException {
+
+		T result = null;
+		PreparedQuery preparedQuery = StatementCache.getPreparedQuery(queryString);
+		PreparedStatement statement = StatementCache.borrow(connection, preparedQuery.getQueryText(), false);
+
+		try {
+
+			bindParameters(statement, preparedQuery.getParamNames(), paramMap);
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+
+				if (resultSet.next()) {
+					result = (T) resultSet.getObject(1);
+				}
+			}
+		}
+		finally {
+			StatementCache.release(connection, preparedQuery.getQueryText(), false, statement);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Execute a SELECT query containing named parameters (?paramName) and use
+	 * the rowMapper passed in argument, to map row values into a single
+	 * object.
+	 * 
+	 * @param connection
+	 *            the connection to the database
+	 * @param queryString
+	 *            the SQL query to execute
+	 * @param paramMap
+	 *            the map of parameter of name/value
+	 * @param rowMapper
+	 *            the mapper used to extract values from row
+	 * @return the object with field extracted from row values
+	 * @throws SQLException
+	 */
+	public static <T> T queryForObject(Connection connection, String queryString, Map<String, Object> paramMap, IRowMapper<T> rowMapper) throws SQLException {
+
+		T result = null;
+		PreparedQuery preparedQuery = StatementCache.getPreparedQuery(queryString);
+		PreparedStatement statement = StatementCache.borrow(connection, preparedQuery.getQueryText(), false);
+
+		try {
+
+			bindParameters(statement, preparedQuery.getParamNames(), paramMap);
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+
+				if (resultSet.next()) {
+
+					// Extract all row information from result-set
+					IDataRow row = convertToDataRow(resultSet);
+
+					// Convert the row into proper object
+					result = rowMapper.mapRow(row);
+				}
+			}
+		}
+		finally {
+			StatementCache.release(connection, preparedQuery.getQueryText(), false, statement);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Execute a SELECT query containing named parameters (?paramName) and use
+	 * the rowMapper passed in argument, to map all row values into a list of
+	 * objects.
+	 * 
+	 * @param connection
+	 *            the connection to the database
+	 * @param queryString
+	 *            the SQL query to execute
+	 * @param paramMap
+	 *            the map of parameter of name/value
+	 * @param rowMapper
+	 *            the mapper used to extract values from row
+	 * @return a list of object with field values extracted from row values
+	 * @throws SQLException
+	 */
+	public static <T> List<T> queryForList(Connection connection, String queryString, Map<String, Object> paramMap, IRowMapper<T> rowMapper) throws SQLException {
+
+		List<T> result = new ArrayList<>();
+		PreparedQuery preparedQuery = StatementCache.getPreparedQuery(queryString);
+		PreparedStatement statement = StatementCache.borrow(connection, preparedQuery.getQueryText(), false);
+
+		try {
+
+			bindParameters(statement, preparedQuery.getParamNames(), paramMap);
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+
+				while (resultSet.next()) {
+
+					// Extract all row information from result-set
+					IDataRow row = convertToDataRow(resultSet);
+
+					// Convert each row into proper object
+					result.add(rowMapper.mapRow(row));
+				}
+			}
+		}
+		finally {
+			StatementCache.release(connection, preparedQuery.getQueryText(), false, statement);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Execute a SELECT query containing named parameters (?paramName) and
+	 * hand each row to the rowHandler passed in argument, as soon as it is
+	 * read from the database.
+	 * 
+	 * Rows are streamed from the server, one at a time, so that memory does
+	 * not depend on the number of rows returned. While rows are streamed, no
+	 * other query can be executed on the same connection.
+	 * 
+	 * @param connection
+	 *            the connection to the database
+	 * @param queryString
+	 *            the SQL query to execute
+	 * @param paramMap
+	 *            the map of parameter of name/value
+	 * @param rowHandler
+	 *            the handler called for each row
+	 * @return the number of rows handled
+	 * @throws SQLException
+	 */
+	public static int queryForEach(Connection connection, String queryString, Map<String, Object> paramMap, IRowHandler rowHandler) throws SQLException {
+
+		int rowCount = 0;
+		PreparedQuery preparedQuery = StatementCache.getPreparedQuery(queryString);
+		PreparedStatement statement = StatementCache.borrow(connection, preparedQuery.getQueryText(), false);
+
+		try {
+
+			bindParameters(statement, preparedQuery.getParamNames(), paramMap);
+
+			// Ask the driver to stream rows instead of reading them all
+			// (MySQL Connector/J streams when fetch size is Integer.MIN_VALUE)
+			statement.setFetchSize(STREAMING_FETCH_SIZE);
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+
+				while (resultSet.next()) {
+					rowHandler.handleRow(convertToDataRow(resultSet));
+					rowCount++;
+				}
+			}
+		}
+		finally {
+			StatementCache.release(connection, preparedQuery.getQueryText(), false, statement);
+		}
+
+		return rowCount;
+	}
+
+	/**
+	 * Execute a SELECT query containing named parameters (?paramName) and
+	 * return rough values coming from database result set.
+	 * 
+	 * @param connection
+	 *            the connection to the database
+	 * @param queryString
+	 *            the SQL query to execute
+	 * @param paramMap
+	 *            the map of parameter of name/value
+	 * @return an list of IDataRow containing all values of all rows returned
+	 * @throws SQLException
+	 */
+	public static List<IDataRow> queryForRows(Connection connection, String queryString, Map<String, Object> paramMap) throws SQLException {
+
+		List<IDataRow> dataRows = new ArrayList<>();
+		PreparedQuery preparedQuery = StatementCache.getPreparedQuery(queryString);
+		PreparedStatement statement = StatementCache.borrow(connection, preparedQuery.getQueryText(), false);
+
+		try {
+
+			bindParameters(statement, preparedQuery.getParamNames(), paramMap);
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+
+				while (resultSet.next()) {
+					dataRows.add(convertToDataRow(resultSet));
+				}
+			}
+		}
+		finally {
+			StatementCache.release(connection, preparedQuery.getQueryText(), false, statement);
+		}
+
+		return dataRows;
+	}
+
+	/**
+	 * Bind the values of named parameters to a prepared statement, by
+	 * position.
+	 * 
+	 * @param statement
+	 *            the statement whose parameters should be bound
+	 * @param paramNames
+	 *            the parameter names (by position)
+	 * @param paramMap
+	 *            the map of parameter of name/value
+	 * @throws SQLException
+	 */
+	private static void bindParameters(PreparedStatement statement, List<String> paramNames, Map<String, Object> paramMap) throws SQLException {
+		for (int i = 0; i < paramNames.size(); i++) {
+			statement.setObject(i + 1, paramMap.get(paramNames.get(i)));
+		}
+	}
+
 	/**
 	 * Convert a database result-set into and DataRow (kind of map of
 	 * field/value).
@@ -0,0 +1,210 @@
+package ch.hesge.csim2.core.utils;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a matrix storing doubles, whose columns are
+ * appended one by one, as the steps of a trace.
+ *
+ * Consecutive identical columns are stored once as a run, and each column
+ * is a sparse vector shared by all runs it appears in, so that memory
+ * scales with the number of runs instead of rows times columns.
+ *
+ * @author Eric Harth
+ */
+public class RunLengthMatrix {
+
+	// Private attributes
+	private int rows;
+	private int cols;
+	private int runCount;
+	private int runEnds[];
+	private SparseVector runColumns[];
+
+	// Private constants
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Construct a matrix without columns.
+	 *
+	 * @param rows
+	 *        number of rows.
+	 */
+	public RunLengthMatrix(int rows) {
+		this.rows = rows;
+		this.cols = 0;
+		this.runCount = 0;
+		this.runEnds = new int[INITIAL_CAPACITY];
+		this.runColumns = new SparseVector[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Get row dimension.
+	 *
+	 * @return
+	 *         the number of rows.
+	 */
+	public int getRowDimension() {
+		return rows;
+	}
+
+	/**
+	 * Get column dimension.
+	 *
+	 * @return
+	 *         the number of columns.
+	 */
+	public int getColumnDimension() {
+		return cols;
+	}
+
+	/**
+	 * Get the number of runs of identical columns.
+	 *
+	 * @return
+	 *         the number of runs
+	 */
+	public int getRunCount() {
+		return runCount;
+	}
+
+	/**
+	 * Get the run holding a column.
+	 *
+	 * @param j
+	 *        column index
+	 * @return
+	 *         the run index
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public int getRunIndex(int j) {
+
+		if (j < 0 || j >= cols) {
+			throw new ArrayIndexOutOfBoundsException(j);
+		}
+
+		// Run ends are strictly ascending, find the first end above j
+		int r = Arrays.binarySearch(runEnds, 0, runCount, j + 1);
+
+		return r < 0 ? -r - 1 : r;
+	}
+
+	/**
+	 * Get the first column index of a run.
+	 *
+	 * @param r
+	 *        run index
+	 * @return
+	 *         the column index (inclusive)
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public int getRunStart(int r) {
+		checkRunIndex(r);
+		return r == 0 ? 0 : runEnds[r - 1];
+	}
+
+	/**
+	 * Get the column index following the last column of a run.
+	 *
+	 * @param r
+	 *        run index
+	 * @return
+	 *         the column index (exclusive)
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public int getRunEnd(int r) {
+		checkRunIndex(r);
+		return runEnds[r];
+	}
+
+	/**
+	 * Get the column repeated by a run.
+	 *
+	 * The vector returned is shared by the matrix and must not be modified.
+	 *
+	 * @param r
+	 *        run index
+	 * @return
+	 *         the column vector
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public SparseVector getRunColumn(int r) {
+		checkRunIndex(r);
+		return runColumns[r];
+	}
+
+	/**
+	 * Get a single cell value.
+	 *
+	 * @param i
+	 *        row index.
+	 * @param j
+	 *        column index.
+	 * @return
+	 *         the cell value
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public double getValue(int i, int j) {
+		return runColumns[getRunIndex(j)].getValue(i);
+	}
+
+	/**
+	 * Get the entries at the given column index as a vector. Column indices
+	 * start at 0.
+	 *
+	 * @param col
+	 *        column to be fetched.
+	 * @return a column vector.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *         if the specified column index is invalid
+	 */
+	public SparseVector getColumnVector(int col) throws ArrayIndexOutOfBoundsException {
+		return new SparseVector(runColumns[getRunIndex(col)]);
+	}
+
+	/**
+	 * Append a column to the matrix.
+	 *
+	 * The vector is not copied: a column equal to the last one should be
+	 * passed as the same instance to extend the last run, and must not be
+	 * modified afterwards.
+	 *
+	 * @param v
+	 *        the column vector to append
+	 * @throws IllegalArgumentException
+	 *         if {@code v} dimension does not match the row dimension
+	 */
+	public void appendColumn(SparseVector v) throws IllegalArgumentException {
+
+		if (rows != v.getDimension()) {
+			throw new IllegalArgumentException("Matrix and vector dimension mismatch.");
+		}
+
+		cols++;
+
+		// Extend last run if same column
+		if (runCount > 0 && runColumns[runCount - 1] == v) {
+			runEnds[runCount - 1] = cols;
+			return;
+		}
+
+		// Grow arrays if full
+		if (runCount == runEnds.length) {
+			runEnds = Arrays.copyOf(runEnds, runCount * 2);
+			runColumns = Arrays.copyOf(runColumns, runCount * 2);
+		}
+
+		runEnds[runCount] = cols;
+		runColumns[runCount] = v;
+		runCount++;
+	}
+
+	/**
+	 * Check if a run index is within stored runs.
+	 */
+	private void checkRunIndex(int r) {
+		if (r < 0 || r >= runCount) {
+			throw new ArrayIndexOutOfBoundsException(r);
+		}
+	}
+}
@@ -0,0 +1,299 @@
+package ch.hesge.csim2.core.utils;
+
+/**
+ * This class represents a sparse matrix storing doubles.
+ *
+ * The matrix is stored as an array of sparse column vectors, each column
+ * keeping only its non-zero rows, so that memory scales with the number of
+ * non-zero cells and column vectors are retrieved without scanning all rows.
+ * Empty columns are not allocated.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class SparseMatrix {
+
+	// Private attributes
+	private int rows;
+	private int cols;
+	private SparseVector[] columns;
+
+	/**
+	 * Construct a matrix with zero values.
+	 *
+	 * @param rows
+	 *        number of rows.
+	 * @param cols
+	 *        number of columns.
+	 */
+	public SparseMatrix(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		this.columns = new SparseVector[cols];
+	}
+
+	/**
+	 * Get row dimension.
+	 *
+	 * @return
+	 *         the number of rows.
+	 */
+	public int getRowDimension() {
+		return rows;
+	}
+
+	/**
+	 * Get column dimension.
+	 *
+	 * @return
+	 *         the number of columns.
+	 */
+	public int getColumnDimension() {
+		return cols;
+	}
+
+	/**
+	 * Get the number of cells stored.
+	 *
+	 * @return
+	 *         the number of non-zero cells
+	 */
+	public int getNonZeroCount() {
+
+		int count = 0;
+
+		for (int j = 0; j < cols; j++) {
+			if (columns[j] != null) {
+				count += columns[j].getNonZeroCount();
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Get a single cell value.
+	 *
+	 * @param i
+	 *        row index.
+	 * @param j
+	 *        column index.
+	 * @return
+	 *         the cell value
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public double getValue(int i, int j) {
+
+		checkRowIndex(i);
+
+		if (columns[j] == null) {
+			return 0d;
+		}
+
+		return columns[j].getValue(i);
+	}
+
+	/**
+	 * Set a single cell value. Setting a cell to zero removes it from the
+	 * matrix.
+	 *
+	 * @param i
+	 *        row index
+	 * @param j
+	 *        column index
+	 * @param value
+	 *        the cell value
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public void setValue(int i, int j, double value) {
+
+		if (columns[j] == null) {
+
+			if (value == 0) {
+				checkRowIndex(i);
+				return;
+			}
+
+			columns[j] = new SparseVector(rows);
+		}
+
+		columns[j].setValue(i, value);
+	}
+
+	/**
+	 * Add a value to a single cell value.
+	 *
+	 * @param i
+	 *        row index
+	 * @param j
+	 *        column index
+	 * @param scalar
+	 *        the scalar value to add
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public void addValue(int i, int j, double scalar) {
+
+		if (columns[j] == null) {
+			columns[j] = new SparseVector(rows);
+		}
+
+		columns[j].addValue(i, scalar);
+	}
+
+	/**
+	 * Get the entries at the given column index as a vector. Column indices
+	 * start at 0.
+	 *
+	 * @param col
+	 *        column to be fetched.
+	 * @return a column vector.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *         if the specified column index is invalid
+	 */
+	public SparseVector getColumnVector(int col) throws ArrayIndexOutOfBoundsException {
+
+		if (columns[col] == null) {
+			return new SparseVector(rows);
+		}
+
+		return new SparseVector(columns[col]);
+	}
+
+	/**
+	 * Count, for each row, the number of non-zero cells.
+	 *
+	 * @return a vector with the non-zero cell count of each row
+	 */
+	public SimpleVector getRowNonZeroCounts() {
+
+		SimpleVector result = new SimpleVector(rows);
+
+		for (int j = 0; j < cols; j++) {
+
+			SparseVector column = columns[j];
+
+			if (column != null) {
+				for (int k = 0; k < column.getNonZeroCount(); k++) {
+					result.addValue(column.getNonZeroIndex(k), 1d);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the result of multiplying element-by-element {@code this} by
+	 * {@code m}.
+	 *
+	 * @param m
+	 *        matrix to multiply by
+	 * @return {@code this * m}
+	 * @throws IllegalArgumentException
+	 *         if {@code m} is not the same size as {@code this}.
+	 */
+	public SparseMatrix ebeMultiply(SparseMatrix m) throws IllegalArgumentException {
+
+		checkMatrixDimensions(this, m);
+		SparseMatrix result = new SparseMatrix(rows, cols);
+
+		for (int j = 0; j < cols; j++) {
+			if (columns[j] != null && m.columns[j] != null) {
+				result.columns[j] = columns[j].ebeMultiply(m.columns[j]);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the result of dividing each column of {@code this} by a
+	 * scalar, that is this[i][j] / v[j] for all non-zero cells.
+	 *
+	 * @param v
+	 *        vector with one divisor per column
+	 * @return a new matrix
+	 * @throws IllegalArgumentException
+	 *         if {@code v} dimension does not match the column dimension
+	 */
+	public SparseMatrix divideColumns(SimpleVector v) throws IllegalArgumentException {
+
+		if (cols != v.getDimension()) {
+			throw new IllegalArgumentException("Matrix and vector dimension mismatch.");
+		}
+
+		SparseMatrix result = new SparseMatrix(rows, cols);
+
+		for (int j = 0; j < cols; j++) {
+
+			SparseVector column = columns[j];
+
+			if (column != null) {
+				for (int k = 0; k < column.getNonZeroCount(); k++) {
+					result.setValue(column.getNonZeroIndex(k), j, column.getNonZeroValue(k) / v.getValue(j));
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the result of multiplying each row of {@code this} by a
+	 * scalar, that is this[i][j] * v[i] for all non-zero cells.
+	 *
+	 * @param v
+	 *        vector with one factor per row
+	 * @return a new matrix
+	 * @throws IllegalArgumentException
+	 *         if {@code v} dimension does not match the row dimension
+	 */
+	public SparseMatrix multiplyRows(SimpleVector v) throws IllegalArgumentException {
+
+		if (rows != v.getDimension()) {
+			throw new IllegalArgumentException("Matrix and vector dimension mismatch.");
+		}
+
+		SparseMatrix result = new SparseMatrix(rows, cols);
+
+		for (int j = 0; j < cols; j++) {
+
+			SparseVector column = columns[j];
+
+			if (column != null) {
+				for (int k = 0; k < column.getNonZeroCount(); k++) {
+					result.setValue(column.getNonZeroIndex(k), j, column.getNonZeroValue(k) * v.getValue(column.getNonZeroIndex(k)));
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Check if a row index is within matrix dimension.
+	 */
+	private void checkRowIndex(int i) {
+		if (i < 0 || i >= rows) {
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+	}
+
+	/**
+	 * Check if matrices are compatible in size.
+	 *
+	 * @param a
+	 *        left hand side matrix.
+	 * @param b
+	 *        right hand side matrix.
+	 * @throws IllegalArgumentException
+	 *         if the matrices are not compatible.
+	 */
+	private void checkMatrixDimensions(SparseMatrix a, SparseMatrix b) {
+		if (a.rows != b.rows || a.cols != b.cols) {
+			throw new IllegalArgumentException("Matrix dimension mismatch.");
+		}
+	}
+}
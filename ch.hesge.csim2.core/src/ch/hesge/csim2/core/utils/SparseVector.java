@@ -0,0 +1,413 @@
+package ch.hesge.csim2.core.utils;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a sparse vector storing doubles.
+ *
+ * Only non-zero coordinates are stored, as two arrays of indices (in
+ * ascending order) and values, so that memory and operations scale with the
+ * number of non-zero coordinates, not with the vector dimension.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class SparseVector {
+
+	// Private attributes
+	private int size;
+	private int count;
+	private int indices[];
+	private double values[];
+
+	// Private constants
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * Construct a vector of zeroes.
+	 *
+	 * @param size
+	 *        size of the vector.
+	 */
+	public SparseVector(int size) {
+		this.size = size;
+		this.count = 0;
+		this.indices = new int[0];
+		this.values = new double[0];
+	}
+
+	/**
+	 * Construct a vector from its non-zero coordinates.
+	 *
+	 * @param size
+	 *        size of the vector
+	 * @param indices
+	 *        coordinate indices, in ascending order
+	 * @param values
+	 *        coordinate values
+	 * @param count
+	 *        the number of coordinates to copy from arrays
+	 */
+	SparseVector(int size, int[] indices, double[] values, int count) {
+		this.size = size;
+		this.count = count;
+		this.indices = Arrays.copyOf(indices, count);
+		this.values = Arrays.copyOf(values, count);
+	}
+
+	/**
+	 * Construct a copy of a vector.
+	 *
+	 * @param v
+	 *        the vector to copy
+	 */
+	public SparseVector(SparseVector v) {
+		this(v.size, v.indices, v.values, v.count);
+	}
+
+	/**
+	 * Get vector dimension.
+	 *
+	 * @return
+	 *         the vector dimension.
+	 */
+	public int getDimension() {
+		return size;
+	}
+
+	/**
+	 * Get the number of coordinates stored.
+	 *
+	 * @return
+	 *         the number of non-zero coordinates
+	 */
+	public int getNonZeroCount() {
+		return count;
+	}
+
+	/**
+	 * Get the index of the k-th coordinate stored.
+	 *
+	 * @param k
+	 *        the position among stored coordinates (0 to
+	 *        getNonZeroCount() - 1)
+	 * @return
+	 *         the coordinate index
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public int getNonZeroIndex(int k) {
+		checkPosition(k);
+		return indices[k];
+	}
+
+	/**
+	 * Get the value of the k-th coordinate stored.
+	 *
+	 * @param k
+	 *        the position among stored coordinates (0 to
+	 *        getNonZeroCount() - 1)
+	 * @return
+	 *         the coordinate value
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public double getNonZeroValue(int k) {
+		checkPosition(k);
+		return values[k];
+	}
+
+	/**
+	 * Get a single coordinate value.
+	 *
+	 * @param i
+	 *        coordinate.
+	 * @return
+	 *         a scalar value
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public double getValue(int i) {
+
+		checkIndex(i);
+		int k = Arrays.binarySearch(indices, 0, count, i);
+
+		return k < 0 ? 0d : values[k];
+	}
+
+	/**
+	 * Add a scalar to a single vector coordinate.
+	 *
+	 * @param i
+	 *        coordinate
+	 * @param value
+	 *        the scalar value to add
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public void addValue(int i, double value) {
+
+		checkIndex(i);
+		int k = Arrays.binarySearch(indices, 0, count, i);
+
+		if (k < 0) {
+			setValue(i, value);
+		}
+		else {
+			values[k] += value;
+		}
+	}
+
+	/**
+	 * Set a single coordinate value. Setting a coordinate to zero removes it
+	 * from the vector.
+	 *
+	 * @param i
+	 *        coordinate index
+	 * @param value
+	 *        a scalar value
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	public void setValue(int i, double value) {
+
+		checkIndex(i);
+		int k = Arrays.binarySearch(indices, 0, count, i);
+
+		if (k >= 0) {
+
+			if (value == 0) {
+				System.arraycopy(indices, k + 1, indices, k, count - k - 1);
+				System.arraycopy(values, k + 1, values, k, count - k - 1);
+				count--;
+			}
+			else {
+				values[k] = value;
+			}
+		}
+		else if (value != 0) {
+
+			k = -k - 1;
+
+			// Grow arrays if full
+			if (count == indices.length) {
+				int capacity = Math.max(INITIAL_CAPACITY, count * 2);
+				indices = Arrays.copyOf(indices, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+
+			System.arraycopy(indices, k, indices, k + 1, count - k);
+			System.arraycopy(values, k, values, k + 1, count - k);
+			indices[k] = i;
+			values[k] = value;
+			count++;
+		}
+	}
+
+	/**
+	 * Element-by-element multiplication.
+	 * Returns a new vector. Does not change instance data.
+	 *
+	 * @param v
+	 *        Vector by which instance elements must be multiplied
+	 * @return a vector containing this[i] * v[i] for all i.
+	 * @throws IllegalArgumentException
+	 *         if {@code v} is not the same size as {@code this} vector.
+	 */
+	public SparseVector ebeMultiply(SparseVector v) throws IllegalArgumentException {
+
+		checkVectorDimensions(this, v);
+
+		int capacity = Math.min(count, v.count);
+		int[] resultIndices = new int[capacity];
+		double[] resultValues = new double[capacity];
+		int resultCount = 0;
+
+		// Only coordinates present in both vectors are non-zero
+		int k = 0;
+		int l = 0;
+		while (k < count && l < v.count) {
+
+			if (indices[k] < v.indices[l]) {
+				k++;
+			}
+			else if (indices[k] > v.indices[l]) {
+				l++;
+			}
+			else {
+
+				double value = values[k] * v.values[l];
+
+				if (value != 0) {
+					resultIndices[resultCount] = indices[k];
+					resultValues[resultCount] = value;
+					resultCount++;
+				}
+
+				k++;
+				l++;
+			}
+		}
+
+		return new SparseVector(size, resultIndices, resultValues, resultCount);
+	}
+
+	/**
+	 * Compute the dot product of this vector with {@code v}.
+	 *
+	 * @param v
+	 *        Vector with which dot product should be computed
+	 * @return the scalar dot product between this instance and {@code v}.
+	 * @throws IllegalArgumentException
+	 *         if {@code v} is not the same size as {@code this} vector.
+	 */
+	public double dotProduct(SparseVector v) throws IllegalArgumentException {
+
+		checkVectorDimensions(this, v);
+
+		double dot = 0d;
+
+		int k = 0;
+		int l = 0;
+		while (k < count && l < v.count) {
+
+			if (indices[k] < v.indices[l]) {
+				k++;
+			}
+			else if (indices[k] > v.indices[l]) {
+				l++;
+			}
+			else {
+				dot += values[k] * v.values[l];
+				k++;
+				l++;
+			}
+		}
+
+		return dot;
+	}
+
+	/**
+	 * Compute the dot product of this vector with a dense vector.
+	 *
+	 * @param v
+	 *        Vector with which dot product should be computed
+	 * @return the scalar dot product between this instance and {@code v}.
+	 * @throws IllegalArgumentException
+	 *         if {@code v} is not the same size as {@code this} vector.
+	 */
+	public double dotProduct(SimpleVector v) throws IllegalArgumentException {
+
+		if (size != v.getDimension()) {
+			throw new IllegalArgumentException("Vector dimension mismatch.");
+		}
+
+		double dot = 0d;
+
+		for (int k = 0; k < count; k++) {
+			dot += values[k] * v.getValue(indices[k]);
+		}
+
+		return dot;
+	}
+
+	/**
+	 * Returns the L<sub>2</sub> norm of the vector.
+	 * <p>
+	 * The L<sub>2</sub> norm is the root of the sum of the squared elements.
+	 * </p>
+	 *
+	 * @return the norm.
+	 */
+	public double getNorm() {
+
+		double sum = 0d;
+
+		for (int k = 0; k < count; k++) {
+			sum += values[k] * values[k];
+		}
+
+		return Math.sqrt(sum);
+	}
+
+	/**
+	 * Computes the cosine of the angle between this vector and the
+	 * argument.
+	 *
+	 * @param v
+	 *        Vector.
+	 * @return the cosine of the angle between this vector and {@code v}.
+	 * @throws IllegalArgumentException
+	 *         if the dimensions of {@code this} and {@code v} do not match or
+	 *         if {@code this} or {@code v} is the null
+	 *         vector
+	 */
+	public double cosine(SparseVector v) throws IllegalArgumentException {
+
+		final double norm = getNorm();
+		final double vNorm = v.getNorm();
+
+		if (norm == 0 || vNorm == 0) {
+			throw new IllegalArgumentException("Vector norm zero not allowed.");
+		}
+
+		return dotProduct(v) / (norm * vNorm);
+	}
+
+	/**
+	 * Check if this vector as all coordinates to zero.
+	 *
+	 * @return {@code true} if all coordinates of this vector are zero and
+	 *         {@code false} otherwise.
+	 */
+	public boolean isNullVector() {
+		return getNorm() == 0;
+	}
+
+	/**
+	 * Convert this vector into a dense vector.
+	 *
+	 * @return a new dense vector with the same coordinates
+	 */
+	public SimpleVector toSimpleVector() {
+
+		SimpleVector result = new SimpleVector(size);
+
+		for (int k = 0; k < count; k++) {
+			result.setValue(indices[k], values[k]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Check if a coordinate index is within vector dimension.
+	 */
+	private void checkIndex(int i) {
+		if (i < 0 || i >= size) {
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+	}
+
+	/**
+	 * Check if a position is within stored coordinates.
+	 */
+	private void checkPosition(int k) {
+		if (k < 0 || k >= count) {
+			throw new ArrayIndexOutOfBoundsException(k);
+		}
+	}
+
+	/**
+	 * Check if vectors are compatible in size.
+	 *
+	 * @param a
+	 *        left hand side vector.
+	 * @param b
+	 *        right hand side vector.
+	 * @throws IllegalArgumentException
+	 *         if the vectors are not compatible.
+	 */
+	private void checkVectorDimensions(SparseVector a, SparseVector b) {
+		if (a.size != b.size) {
+			throw new IllegalArgumentException("Vector dimension mismatch.");
+		}
+	}
+}
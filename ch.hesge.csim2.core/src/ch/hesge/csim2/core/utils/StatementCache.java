@@ -0,0 +1,212 @@
+package ch.hesge.csim2.core.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps prepared statements open for each connection, so that a
+ * query executed many times is parsed only once by the database.
+ *
+ * A statement is removed from the cache while in use and put back once
+ * released, so that a query executed again before the previous execution
+ * is over (nested calls) gets its own statement. Statements of a connection
+ * should be cleared before the connection is closed.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class StatementCache {
+
+	// Private static attributes
+	private static Map<Connection, Map<String, PreparedStatement>>	connectionStatements	= new HashMap<>();
+	private static Map<String, PreparedQuery>						preparedQueries			= new ConcurrentHashMap<>();
+
+	// Private constants
+	private static final int										MAX_STATEMENTS			= 100;
+
+	/**
+	 * Retrieve the prepared form of a query with named parameters
+	 * (?paramName). Queries are parsed once and kept for later use.
+	 *
+	 * @param queryString
+	 *            the query with named parameters
+	 * @return the query with positional markers and its parameter names
+	 */
+	public static PreparedQuery getPreparedQuery(String queryString) {
+
+		PreparedQuery preparedQuery = preparedQueries.get(queryString);
+
+		if (preparedQuery == null) {
+
+			List<String> paramNames = new ArrayList<>();
+			String queryText = QueryBuilder.createPrepared(queryString, paramNames);
+
+			preparedQuery = new PreparedQuery(queryText, Collections.unmodifiableList(paramNames));
+			preparedQueries.put(queryString, preparedQuery);
+		}
+
+		return preparedQuery;
+	}
+
+	/**
+	 * Retrieve a statement for a query from the cache of a connection, or
+	 * prepare a new one if none is available. The statement should be handed
+	 * back through release once its result-set has been closed.
+	 *
+	 * @param connection
+	 *            the connection to the database
+	 * @param queryText
+	 *            the query with positional markers
+	 * @param isReturningKeys
+	 *            true if generated keys should be retrievable
+	 * @return a prepared statement
+	 * @throws SQLException
+	 */
+	public static PreparedStatement borrow(Connection connection, String queryText, boolean isReturningKeys) throws SQLException {
+
+		String cacheKey = getCacheKey(queryText, isReturningKeys);
+		PreparedStatement statement = null;
+
+		synchronized (connectionStatements) {
+
+			Map<String, PreparedStatement> statements = connectionStatements.get(connection);
+
+			if (statements != null) {
+				statement = statements.remove(cacheKey);
+			}
+		}
+
+		if (statement == null) {
+
+			if (isReturningKeys) {
+				statement = connection.prepareStatement(queryText, Statement.RETURN_GENERATED_KEYS);
+			}
+			else {
+				statement = connection.prepareStatement(queryText);
+			}
+		}
+
+		return statement;
+	}
+
+	/**
+	 * Put a statement back into the cache of its connection. The least
+	 * recently used statement is closed when the cache is full.
+	 *
+	 * @param connection
+	 *            the connection to the database
+	 * @param queryText
+	 *            the query with positional markers
+	 * @param isReturningKeys
+	 *            true if the statement was prepared to return generated keys
+	 * @param statement
+	 *            the statement to release
+	 */
+	public static void release(Connection connection, String queryText, boolean isReturningKeys, PreparedStatement statement) {
+
+		String cacheKey = getCacheKey(queryText, isReturningKeys);
+		PreparedStatement previousStatement;
+
+		synchronized (connectionStatements) {
+
+			Map<String, PreparedStatement> statements = connectionStatements.get(connection);
+
+			if (statements == null) {
+				statements = new StatementMap();
+				connectionStatements.put(connection, statements);
+			}
+
+			previousStatement = statements.put(cacheKey, statement);
+		}
+
+		// A nested call has already released a statement for the same query
+		if (previousStatement != null && previousStatement != statement) {
+			ConnectionUtils.closeQuietly(previousStatement);
+		}
+	}
+
+	/**
+	 * Close all statements cached for a connection.
+	 *
+	 * @param connection
+	 *            the connection whose statements should be closed
+	 */
+	public static void clear(Connection connection) {
+
+		Map<String, PreparedStatement> statements;
+
+		synchronized (connectionStatements) {
+			statements = connectionStatements.remove(connection);
+		}
+
+		if (statements != null) {
+			for (PreparedStatement statement : statements.values()) {
+				ConnectionUtils.closeQuietly(statement);
+			}
+		}
+	}
+
+	/**
+	 * Build the key of a statement within the cache of a connection.
+	 */
+	private static String getCacheKey(String queryText, boolean isReturningKeys) {
+		return isReturningKeys ? "+" + queryText : queryText;
+	}
+
+	/**
+	 * A query with positional markers (?), with the names of the parameters
+	 * in the order they should be bound.
+	 */
+	public static class PreparedQuery {
+
+		private String			queryText;
+		private List<String>	paramNames;
+
+		public PreparedQuery(String queryText, List<String> paramNames) {
+			this.queryText = queryText;
+			this.paramNames = paramNames;
+		}
+
+		public String getQueryText() {
+			return queryText;
+		}
+
+		public List<String> getParamNames() {
+			return paramNames;
+		}
+	}
+
+	/**
+	 * Statements of a connection, in access order, closing the least
+	 * recently used one when full.
+	 */
+	@SuppressWarnings("serial")
+	private static class StatementMap extends LinkedHashMap<String, PreparedStatement> {
+
+		public StatementMap() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+
+			if (size() > MAX_STATEMENTS) {
+				ConnectionUtils.closeQuietly(eldest.getValue());
+				return true;
+			}
+
+			return false;
+		}
+	}
+}
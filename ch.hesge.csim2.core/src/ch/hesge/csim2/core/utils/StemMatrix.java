@@ -1,24 +1,28 @@
 package ch.hesge.csim2.core.utils;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * This class allows storing/retrieving, for each cell, a set of objects.
  * The set can be retrieve by its coordinates (row, column).
  * 
+ * Only non-empty cells are stored, so that memory scales with the number
+ * of objects stored, not with the matrix dimension.
+ * 
  * @author Eric Harth
  *
  * @param <T>
  *        the type of objects stored in cell
  */
-@SuppressWarnings("unchecked")
 public class StemMatrix<T> {
 
 	// Private attributes
 	private int rows;
 	private int cols;
-	private Set<T>[][] entrySets;
+	private Map<Long, Set<T>> entrySets;
 
 	/**
 	 * Construct a matrix allowing storing objects of class T.
@@ -33,13 +37,7 @@ public class StemMatrix<T> {
 		this.rows = rows;
 		this.cols = cols;
 
-		this.entrySets = new Set[rows][cols];
-
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < cols; j++) {
-				entrySets[i][j] = new HashSet<T>();
-			}
-		}
+		this.entrySets = new HashMap<>();
 	}
 
 	/**
@@ -74,7 +72,14 @@ public class StemMatrix<T> {
 	 * @exception ArrayIndexOutOfBoundsException
 	 */
 	public Set<T> get(int i, int j) {
-		return new HashSet<T>(entrySets[i][j]);
+
+		Set<T> entrySet = entrySets.get(getCellKey(i, j));
+
+		if (entrySet == null) {
+			return new HashSet<T>();
+		}
+
+		return new HashSet<T>(entrySet);
 	}
 
 	/**
@@ -89,7 +94,34 @@ public class StemMatrix<T> {
 	 * @exception ArrayIndexOutOfBoundsException
 	 */
 	public void add(int i, int j, T item) {
-		entrySets[i][j].add(item);
+
+		Long cellKey = getCellKey(i, j);
+		Set<T> entrySet = entrySets.get(cellKey);
+
+		if (entrySet == null) {
+			entrySet = new HashSet<T>();
+			entrySets.put(cellKey, entrySet);
+		}
+
+		entrySet.add(item);
+	}
+
+	/**
+	 * Build the key of a cell within the entry map.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+	private long getCellKey(int i, int j) {
+
+		if (i < 0 || i >= rows) {
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+
+		if (j < 0 || j >= cols) {
+			throw new ArrayIndexOutOfBoundsException(j);
+		}
+
+		return (long) i * cols + j;
 	}
 
 }
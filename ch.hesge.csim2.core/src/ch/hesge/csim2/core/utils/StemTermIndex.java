@@ -0,0 +1,245 @@
+package ch.hesge.csim2.core.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import ch.hesge.csim2.core.model.Concept;
+import ch.hesge.csim2.core.model.SourceMethod;
+import ch.hesge.csim2.core.model.StemConcept;
+import ch.hesge.csim2.core.model.StemMethod;
+
+/**
+ * This class is an inverted index of all stem terms of a project, giving
+ * for each term the methods and the concepts having a stem with this term.
+ *
+ * Matchers use it to restrict scoring to method/concept pairs sharing at
+ * least one term (or a near term), instead of the full cross product of
+ * methods and concepts. Exhaustive scoring may be forced for validation by
+ * setting the system property ch.hesge.csim2.matcher.exhaustive to true.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class StemTermIndex {
+
+	// Private attributes
+	private Map<String, Set<Integer>>	termMethods;
+	private Map<String, Set<Integer>>	termConcepts;
+	private Map<Integer, Set<String>>	methodTerms;
+
+	// Private constants
+	private static final String			EXHAUSTIVE_MATCHING_PROPERTY	= "ch.hesge.csim2.matcher.exhaustive";
+
+	/**
+	 * Build the index from stems classified by term.
+	 *
+	 * @param stemMethodByTermMap
+	 *        a map of (term, List<StemMethod>)
+	 * @param stemConceptByTermMap
+	 *        a map of (term, List<StemConcept>)
+	 */
+	public StemTermIndex(Map<String, List<StemMethod>> stemMethodByTermMap, Map<String, List<StemConcept>> stemConceptByTermMap) {
+
+		termMethods = new HashMap<>();
+		termConcepts = new HashMap<>();
+		methodTerms = new HashMap<>();
+
+		// Index methods by term, and terms by method
+		for (Map.Entry<String, List<StemMethod>> entry : stemMethodByTermMap.entrySet()) {
+
+			if (entry.getKey() == null) {
+				continue;
+			}
+
+			Set<Integer> methodIds = new HashSet<>();
+
+			for (StemMethod stem : entry.getValue()) {
+
+				methodIds.add(stem.getSourceMethodId());
+
+				if (!methodTerms.containsKey(stem.getSourceMethodId())) {
+					methodTerms.put(stem.getSourceMethodId(), new HashSet<String>());
+				}
+
+				methodTerms.get(stem.getSourceMethodId()).add(entry.getKey());
+			}
+
+			termMethods.put(entry.getKey(), methodIds);
+		}
+
+		// Index concepts by term
+		for (Map.Entry<String, List<StemConcept>> entry : stemConceptByTermMap.entrySet()) {
+
+			if (entry.getKey() == null) {
+				continue;
+			}
+
+			Set<Integer> conceptIds = new HashSet<>();
+
+			for (StemConcept stem : entry.getValue()) {
+				conceptIds.add(stem.getConceptId());
+			}
+
+			termConcepts.put(entry.getKey(), conceptIds);
+		}
+	}
+
+	/**
+	 * Check if matchers should score all method/concept pairs, instead of
+	 * candidates retrieved through the index.
+	 *
+	 * @return true if exhaustive matching is required
+	 */
+	public static boolean isExhaustiveMatching() {
+		return Boolean.getBoolean(EXHAUSTIVE_MATCHING_PROPERTY);
+	}
+
+	/**
+	 * Retrieve all terms used by method stems.
+	 *
+	 * @return a set of terms
+	 */
+	public Set<String> getMethodTerms() {
+		return Collections.unmodifiableSet(termMethods.keySet());
+	}
+
+	/**
+	 * Retrieve all terms used by the stems of a method.
+	 *
+	 * @param methodId
+	 *        the method id
+	 * @return a set of terms
+	 */
+	public Set<String> getMethodTerms(int methodId) {
+
+		Set<String> terms = methodTerms.get(methodId);
+
+		if (terms == null) {
+			return Collections.emptySet();
+		}
+
+		return Collections.unmodifiableSet(terms);
+	}
+
+	/**
+	 * Retrieve all terms used by concept stems.
+	 *
+	 * @return a set of terms
+	 */
+	public Set<String> getConceptTerms() {
+		return Collections.unmodifiableSet(termConcepts.keySet());
+	}
+
+	/**
+	 * Retrieve all methods having a stem with a term.
+	 *
+	 * @param term
+	 *        the term to look for
+	 * @return a set of method ids
+	 */
+	public Set<Integer> getMethodIds(String term) {
+
+		Set<Integer> methodIds = termMethods.get(term);
+
+		if (methodIds == null) {
+			return Collections.emptySet();
+		}
+
+		return Collections.unmodifiableSet(methodIds);
+	}
+
+	/**
+	 * Retrieve all concepts having a stem with a term.
+	 *
+	 * @param term
+	 *        the term to look for
+	 * @return a set of concept ids
+	 */
+	public Set<Integer> getConceptIds(String term) {
+
+		Set<Integer> conceptIds = termConcepts.get(term);
+
+		if (conceptIds == null) {
+			return Collections.emptySet();
+		}
+
+		return Collections.unmodifiableSet(conceptIds);
+	}
+
+	/**
+	 * Retrieve all concepts sharing at least one term with a method.
+	 *
+	 * @param method
+	 *        the method whose concepts should be retrieved
+	 * @param conceptMap
+	 *        the map of (conceptId, Concept) to select concepts from
+	 * @return a list of concepts, ordered by id
+	 */
+	public List<Concept> getCandidateConcepts(SourceMethod method, Map<Integer, Concept> conceptMap) {
+
+		Set<Integer> conceptIds = new TreeSet<>();
+
+		for (String term : getMethodTerms(method.getKeyId())) {
+			conceptIds.addAll(getConceptIds(term));
+		}
+
+		return getConcepts(conceptIds, conceptMap);
+	}
+
+	/**
+	 * Retrieve all concepts having a term near to one of the terms of a
+	 * method.
+	 *
+	 * @param method
+	 *        the method whose concepts should be retrieved
+	 * @param conceptMap
+	 *        the map of (conceptId, Concept) to select concepts from
+	 * @param nearTerms
+	 *        a map of (method term, near concept terms)
+	 * @return a list of concepts, ordered by id
+	 */
+	public List<Concept> getCandidateConcepts(SourceMethod method, Map<Integer, Concept> conceptMap, Map<String, Set<String>> nearTerms) {
+
+		Set<Integer> conceptIds = new TreeSet<>();
+
+		for (String term : getMethodTerms(method.getKeyId())) {
+
+			Set<String> conceptTerms = nearTerms.get(term);
+
+			if (conceptTerms != null) {
+				for (String conceptTerm : conceptTerms) {
+					conceptIds.addAll(getConceptIds(conceptTerm));
+				}
+			}
+		}
+
+		return getConcepts(conceptIds, conceptMap);
+	}
+
+	/**
+	 * Retrieve concepts by their ids, skipping unknown ones.
+	 */
+	private static List<Concept> getConcepts(Set<Integer> conceptIds, Map<Integer, Concept> conceptMap) {
+
+		List<Concept> concepts = new ArrayList<>();
+
+		for (Integer conceptId : conceptIds) {
+
+			Concept concept = conceptMap.get(conceptId);
+
+			if (concept != null) {
+				concepts.add(concept);
+			}
+		}
+
+		return concepts;
+	}
+}
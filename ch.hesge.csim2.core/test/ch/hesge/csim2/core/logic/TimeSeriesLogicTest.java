@@ -0,0 +1,118 @@
+package ch.hesge.csim2.core.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.hesge.csim2.core.model.Concept;
+import ch.hesge.csim2.core.model.TimeSeries;
+import ch.hesge.csim2.core.utils.SimpleMatrix;
+
+/**
+ * Check all segmentation paths (run-length, pyramid and filtered) against a
+ * dense step by step reference, on step counts not multiple of segment count.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+public class TimeSeriesLogicTest {
+
+	// Private constants
+	private static final int[][] TEST_CASES = { { 10, 3 }, { 7, 4 }, { 5, 8 }, { 1000, 7 }, { 4099, 64 }, { 65537, 1000 }, { 100003, 17 } };
+	private static final double[] THRESHOLDS = { 0d, 0.5d };
+
+	@Test
+	public void testRunLengthSegmentation() {
+
+		Random random = new Random(2014);
+
+		for (int[] testCase : TEST_CASES) {
+			for (double threshold : THRESHOLDS) {
+
+				TimeSeries timeSeries = TimeSeriesTestData.createTimeSeries(random, testCase[0], 6, 12, 5);
+				TimeSeries segmentedSeries = TimeSeriesLogic.getSegmentedTimeSeries(timeSeries, testCase[1], threshold);
+
+				assertSameSegmentation(timeSeries, testCase[1], threshold, segmentedSeries);
+			}
+		}
+	}
+
+	@Test
+	public void testPyramidSegmentation() {
+
+		Random random = new Random(2014);
+
+		for (int[] testCase : TEST_CASES) {
+			for (double threshold : THRESHOLDS) {
+
+				TimeSeries timeSeries = TimeSeriesTestData.createTimeSeries(random, testCase[0], 6, 12, 5);
+				TimeSeries segmentedSeries = TimeSeriesLogic.getSegmentedTimeSeries(TimeSeriesLogic.getTimeSeriesPyramid(timeSeries, threshold), testCase[1]);
+
+				assertSameSegmentation(timeSeries, testCase[1], threshold, segmentedSeries);
+			}
+		}
+	}
+
+	@Test
+	public void testFilteredSegmentation() {
+
+		Random random = new Random(2014);
+
+		for (int[] testCase : TEST_CASES) {
+			for (double threshold : THRESHOLDS) {
+
+				TimeSeries timeSeries = TimeSeriesTestData.createTimeSeries(random, testCase[0], 6, 12, 5);
+				TimeSeries segmentedSeries = TimeSeriesLogic.getFilteredTimeSeries(timeSeries, testCase[1], threshold, null);
+
+				assertSameSegmentation(timeSeries, testCase[1], threshold, segmentedSeries);
+			}
+		}
+	}
+
+	/**
+	 * Check a segmented time series has the occurrences of the dense
+	 * reference, for all concepts found in trace.
+	 */
+	private static void assertSameSegmentation(TimeSeries timeSeries, int segmentCount, double threshold, TimeSeries segmentedSeries) {
+
+		SimpleMatrix expectedMatrix = TimeSeriesTestData.getDenseSegmentedMatrix(timeSeries, segmentCount, threshold);
+		List<Concept> segmentedConcepts = segmentedSeries.getTraceConcepts();
+		String testCase = "steps: " + timeSeries.getStepCount() + ", segments: " + segmentCount + ", threshold: " + threshold;
+
+		for (int i = 0; i < timeSeries.getTraceConcepts().size(); i++) {
+
+			int conceptIndex = getConceptIndex(segmentedConcepts, timeSeries.getTraceConcepts().get(i));
+			double expectedOccurrences = 0d;
+
+			for (int j = 0; j < segmentCount; j++) {
+
+				double actualValue = conceptIndex == -1 ? 0d : segmentedSeries.getTraceMatrix().getValue(conceptIndex, j);
+				assertEquals(testCase + ", concept " + i + ", segment " + j, expectedMatrix.getValue(i, j), actualValue, 0d);
+
+				expectedOccurrences += expectedMatrix.getValue(i, j);
+			}
+
+			double actualOccurrences = conceptIndex == -1 ? 0d : segmentedSeries.getOccurrences().getValue(conceptIndex);
+			assertEquals(testCase + ", concept " + i + " occurrences", expectedOccurrences, actualOccurrences, 0d);
+		}
+	}
+
+	/**
+	 * Retrieve the position of a concept within a list, by its key id.
+	 */
+	private static int getConceptIndex(List<Concept> concepts, Concept concept) {
+
+		for (int i = 0; i < concepts.size(); i++) {
+			if (concepts.get(i).getKeyId() == concept.getKeyId()) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+}
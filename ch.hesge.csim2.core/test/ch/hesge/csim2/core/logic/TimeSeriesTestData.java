@@ -0,0 +1,133 @@
+package ch.hesge.csim2.core.logic;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ch.hesge.csim2.core.model.Concept;
+import ch.hesge.csim2.core.model.TimeSeries;
+import ch.hesge.csim2.core.utils.RunLengthMatrix;
+import ch.hesge.csim2.core.utils.SimpleMatrix;
+import ch.hesge.csim2.core.utils.SparseVector;
+
+/**
+ * Random time series and reference segmentation shared by time series tests
+ * and benchmarks.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+
+class TimeSeriesTestData {
+
+	/**
+	 * Create a random time series, made of runs of steps calling the same
+	 * method. The first method matches no concept.
+	 *
+	 * @param random
+	 *        the random generator to use
+	 * @param stepCount
+	 *        the number of steps of the time series
+	 * @param conceptCount
+	 *        the number of concepts found in trace
+	 * @param methodCount
+	 *        the number of distinct methods called
+	 * @param maxRunLength
+	 *        the maximum number of consecutive steps calling the same method
+	 * @return a new time series with its step matrix
+	 */
+	static TimeSeries createTimeSeries(Random random, int stepCount, int conceptCount, int methodCount, int maxRunLength) {
+
+		List<Concept> concepts = new ArrayList<>();
+
+		for (int i = 0; i < conceptCount; i++) {
+			Concept concept = new Concept();
+			concept.setKeyId(i + 1);
+			concept.setName("concept" + i);
+			concepts.add(concept);
+		}
+
+		List<SparseVector> methodColumns = new ArrayList<>();
+
+		for (int m = 0; m < methodCount; m++) {
+
+			SparseVector methodColumn = new SparseVector(conceptCount);
+
+			for (int i = 0; m > 0 && i < conceptCount; i++) {
+				if (random.nextInt(3) == 0) {
+					methodColumn.setValue(i, random.nextDouble());
+				}
+			}
+
+			methodColumns.add(methodColumn);
+		}
+
+		RunLengthMatrix stepMatrix = new RunLengthMatrix(conceptCount);
+
+		while (stepMatrix.getColumnDimension() < stepCount) {
+
+			SparseVector methodColumn = methodColumns.get(random.nextInt(methodCount));
+			int runLength = Math.min(1 + random.nextInt(maxRunLength), stepCount - stepMatrix.getColumnDimension());
+
+			for (int k = 0; k < runLength; k++) {
+				stepMatrix.appendColumn(methodColumn);
+			}
+		}
+
+		TimeSeries timeSeries = new TimeSeries();
+		timeSeries.setTraceConcepts(concepts);
+		timeSeries.setStepMatrix(stepMatrix);
+		timeSeries.setStepCount(stepCount);
+
+		return timeSeries;
+	}
+
+	/**
+	 * Segment a time series step by step, each step going to the segment
+	 * (stepNumber + 1) * segmentCount / stepCount rounded up, minus one.
+	 * Segment sizes are checked to differ by one step at most.
+	 *
+	 * @param timeSeries
+	 *        the time series to segment
+	 * @param segmentCount
+	 *        the total number of segment to generate
+	 * @param threshold
+	 *        the concept weight threshold to use to select concepts
+	 * @return the concept occurrences of each segment
+	 */
+	static SimpleMatrix getDenseSegmentedMatrix(TimeSeries timeSeries, int segmentCount, double threshold) {
+
+		RunLengthMatrix stepMatrix = timeSeries.getStepMatrix();
+		int stepCount = stepMatrix.getColumnDimension();
+		int[] segmentSizes = new int[segmentCount];
+
+		SimpleMatrix segmentedMatrix = new SimpleMatrix(stepMatrix.getRowDimension(), segmentCount);
+
+		for (int j = 0; j < stepCount; j++) {
+
+			int segmentNumber = (int) (((long) (j + 1) * segmentCount - 1) / stepCount);
+			segmentSizes[segmentNumber]++;
+
+			for (int i = 0; i < stepMatrix.getRowDimension(); i++) {
+				if (stepMatrix.getValue(i, j) >= threshold) {
+					segmentedMatrix.addValue(i, segmentNumber, 1d);
+				}
+			}
+		}
+
+		int minSize = Integer.MAX_VALUE;
+		int maxSize = 0;
+
+		for (int segmentSize : segmentSizes) {
+			minSize = Math.min(minSize, segmentSize);
+			maxSize = Math.max(maxSize, segmentSize);
+		}
+
+		assertTrue("unbalanced segments: " + minSize + " to " + maxSize + " steps", maxSize - minSize <= 1);
+
+		return segmentedMatrix;
+	}
+}
@@ -10,9 +10,19 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.cdt.core.dom.ast.ASTVisitor;
 import org.eclipse.cdt.core.dom.ast.IASTDeclSpecifier;
@@ -28,7 +38,6 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTSimpleDeclSpecifier;
 import org.eclipse.cdt.core.parser.FileContent;
 import org.eclipse.cdt.core.parser.IParserLogService;
 import org.eclipse.cdt.core.parser.IScannerInfo;
-import org.eclipse.cdt.core.parser.IncludeFileContentProvider;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTSimpleDeclaration;
 
 import ch.hesge.csim2.core.logic.ApplicationLogic;
@@ -37,6 +46,7 @@ import ch.hesge.csim2.core.model.IEngine;
 import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.model.SourceAttribute;
 import ch.hesge.csim2.core.model.SourceClass;
+import ch.hesge.csim2.core.model.SourceFile;
 import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.SourceReference;
 import ch.hesge.csim2.core.model.SourceVariable;
@@ -57,6 +67,19 @@ import ch.hesge.csim2.core.utils.StringUtils;
  * parameters
  * local variable declarations
  * 
+ * The content hash of all source and header files is saved with each
+ * analysis. Since a class may be declared in a header and implemented in
+ * several files, sources are always analyzed as a whole: in incremental
+ * mode, the analysis is skipped when no file has changed.
+ * 
+ * With parse-threads greater than 1, translation units are parsed
+ * concurrently, each worker collecting the declarations found in its own
+ * unit. These declarations are then merged into the parsed classes in the
+ * order files were found, applying the same rules as a sequential scan (the
+ * first class found wins, files already visited are skipped), so that the
+ * result does not depend on thread scheduling. Header contents are read once
+ * and shared by all translation units.
+ * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
  * @author Eric Harth
@@ -70,13 +93,19 @@ public class CppAnalyzer implements IEngine {
 
 	private Project project;
 	private Path sourceFolder;
+	private int parseThreads;
+	private boolean isIncremental;
 
 	private Map<String, String> visitedFiles;
 	private Map<String, SourceClass> parsedClasses;
+	private Map<String, SourceMethod> parsedMethods;
 
 	private IScannerInfo scannerInfo;
 	private IParserLogService logService;
-	private IncludeFileContentProvider fileProvider;
+	private Map<String, char[]> includeContents;
+
+	// Private constants
+	private static final int DEFAULT_PARSE_THREADS = 1;
 
 	/**
 	 * Default constructor
@@ -85,6 +114,8 @@ public class CppAnalyzer implements IEngine {
 		applicationLogic = ApplicationLogic.UNIQUE_INSTANCE;
 		visitedFiles = new HashMap<>();
 		parsedClasses = new HashMap<>();
+		parsedMethods = new HashMap<>();
+		includeContents = new ConcurrentHashMap<>();
 	}
 
 	/**
@@ -129,6 +160,8 @@ public class CppAnalyzer implements IEngine {
 
 		params.put("project", "project");
 		params.put("source-folder", "file");
+		params.put("parse-threads", "number");
+		params.put("incremental", "boolean");
 
 		return params;
 	}
@@ -188,6 +221,27 @@ public class CppAnalyzer implements IEngine {
 			if (!sourceFolder.toFile().exists()) {
 				throw new EngineException("folder '" + sourceFolder + "' doesn't not exist !");
 			}
+
+			// Retrieve number of threads parsing files
+			if (context.containsKey("parse-threads") && !context.getProperty("parse-threads").toString().trim().isEmpty()) {
+				parseThreads = Integer.parseInt(context.getProperty("parse-threads").toString().trim());
+			}
+			else {
+				parseThreads = DEFAULT_PARSE_THREADS;
+			}
+
+			if (parseThreads <= 0) {
+				throw new EngineException("invalid parse thread count specified !");
+			}
+
+			// Retrieve incremental mode
+			if (context.containsKey("incremental")) {
+				String incrementalParam = context.getProperty("incremental").toString();
+				isIncremental = incrementalParam.equalsIgnoreCase("true") || incrementalParam.equalsIgnoreCase("yes") || incrementalParam.equalsIgnoreCase("t") || incrementalParam.equalsIgnoreCase("y");
+			}
+			else {
+				isIncremental = false;
+			}
 			
 			context.setProperty("root-path", sourceFolder.toString());
 		}
@@ -209,11 +263,20 @@ public class CppAnalyzer implements IEngine {
 			// Initialization
 			visitedFiles.clear();
 			parsedClasses.clear();
+			parsedMethods.clear();
+			includeContents.clear();
+
+			// Retrieve all files with their content hash
+			List<SourceFile> analyzedFiles = getSourceFiles();
+
+			if (isIncremental && !hasChangedFiles(analyzedFiles)) {
+				Console.writeInfo(this, "no source file changed since previous analysis.");
+				return;
+			}
 
 			// Create parser services common to all files
-			logService   = CppAnalyzerUtils.createParserLogService();
-			fileProvider = CppAnalyzerUtils.createFileProvider();
-			scannerInfo  = CppAnalyzerUtils.createScannerInfo(context);
+			logService  = CppAnalyzerUtils.createParserLogService();
+			scannerInfo = CppAnalyzerUtils.createScannerInfo(context);
 
 			// Create & register the global class
 			SourceClass globalClass = CppAnalyzerUtils.createGlobalClass();
@@ -221,6 +284,8 @@ public class CppAnalyzer implements IEngine {
 
 			Console.writeInfo(this, "source scanning started.");
 
+			final List<String> sourceFiles = new ArrayList<>();
+
 			// Scan all folder recursively to discover source file
 			Files.walkFileTree(Paths.get(sourceFolder.toString()), new SimpleFileVisitor<Path>() {
 
@@ -230,42 +295,41 @@ public class CppAnalyzer implements IEngine {
 					// Retrieves file extension
 					String fileExtension = FileUtils.getFileExtension(filepath.toString());
 
-					// Parse source file only and analyse it
-					if (fileExtension.equalsIgnoreCase(".cpp") && canVisitFile(filepath.toString())) {
-
-						try {
-
-							// Keep track of all dependency files
-							Map<String, String> dependencyMap = new HashMap<>();
+					// Keep source file only
+					if (fileExtension.equalsIgnoreCase(".cpp") && isProjectFile(filepath.toString())) {
+						sourceFiles.add(filepath.toString());
+					}
 
-							// Extract metadata information from files
-							doScanFile(filepath.toString(), dependencyMap);
+					return FileVisitResult.CONTINUE;
+				}
+			});
 
-							// Mark file dependency as visited
-							for (String dependentFile : dependencyMap.keySet()) {
-								visitedFiles.put(dependentFile, dependentFile);
-							}
+			// Extract metadata information from files
+			if (parseThreads > 1) {
+				doScanFilesParallel(sourceFiles);
+			}
+			else {
+				for (String sourceFile : sourceFiles) {
+					try {
 
-							// Mark current file as visited
-							visitedFiles.put(filepath.toString(), filepath.toString());
-						}
-						catch (Exception e) {
-							Console.writeError(this, StringUtils.toString(e));
+						// Skip source files included by a previous file
+						if (canVisitFile(sourceFile)) {
+							mergeDeclarations(doScanFile(sourceFile));
 						}
 					}
-
-					return FileVisitResult.CONTINUE;
+					catch (Exception e) {
+						Console.writeError(this, StringUtils.toString(e));
+					}
 				}
-			});
+			}
 
 			// Trace end of operations
 			Console.writeInfo(this, "saving " + parsedClasses.size() + " classes found...");
 
 			// Updating project
-			applicationLogic.deleteSources(project);
 			project.getSourceClasses().clear();
 			project.getSourceClasses().addAll(parsedClasses.values());
-			applicationLogic.saveSourceClasses(project, project.getSourceClasses());
+			applicationLogic.saveSourceClasses(project, project.getSourceClasses(), analyzedFiles);
 		}
 		catch (Exception e) {
 			Console.writeError(this, "error while analyzing files: " + StringUtils.toString(e));
@@ -282,13 +346,71 @@ public class CppAnalyzer implements IEngine {
 	}
 
 	/**
-	 * Check if a file should be visited.
+	 * Retrieve all source and header files within the source folder, with
+	 * their content hash.
+	 * 
+	 * @return a list of SourceFile
+	 * @throws IOException
+	 */
+	private List<SourceFile> getSourceFiles() throws IOException {
+
+		final List<SourceFile> sourceFiles = new ArrayList<>();
+
+		Files.walkFileTree(Paths.get(sourceFolder.toString()), new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(Path filepath, BasicFileAttributes attrs) throws IOException {
+
+				String fileExtension = FileUtils.getFileExtension(filepath.toString());
+
+				if (fileExtension.equalsIgnoreCase(".cpp") || fileExtension.equalsIgnoreCase(".h") || fileExtension.equalsIgnoreCase(".hpp")) {
+					String filename = sourceFolder.relativize(filepath).toString();
+					sourceFiles.add(new SourceFile(filename, FileUtils.getContentHash(filepath)));
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		return sourceFiles;
+	}
+
+	/**
+	 * Check if files have changed since the previous analysis (content
+	 * modified, added or deleted).
+	 * 
+	 * @param sourceFiles
+	 *        the files currently present
+	 * @return true if at least one file has changed
+	 */
+	private boolean hasChangedFiles(List<SourceFile> sourceFiles) {
+
+		Map<String, SourceFile> previousFiles = applicationLogic.getSourceFileMap(project);
+
+		if (previousFiles.size() != sourceFiles.size()) {
+			return true;
+		}
+
+		for (SourceFile sourceFile : sourceFiles) {
+
+			SourceFile previousFile = previousFiles.get(sourceFile.getFilename());
+
+			if (previousFile == null || !sourceFile.getContentHash().equals(previousFile.getContentHash())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Check if a file belongs to the analyzed sources.
 	 * 
 	 * @param filepath
 	 *        the filepath to check
-	 * @return true if the file is not yet parsed, false otherwise
+	 * @return true if the file may be parsed, false otherwise
 	 */
-	private boolean canVisitFile(String filepath) {
+	private boolean isProjectFile(String filepath) {
 
 		// Reject file outside root folder
 		if (!filepath.startsWith(sourceFolder.toString())) {
@@ -300,6 +422,23 @@ public class CppAnalyzer implements IEngine {
 			return false;
 		}
 
+		return true;
+	}
+
+	/**
+	 * Check if a file should be visited.
+	 * 
+	 * @param filepath
+	 *        the filepath to check
+	 * @return true if the file is not yet parsed, false otherwise
+	 */
+	private boolean canVisitFile(String filepath) {
+
+		// Reject files outside project
+		if (!isProjectFile(filepath)) {
+			return false;
+		}
+
 		// Reject files already parsed
 		if (visitedFiles.containsKey(filepath)) {
 			return false;
@@ -308,11 +447,62 @@ public class CppAnalyzer implements IEngine {
 		return true;
 	}
 
+	/**
+	 * Analyze source files on a pool of threads, and merge declarations
+	 * found in the same order as files passed in argument.
+	 * 
+	 * @param sourceFiles
+	 *        the files to parse
+	 */
+	private void doScanFilesParallel(List<String> sourceFiles) {
+
+		ExecutorService parserPool = Executors.newFixedThreadPool(parseThreads);
+
+		try {
+
+			List<Future<ScannedFile>> scannedFiles = new ArrayList<>();
+
+			// Parse all files concurrently
+			for (final String sourceFile : sourceFiles) {
+				scannedFiles.add(parserPool.submit(new Callable<ScannedFile>() {
+					@Override
+					public ScannedFile call() throws Exception {
+						return doScanFile(sourceFile);
+					}
+				}));
+			}
+
+			// Merge declarations in file order
+			for (int i = 0; i < sourceFiles.size(); i++) {
+				try {
+
+					// Skip source files included by a previous file
+					if (canVisitFile(sourceFiles.get(i))) {
+						mergeDeclarations(scannedFiles.get(i).get());
+					}
+				}
+				catch (ExecutionException e) {
+					Console.writeError(this, StringUtils.toString(e.getCause()));
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Console.writeError(this, "source scanning interrupted: " + StringUtils.toString(e));
+		}
+		finally {
+			parserPool.shutdownNow();
+		}
+	}
+
 	/**
 	 * Analyze a single source file by scanning all its definition.
 	 * In one file, multiple definition can be defined in multiple sub files
 	 * (header or include).
 	 * 
+	 * Declarations found are not added to parsed classes but collected with
+	 * the file containing them, so that files may be scanned concurrently.
+	 * They are then merged through mergeDeclarations.
+	 * 
 	 * <pre>
 	 * See cpp cdt grammar in:
 	 * 		https://eclipse.googlesource.com/cdt/org.eclipse.cdt/+/v201106061419/lrparser/org.eclipse.cdt.core.lrparser/grammar/cpp/CPPGrammar.g 
@@ -322,15 +512,17 @@ public class CppAnalyzer implements IEngine {
 	 * 
 	 * @param filepath
 	 *        the file to parse
+	 * @return the declarations found in the file and its dependencies
 	 * @throws Exception
 	 */
-	private void doScanFile(final String filepath, final Map<String, String> dependencyMap) throws Exception {
+	private ScannedFile doScanFile(final String filepath) throws Exception {
 
 		String filename = Paths.get(filepath).getFileName().toString().toLowerCase();
+		final ScannedFile scannedFile = new ScannedFile(filepath);
 
 		// Retrieve source content and its associated translation unit
-		FileContent sourceFile = FileContent.createForExternalFileLocation(filepath);
-		final IASTTranslationUnit translationUnit = CppAnalyzerUtils.createTranslationUnit(sourceFile, scannerInfo, logService, fileProvider);
+		FileContent sourceFile = FileContent.createForExternalFileLocation(filepath, CppAnalyzerUtils.SOURCE_CHARSET.name());
+		final IASTTranslationUnit translationUnit = CppAnalyzerUtils.createTranslationUnit(sourceFile, scannerInfo, logService, CppAnalyzerUtils.createFileProvider(includeContents));
 
 		Console.writeDebug(this, "parsing file " + filename + ".");
 
@@ -349,16 +541,16 @@ public class CppAnalyzer implements IEngine {
 				// Retrieve file containing the declaration
 				String declaringFilename = declaration.getContainingFilename();
 
-				// Scan only files not yet visited
-				if (canVisitFile(declaringFilename)) {
+				// Scan only files within project
+				if (isProjectFile(declaringFilename)) {
 
-					// Mark containing file as parsed
-					dependencyMap.put(declaringFilename, declaringFilename);
+					// Keep track of containing file
+					scannedFile.dependencies.add(declaringFilename);
 
 					// Detect function definition (and its implementation)
 					if (declaration instanceof ICPPASTFunctionDefinition) {
 						ICPPASTFunctionDefinition functionDefinition = (ICPPASTFunctionDefinition) declaration;
-						doParseFunctionDefinition(functionDefinition);
+						doParseFunctionDefinition(functionDefinition, scannedFile);
 					}
 
 					// Detect class or variable declaration
@@ -371,13 +563,13 @@ public class CppAnalyzer implements IEngine {
 						// Detect variable declaration
 						if (specifier instanceof ICPPASTSimpleDeclSpecifier) {
 							ICPPASTSimpleDeclSpecifier variableDeclaration = (ICPPASTSimpleDeclSpecifier) specifier;
-							doParseVariableDeclaration(variableDeclaration, declarators);
+							doParseVariableDeclaration(variableDeclaration, declarators, scannedFile);
 						}
 
 						// Detect class/struct/union declaration
 						else if (specifier instanceof ICPPASTCompositeTypeSpecifier) {
 							ICPPASTCompositeTypeSpecifier classTypeSpecifier = (ICPPASTCompositeTypeSpecifier) specifier;
-							doParseClassDeclaration(classTypeSpecifier);
+							doParseClassDeclaration(classTypeSpecifier, scannedFile);
 						}
 					}
 				}
@@ -391,21 +583,23 @@ public class CppAnalyzer implements IEngine {
 				// Retrieve file containing the declaration
 				String declaratiingFile = expression.getContainingFilename();
 
-				// Scan only files not yet visited
-				if (canVisitFile(declaratiingFile)) {
+				// Scan only files within project
+				if (isProjectFile(declaratiingFile)) {
 
-					// Mark containing file as parsed
-					dependencyMap.put(declaratiingFile, declaratiingFile);
+					// Keep track of containing file
+					scannedFile.dependencies.add(declaratiingFile);
 
 					// Handle expression within function
 					if (!(expression.getParent() instanceof ICPPASTFunctionCallExpression)) {
-						doParseVariableReference(expression);
+						doParseVariableReference(expression, scannedFile);
 					}
 				}
 
 				return PROCESS_CONTINUE;
 			}
 		});
+
+		return scannedFile;
 	}
 
 	/**
@@ -413,23 +607,15 @@ public class CppAnalyzer implements IEngine {
 	 * 
 	 * @param declarationSpecifier
 	 *        the specifier to use
+	 * @param scannedFile
+	 *        the declarations of the file being scanned
 	 */
-	private void doParseClassDeclaration(ICPPASTCompositeTypeSpecifier declarationSpecifier) {
+	private void doParseClassDeclaration(ICPPASTCompositeTypeSpecifier declarationSpecifier, ScannedFile scannedFile) {
 
 		// Parse the class declaration
 		SourceClass sourceClass = CppAnalyzerUtils.createSourceClass(declarationSpecifier);
 
-		// Add class if not already parsed
-		if (!parsedClasses.containsKey(sourceClass.getName())) {
-
-			parsedClasses.put(sourceClass.getName(), sourceClass);
-
-			Console.writeDebug(this, "visiting " + sourceClass.getType() + " " + sourceClass.getName() + " in " + sourceClass.getFilename() + ".");
-
-			for (SourceAttribute sourceAttribute : sourceClass.getAttributes()) {
-				Console.writeDebug(this, "  attribute " + sourceAttribute.getType() + " " + sourceAttribute.getName() + ".");
-			}
-		}
+		scannedFile.declarations.add(new ParsedDeclaration(declarationSpecifier.getContainingFilename(), sourceClass.getName(), null, sourceClass));
 	}
 
 	/**
@@ -437,27 +623,18 @@ public class CppAnalyzer implements IEngine {
 	 * 
 	 * @param functionDefinition
 	 *        the definition to use
+	 * @param scannedFile
+	 *        the declarations of the file being scanned
 	 */
-	private void doParseFunctionDefinition(ICPPASTFunctionDefinition functionDefinition) {
+	private void doParseFunctionDefinition(ICPPASTFunctionDefinition functionDefinition, ScannedFile scannedFile) {
 
 		// Parse owning class name
 		String classname = CppAnalyzerUtils.getClassName(functionDefinition);
 
-		// Check if class is already parsed
-		if (parsedClasses.containsKey(classname)) {
-
-			// Retrieve the owning class
-			SourceClass sourceClass = parsedClasses.get(classname);
-
-			// Parse method declaration 
-			SourceMethod sourceMethod = CppAnalyzerUtils.createMethod(functionDefinition);
+		// Parse method declaration 
+		SourceMethod sourceMethod = CppAnalyzerUtils.createMethod(functionDefinition);
 
-			// Add method if not already parsed
-			if (!sourceClass.getMethods().contains(sourceMethod)) {
-				sourceClass.getMethods().add(sourceMethod);
-				Console.writeDebug(this, "visiting method " + sourceClass.getName() + "::" + sourceMethod.getSignature() + " in " + sourceMethod.getFilename() + ".");
-			}
-		}
+		scannedFile.declarations.add(new ParsedDeclaration(functionDefinition.getContainingFilename(), classname, sourceMethod.getSignature(), sourceMethod));
 	}
 
 	/**
@@ -468,33 +645,21 @@ public class CppAnalyzer implements IEngine {
 	 *        the specifier to use
 	 * @param declarators
 	 *        the declarator array
+	 * @param scannedFile
+	 *        the declarations of the file being scanned
 	 */
-	private void doParseVariableDeclaration(IASTDeclSpecifier specifier, IASTDeclarator[] declarators) {
+	private void doParseVariableDeclaration(IASTDeclSpecifier specifier, IASTDeclarator[] declarators, ScannedFile scannedFile) {
 
 		// Detect variables declared globally (not declared within a function)
 		if (specifier.getParent() instanceof IASTTranslationUnit) {
 
-			// Parse owning class name
-			String classname = CppAnalyzerUtils.getGlobalClassName();
-
-			// Check if class is already parsed
-			if (parsedClasses.containsKey(classname)) {
+			// Scan all declared attribute
+			for (IASTDeclarator declarator : declarators) {
 
-				// Retrieve the owning class
-				SourceClass sourceClass = parsedClasses.get(CppAnalyzerUtils.getGlobalClassName());
+				// Parse attribute declaration
+				SourceAttribute sourceAttribute = CppAnalyzerUtils.createAttribute(specifier, declarator);
 
-				// Scan all declared attribute
-				for (IASTDeclarator declarator : declarators) {
-
-					// Parse attribute declaration
-					SourceAttribute sourceAttribute = CppAnalyzerUtils.createAttribute(specifier, declarator);
-
-					// And add each one to its owning class
-					if (!sourceClass.getAttributes().contains(sourceAttribute)) {
-						sourceClass.getAttributes().add(sourceAttribute);
-						Console.writeDebug(this, "  global variable " + sourceAttribute.getType() + " " + sourceAttribute.getName());
-					}
-				}
+				scannedFile.declarations.add(new ParsedDeclaration(specifier.getContainingFilename(), CppAnalyzerUtils.getGlobalClassName(), null, sourceAttribute));
 			}
 		}
 
@@ -503,35 +668,17 @@ public class CppAnalyzer implements IEngine {
 
 			ICPPASTFunctionDefinition functionDefinition = (ICPPASTFunctionDefinition) specifier.getParent();
 
-			// Parse owning class name
+			// Parse owning class name & method signature
 			String classname = CppAnalyzerUtils.getClassName(functionDefinition);
+			String methodSignature = CppAnalyzerUtils.getMethodSignature(functionDefinition);
 
-			// Check if class is already parsed
-			if (parsedClasses.containsKey(classname)) {
+			// Scan all declared variable
+			for (IASTDeclarator declarator : declarators) {
 
-				// Retrieve the enclosing class
-				SourceClass sourceClass = parsedClasses.get(classname);
+				// Parse variables declaration
+				SourceVariable sourceVariable = CppAnalyzerUtils.createVariable(specifier, declarator);
 
-				// Retrieve the owning method
-				String methodSignature = CppAnalyzerUtils.getMethodSignature(functionDefinition);
-				SourceMethod sourceMethod = applicationLogic.getSourceMethodBySignature(sourceClass, methodSignature);
-
-				// Check if the owning method is already parsed
-				if (sourceMethod != null) {
-
-					// Scan all declared variable
-					for (IASTDeclarator declarator : declarators) {
-
-						// Parse variables declaration
-						SourceVariable sourceVariable = CppAnalyzerUtils.createVariable(specifier, declarator);
-
-						// And add each one to its owning method
-						if (!sourceMethod.getVariables().contains(sourceVariable)) {
-							sourceMethod.getVariables().add(sourceVariable);
-							Console.writeInfo(this, "  local variable " + sourceVariable.getType() + " " + sourceVariable.getName());
-						}
-					}
-				}
+				scannedFile.declarations.add(new ParsedDeclaration(specifier.getContainingFilename(), classname, methodSignature, sourceVariable));
 			}
 		}
 	}
@@ -539,9 +686,12 @@ public class CppAnalyzer implements IEngine {
 	/**
 	 * Parse an identifier contained in a function.
 	 * 
-	 * @param definition
+	 * @param expression
+	 *        the expression to use
+	 * @param scannedFile
+	 *        the declarations of the file being scanned
 	 */
-	private void doParseVariableReference(IASTExpression expression) {
+	private void doParseVariableReference(IASTExpression expression, ScannedFile scannedFile) {
 
 		// Skip method call expression and accept only identifier expression
 		if (!(expression.getParent() instanceof ICPPASTFunctionCallExpression) && expression instanceof IASTIdExpression) {
@@ -554,33 +704,238 @@ public class CppAnalyzer implements IEngine {
 			// Handle function references only within function
 			if (functionDefinition != null) {
 
-				// Retrieve the enclosing class
+				// Parse owning class name & method signature
 				String classname = CppAnalyzerUtils.getClassName(functionDefinition);
+				String methodSignature = CppAnalyzerUtils.getMethodSignature(functionDefinition);
 
-				// Check if class is already parsed
-				if (parsedClasses.containsKey(classname)) {
+				// Parse reference declaration
+				SourceReference sourceReference = CppAnalyzerUtils.createReference(identifierExpression);
 
-					// Retrieve the enclosing class
-					SourceClass sourceClass = parsedClasses.get(classname);
+				scannedFile.declarations.add(new ParsedDeclaration(expression.getContainingFilename(), classname, methodSignature, sourceReference));
+			}
+		}
+	}
 
-					// Retrieve the owning method
-					String methodSignature = CppAnalyzerUtils.getMethodSignature(functionDefinition);
-					SourceMethod sourceMethod = applicationLogic.getSourceMethodBySignature(sourceClass, methodSignature);
+	/**
+	 * Merge declarations found in a single file into all classes parsed.
+	 * Declarations contained in files already visited by a previous source
+	 * file are skipped.
+	 * 
+	 * @param scannedFile
+	 *        the declarations found in a file, in declaration order
+	 */
+	private void mergeDeclarations(ScannedFile scannedFile) {
 
-					// Check if the owning method is already parsed
-					if (sourceMethod != null) {
+		for (ParsedDeclaration declaration : scannedFile.declarations) {
 
-						// Parse reference declaration
-						SourceReference sourceReference = CppAnalyzerUtils.createReference(sourceClass, sourceMethod, identifierExpression);
+			// Skip declarations of files already visited
+			if (!canVisitFile(declaration.filename)) {
+				continue;
+			}
 
-						// And add each one to its owning method
-						if (!sourceMethod.getReferences().contains(sourceReference)) {
-							sourceMethod.getReferences().add(sourceReference);
-							Console.writeDebug(this, "  identifier " + sourceReference.getName() + ", type: " + sourceReference.getType() + ".");
-						}
-					}
+			if (declaration.element instanceof SourceClass) {
+				mergeClass((SourceClass) declaration.element);
+			}
+			else if (declaration.element instanceof SourceMethod) {
+				mergeMethod(declaration.classname, (SourceMethod) declaration.element);
+			}
+			else if (declaration.element instanceof SourceAttribute) {
+				mergeGlobalVariable((SourceAttribute) declaration.element);
+			}
+			else if (declaration.element instanceof SourceVariable) {
+				mergeLocalVariable(declaration.classname, declaration.methodSignature, (SourceVariable) declaration.element);
+			}
+			else if (declaration.element instanceof SourceReference) {
+				mergeReference(declaration.classname, declaration.methodSignature, (SourceReference) declaration.element);
+			}
+		}
+
+		// Mark file dependency as visited
+		for (String dependentFile : scannedFile.dependencies) {
+			visitedFiles.put(dependentFile, dependentFile);
+		}
+
+		// Mark current file as visited
+		visitedFiles.put(scannedFile.filepath, scannedFile.filepath);
+	}
+
+	/**
+	 * Add a class to parsed classes, if not already parsed.
+	 * 
+	 * @param sourceClass
+	 *        the class to add
+	 */
+	private void mergeClass(SourceClass sourceClass) {
+
+		// Add class if not already parsed
+		if (!parsedClasses.containsKey(sourceClass.getName())) {
+
+			parsedClasses.put(sourceClass.getName(), sourceClass);
+
+			Console.writeDebug(this, "visiting " + sourceClass.getType() + " " + sourceClass.getName() + " in " + sourceClass.getFilename() + ".");
+
+			for (SourceAttribute sourceAttribute : sourceClass.getAttributes()) {
+				Console.writeDebug(this, "  attribute " + sourceAttribute.getType() + " " + sourceAttribute.getName() + ".");
+			}
+		}
+	}
+
+	/**
+	 * Add a method to its owning class, if the class is already parsed.
+	 * 
+	 * @param classname
+	 *        the name of the owning class
+	 * @param sourceMethod
+	 *        the method to add
+	 */
+	private void mergeMethod(String classname, SourceMethod sourceMethod) {
+
+		// Retrieve the owning class
+		SourceClass sourceClass = parsedClasses.get(classname);
+
+		if (sourceClass != null) {
+
+			// Add method if not already parsed
+			if (!sourceClass.getMethods().contains(sourceMethod)) {
+
+				sourceClass.getMethods().add(sourceMethod);
+
+				// Index the first method found with a signature
+				String methodKey = CppAnalyzerUtils.getMethodKey(sourceClass, sourceMethod.getSignature());
+
+				if (!parsedMethods.containsKey(methodKey)) {
+					parsedMethods.put(methodKey, sourceMethod);
 				}
+
+				Console.writeDebug(this, "visiting method " + sourceClass.getName() + "::" + sourceMethod.getSignature() + " in " + sourceMethod.getFilename() + ".");
+			}
+		}
+	}
+
+	/**
+	 * Add a global variable as attribute of the global class.
+	 * 
+	 * @param sourceAttribute
+	 *        the attribute to add
+	 */
+	private void mergeGlobalVariable(SourceAttribute sourceAttribute) {
+
+		// Retrieve the global class
+		SourceClass sourceClass = parsedClasses.get(CppAnalyzerUtils.getGlobalClassName());
+
+		// And add the attribute to it
+		if (sourceClass != null && !sourceClass.getAttributes().contains(sourceAttribute)) {
+			sourceClass.getAttributes().add(sourceAttribute);
+			Console.writeDebug(this, "  global variable " + sourceAttribute.getType() + " " + sourceAttribute.getName());
+		}
+	}
+
+	/**
+	 * Add a local variable to its owning method, if the method is already
+	 * parsed.
+	 * 
+	 * @param classname
+	 *        the name of the class owning the method
+	 * @param methodSignature
+	 *        the signature of the owning method
+	 * @param sourceVariable
+	 *        the variable to add
+	 */
+	private void mergeLocalVariable(String classname, String methodSignature, SourceVariable sourceVariable) {
+
+		// Retrieve the owning method
+		SourceMethod sourceMethod = getParsedMethod(classname, methodSignature);
+
+		// And add the variable to it
+		if (sourceMethod != null && !sourceMethod.getVariables().contains(sourceVariable)) {
+			sourceMethod.getVariables().add(sourceVariable);
+			Console.writeInfo(this, "  local variable " + sourceVariable.getType() + " " + sourceVariable.getName());
+		}
+	}
+
+	/**
+	 * Add a reference to its owning method, if the method is already parsed.
+	 * Reference origin is resolved against the class and method it belongs
+	 * to.
+	 * 
+	 * @param classname
+	 *        the name of the class owning the method
+	 * @param methodSignature
+	 *        the signature of the owning method
+	 * @param sourceReference
+	 *        the reference to add
+	 */
+	private void mergeReference(String classname, String methodSignature, SourceReference sourceReference) {
+
+		// Retrieve the owning method
+		SourceMethod sourceMethod = getParsedMethod(classname, methodSignature);
+
+		if (sourceMethod != null) {
+
+			// Resolve reference origin
+			CppAnalyzerUtils.resolveReferenceOrigin(parsedClasses.get(classname), sourceMethod, sourceReference);
+
+			// And add it to its owning method
+			if (!sourceMethod.getReferences().contains(sourceReference)) {
+				sourceMethod.getReferences().add(sourceReference);
+				Console.writeDebug(this, "  identifier " + sourceReference.getName() + ", type: " + sourceReference.getType() + ".");
 			}
 		}
 	}
+
+	/**
+	 * Retrieve a method already parsed by its class and its signature.
+	 * 
+	 * @param classname
+	 *        the name of the owning class
+	 * @param methodSignature
+	 *        the method signature
+	 * @return the source method or null
+	 */
+	private SourceMethod getParsedMethod(String classname, String methodSignature) {
+
+		SourceClass sourceClass = parsedClasses.get(classname);
+
+		if (sourceClass != null) {
+			return parsedMethods.get(CppAnalyzerUtils.getMethodKey(sourceClass, methodSignature));
+		}
+
+		return null;
+	}
+
+	/**
+	 * Declarations found while scanning a source file, with all project files
+	 * it depends on.
+	 */
+	private static class ScannedFile {
+
+		private String					filepath;
+		private List<ParsedDeclaration>	declarations;
+		private Set<String>				dependencies;
+
+		public ScannedFile(String filepath) {
+			this.filepath = filepath;
+			this.declarations = new ArrayList<>();
+			this.dependencies = new LinkedHashSet<>();
+		}
+	}
+
+	/**
+	 * A class, method, global variable, local variable or reference found in
+	 * a translation unit, with the file containing it and its owner.
+	 */
+	private static class ParsedDeclaration {
+
+		private String	filename;
+		private String	classname;
+		private String	methodSignature;
+		private Object	element;
+
+		public ParsedDeclaration(String filename, String classname, String methodSignature, Object element) {
+			this.filename = filename;
+			this.classname = classname;
+			this.methodSignature = methodSignature;
+			this.element = element;
+		}
+	}
 }
@@ -1,5 +1,10 @@
 package ch.hesge.csim2.engine;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,6 +41,7 @@ import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTSimpleDeclaration;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPBaseClause;
 import org.eclipse.cdt.internal.core.model.ASTStringUtil;
 import org.eclipse.cdt.internal.core.parser.IMacroDictionary;
+import org.eclipse.cdt.internal.core.parser.scanner.CharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent;
 import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContentProvider;
 import org.eclipse.core.runtime.CoreException;
@@ -55,6 +61,9 @@ import ch.hesge.csim2.core.utils.StringUtils;
  */
 public class CppAnalyzerUtils {
 
+	// Public constants
+	public static final Charset SOURCE_CHARSET = StandardCharsets.ISO_8859_1;
+
 	/**
 	 * Create a parser for the file passed in argument.
 	 * 
@@ -87,29 +96,56 @@ public class CppAnalyzerUtils {
 	 * Create a parser include file provider to use will building
 	 * IASTTranslationUnit.
 	 * 
+	 * Included files are read once, in SOURCE_CHARSET as source files, and
+	 * their content is kept in the cache passed in argument, which may be
+	 * shared by providers of several translation units parsed concurrently.
+	 * 
+	 * Only the raw content is shared, keyed by normalized path, and each
+	 * translation unit still preprocesses and parses it. Sharing the parsed
+	 * content instead (keyed by path and macro state) is not feasible with
+	 * CDT outside a workspace: the only way for the scanner to skip an
+	 * inclusion while keeping its effects is InclusionKind.FOUND_IN_INDEX,
+	 * which takes its macros and declarations from IIndexFile entries of a
+	 * CDT index (PDOM). Besides, declarations of skipped headers would no
+	 * longer be part of the AST, whereas they are collected by the visitor
+	 * of each translation unit.
+	 * 
+	 * A provider keeps track of files already included (pragma once) and
+	 * should be used for a single translation unit.
+	 * 
+	 * @param contentCache
+	 *        a thread-safe map of (filepath, content) shared by providers
 	 * @return a content provider
 	 */
-	public static IncludeFileContentProvider createFileProvider() {
+	public static IncludeFileContentProvider createFileProvider(final Map<String, char[]> contentCache) {
 		return new InternalFileContentProvider() {
-			private Map<String, InternalFileContent> cache = new HashMap<>();
 
 			@Override
 			public InternalFileContent getContentForInclusion(String path, IMacroDictionary macroDictionary) {
 
-				InternalFileContent fileContent = null;
-				String filename = Paths.get(path).getFileName().toString();
+				Path filepath = Paths.get(path).toAbsolutePath().normalize();
+				String cacheKey = filepath.toString();
 
 				// Check if file is already loaded in cache
-				if (cache.containsKey(filename)) {
-					fileContent = cache.get(filename);
-				}
+				char[] content = contentCache.get(cacheKey);
 
 				// Load file content
-				else {
-					fileContent = (InternalFileContent) InternalFileContent.createForExternalFileLocation(path);
+				if (content == null) {
+
+					if (!Files.isRegularFile(filepath)) {
+						return null;
+					}
+
+					try {
+						content = new String(Files.readAllBytes(filepath), SOURCE_CHARSET).toCharArray();
+						contentCache.put(cacheKey, content);
+					}
+					catch (IOException e) {
+						return null;
+					}
 				}
 
-				return fileContent;
+				return new InternalFileContent(path, new CharArray(content));
 			}
 
 			@Override
@@ -331,30 +367,51 @@ public class CppAnalyzerUtils {
 	}
 
 	/**
-	 * Create a source reference from a identifier expression.
+	 * Create a source reference from a identifier expression. Its type is
+	 * resolved from the expression and its origin is unknown until resolved
+	 * against its owning class and method.
 	 * 
-	 * @param declaration
-	 *        the local type declaration
-	 * @param declarator
-	 *        the local variable declarator
+	 * @param expression
+	 *        the identifier expression
 	 * @return a source reference
 	 */
-	public static SourceReference createReference(SourceClass sourceClass, SourceMethod sourceMethod, IASTIdExpression expression) {
+	public static SourceReference createReference(IASTIdExpression expression) {
 
-		SourceReference sourceReference = null;
+		String expressionName = CppAnalyzerUtils.filterTypeName(ASTStringUtil.getSimpleName(expression.getName()));
+		String expressionType = CppAnalyzerUtils.getExpressionType(expression);
 
-		if (sourceClass != null && sourceMethod != null) {
+		SourceReference sourceReference = new SourceReference();
+		sourceReference.setName(expressionName);
+		sourceReference.setType(expressionType);
+		sourceReference.setOrigin(SourceReferenceOrigin.UNKOWN_ORIGIN);
 
-			String expressionName = CppAnalyzerUtils.filterTypeName(ASTStringUtil.getSimpleName(expression.getName()));
+		return sourceReference;
+	}
 
+	/**
+	 * Resolve the origin of a reference (class attribute, method parameter or
+	 * local variable). When found, the reference type is the one of its
+	 * declaration.
+	 * 
+	 * @param sourceClass
+	 *        the class owning the method
+	 * @param sourceMethod
+	 *        the method containing the reference
+	 * @param sourceReference
+	 *        the reference to resolve
+	 */
+	public static void resolveReferenceOrigin(SourceClass sourceClass, SourceMethod sourceMethod, SourceReference sourceReference) {
+
+		if (sourceClass != null && sourceMethod != null) {
+
+			String expressionName = sourceReference.getName();
 			SourceReferenceOrigin expressionOrigin = SourceReferenceOrigin.UNKOWN_ORIGIN;
-			String expressionType = null;
-			
+
 			// Check if reference is a class attribute
 			for (SourceAttribute attribute : sourceClass.getAttributes()) {
 				if (attribute.getName().equals(expressionName)) {
 					expressionOrigin = SourceReferenceOrigin.CLASS_FIELD;
-					expressionType   = attribute.getType();
+					sourceReference.setType(attribute.getType());
 					break;
 				}
 			}
@@ -365,7 +422,7 @@ public class CppAnalyzerUtils {
 				for (SourceParameter param : sourceMethod.getParameters()) {
 					if (param.getName().equals(expressionName)) {
 						expressionOrigin = SourceReferenceOrigin.METHOD_PARAMETER;
-						expressionType   = param.getType();
+						sourceReference.setType(param.getType());
 						break;
 					}
 				}
@@ -377,24 +434,14 @@ public class CppAnalyzerUtils {
 				for (SourceVariable var : sourceMethod.getVariables()) {
 					if (var.getName().equals(expressionName)) {
 						expressionOrigin = SourceReferenceOrigin.LOCAL_VARIABLE;
-						expressionType   = var.getType();
+						sourceReference.setType(var.getType());
 						break;
 					}
 				}
 			}
 
-			// Resolve expression type, if not found
-			if (expressionType == null) {
-				expressionType = CppAnalyzerUtils.getExpressionType(expression);
-			}
-
-			sourceReference = new SourceReference();
-			sourceReference.setName(expressionName);
-			sourceReference.setType(expressionType);
 			sourceReference.setOrigin(expressionOrigin);
 		}
-
-		return sourceReference;
 	}
 
 	/**
@@ -445,6 +492,19 @@ public class CppAnalyzerUtils {
 		return classname;
 	}
 
+	/**
+	 * Build the key of a method within the index of parsed methods.
+	 * 
+	 * @param sourceClass
+	 *        the class owning the method
+	 * @param signature
+	 *        the method signature
+	 * @return the key of the method
+	 */
+	public static String getMethodKey(SourceClass sourceClass, String signature) {
+		return sourceClass.getName() + "." + signature;
+	}
+
 	/**
 	 * Retrieve the method name without parameter or return type.
 	 * 
@@ -54,8 +54,12 @@ void TraceLogger::Trace(char* szTraceType, char* szStaticPackageName, char* szSt
 	// Open trace file
     if (iFileSessionTracker > 0)
 		fopen_s(&fStream, szTraceFilename, "a+");
-    else 
+    else {
 		fopen_s(&fStream, szTraceFilename, "w");
+
+		// Timestamps are in seconds (time function)
+		fprintf(fStream, "#clock seconds\n");
+	}
     
 	char* szInternalTraceType = (strcmp(szTraceType, "ENTER") == 0 ? "" : "END ");
 
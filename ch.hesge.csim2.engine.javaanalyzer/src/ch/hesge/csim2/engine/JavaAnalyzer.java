@@ -10,10 +10,19 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.compiler.IProblem;
@@ -45,6 +54,7 @@ import ch.hesge.csim2.core.model.IEngine;
 import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.model.SourceAttribute;
 import ch.hesge.csim2.core.model.SourceClass;
+import ch.hesge.csim2.core.model.SourceFile;
 import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.SourceReference;
 import ch.hesge.csim2.core.model.SourceVariable;
@@ -75,6 +85,19 @@ import ch.hesge.csim2.core.utils.StringUtils;
  * DELETE FROM source_parameters WHERE method_id in (SELECT key_id FROM source_methods WHERE class_id in (SELECT key_id FROM source_classes WHERE project_id = 6));
  * DELETE FROM source_methods WHERE class_id in (SELECT key_id FROM source_classes WHERE project_id = 6);
  * DELETE FROM source_classes WHERE project_id = 6;
+ * 
+ * With parse-threads greater than 1, files are parsed concurrently, each
+ * one into its own set of classes. These sets are then merged in the order
+ * files were found, so that the result does not depend on thread
+ * scheduling: when several classes have the same name, the first one found
+ * is kept and methods of the others are merged into it.
+ * 
+ * In incremental mode, only files whose content hash differs from the one
+ * saved by the previous analysis are parsed again. Since a class may be
+ * declared by several files, unchanged files declaring a class also
+ * declared by a file changed or deleted are parsed again too, and all files
+ * parsed are merged in the same order as a full analysis. Classes of other
+ * unchanged files are kept with their stems.
 
  * Copyright HEG Geneva 2014, Switzerland
  * 
@@ -89,9 +112,15 @@ public class JavaAnalyzer implements IEngine {
 
 	private Project project;
 	private Path sourceFolder;
+	private int parseThreads;
+	private boolean isIncremental;
 
 	private Map<String, String> visitedFiles;
 	private Map<String, SourceClass> parsedClasses;
+	private Map<String, SourceMethod> parsedMethods;
+
+	// Private constants
+	private static final int DEFAULT_PARSE_THREADS = 1;
 
 	/**
 	 * Default constructor.
@@ -100,6 +129,7 @@ public class JavaAnalyzer implements IEngine {
 		applicationLogic = ApplicationLogic.UNIQUE_INSTANCE;
 		visitedFiles  = new HashMap<>();
 		parsedClasses = new HashMap<>();
+		parsedMethods = new HashMap<>();
 	}
 
 	/**
@@ -144,6 +174,8 @@ public class JavaAnalyzer implements IEngine {
 
 		params.put("project", "project");
 		params.put("source-folder", "file");
+		params.put("parse-threads", "number");
+		params.put("incremental", "boolean");
 
 		return params;
 	}
@@ -203,6 +235,27 @@ public class JavaAnalyzer implements IEngine {
 			if (!sourceFolder.toFile().exists()) {
 				throw new EngineException("folder '" + sourceFolder + "' doesn't not exist !");
 			}
+
+			// Retrieve number of threads parsing files
+			if (context.containsKey("parse-threads") && !context.getProperty("parse-threads").toString().trim().isEmpty()) {
+				parseThreads = Integer.parseInt(context.getProperty("parse-threads").toString().trim());
+			}
+			else {
+				parseThreads = DEFAULT_PARSE_THREADS;
+			}
+
+			if (parseThreads <= 0) {
+				throw new EngineException("invalid parse thread count specified !");
+			}
+
+			// Retrieve incremental mode
+			if (context.containsKey("incremental")) {
+				String incrementalParam = context.getProperty("incremental").toString();
+				isIncremental = incrementalParam.equalsIgnoreCase("true") || incrementalParam.equalsIgnoreCase("yes") || incrementalParam.equalsIgnoreCase("t") || incrementalParam.equalsIgnoreCase("y");
+			}
+			else {
+				isIncremental = false;
+			}
 		}
 		catch (Exception e) {
 			Console.writeError(this, "error while instrumenting files: " + StringUtils.toString(e));
@@ -222,9 +275,12 @@ public class JavaAnalyzer implements IEngine {
 			// Initialization
 			visitedFiles.clear();
 			parsedClasses.clear();
+			parsedMethods.clear();
 
 			Console.writeInfo(this, "source scanning started.");
 
+			final List<String> sourceFiles = new ArrayList<>();
+
 			// Scan all folder recursively to discover source file
 			Files.walkFileTree(Paths.get(sourceFolder.toString()), new SimpleFileVisitor<Path>() {
 
@@ -234,34 +290,109 @@ public class JavaAnalyzer implements IEngine {
 					// Retrieves file extension
 					String fileExtension = FileUtils.getFileExtension(filepath.toString());
 
-					// Parse source file only and analyse it
+					// Keep source file only
 					if (fileExtension.equalsIgnoreCase(".java") && canVisitFile(filepath.toString())) {
 
-						try {
+						sourceFiles.add(filepath.toString());
 
-							// Extract metadata information from file
-							doScanFile(filepath.toString());
-
-							// Mark current file as visited
-							visitedFiles.put(filepath.toString(), filepath.toString());
-						}
-						catch (Exception e) {
-							Console.writeError(this, StringUtils.toString(e));
-						}
+						// Mark current file as visited
+						visitedFiles.put(filepath.toString(), filepath.toString());
 					}
 
 					return FileVisitResult.CONTINUE;
 				}
 			});
 
+			// Retrieve file hashes saved by previous analysis
+			Map<String, SourceFile> previousFiles = isIncremental ? applicationLogic.getSourceFileMap(project) : new HashMap<String, SourceFile>();
+			boolean isFullAnalysis = !isIncremental;
+
+			// Files saved without class names cannot tell which files share their classes
+			for (SourceFile previousFile : previousFiles.values()) {
+				if (previousFile.getClassNames() == null) {
+					isFullAnalysis = true;
+					break;
+				}
+			}
+
+			if (isIncremental && isFullAnalysis) {
+				Console.writeInfo(this, "class names not recorded by previous analysis, all files will be parsed.");
+				previousFiles.clear();
+			}
+
+			List<SourceFile> analyzedFiles = new ArrayList<>();
+			Map<String, SourceFile> changedFiles = new LinkedHashMap<>();
+			Map<String, SourceFile> unchangedFiles = new LinkedHashMap<>();
+
+			// Select files changed since previous analysis
+			for (String sourceFile : sourceFiles) {
+
+				String filename = sourceFolder.relativize(Paths.get(sourceFile)).toString();
+				SourceFile analyzedFile = new SourceFile(filename, FileUtils.getContentHash(Paths.get(sourceFile)));
+				SourceFile previousFile = previousFiles.get(filename);
+
+				analyzedFiles.add(analyzedFile);
+
+				if (previousFile == null || !analyzedFile.getContentHash().equals(previousFile.getContentHash())) {
+					changedFiles.put(sourceFile, analyzedFile);
+				}
+				else {
+					analyzedFile.getClassNames().addAll(previousFile.getClassNames());
+					unchangedFiles.put(sourceFile, analyzedFile);
+					previousFiles.remove(filename);
+				}
+			}
+
+			// Retrieve classes declared by files changed or deleted, before analysis
+			Set<String> classNames = new HashSet<>();
+
+			for (SourceFile previousFile : previousFiles.values()) {
+				classNames.addAll(previousFile.getClassNames());
+			}
+
+			Console.writeInfo(this, changedFiles.size() + " of " + analyzedFiles.size() + " files to parse.");
+
+			Map<String, Map<String, SourceClass>> scannedFiles = new HashMap<>();
+			Map<String, SourceFile> filesToScan = changedFiles;
+
+			// Extract metadata information from files, and from unchanged
+			// files sharing a class with them, until no more file is involved
+			while (!filesToScan.isEmpty()) {
+
+				scannedFiles.putAll(doScanFiles(filesToScan));
+
+				for (String sourceFile : filesToScan.keySet()) {
+					classNames.addAll(filesToScan.get(sourceFile).getClassNames());
+					unchangedFiles.remove(sourceFile);
+				}
+
+				filesToScan = getSharingFiles(unchangedFiles, classNames);
+
+				if (!filesToScan.isEmpty()) {
+					Console.writeInfo(this, filesToScan.size() + " unchanged files to parse, sharing classes with files changed.");
+				}
+			}
+
+			// Merge classes in file order, as a full analysis
+			for (String sourceFile : sourceFiles) {
+				if (scannedFiles.containsKey(sourceFile)) {
+					mergeClasses(scannedFiles.get(sourceFile));
+				}
+			}
+
 			// Trace end of operations
 			Console.writeInfo(this, "saving " + parsedClasses.size() + " classes found...");
 
 			// Updating project
-			applicationLogic.deleteSources(project);
 			project.getSourceClasses().clear();
 			project.getSourceClasses().addAll(parsedClasses.values());
-			applicationLogic.saveSourceClasses(project, project.getSourceClasses());
+
+			if (!isFullAnalysis) {
+				applicationLogic.updateSourceClasses(project, analyzedFiles, project.getSourceClasses());
+			}
+			else {
+				applicationLogic.saveSourceClasses(project, project.getSourceClasses(), analyzedFiles);
+			}
 		}
 		catch (IOException e) {
 			Console.writeError(this, "error while analyzing files: " + StringUtils.toString(e));
@@ -300,13 +431,185 @@ public class JavaAnalyzer implements IEngine {
 	}
 
 	/**
-	 * Analyzing a single source file
+	 * Retrieve all unchanged files declaring at least one class among those
+	 * passed in argument.
+	 * 
+	 * @param unchangedFiles
+	 *        the unchanged files not parsed yet, with their SourceFile
+	 * @param classNames
+	 *        the class names declared by files parsed, changed or deleted
+	 * @return the files to parse, with their SourceFile
+	 */
+	private Map<String, SourceFile> getSharingFiles(Map<String, SourceFile> unchangedFiles, Set<String> classNames) {
+
+		Map<String, SourceFile> sharingFiles = new LinkedHashMap<>();
+
+		for (Map.Entry<String, SourceFile> unchangedFile : unchangedFiles.entrySet()) {
+			for (String className : unchangedFile.getValue().getClassNames()) {
+				if (classNames.contains(className)) {
+					sharingFiles.put(unchangedFile.getKey(), unchangedFile.getValue());
+					break;
+				}
+			}
+		}
+
+		return sharingFiles;
+	}
+
+	/**
+	 * Analyze source files, on a pool of threads if required, and record
+	 * the names of the classes declared by each file.
+	 * 
+	 * @param sourceFiles
+	 *        the files to parse, with their SourceFile
+	 * @return a map of (filepath, classes found in file), for files parsed
+	 *         without error
+	 */
+	private Map<String, Map<String, SourceClass>> doScanFiles(Map<String, SourceFile> sourceFiles) {
+
+		Map<String, Map<String, SourceClass>> scannedFiles = new HashMap<>();
+
+		if (parseThreads > 1) {
+			scannedFiles = doScanFilesParallel(sourceFiles);
+		}
+		else {
+			for (String sourceFile : sourceFiles.keySet()) {
+				try {
+					scannedFiles.put(sourceFile, doScanFile(sourceFile, sourceFiles.get(sourceFile)));
+				}
+				catch (Exception e) {
+					Console.writeError(this, StringUtils.toString(e));
+				}
+			}
+		}
+
+		// Record classes declared by each file
+		for (String sourceFile : scannedFiles.keySet()) {
+
+			List<String> classNames = sourceFiles.get(sourceFile).getClassNames();
+			classNames.clear();
+
+			for (SourceClass sourceClass : scannedFiles.get(sourceFile).values()) {
+				classNames.add(sourceClass.getName());
+			}
+		}
+
+		return scannedFiles;
+	}
+
+	/**
+	 * Analyze source files on a pool of threads.
+	 * 
+	 * @param sourceFiles
+	 *        the files to parse, with their SourceFile
+	 * @return a map of (filepath, classes found in file), for files parsed
+	 *         without error
+	 */
+	private Map<String, Map<String, SourceClass>> doScanFilesParallel(Map<String, SourceFile> sourceFiles) {
+
+		Map<String, Map<String, SourceClass>> scannedFiles = new HashMap<>();
+		ExecutorService parserPool = Executors.newFixedThreadPool(parseThreads);
+
+		try {
+
+			Map<String, Future<Map<String, SourceClass>>> parsedFiles = new LinkedHashMap<>();
+
+			// Parse all files concurrently
+			for (final Map.Entry<String, SourceFile> sourceFile : sourceFiles.entrySet()) {
+				parsedFiles.put(sourceFile.getKey(), parserPool.submit(new Callable<Map<String, SourceClass>>() {
+					@Override
+					public Map<String, SourceClass> call() throws Exception {
+						return doScanFile(sourceFile.getKey(), sourceFile.getValue());
+					}
+				}));
+			}
+
+			// Wait for all files
+			for (Map.Entry<String, Future<Map<String, SourceClass>>> parsedFile : parsedFiles.entrySet()) {
+				try {
+					scannedFiles.put(parsedFile.getKey(), parsedFile.getValue().get());
+				}
+				catch (ExecutionException e) {
+					Console.writeError(this, StringUtils.toString(e.getCause()));
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Console.writeError(this, "source scanning interrupted: " + StringUtils.toString(e));
+		}
+		finally {
+			parserPool.shutdownNow();
+		}
+
+		return scannedFiles;
+	}
+
+	/**
+	 * Merge classes found in a single file into all classes parsed. A class
+	 * whose name is already known is not added, but its methods are merged
+	 * into the class already parsed.
+	 * 
+	 * @param fileClasses
+	 *        the classes found in a file, in declaration order
+	 */
+	private void mergeClasses(Map<String, SourceClass> fileClasses) {
+
+		for (SourceClass sourceClass : fileClasses.values()) {
+
+			SourceClass parsedClass = parsedClasses.get(sourceClass.getName());
+
+			// Add class if not already parsed
+			if (parsedClass == null) {
+
+				parsedClasses.put(sourceClass.getName(), sourceClass);
+
+				for (SourceMethod sourceMethod : sourceClass.getMethods()) {
+					parsedMethods.put(JavaAnalyzerUtils.getMethodKey(sourceClass, sourceMethod.getSignature()), sourceMethod);
+				}
+
+				continue;
+			}
+
+			// Otherwise merge its methods into the class already parsed
+			for (SourceMethod sourceMethod : sourceClass.getMethods()) {
+
+				String methodKey = JavaAnalyzerUtils.getMethodKey(parsedClass, sourceMethod.getSignature());
+				SourceMethod parsedMethod = parsedMethods.get(methodKey);
+
+				if (parsedMethod == null) {
+					sourceMethod.setSourceClass(parsedClass);
+					parsedClass.getMethods().add(sourceMethod);
+					parsedMethods.put(methodKey, sourceMethod);
+				}
+				else {
+
+					for (SourceVariable sourceVariable : sourceMethod.getVariables()) {
+						if (!parsedMethod.getVariables().contains(sourceVariable)) {
+							parsedMethod.getVariables().add(sourceVariable);
+						}
+					}
+
+					parsedMethod.getReferences().addAll(sourceMethod.getReferences());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Analyzing a single source file. This method may be called concurrently
+	 * for different files, since it only updates classes of the file.
 	 * 
 	 * @param filepath
 	 *        the file to parse
+	 * @param sourceFile
+	 *        the file, as saved with its classes
+	 * @return the classes found in the file, in declaration order
 	 * @throws Exception
 	 */
-	private void doScanFile(final String filepath) throws Exception {
+	private Map<String, SourceClass> doScanFile(final String filepath, final SourceFile sourceFile) throws Exception {
+
+		final Map<String, SourceClass> fileClasses = new LinkedHashMap<>();
+		final Map<String, SourceMethod> fileMethods = new HashMap<>();
 
 		final String filename = Paths.get(filepath).getFileName().toString().toLowerCase();
 
@@ -343,13 +646,14 @@ public class JavaAnalyzer implements IEngine {
 				String classname = declaration.getName().getIdentifier();
 
 				// Add class if not already parsed
-				if (!parsedClasses.containsKey(classname)) {
+				if (!fileClasses.containsKey(classname)) {
 
 					// Parse class declaration
 					SourceClass sourceClass = JavaAnalyzerUtils.createSourceClass(declaration);
 					sourceClass.setFilename(filename);
+					sourceClass.setSourceFile(sourceFile);
 
-					parsedClasses.put(classname, sourceClass);
+					fileClasses.put(classname, sourceClass);
 
 					Console.writeDebug(this, "visiting " + sourceClass.getType() + " " + sourceClass.getName() + " in " + sourceClass.getFilename() + ".");
 
@@ -365,7 +669,7 @@ public class JavaAnalyzer implements IEngine {
 			public boolean visit(MethodDeclaration declaration) {
 
 				// Retrieve enclosing class
-				SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(declaration, parsedClasses);
+				SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(declaration, fileClasses);
 						
 				if (sourceClass != null) {
 					
@@ -377,6 +681,7 @@ public class JavaAnalyzer implements IEngine {
 						
 						sourceMethod.setFilename(filename);
 						sourceClass.getMethods().add(sourceMethod);
+						fileMethods.put(JavaAnalyzerUtils.getMethodKey(sourceClass, sourceMethod.getSignature()), sourceMethod);
 						
 						Console.writeDebug(this, "  method " + sourceMethod.getReturnType() + " " + sourceClass.getName() + "::" + sourceMethod.getSignature());
 					}
@@ -389,8 +694,8 @@ public class JavaAnalyzer implements IEngine {
 			public boolean visit(VariableDeclarationStatement declaration) {
 
 				// Retrieve enclosing class and method
-				SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(declaration, parsedClasses);
-				SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(declaration,  parsedClasses);
+				SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(declaration, fileClasses);
+				SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(declaration,  fileClasses, fileMethods);
 						
 				if (sourceClass != null && sourceMethod != null) {
 
@@ -417,8 +722,8 @@ public class JavaAnalyzer implements IEngine {
 			public boolean visit(VariableDeclarationExpression expression) {
 
 				// Retrieve enclosing class and method
-				SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(expression, parsedClasses);
-				SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(expression,  parsedClasses);
+				SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(expression, fileClasses);
+				SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(expression,  fileClasses, fileMethods);
 						
 				if (sourceClass != null && sourceMethod != null) {
 
@@ -452,8 +757,8 @@ public class JavaAnalyzer implements IEngine {
 					if (fragment.getInitializer() == name) {
 						
 						// Retrieve enclosing class and method
-						SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(name, parsedClasses);
-						SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(name,  parsedClasses);
+						SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(name, fileClasses);
+						SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(name,  fileClasses, fileMethods);
 
 						if (sourceClass != null && sourceMethod != null) {
 
@@ -474,8 +779,8 @@ public class JavaAnalyzer implements IEngine {
 				else if (name.getParent() instanceof Statement) {
 					
 					// Retrieve enclosing class and method
-					SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(name, parsedClasses);
-					SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(name,  parsedClasses);
+					SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(name, fileClasses);
+					SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(name,  fileClasses, fileMethods);
 
 					if (sourceClass != null && sourceMethod != null) {
 
@@ -506,8 +811,8 @@ public class JavaAnalyzer implements IEngine {
 						expression instanceof ArrayAccess) {
 						
 						// Retrieve enclosing class and method
-						SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(name, parsedClasses);
-						SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(name,  parsedClasses);
+						SourceClass sourceClass = JavaAnalyzerUtils.getSourceClass(name, fileClasses);
+						SourceMethod sourceMethod = JavaAnalyzerUtils.getSourceMethod(name,  fileClasses, fileMethods);
 
 						if (sourceClass != null && sourceMethod != null) {
 
@@ -527,5 +832,7 @@ public class JavaAnalyzer implements IEngine {
 				return true;
 			}
 		});
+
+		return fileClasses;
 	}
 }
@@ -14,7 +14,6 @@ import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
-import ch.hesge.csim2.core.logic.ApplicationLogic;
 import ch.hesge.csim2.core.model.SourceAttribute;
 import ch.hesge.csim2.core.model.SourceClass;
 import ch.hesge.csim2.core.model.SourceMethod;
@@ -467,6 +466,19 @@ public class JavaAnalyzerUtils {
 		return sourceClass;
 	}
 
+	/**
+	 * Build the key of a method within the index of parsed methods.
+	 * 
+	 * @param sourceClass
+	 *        the class owning the method
+	 * @param signature
+	 *        the method signature
+	 * @return the key of the method
+	 */
+	public static String getMethodKey(SourceClass sourceClass, String signature) {
+		return sourceClass.getName() + "." + signature;
+	}
+
 	/**
 	 * Retrieve the source-method owning a node.
 	 * 
@@ -474,10 +486,12 @@ public class JavaAnalyzerUtils {
 	 *        the node where are interested
 	 * @param parsedClasses
 	 *        source-class already parsed
+	 * @param parsedMethods
+	 *        source-method already parsed, indexed by getMethodKey
 	 * @return the source-class or null
 	 */
 
-	public static SourceMethod getSourceMethod(ASTNode node, Map<String, SourceClass> parsedClasses) {
+	public static SourceMethod getSourceMethod(ASTNode node, Map<String, SourceClass> parsedClasses, Map<String, SourceMethod> parsedMethods) {
 
 		SourceMethod sourceMethod = null;
 
@@ -491,7 +505,7 @@ public class JavaAnalyzerUtils {
 			// Retrieve the owning method
 			if (methodDeclaration != null) {
 				String methodSignature = getMethodSignature(methodDeclaration);
-				sourceMethod = ApplicationLogic.UNIQUE_INSTANCE.getSourceMethodBySignature(sourceClass, methodSignature);
+				sourceMethod = parsedMethods.get(getMethodKey(sourceClass, methodSignature));
 			}
 		}
 
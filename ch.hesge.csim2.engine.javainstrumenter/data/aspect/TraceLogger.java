@@ -1,11 +1,23 @@
 package ch.hesge.csim2.engine.instrumentation;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Logger;
 
 
@@ -14,6 +26,37 @@ public class TraceLogger {
 	// Private attributes
 	private static Writer traceWriter;
 	private static String defautTraceFile = "log/trace.log";
+	private static String defautBinaryTraceFile = "log/trace.bin";
+	private static Boolean isBinaryFormat;
+	private static OutputStream traceStream;
+	private static Map<MethodKey, Integer> methodTable = new HashMap<>();
+	private static long lastTimestamp;
+	private static byte[] recordBuffer = new byte[32];
+
+	// Ring buffer filled by instrumented threads and emptied by the drain thread
+	private static TraceEvent[] ringBuffer;
+	private static AtomicLongArray publishedSequences;
+	private static AtomicLong claimSequence = new AtomicLong();
+	private static AtomicInteger freeSlots;
+	private static AtomicLong droppedTraces = new AtomicLong();
+	private static int ringMask;
+	private static int overflowPolicy;
+	private static int sampleRate;
+	private static Thread drainThread;
+	private static volatile boolean isShuttingDown;
+	private static volatile boolean isDrainTerminated;
+	private static volatile boolean isDrainWaiting;
+
+	// Clock used to stamp traces
+	private static boolean isNanoClock;
+	private static long nanoClockOrigin;
+
+	private static ThreadLocal<ThreadState> threadStates = new ThreadLocal<ThreadState>() {
+		@Override
+		protected ThreadState initialValue() {
+			return new ThreadState();
+		}
+	};
 
 	// Private constants
 	private static int TRACE_ENTER = 0;
@@ -22,7 +65,29 @@ public class TraceLogger {
 	// Predefined formatter
 	private static final String TRACE_ENTER_FORMAT = "%3$s %4$s %3$s %4$s [%2$s] %7$s(%8$s) AS %9$s [%1$s]%n";
 	private static final String TRACE_EXIT_FORMAT  = "END %3$s %4$s %3$s %4$s [%2$s] %7$s(%8$s) AS %9$s [%1$s]%n";
+	private static final String TRACE_CLOCK_HEADER = "#clock %s%n";
 	
+	// Binary format constants (shared with TraceBinaryReader in traceloader)
+	private static final byte[] BINARY_MAGIC = { 'C', 'S', 'I', 'M', 'T', 'R', 'C', 1 };
+	private static final int RECORD_METHOD = 1;
+	private static final int RECORD_ENTER = 2;
+	private static final int RECORD_EXIT = 3;
+	private static final int RECORD_CLOCK = 4;
+	private static final int CLOCK_NANOS = 1;
+	private static final int BINARY_BUFFER_SIZE = 1 << 16;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// Ring buffer constants
+	private static final int OVERFLOW_BLOCK = 0;
+	private static final int OVERFLOW_DROP = 1;
+	private static final int OVERFLOW_SAMPLE = 2;
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	private static final int DEFAULT_SAMPLE_RATE = 10;
+	private static final long MIN_WAIT_NANOS = 1000L;
+	private static final long MAX_WAIT_NANOS = 10000000L;
+	private static final int IDLE_YIELDS = 64;
+	private static final long SHUTDOWN_TIMEOUT = 10000L;
+
 	/*
 	 * Available info on format within the TRACE_FORMAT string:
 	 *   1$ = timestamp
@@ -34,11 +99,107 @@ public class TraceLogger {
 	 *   7$ = methodname
 	 *   8$ = parameters types
 	 *   9$ = return type
+	 * 
+	 * When the system property ch.hesge.csim2.traceformat is set to 'binary',
+	 * traces are written in a compact binary form instead: 
+	 * 
+	 * <code>
+	 * 		header  = 'CSIMTRC' version(1)
+	 * 		method  = 1 methodId name(static package, static class, dynamic package, 
+	 * 		            dynamic class, methodname, parameters types, return type) 
+	 * 		enter   = 2 methodId threadId timestampDelta
+	 * 		exit    = 3 methodId threadId timestampDelta
+	 * 		clock   = 4 unit (1 = nanoseconds)
+	 * </code>
+	 * 
+	 * where each integer is an unsigned varint (7 bits per byte, low bits first),
+	 * timestampDelta is the zigzag-encoded difference with the previous timestamp
+	 * and each name is a varint length followed by its UTF-8 bytes. A method
+	 * record is emitted once, just before the first trace referring to it.
+	 * 
+	 * Instrumented threads never perform I/O themselves: each trace is stored
+	 * into a lock-free ring buffer (ch.hesge.csim2.tracebuffer slots) and written
+	 * by a background drain thread. When the buffer is full, the policy given by
+	 * ch.hesge.csim2.traceoverflow applies:
+	 * 
+	 * <code>
+	 * 		block  = wait for a free slot (default, no trace lost)
+	 * 		drop   = discard the method call
+	 * 		sample = keep one method call out of ch.hesge.csim2.tracesample while 
+	 * 		         the buffer is more than half full, discard it when full
+	 * </code>
+	 * 
+	 * The policy is applied once per method call: an entering trace reserves
+	 * its slot and the one of its exiting trace, so that an exiting trace is
+	 * kept, without waiting, when its entering trace was and discarded
+	 * otherwise. Loaded call stacks then remain consistent. The drain thread
+	 * sleeps while the buffer is empty and is woken up by the next trace.
+	 * Remaining traces are written and flushed when the application
+	 * terminates.
+	 * 
+	 * By default, timestamps are in milliseconds (System.currentTimeMillis).
+	 * When ch.hesge.csim2.traceclock is set to 'nanos', they are taken from the
+	 * monotonic System.nanoTime, shifted to nanoseconds since epoch. The text
+	 * file always starts with the line '#clock millis' or '#clock nanos' and a
+	 * nanosecond binary file with a clock record, so that the loader knows the
+	 * unit.
 	 */
 
 	// Create a trace logger
 	private static final Logger LOGGER = Logger.getLogger(TraceLogger.class.getName());	
 		
+	// Static initializer
+	static {
+
+		// Retrieve ring buffer configuration
+		int bufferSize = Integer.getInteger("ch.hesge.csim2.tracebuffer", DEFAULT_BUFFER_SIZE);
+		String overflowValue = System.getProperties().getProperty("ch.hesge.csim2.traceoverflow", "block");
+		sampleRate = Math.max(1, Integer.getInteger("ch.hesge.csim2.tracesample", DEFAULT_SAMPLE_RATE));
+		isNanoClock = "nanos".equalsIgnoreCase(System.getProperties().getProperty("ch.hesge.csim2.traceclock"));
+		nanoClockOrigin = System.currentTimeMillis() * 1000000L - System.nanoTime();
+
+		if (overflowValue.equalsIgnoreCase("drop")) {
+			overflowPolicy = OVERFLOW_DROP;
+		}
+		else if (overflowValue.equalsIgnoreCase("sample")) {
+			overflowPolicy = OVERFLOW_SAMPLE;
+		}
+		else {
+			overflowPolicy = OVERFLOW_BLOCK;
+		}
+
+		// Allocate ring buffer slots (a power of two)
+		int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+		ringBuffer = new TraceEvent[capacity];
+		publishedSequences = new AtomicLongArray(capacity);
+		ringMask = capacity - 1;
+		freeSlots = new AtomicInteger(capacity);
+
+		for (int i = 0; i < capacity; i++) {
+			ringBuffer[i] = new TraceEvent();
+			publishedSequences.set(i, -1);
+		}
+
+		// Start the thread writing traces
+		drainThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drainTraces();
+			}
+		}, "csim2-trace-drain");
+
+		drainThread.setDaemon(true);
+		drainThread.start();
+
+		// Write remaining traces on application exit
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				shutdown();
+			}
+		});
+	}
+
 	/**
      * Log a single method entry
 	 */
@@ -73,7 +234,9 @@ public class TraceLogger {
 	    		Files.createDirectories(filepath.getParent());
 	    		Files.deleteIfExists(filepath);
 	    		Files.createFile(filepath);
-	    		traceWriter = new FileWriter(filepath.toFile());
+				traceWriter = new BufferedWriter(new FileWriter(filepath.toFile()), BINARY_BUFFER_SIZE);
+
+				traceWriter.append(String.format(TRACE_CLOCK_HEADER, isNanoClock ? "nanos" : "millis"));
 			}
 			catch (IOException e) {
 				LOGGER.severe("unable to open trace file: " + e.toString() + " ! Exception: " + e.toString());
@@ -84,14 +247,192 @@ public class TraceLogger {
 	}	
 	
 	/**
-	 * Write a trace into the trace file 
+	 * Store a trace into the ring buffer, according to the overflow policy
 	 */
 	private static void trace(int traceType, String staticPackageName, String staticClassName, String dynamicPackageName, String dynamicClassName, String methodName, String parameterTypes, String returnType) {
 				
+		long timestamp = isNanoClock ? nanoClockOrigin + System.nanoTime() : System.currentTimeMillis();
+		Thread currentThread = Thread.currentThread();
+
+		// Ignore calls made while writing traces
+		if (currentThread == drainThread) {
+			return;
+		}
+
+		ThreadState threadState = threadStates.get();
+		boolean isRecorded;
+
+		// Entering trace, reserve its slot and the one of its exiting trace according to overflow policy
+		if (traceType == TRACE_ENTER) {
+
+			if (overflowPolicy == OVERFLOW_SAMPLE && freeSlots.get() < ringBuffer.length / 2 && ++threadState.sampleCounter % sampleRate != 0) {
+				isRecorded = false;
+			}
+			else {
+				isRecorded = reserveSlots(2, overflowPolicy == OVERFLOW_BLOCK);
+			}
+
+			threadState.push(isRecorded);
+		}
+
+		// Exiting trace whose entering trace was not seen, reserve its own slot
+		else if (threadState.isEmpty()) {
+			isRecorded = reserveSlots(1, overflowPolicy == OVERFLOW_BLOCK);
+		}
+
+		// Exiting trace, its slot was reserved with its entering trace
+		else {
+			isRecorded = threadState.pop();
+		}
+
+		if (!isRecorded) {
+			droppedTraces.incrementAndGet();
+			return;
+		}
+
+		// Fill the slot and publish it to the drain thread
+		long sequence = claimSequence.getAndIncrement();
+		int index = (int) sequence & ringMask;
+		TraceEvent event = ringBuffer[index];
+
+		event.traceType = traceType;
+		event.timestamp = timestamp;
+		event.threadId = currentThread.getId();
+		event.staticPackageName = staticPackageName;
+		event.staticClassName = staticClassName;
+		event.dynamicPackageName = dynamicPackageName;
+		event.dynamicClassName = dynamicClassName;
+		event.methodName = methodName;
+		event.parameterTypes = parameterTypes;
+		event.returnType = returnType;
+
+		publishedSequences.set(index, sequence);
+
+		// Wake up the drain thread if it waits for traces
+		if (isDrainWaiting) {
+			LockSupport.unpark(drainThread);
+		}
+	}
+
+	/**
+	 * Reserve free slots of the ring buffer. When the buffer is full, either
+	 * wait for the drain thread, backing off exponentially, or give up.
+	 * 
+	 * @return true if the slots are reserved
+	 */
+	private static boolean reserveSlots(int slotCount, boolean isBlocking) {
+
+		long waitNanos = MIN_WAIT_NANOS;
+
+		while (true) {
+
+			int availableSlots = freeSlots.get();
+
+			if (availableSlots < slotCount) {
+
+				if (!isBlocking || isDrainTerminated) {
+					return false;
+				}
+
+				LockSupport.parkNanos(waitNanos);
+				waitNanos = Math.min(waitNanos * 2, MAX_WAIT_NANOS);
+			}
+			else if (freeSlots.compareAndSet(availableSlots, availableSlots - slotCount)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Write all traces published in the ring buffer, in sequence order, until
+	 * the application terminates. Output is flushed whenever the buffer is
+	 * empty. The thread then yields for a while and finally sleeps until a
+	 * trace is published.
+	 */
+	private static void drainTraces() {
+
+		long sequence = 0;
+		boolean isFlushed = true;
+		int idleCount = 0;
+
+		while (true) {
+
+			int index = (int) sequence & ringMask;
+
+			if (publishedSequences.get(index) == sequence) {
+
+				TraceEvent event = ringBuffer[index];
+				writeTrace(event.traceType, event.timestamp, event.threadId, event.staticPackageName, event.staticClassName, event.dynamicPackageName, event.dynamicClassName, event.methodName, event.parameterTypes, event.returnType);
+
+				sequence++;
+				freeSlots.incrementAndGet();
+				isFlushed = false;
+				idleCount = 0;
+			}
+			else if (isShuttingDown && sequence >= claimSequence.get()) {
+				break;
+			}
+			else if (!isFlushed) {
+				flushOutput();
+				isFlushed = true;
+			}
+			else if (idleCount < IDLE_YIELDS) {
+				Thread.yield();
+				idleCount++;
+			}
+			else {
+
+				// Announce the wait before checking the slot again, so that no trace published meanwhile is missed
+				isDrainWaiting = true;
+
+				if (publishedSequences.get(index) != sequence && !isShuttingDown) {
+					LockSupport.park();
+				}
+
+				isDrainWaiting = false;
+			}
+		}
+
+		flushOutput();
+		isDrainTerminated = true;
+	}
+
+	/**
+	 * Wait for the drain thread to write all remaining traces
+	 */
+	private static void shutdown() {
+
+		isShuttingDown = true;
+		LockSupport.unpark(drainThread);
+
 		try {
-			long timestamp     = System.currentTimeMillis();		
-			long threadId      = Thread.currentThread().getId();
+			drainThread.join(SHUTDOWN_TIMEOUT);
+		}
+		catch (InterruptedException e) {
+			// Nothing to do
+		}
+
+		if (!isDrainTerminated) {
+			LOGGER.severe("timeout while writing remaining traces !");
+		}
+
+		if (droppedTraces.get() > 0) {
+			LOGGER.warning(droppedTraces.get() + " traces dropped due to buffer overflow !");
+		}
+	}
+
+	/**
+	 * Write a trace into the trace file
+	 */
+	private static void writeTrace(int traceType, long timestamp, long threadId, String staticPackageName, String staticClassName, String dynamicPackageName, String dynamicClassName, String methodName, String parameterTypes, String returnType) {
 			
+		try {
+			// Compact binary trace
+			if (isBinaryFormat()) {
+				writeBinaryTrace(traceType, timestamp, threadId, staticPackageName, staticClassName, dynamicPackageName, dynamicClassName, methodName, parameterTypes, returnType);
+				return;
+			}
+
 			Writer writer = getTraceWriter();
 
 			// Create the trace entry
@@ -109,10 +450,213 @@ public class TraceLogger {
 			
 			// Add it to the trace file
 			writer.append(traceMessage);
-			writer.flush();
 		}
 		catch (IOException e) {
 			LOGGER.severe("error while creating a trace: " + e.toString() + " ! Exception: " + e.toString());
 		}
 	}
+
+	/**
+	 * Check if traces should be written in binary format
+	 */
+	private static boolean isBinaryFormat() {
+
+		if (isBinaryFormat == null) {
+			isBinaryFormat = "binary".equalsIgnoreCase(System.getProperties().getProperty("ch.hesge.csim2.traceformat"));
+		}
+
+		return isBinaryFormat;
+	}
+
+	/**
+	 * Retrieve a stream to the binary output file
+	 */
+	private static OutputStream getTraceStream() {
+
+		if (traceStream == null) {
+
+			// Retrieve output file name
+			String propertyValue = System.getProperties().getProperty("ch.hesge.csim2.tracefile");
+
+			if (propertyValue != null) {
+				defautBinaryTraceFile = propertyValue;
+			}
+
+			// Create the trace file
+			try {
+				Path filepath = Paths.get(defautBinaryTraceFile);
+				Files.createDirectories(filepath.getParent());
+				Files.deleteIfExists(filepath);
+				Files.createFile(filepath);
+				traceStream = new BufferedOutputStream(new FileOutputStream(filepath.toFile()), BINARY_BUFFER_SIZE);
+				traceStream.write(BINARY_MAGIC);
+
+				if (isNanoClock) {
+					traceStream.write(new byte[] { RECORD_CLOCK, CLOCK_NANOS });
+				}
+			}
+			catch (IOException e) {
+				LOGGER.severe("unable to open trace file: " + e.toString() + " ! Exception: " + e.toString());
+			}
+		}
+
+		return traceStream;
+	}
+
+	/**
+	 * Flush all buffered traces
+	 */
+	private static void flushOutput() {
+
+		try {
+			if (traceWriter != null) {
+				traceWriter.flush();
+			}
+
+			if (traceStream != null) {
+				traceStream.flush();
+			}
+		}
+		catch (IOException e) {
+			LOGGER.severe("error while flushing traces: " + e.toString() + " ! Exception: " + e.toString());
+		}
+	}
+
+	/**
+	 * Write a trace into the binary trace file
+	 */
+	private static void writeBinaryTrace(int traceType, long timestamp, long threadId, String staticPackageName, String staticClassName, String dynamicPackageName, String dynamicClassName, String methodName, String parameterTypes, String returnType) throws IOException {
+
+		OutputStream stream = getTraceStream();
+
+		if (stream == null) {
+			return;
+		}
+
+		// Register method on first use
+		MethodKey methodKey = new MethodKey(staticPackageName, staticClassName, dynamicPackageName, dynamicClassName, methodName, parameterTypes, returnType);
+		Integer methodId = methodTable.get(methodKey);
+
+		if (methodId == null) {
+
+			methodId = methodTable.size() + 1;
+			methodTable.put(methodKey, methodId);
+
+			int offset = 0;
+			recordBuffer[offset++] = RECORD_METHOD;
+			offset = putVarint(recordBuffer, offset, methodId);
+			stream.write(recordBuffer, 0, offset);
+
+			for (String name : methodKey.names) {
+				writeName(stream, name);
+			}
+		}
+
+		// Encode timestamp as a delta to the previous one
+		long timestampDelta = timestamp - lastTimestamp;
+		lastTimestamp = timestamp;
+
+		int offset = 0;
+		recordBuffer[offset++] = (byte) (traceType == TRACE_ENTER ? RECORD_ENTER : RECORD_EXIT);
+		offset = putVarint(recordBuffer, offset, methodId);
+		offset = putVarint(recordBuffer, offset, threadId);
+		offset = putVarint(recordBuffer, offset, (timestampDelta << 1) ^ (timestampDelta >> 63));
+		stream.write(recordBuffer, 0, offset);
+	}
+
+	/**
+	 * Write a name as its length followed by its UTF-8 bytes
+	 */
+	private static void writeName(OutputStream stream, String name) throws IOException {
+
+		byte[] bytes = (name == null ? "" : name).getBytes(UTF8);
+
+		int offset = putVarint(recordBuffer, 0, bytes.length);
+		stream.write(recordBuffer, 0, offset);
+		stream.write(bytes);
+	}
+
+	/**
+	 * Encode an unsigned varint into a buffer and return the next offset
+	 */
+	private static int putVarint(byte[] buffer, int offset, long value) {
+
+		while ((value & ~0x7FL) != 0) {
+			buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		buffer[offset++] = (byte) value;
+
+		return offset;
+	}
+
+	/**
+	 * Key identifying a method within the binary method table
+	 */
+	private static class MethodKey {
+
+		private String[] names;
+		private int hashCode;
+
+		public MethodKey(String... names) {
+			this.names = names;
+			this.hashCode = Arrays.hashCode(names);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof MethodKey && Arrays.equals(names, ((MethodKey) other).names);
+		}
+	}
+
+	/**
+	 * A slot of the ring buffer, holding a single trace
+	 */
+	private static class TraceEvent {
+
+		private int traceType;
+		private long timestamp;
+		private long threadId;
+		private String staticPackageName;
+		private String staticClassName;
+		private String dynamicPackageName;
+		private String dynamicClassName;
+		private String methodName;
+		private String parameterTypes;
+		private String returnType;
+	}
+
+	/**
+	 * Per-thread stack of the decisions taken for entering traces, so that
+	 * exiting traces follow the same decision
+	 */
+	private static class ThreadState {
+
+		private boolean[] recordedTraces = new boolean[64];
+		private int depth;
+		private int sampleCounter;
+
+		public void push(boolean isRecorded) {
+
+			if (depth == recordedTraces.length) {
+				recordedTraces = Arrays.copyOf(recordedTraces, depth * 2);
+			}
+
+			recordedTraces[depth++] = isRecorded;
+		}
+
+		public boolean pop() {
+			return recordedTraces[--depth];
+		}
+
+		public boolean isEmpty() {
+			return depth == 0;
+		}
+	}
 }
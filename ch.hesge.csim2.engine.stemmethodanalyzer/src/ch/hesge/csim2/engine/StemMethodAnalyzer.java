@@ -31,6 +31,10 @@ import ch.hesge.csim2.core.utils.StringUtils;
  * This engine analyze all source information and try to evaluate all concepts
  * used in each source-method available.
  * 
+ * In incremental mode, only methods without stems are analyzed, that is
+ * methods found in files changed since the previous source analysis, and
+ * stems already saved are kept.
+ * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
  * @author Eric Harth
@@ -45,6 +49,7 @@ public class StemMethodAnalyzer implements IEngine {
 	private Project project;
 	private List<String> rejectedMethodList;
 	private List<String> rejectedTypeList;
+	private boolean isIncremental;
 
 	/**
 	 * Default constructor.
@@ -96,6 +101,7 @@ public class StemMethodAnalyzer implements IEngine {
 		params.put("project", "project");
 		params.put("rejected-methods", "file");
 		params.put("rejected-types", "file");
+		params.put("incremental", "boolean");
 
 		return params;
 	}
@@ -173,6 +179,15 @@ public class StemMethodAnalyzer implements IEngine {
 				// Load rejected types list
 				rejectedTypeList = Files.readAllLines(rejectedTypePath, Charset.defaultCharset());
 			}
+
+			// Retrieve incremental mode
+			if (context.containsKey("incremental")) {
+				String incrementalParam = context.getProperty("incremental").toString();
+				isIncremental = incrementalParam.equalsIgnoreCase("true") || incrementalParam.equalsIgnoreCase("yes") || incrementalParam.equalsIgnoreCase("t") || incrementalParam.equalsIgnoreCase("y");
+			}
+			else {
+				isIncremental = false;
+			}
 		}
 		catch (Exception e) {
 			Console.writeError(this, "error while instrumenting files: " + StringUtils.toString(e));
@@ -199,12 +214,20 @@ public class StemMethodAnalyzer implements IEngine {
 			Map<Integer, SourceClass> classMap = applicationLogic.getSourceClassMap(project);
 			applicationLogic.populateMethodParametersAndReferences(project, classMap);
 
+			// Retrieve methods already analyzed
+			Map<Integer, StemMethod> stemmedMethods = isIncremental ? applicationLogic.getStemMethodTreeMap(project) : new HashMap<Integer, StemMethod>();
+
 			Console.writeInfo(this, "scanning source classes...");
 			
 			// Build stem method table
 			for (SourceClass sourceClass : classMap.values()) {
 				for (SourceMethod sourceMethod : sourceClass.getMethods()) {
 
+					// Keep stems of unchanged methods
+					if (stemmedMethods.containsKey(sourceMethod.getKeyId())) {
+						continue;
+					}
+
 					Console.writeInfo(this, "scanning method: " + sourceClass.getName() + "." + sourceMethod.getName());
 					
 					// Retrieve stems for the method name
@@ -263,7 +286,13 @@ public class StemMethodAnalyzer implements IEngine {
 
 			// Save stems found
 			Console.writeInfo(this, "saving " + stems.size() + " stems found...");
-			applicationLogic.saveStemMethods(project, stems);
+
+			if (isIncremental) {
+				applicationLogic.addStemMethods(project, stems);
+			}
+			else {
+				applicationLogic.saveStemMethods(project, stems);
+			}
 		}
 		catch (Exception e) {
 			Console.writeError(this, "error while analyzing sources: " + StringUtils.toString(e));
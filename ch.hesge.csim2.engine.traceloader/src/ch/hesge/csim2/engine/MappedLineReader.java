@@ -0,0 +1,247 @@
+package ch.hesge.csim2.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Line reader based on memory-mapped regions of a file.
+ *
+ * The file is mapped region by region, each region ending on a newline, so
+ * that no line is ever split between two regions. Lines are returned as
+ * CharSequence views on the mapped bytes, without being copied into String
+ * instances. Lines containing non-ASCII bytes are decoded with the default
+ * charset instead, as a BufferedReader would do.
+ *
+ * Views remain valid after the reader moves to the next region and may be
+ * parsed by other threads.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+public class MappedLineReader implements Closeable {
+
+	// Private attributes
+	private FileChannel channel;
+	private long fileSize;
+	private long filePosition;
+	private MappedByteBuffer region;
+	private long regionStart;
+	private long regionEnd;
+	private int regionSize;
+
+	// Private constants
+	private static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	/**
+	 * Open a file to read its lines.
+	 *
+	 * @param file
+	 *        the path of the file to read
+	 * @throws IOException
+	 */
+	public MappedLineReader(Path file) throws IOException {
+		this(file, DEFAULT_REGION_SIZE);
+	}
+
+	/**
+	 * Open a file to read its lines, with a specific region size.
+	 *
+	 * @param file
+	 *        the path of the file to read
+	 * @param regionSize
+	 *        the number of bytes mapped at once
+	 * @throws IOException
+	 */
+	public MappedLineReader(Path file, int regionSize) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.fileSize = channel.size();
+		this.regionSize = regionSize;
+	}
+
+	/**
+	 * Return the position within file of the next line to read, in bytes.
+	 *
+	 * @return a byte offset
+	 */
+	public long getPosition() {
+		return filePosition;
+	}
+
+	/**
+	 * Move to a specific position within file. The position should be the
+	 * start of a line.
+	 *
+	 * @param position
+	 *        the byte offset of the next line to read
+	 */
+	public void setPosition(long position) {
+		filePosition = Math.min(position, fileSize);
+	}
+
+	/**
+	 * Return the size of the file, in bytes.
+	 *
+	 * @return the file size
+	 */
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	/**
+	 * Read the next line, without its line terminator.
+	 *
+	 * @return the line or null at the end of file
+	 * @throws IOException
+	 */
+	public CharSequence readLine() throws IOException {
+
+		if (filePosition >= fileSize) {
+			return null;
+		}
+
+		if (region == null || filePosition < regionStart || filePosition >= regionEnd) {
+			mapRegion(filePosition);
+		}
+
+		int lineStart = (int) (filePosition - regionStart);
+		int limit = (int) (regionEnd - regionStart);
+		int lineEnd = lineStart;
+		boolean isAscii = true;
+
+		// Look for the end of line
+		while (lineEnd < limit) {
+
+			byte b = region.get(lineEnd);
+
+			if (b == '\n') {
+				break;
+			}
+
+			if (b < 0) {
+				isAscii = false;
+			}
+
+			lineEnd++;
+		}
+
+		filePosition = regionStart + Math.min(lineEnd + 1, limit);
+
+		// Ignore carriage return
+		if (lineEnd > lineStart && region.get(lineEnd - 1) == '\r') {
+			lineEnd--;
+		}
+
+		if (isAscii) {
+			return new MappedLine(region, lineStart, lineEnd - lineStart);
+		}
+
+		return new String(getBytes(region, lineStart, lineEnd - lineStart), Charset.defaultCharset());
+	}
+
+	/**
+	 * Map the region starting at a specific position. The end of region is
+	 * aligned on the last newline it contains, and the region is enlarged as
+	 * long as it contains no newline at all.
+	 *
+	 * @param position
+	 *        the first byte of the region
+	 * @throws IOException
+	 */
+	private void mapRegion(long position) throws IOException {
+
+		long size = Math.min(regionSize, fileSize - position);
+
+		while (true) {
+
+			region = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			regionStart = position;
+
+			if (position + size == fileSize) {
+				regionEnd = fileSize;
+				return;
+			}
+
+			// Align region end on the last newline
+			for (int i = (int) size - 1; i >= 0; i--) {
+				if (region.get(i) == '\n') {
+					regionEnd = position + i + 1;
+					return;
+				}
+			}
+
+			if (size >= Integer.MAX_VALUE) {
+				throw new IOException("line too long at position " + position + " !");
+			}
+
+			size = Math.min(Math.min(size * 2, Integer.MAX_VALUE), fileSize - position);
+		}
+	}
+
+	/**
+	 * Copy a range of bytes from a buffer.
+	 */
+	private static byte[] getBytes(ByteBuffer buffer, int offset, int length) {
+
+		byte[] bytes = new byte[length];
+		ByteBuffer range = buffer.duplicate();
+
+		range.position(offset);
+		range.get(bytes);
+
+		return bytes;
+	}
+
+	/**
+	 * Close the underlying file. Mapped regions are released once all lines
+	 * referring to them are no longer used.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * A line made of single-byte characters, viewed directly on the mapped
+	 * region.
+	 */
+	private static class MappedLine implements CharSequence {
+
+		private ByteBuffer buffer;
+		private int offset;
+		private int length;
+
+		public MappedLine(ByteBuffer buffer, int offset, int length) {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (buffer.get(offset + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new MappedLine(buffer, offset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(getBytes(buffer, offset, length), ISO_8859_1);
+		}
+	}
+}
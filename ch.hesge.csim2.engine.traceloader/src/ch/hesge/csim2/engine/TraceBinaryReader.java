@@ -0,0 +1,327 @@
+package ch.hesge.csim2.engine;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ch.hesge.csim2.core.model.Trace;
+
+/**
+ * Reader for trace files written by the Java TraceLogger in binary format.
+ *
+ * The file starts with a magic header and is followed by records:
+ *
+ * <pre>
+ * 		method  = 1 methodId name(static package, static class, dynamic package,
+ * 		            dynamic class, methodname, parameters types, return type)
+ * 		enter   = 2 methodId threadId timestampDelta
+ * 		exit    = 3 methodId threadId timestampDelta
+ * 		clock   = 4 unit (1 = nanoseconds)
+ * </pre>
+ *
+ * Integers are unsigned varints, timestamps are zigzag-encoded deltas to the
+ * previous timestamp and names are a varint length followed by UTF-8 bytes.
+ * Method records are decoded once and shared by all traces referring to
+ * them.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+public class TraceBinaryReader implements Closeable {
+
+	// Private attributes
+	private InputStream input;
+	private List<Trace> methodTable;
+	private long lastTimestamp;
+	private byte[] nameBuffer;
+	private boolean isNanoClock;
+
+	// Private constants
+	private static final byte[] BINARY_MAGIC = { 'C', 'S', 'I', 'M', 'T', 'R', 'C', 1 };
+	private static final int RECORD_METHOD = 1;
+	private static final int RECORD_ENTER = 2;
+	private static final int RECORD_EXIT = 3;
+	private static final int RECORD_CLOCK = 4;
+	private static final int CLOCK_NANOS = 1;
+	private static final int BINARY_BUFFER_SIZE = 1 << 16;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Open a binary trace file and check its header.
+	 *
+	 * @param traceFile
+	 *        the path of the binary trace file
+	 * @throws IOException
+	 */
+	public TraceBinaryReader(Path traceFile) throws IOException {
+
+		input = new BufferedInputStream(Files.newInputStream(traceFile), BINARY_BUFFER_SIZE);
+		methodTable = new ArrayList<>();
+		nameBuffer = new byte[256];
+
+		// Method ids start at 1
+		methodTable.add(null);
+
+		byte[] header = new byte[BINARY_MAGIC.length];
+		if (readFully(header) < header.length || !Arrays.equals(header, BINARY_MAGIC)) {
+			input.close();
+			throw new IOException("invalid binary trace header in file '" + traceFile + "' !");
+		}
+	}
+
+	/**
+	 * Check if a file is a binary trace file, by looking at its header.
+	 *
+	 * @param traceFile
+	 *        the path of the file to check
+	 * @return true if the file has been written in binary format
+	 * @throws IOException
+	 */
+	public static boolean isBinaryTraceFile(Path traceFile) throws IOException {
+
+		try (InputStream stream = Files.newInputStream(traceFile)) {
+
+			byte[] header = new byte[BINARY_MAGIC.length];
+			int length = 0;
+
+			while (length < header.length) {
+
+				int count = stream.read(header, length, header.length - length);
+
+				if (count < 0) {
+					return false;
+				}
+
+				length += count;
+			}
+
+			return Arrays.equals(header, BINARY_MAGIC);
+		}
+	}
+
+	/**
+	 * Read the next trace available in file. Method records are decoded on
+	 * the fly and never returned.
+	 *
+	 * @return the next trace, or null at the end of file
+	 * @throws IOException
+	 *         if the file is corrupted or truncated
+	 */
+	public Trace readTrace() throws IOException {
+
+		while (true) {
+
+			int recordType = input.read();
+
+			if (recordType < 0) {
+				return null;
+			}
+
+			if (recordType == RECORD_METHOD) {
+				readMethod();
+			}
+			else if (recordType == RECORD_CLOCK) {
+				isNanoClock = readVarint() == CLOCK_NANOS;
+			}
+			else if (recordType == RECORD_ENTER || recordType == RECORD_EXIT) {
+
+				int methodId = (int) readVarint();
+
+				if (methodId <= 0 || methodId >= methodTable.size()) {
+					throw new IOException("unknown method id " + methodId + " in binary trace !");
+				}
+
+				long threadId = readVarint();
+				long timestampDelta = readVarint();
+				lastTimestamp += (timestampDelta >>> 1) ^ -(timestampDelta & 1);
+
+				Trace method = methodTable.get(methodId);
+				Trace trace = new Trace();
+
+				trace.setEnteringTrace(recordType == RECORD_ENTER);
+				trace.setStaticPackage(method.getStaticPackage());
+				trace.setStaticClass(method.getStaticClass());
+				trace.setInstanceId(method.getInstanceId());
+				trace.setDynamicPackage(method.getDynamicPackage());
+				trace.setDynamicClass(method.getDynamicClass());
+				trace.setThreadId(threadId);
+				trace.setSignature(method.getSignature());
+				trace.setReturnType(method.getReturnType());
+				trace.setTimestamp(lastTimestamp);
+
+				return trace;
+			}
+			else {
+				throw new IOException("unknown record type " + recordType + " in binary trace !");
+			}
+		}
+	}
+
+	/**
+	 * Check if timestamps read are in nanoseconds, rather than in
+	 * milliseconds.
+	 *
+	 * @return true if the trace file has a nanosecond clock record
+	 */
+	public boolean isNanoClock() {
+		return isNanoClock;
+	}
+
+	/**
+	 * Decode a method record and register it in the method table. Classes are
+	 * split in classname and instance id, the same way text traces are.
+	 *
+	 * @throws IOException
+	 */
+	private void readMethod() throws IOException {
+
+		int methodId = (int) readVarint();
+
+		if (methodId != methodTable.size()) {
+			throw new IOException("unexpected method id " + methodId + " in binary trace !");
+		}
+
+		String staticPackage = readName();
+		String staticClass = readName();
+		String dynamicPackage = readName();
+		String dynamicClass = readName();
+		String methodName = readName();
+		String parameterTypes = readName();
+		String returnType = readName();
+
+		String instanceId = "0";
+
+		// Split class in classname and instance id, if available
+		if (staticClass != null && staticClass.contains("#")) {
+			String[] classParts = staticClass.split("#");
+			instanceId = classParts.length > 1 ? classParts[1] : "";
+			staticClass = classParts[0];
+		}
+
+		// Split class in classname and instance id, if available
+		if (dynamicClass != null && dynamicClass.contains("#")) {
+			dynamicClass = dynamicClass.split("#")[0];
+		}
+
+		Trace method = new Trace();
+		method.setStaticPackage(staticPackage);
+		method.setStaticClass(staticClass);
+		method.setInstanceId(instanceId);
+		method.setDynamicPackage(dynamicPackage);
+		method.setDynamicClass(dynamicClass);
+		method.setSignature((methodName == null ? "" : methodName) + "(" + (parameterTypes == null ? "" : parameterTypes) + ")");
+		method.setReturnType(returnType);
+
+		methodTable.add(method);
+	}
+
+	/**
+	 * Read a name encoded as its length followed by its UTF-8 bytes. Empty
+	 * names are returned as null, as empty fields in text traces.
+	 *
+	 * @return the name or null
+	 * @throws IOException
+	 */
+	private String readName() throws IOException {
+
+		int length = (int) readVarint();
+
+		if (length == 0) {
+			return null;
+		}
+
+		if (length > nameBuffer.length) {
+			nameBuffer = new byte[Math.max(length, nameBuffer.length * 2)];
+		}
+
+		if (readFully(nameBuffer, length) < length) {
+			throw new EOFException("truncated binary trace !");
+		}
+
+		return new String(nameBuffer, 0, length, UTF8);
+	}
+
+	/**
+	 * Read an unsigned varint.
+	 *
+	 * @return the decoded value
+	 * @throws IOException
+	 */
+	private long readVarint() throws IOException {
+
+		long value = 0;
+		int shift = 0;
+
+		while (true) {
+
+			int b = input.read();
+
+			if (b < 0) {
+				throw new EOFException("truncated binary trace !");
+			}
+
+			value |= (long) (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+
+			shift += 7;
+
+			if (shift > 63) {
+				throw new IOException("invalid varint in binary trace !");
+			}
+		}
+	}
+
+	/**
+	 * Fill the whole buffer with bytes from input.
+	 *
+	 * @return the number of bytes read
+	 * @throws IOException
+	 */
+	private int readFully(byte[] buffer) throws IOException {
+		return readFully(buffer, buffer.length);
+	}
+
+	/**
+	 * Read length bytes from input into the buffer.
+	 *
+	 * @return the number of bytes read, less than length at end of file
+	 * @throws IOException
+	 */
+	private int readFully(byte[] buffer, int length) throws IOException {
+
+		int offset = 0;
+
+		while (offset < length) {
+
+			int count = input.read(buffer, offset, length - offset);
+
+			if (count < 0) {
+				break;
+			}
+
+			offset += count;
+		}
+
+		return offset;
+	}
+
+	/**
+	 * Close the underlying file.
+	 */
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+}
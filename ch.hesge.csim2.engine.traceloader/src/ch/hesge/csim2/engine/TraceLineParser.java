@@ -0,0 +1,314 @@
+package ch.hesge.csim2.engine;
+
+import ch.hesge.csim2.core.model.Trace;
+
+/**
+ * Single-pass tokenizer used to parse trace lines.
+ *
+ * Trace lines are scanned once, character by character, and recognized
+ * fields are stored directly into a Trace instance. Thread id and timestamp
+ * are decoded without intermediate strings, whereas packages, classes,
+ * signatures and return types are shared through a small string pool, since
+ * the same few values are repeated on millions of lines.
+ *
+ * A parser instance is not thread-safe, so each thread should use its own.
+ *
+ * Copyright HEG Geneva 2014, Switzerland
+ *
+ * @author Eric Harth
+ */
+public class TraceLineParser {
+
+	// Private attributes
+	private String[] stringPool;
+	private int poolSize;
+	private int[] fieldBounds;
+
+	// Private constants
+	private static final int POOL_CAPACITY = 1 << 16;
+	private static final int POOL_MAX_SIZE = POOL_CAPACITY / 2;
+
+	/**
+	 * Default constructor
+	 */
+	public TraceLineParser() {
+		stringPool = new String[POOL_CAPACITY];
+		fieldBounds = new int[8];
+	}
+
+	/**
+	 * Parse a trace line and fill the trace passed in argument with
+	 * information contained in it. The trace instance may be reused from one
+	 * line to another.
+	 *
+	 * The grammar accepted is the same as the one of the former regular
+	 * expression:
+	 *
+	 * <pre>
+	 * 		[END] dynapack dynaclass statpack statclass [threadid] signature(...) AS returntype [timestamp]
+	 * </pre>
+	 *
+	 * where packages and classes may be empty.
+	 *
+	 * @param traceLine
+	 *        the line to parse
+	 * @param trace
+	 *        the trace to fill
+	 * @return true if the line is a valid trace, false otherwise
+	 */
+	public boolean parse(CharSequence traceLine, Trace trace) {
+
+		int length = traceLine.length();
+		int pos = 0;
+
+		// Ignore trailing spaces
+		while (length > 0 && isSpace(traceLine.charAt(length - 1))) {
+			length--;
+		}
+
+		// Detect exiting trace
+		boolean isEnteringTrace = true;
+		if (length > 4 && traceLine.charAt(0) == 'E' && traceLine.charAt(1) == 'N' && traceLine.charAt(2) == 'D' && isSpace(traceLine.charAt(3))) {
+			isEnteringTrace = false;
+			pos = 4;
+		}
+
+		// Retrieve packages and classes (possibly empty)
+		for (int i = 0; i < 4; i++) {
+
+			int start = pos;
+			while (pos < length && !isSpace(traceLine.charAt(pos))) {
+				pos++;
+			}
+
+			if (pos >= length) {
+				return false;
+			}
+
+			fieldBounds[i * 2] = start;
+			fieldBounds[i * 2 + 1] = pos++;
+		}
+
+		// Retrieve thread id
+		if (pos >= length || traceLine.charAt(pos++) != '[') {
+			return false;
+		}
+
+		int digitStart = pos;
+		while (pos < length && isDigit(traceLine.charAt(pos))) {
+			pos++;
+		}
+
+		if (pos == digitStart || pos + 1 >= length || traceLine.charAt(pos) != ']' || !isSpace(traceLine.charAt(pos + 1))) {
+			return false;
+		}
+
+		long threadId = parseNumber(traceLine, digitStart, pos);
+		if (threadId < 0) {
+			return false;
+		}
+
+		int signatureStart = pos + 2;
+
+		// Retrieve timestamp, at the end of line
+		if (traceLine.charAt(length - 1) != ']') {
+			return false;
+		}
+
+		int timestampEnd = length - 1;
+		int timestampStart = timestampEnd;
+		while (timestampStart > signatureStart && isDigit(traceLine.charAt(timestampStart - 1))) {
+			timestampStart--;
+		}
+
+		if (timestampStart == timestampEnd || timestampStart - 2 < signatureStart || traceLine.charAt(timestampStart - 1) != '[' || !isSpace(traceLine.charAt(timestampStart - 2))) {
+			return false;
+		}
+
+		long timestamp = parseNumber(traceLine, timestampStart, timestampEnd);
+		if (timestamp < 0) {
+			return false;
+		}
+
+		int returnTypeEnd = timestampStart - 2;
+
+		// Retrieve signature and return type separator (the last valid one)
+		int separator = -1;
+		for (int i = returnTypeEnd - 5; i > signatureStart; i--) {
+			if (isSeparator(traceLine, i) && isSignature(traceLine, signatureStart, i)) {
+				separator = i;
+				break;
+			}
+		}
+
+		if (separator < 0) {
+			return false;
+		}
+
+		// Split classes in classname and instance id, if available
+		String instanceId = "0";
+		int staticClassEnd = indexOf(traceLine, '#', fieldBounds[6], fieldBounds[7]);
+		if (staticClassEnd < fieldBounds[7]) {
+			int instanceEnd = indexOf(traceLine, '#', staticClassEnd + 1, fieldBounds[7]);
+			instanceId = traceLine.subSequence(staticClassEnd + 1, instanceEnd).toString();
+		}
+
+		int dynamicClassEnd = indexOf(traceLine, '#', fieldBounds[2], fieldBounds[3]);
+
+		trace.setEnteringTrace(isEnteringTrace);
+		trace.setDynamicPackage(getPooledString(traceLine, fieldBounds[0], fieldBounds[1]));
+		trace.setDynamicClass(getPooledString(traceLine, fieldBounds[2], dynamicClassEnd));
+		trace.setStaticPackage(getPooledString(traceLine, fieldBounds[4], fieldBounds[5]));
+		trace.setStaticClass(getPooledString(traceLine, fieldBounds[6], staticClassEnd));
+		trace.setInstanceId(instanceId);
+		trace.setThreadId(threadId);
+		trace.setSignature(getPooledString(traceLine, signatureStart, separator));
+		trace.setReturnType(getPooledString(traceLine, separator + 4, returnTypeEnd));
+		trace.setTimestamp(timestamp);
+
+		return true;
+	}
+
+	/**
+	 * Check if a separator ' AS ' (any whitespace accepted) is located at a
+	 * specific position, followed by a non-empty return type.
+	 */
+	private static boolean isSeparator(CharSequence s, int pos) {
+		return isSpace(s.charAt(pos)) && s.charAt(pos + 1) == 'A' && s.charAt(pos + 2) == 'S' && isSpace(s.charAt(pos + 3));
+	}
+
+	/**
+	 * Check if a region has the form of a method signature, that is
+	 * something ending with a closing parenthesis and containing an opening
+	 * one.
+	 */
+	private static boolean isSignature(CharSequence s, int start, int end) {
+
+		if (end - start < 2 || s.charAt(end - 1) != ')') {
+			return false;
+		}
+
+		return indexOf(s, '(', start, end - 1) < end - 1;
+	}
+
+	/**
+	 * Retrieve the first position of a character within a region, or the end
+	 * of the region if the character is not found.
+	 */
+	private static int indexOf(CharSequence s, char c, int start, int end) {
+
+		int pos = start;
+		while (pos < end && s.charAt(pos) != c) {
+			pos++;
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Whitespace as defined by regular expressions (\s).
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * Decimal digit.
+	 */
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Decode a region made of decimal digits only.
+	 *
+	 * @return the value of the region or -1 if it doesn't fit in a long
+	 */
+	private static long parseNumber(CharSequence s, int start, int end) {
+
+		long value = 0;
+
+		for (int i = start; i < end; i++) {
+
+			int digit = s.charAt(i) - '0';
+
+			if (value > (Long.MAX_VALUE - digit) / 10) {
+				return -1;
+			}
+
+			value = value * 10 + digit;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Retrieve a string whose content is the region passed in argument.
+	 * If an identical string has already been seen, the same instance is
+	 * returned, without creating a new string. Empty regions are returned as
+	 * null (missing field).
+	 *
+	 * @param s
+	 *        the sequence holding characters
+	 * @param start
+	 *        the first char of the region
+	 * @param end
+	 *        the position after the last char of the region
+	 * @return a string or null
+	 */
+	private String getPooledString(CharSequence s, int start, int end) {
+
+		if (start >= end) {
+			return null;
+		}
+
+		// Same hash as String.hashCode()
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + s.charAt(i);
+		}
+
+		// Lookup pool with linear probing
+		int mask = stringPool.length - 1;
+		int index = (hash ^ (hash >>> 16)) & mask;
+
+		while (stringPool[index] != null) {
+
+			String pooled = stringPool[index];
+
+			if (pooled.hashCode() == hash && isSameContent(pooled, s, start, end)) {
+				return pooled;
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		String value = s.subSequence(start, end).toString();
+
+		// Register new string while pool is not full
+		if (poolSize < POOL_MAX_SIZE) {
+			stringPool[index] = value;
+			poolSize++;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Check if a string has the same content than a region.
+	 */
+	private static boolean isSameContent(String pooled, CharSequence s, int start, int end) {
+
+		if (pooled.length() != end - start) {
+			return false;
+		}
+
+		for (int i = start; i < end; i++) {
+			if (pooled.charAt(i - start) != s.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -3,21 +3,31 @@
  */
 package ch.hesge.csim2.engine;
 
-import java.io.BufferedReader;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.io.EOFException;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import ch.hesge.csim2.core.logic.ApplicationLogic;
 import ch.hesge.csim2.core.model.Context;
 import ch.hesge.csim2.core.model.IEngine;
 import ch.hesge.csim2.core.model.Scenario;
 import ch.hesge.csim2.core.model.Trace;
+import ch.hesge.csim2.core.model.TraceCheckpoint;
 import ch.hesge.csim2.core.utils.Console;
 import ch.hesge.csim2.core.utils.EngineException;
 import ch.hesge.csim2.core.utils.StringUtils;
@@ -39,8 +49,31 @@ public class TraceLoader implements IEngine {
 
 	private Path traceFile;
 	private Scenario scenario;
+	private int batchSize;
+	private int parseThreads;
+	private boolean isResume;
+	private long clockScale;
+
+	private int traceCounter;
+	private int errorCounter;
+	private int lineCounter;
+	private volatile long byteCounter;
+	private volatile long readTime;
+	private long parseTime;
+	private long writeTime;
+	private long timeScale;
+	private int startLine;
+	private long startPosition;
+	private long linePosition;
 
 	private Map<Long, Stack<Trace>> threadTraces;
+	private List<Trace> pendingTraces;
+	private TraceCheckpoint checkpoint;
+
+	// Private constants
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+	private static final int DEFAULT_PARSE_THREADS = 1;
+	private static final int CHUNK_SIZE = 10000;
 
 	/**
 	 * Default constructor
@@ -48,6 +81,7 @@ public class TraceLoader implements IEngine {
 	public TraceLoader() {
 		applicationLogic = ApplicationLogic.UNIQUE_INSTANCE;
 		threadTraces = new Hashtable<>();
+		pendingTraces = new ArrayList<>();
 	}
 
 	/**
@@ -67,7 +101,7 @@ public class TraceLoader implements IEngine {
 	 */
 	@Override
 	public String getVersion() {
-		return "1.0.10";
+		return "1.0.11";
 	}
 
 	/**
@@ -92,6 +126,10 @@ public class TraceLoader implements IEngine {
 
 		params.put("scenario", "scenario");
 		params.put("filename", "file");
+		params.put("batch-size", "number");
+		params.put("parse-threads", "number");
+		params.put("resume", "boolean");
+		params.put("clock-unit", "string");
 
 		return params;
 	}
@@ -144,6 +182,51 @@ public class TraceLoader implements IEngine {
 				throw new EngineException("missing trace path specified !");
 			}
 
+			// Retrieve number of traces inserted at once
+			if (context.containsKey("batch-size") && !context.getProperty("batch-size").toString().trim().isEmpty()) {
+				batchSize = Integer.parseInt(context.getProperty("batch-size").toString().trim());
+			}
+			else {
+				batchSize = DEFAULT_BATCH_SIZE;
+			}
+
+			if (batchSize <= 0) {
+				throw new EngineException("invalid batch size specified !");
+			}
+
+			// Retrieve number of threads parsing lines
+			if (context.containsKey("parse-threads") && !context.getProperty("parse-threads").toString().trim().isEmpty()) {
+				parseThreads = Integer.parseInt(context.getProperty("parse-threads").toString().trim());
+			}
+			else {
+				parseThreads = DEFAULT_PARSE_THREADS;
+			}
+
+			if (parseThreads <= 0) {
+				throw new EngineException("invalid parse thread count specified !");
+			}
+
+			// Retrieve resume mode
+			if (context.containsKey("resume")) {
+				String resumeParam = context.getProperty("resume").toString();
+				isResume = resumeParam.equalsIgnoreCase("true") || resumeParam.equalsIgnoreCase("yes") || resumeParam.equalsIgnoreCase("t") || resumeParam.equalsIgnoreCase("y");
+			}
+			else {
+				isResume = false;
+			}
+
+			// Retrieve clock unit of files without clock header
+			if (context.containsKey("clock-unit") && !context.getProperty("clock-unit").toString().trim().isEmpty()) {
+				clockScale = TraceLoaderUtils.getClockScale(context.getProperty("clock-unit").toString());
+			}
+			else {
+				clockScale = TraceLoaderUtils.MILLIS_TO_NANOS;
+			}
+
+			if (clockScale <= 0) {
+				throw new EngineException("invalid clock unit specified, expecting seconds, millis or nanos !");
+			}
+
 			// Now, check if input file exists
 			traceFile = Paths.get(inputFile).toAbsolutePath().normalize();
 			if (!traceFile.toFile().exists()) {
@@ -157,8 +240,24 @@ public class TraceLoader implements IEngine {
 
 	/**
 	 * Start the engine.
-	 * All trace lines are converted into Trace objects and inserted directly
-	 * into the database.
+	 * All trace lines are converted into Trace objects and inserted into the
+	 * database by batches of batch-size traces.
+	 * 
+	 * When more than one parse thread is specified, lines are parsed in
+	 * parallel by a pool of workers, while a single writer keeps sequence
+	 * numbers and thread stacks in file order.
+	 * 
+	 * Binary trace files, written by the Java TraceLogger, are recognized by
+	 * their header and decoded directly, without line parsing.
+	 * 
+	 * Timestamps are stored in nanoseconds. Their unit is given by the clock
+	 * header written by each trace logger ('#clock seconds' for C++,
+	 * '#clock millis' or '#clock nanos' for Java). Files without header are
+	 * read in clock-unit (millis by default).
+	 * 
+	 * A checkpoint (file position, counters and open traces of each thread)
+	 * is committed with each batch. In resume mode, loading restarts from the
+	 * last checkpoint of the same file instead of deleting all traces.
 	 * 
 	 * @see ch.hesge.csim2.core.shell.IEngine#start()
 	 * 
@@ -169,76 +268,410 @@ public class TraceLoader implements IEngine {
 		try {
 
 			threadTraces.clear();
-			applicationLogic.deleteTraces(scenario);
+			pendingTraces.clear();
+
+			traceCounter = 0;
+			errorCounter = 0;
+			lineCounter = 0;
+			byteCounter = 0;
+			readTime = 0;
+			parseTime = 0;
+			writeTime = 0;
+			timeScale = clockScale;
+			startPosition = 0;
+
+			TraceCheckpoint lastCheckpoint = isResume ? applicationLogic.getTraceCheckpoint(scenario) : null;
+
+			// Restore state saved with the last batch
+			if (lastCheckpoint != null && traceFile.toString().equals(lastCheckpoint.getFilename())) {
+
+				traceCounter = lastCheckpoint.getTraceCounter();
+				lineCounter = lastCheckpoint.getLineCounter();
+				timeScale = lastCheckpoint.getTimeScale();
+				startPosition = lastCheckpoint.getPosition();
+				threadTraces.putAll(lastCheckpoint.getThreadTraces());
+
+				Console.writeInfo(this, "resuming trace loading after line " + lineCounter + ".");
+			}
+
+			// Or restart from scratch
+			else {
+				applicationLogic.deleteTraces(scenario);
+				applicationLogic.deleteTraceCheckpoint(scenario);
+			}
+
+			startLine = lineCounter;
+			linePosition = startPosition;
+
+			checkpoint = new TraceCheckpoint();
+			checkpoint.setScenarioId(scenario.getKeyId());
+			checkpoint.setFilename(traceFile.toString());
+			checkpoint.setThreadTraces(threadTraces);
+
+			if (TraceBinaryReader.isBinaryTraceFile(traceFile)) {
+				doLoadBinary();
+			}
+			else if (parseThreads > 1) {
+				doLoadPipelined();
+			}
+			else {
+				doLoadSequential();
+			}
+
+			// Loading completed, nothing left to resume
+			applicationLogic.deleteTraceCheckpoint(scenario);
+
+			Console.writeInfo(this, "TraceLoader report:");
+			Console.writeInfo(this, "  parsed lines:   " + lineCounter);
+			Console.writeInfo(this, "  trace created:  " + traceCounter);
+			Console.writeInfo(this, "  error detected: " + errorCounter);
+			Console.writeInfo(this, "  read rate:      " + getLineRate(readTime) + " lines/sec");
+			Console.writeInfo(this, "  read throughput: " + getByteRate(readTime) + " MB/sec");
+			Console.writeInfo(this, "  parse rate:     " + getLineRate(parseTime) + " lines/sec (per thread)");
+			Console.writeInfo(this, "  write rate:     " + getLineRate(writeTime) + " lines/sec");
+		}
+		catch (Exception e) {
+			Console.writeError(this, "unexpected error while parsing trace file: " + StringUtils.toString(e));
+		}
+	}
+
+	/**
+	 * Read, parse and write all trace lines within the current thread.
+	 * 
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private void doLoadSequential() throws IOException, SQLException {
+
+		try (MappedLineReader reader = new MappedLineReader(traceFile)) {
+
+			reader.setPosition(startPosition);
 
-			int traceCounter = 0;
-			int errorCounter = 0;
-			int lineCounter = 1;
+			while (true) {
 
-			BufferedReader reader = Files.newBufferedReader(traceFile, Charset.defaultCharset());
-			String traceLine = null;
+				long startTime = System.nanoTime();
+				CharSequence traceLine = reader.readLine();
+				readTime += System.nanoTime() - startTime;
+				byteCounter = reader.getPosition() - startPosition;
 
-			while ((traceLine = reader.readLine()) != null) {
+				if (traceLine == null) {
+					break;
+				}
 
 				// Retrieve trace object from string
+				startTime = System.nanoTime();
 				Trace trace = TraceLoaderUtils.parseTraceLine(traceLine);
+				parseTime += System.nanoTime() - startTime;
 
-				// Insert new trace in database
-				if (trace != null) {
+				// Queue new trace for insertion
+				startTime = System.nanoTime();
+				writeTrace(trace, traceLine, reader.getPosition());
+				writeTime += System.nanoTime() - startTime;
+			}
 
-					Long threadId = Long.valueOf(trace.getThreadId());
-					trace.setScenarioId(scenario.getKeyId());
+			// Flush remaining traces
+			long startTime = System.nanoTime();
+			flushTraces();
+			writeTime += System.nanoTime() - startTime;
+		}
+	}
 
-					// Check for thread stack trace
-					if (!threadTraces.containsKey(threadId)) {
-						threadTraces.put(threadId, new Stack<Trace>());
-					}
+	/**
+	 * Decode and write all traces contained in a binary trace file within the
+	 * current thread. A truncated last record, as left by an application
+	 * killed before its traces were flushed, is reported as an error.
+	 * 
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private void doLoadBinary() throws IOException, SQLException {
+
+		try (TraceBinaryReader reader = new TraceBinaryReader(traceFile)) {
+
+			// Skip records already loaded
+			int skippedRecords = 0;
+			while (skippedRecords < startLine && reader.readTrace() != null) {
+				skippedRecords++;
+			}
+
+			while (true) {
+
+				long startTime = System.nanoTime();
+				Trace trace;
+
+				try {
+					trace = reader.readTrace();
+				}
+				catch (EOFException e) {
+					Console.writeError(this, " truncated binary trace after record: " + lineCounter);
+					errorCounter++;
+					break;
+				}
+				finally {
+					readTime += System.nanoTime() - startTime;
+				}
+
+				if (trace == null) {
+					break;
+				}
+
+				// Queue new trace for insertion
+				startTime = System.nanoTime();
+				timeScale = reader.isNanoClock() ? 1 : TraceLoaderUtils.MILLIS_TO_NANOS;
+				writeTrace(trace, null, 0);
+				writeTime += System.nanoTime() - startTime;
+			}
+
+			// Flush remaining traces
+			long startTime = System.nanoTime();
+			flushTraces();
+			writeTime += System.nanoTime() - startTime;
+
+			byteCounter = traceFile.toFile().length();
+		}
+	}
+
+	/**
+	 * Read trace lines by chunks within a reader thread, parse each chunk on
+	 * a pool of workers and write the resulting traces within the current
+	 * thread, in the same order as the trace file.
+	 * 
+	 * @throws Exception
+	 */
+	private void doLoadPipelined() throws Exception {
+
+		final ExecutorService parserPool = Executors.newFixedThreadPool(parseThreads);
+		final BlockingQueue<Future<TraceChunk>> parsedChunks = new ArrayBlockingQueue<>(parseThreads * 4);
+		final FutureTask<TraceChunk> endOfFile = new FutureTask<>(new TraceChunk());
+		final Exception[] readerError = new Exception[1];
+
+		endOfFile.run();
+
+		// Reader thread: split the trace file into chunks of lines
+		Thread readerThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				try (MappedLineReader reader = new MappedLineReader(traceFile)) {
+
+					TraceChunk chunk = new TraceChunk();
+					reader.setPosition(startPosition);
 
-					// Retrieve current thread stack
-					Stack<Trace> threadStack = threadTraces.get(threadId);
+					while (true) {
 
-					// Trace entering, so create a new trace
-					if (trace.isEnteringTrace()) {
-						trace.setSequenceNumber(++traceCounter);
-						applicationLogic.saveTrace(trace);
-						threadStack.push(trace);
-						Console.writeInfo(this, "  trace entering created: " + trace.getSequenceNumber());
+						long startTime = System.nanoTime();
+						CharSequence traceLine = reader.readLine();
+						readTime += System.nanoTime() - startTime;
+						byteCounter = reader.getPosition() - startPosition;
+
+						if (traceLine == null) {
+							break;
+						}
+
+						chunk.positions[chunk.lines.size()] = reader.getPosition();
+						chunk.lines.add(traceLine);
+
+						// Submit full chunk to parser pool
+						if (chunk.lines.size() >= CHUNK_SIZE) {
+							parsedChunks.put(parserPool.submit(chunk));
+							chunk = new TraceChunk();
+						}
 					}
 
-					// Trace exiting, so compute duration trace
-					else {
-						Trace popedTrace = threadStack.pop();
-						long traceDuration = trace.getTimestamp() - popedTrace.getTimestamp();
+					if (!chunk.lines.isEmpty()) {
+						parsedChunks.put(parserPool.submit(chunk));
+					}
+
+					parsedChunks.put(endOfFile);
+				}
+				catch (IOException | InterruptedException e) {
+
+					readerError[0] = e;
 
-						popedTrace.setDuration(traceDuration);
-						applicationLogic.saveTrace(trace);
+					// Only the writer interrupts the reader, when it has stopped consuming
+					if (e instanceof InterruptedException) {
+						Thread.currentThread().interrupt();
+						return;
+					}
 
-						trace.setSequenceNumber(++traceCounter);
-						trace.setDuration(traceDuration);
-						applicationLogic.saveTrace(trace);
-						Console.writeInfo(this, "  trace exiting created:  " + trace.getSequenceNumber());
+					// Wait for room in queue, so that the writer always ends
+					try {
+						parsedChunks.put(endOfFile);
+					}
+					catch (InterruptedException e1) {
+						Thread.currentThread().interrupt();
 					}
 				}
+			}
+		}, getName() + "-reader");
 
-				// Otherwise show error line
-				else {
-					Console.writeError(this, " error in line: " + lineCounter + ", content: " + traceLine);
-					errorCounter++;
+		readerThread.start();
+
+		try {
+
+			// Writer: consume chunks in file order
+			while (true) {
+
+				Future<TraceChunk> parsedChunk = parsedChunks.take();
+
+				if (parsedChunk == endOfFile) {
+					break;
 				}
 
-				lineCounter++;
+				TraceChunk chunk = parsedChunk.get();
+				parseTime += chunk.parseTime;
+
+				long startTime = System.nanoTime();
+
+				for (int i = 0; i < chunk.traces.length; i++) {
+					writeTrace(chunk.traces[i], chunk.lines.get(i), chunk.positions[i]);
+				}
+
+				writeTime += System.nanoTime() - startTime;
 			}
 
-			Console.writeInfo(this, "TraceLoader report:");
-			Console.writeInfo(this, "  parsed lines:   " + (lineCounter - 1));
-			Console.writeInfo(this, "  trace created:  " + traceCounter);
-			Console.writeInfo(this, "  error detected: " + errorCounter);
+			// Flush remaining traces
+			long startTime = System.nanoTime();
+			flushTraces();
+			writeTime += System.nanoTime() - startTime;
+
+			readerThread.join();
+
+			if (readerError[0] != null) {
+				throw readerError[0];
+			}
 		}
-		catch (Exception e) {
-			Console.writeError(this, "unexpected error while parsing trace file: " + StringUtils.toString(e));
+		finally {
+			readerThread.interrupt();
+			parserPool.shutdownNow();
 		}
 	}
 
+	/**
+	 * Assign a sequence number to the trace passed in argument, update its
+	 * thread stack and queue it for insertion. Traces are flushed to the
+	 * database as soon as the batch is full.
+	 * 
+	 * Timestamps are converted to nanoseconds, unless the trace file starts
+	 * with a nanosecond clock header.
+	 * 
+	 * @param trace
+	 *        the trace parsed from line, or null if the line is invalid
+	 * @param traceLine
+	 *        the original trace line
+	 * @param position
+	 *        the position in file following the trace line
+	 * @throws SQLException
+	 */
+	private void writeTrace(Trace trace, CharSequence traceLine, long position) throws SQLException {
+
+		lineCounter++;
+		linePosition = position;
+
+		// Queue new trace for insertion
+		if (trace != null) {
+
+			Long threadId = Long.valueOf(trace.getThreadId());
+			trace.setScenarioId(scenario.getKeyId());
+			trace.setTimestamp(trace.getTimestamp() * timeScale);
+
+			// Check for thread stack trace
+			if (!threadTraces.containsKey(threadId)) {
+				threadTraces.put(threadId, new Stack<Trace>());
+			}
+
+			// Retrieve current thread stack
+			Stack<Trace> threadStack = threadTraces.get(threadId);
+
+			// Trace entering, so create a new trace
+			if (trace.isEnteringTrace()) {
+				trace.setSequenceNumber(++traceCounter);
+				pendingTraces.add(trace);
+				threadStack.push(trace);
+			}
+
+			// Trace exiting, so compute duration trace
+			else {
+				Trace popedTrace = threadStack.pop();
+				long traceDuration = trace.getTimestamp() - popedTrace.getTimestamp();
+
+				popedTrace.setDuration(traceDuration);
+
+				// Entering trace already flushed, so its duration should be updated
+				if (popedTrace.getKeyId() > 0) {
+					pendingTraces.add(popedTrace);
+				}
+
+				trace.setSequenceNumber(++traceCounter);
+				trace.setDuration(traceDuration);
+				pendingTraces.add(trace);
+			}
+
+			// Flush traces when batch is full
+			if (pendingTraces.size() >= batchSize) {
+				flushTraces();
+				Console.writeInfo(this, "  traces created: " + traceCounter);
+			}
+		}
+
+		// Clock header, timestamps are converted from its unit
+		else if (traceLine != null && TraceLoaderUtils.getClockHeaderScale(traceLine) > 0) {
+			timeScale = TraceLoaderUtils.getClockHeaderScale(traceLine);
+		}
+
+		// Otherwise show error line
+		else {
+			Console.writeError(this, " error in line: " + lineCounter + ", content: " + traceLine);
+			errorCounter++;
+		}
+	}
+
+	/**
+	 * Save all pending traces into the database, within a single batch,
+	 * together with the checkpoint of the last line written.
+	 * 
+	 * On failure, loading should stop: the last checkpoint committed is
+	 * kept, so that a resume starts again from it.
+	 * 
+	 * @throws SQLException
+	 */
+	private void flushTraces() throws SQLException {
+
+		if (!pendingTraces.isEmpty()) {
+
+			checkpoint.setPosition(linePosition);
+			checkpoint.setTraceCounter(traceCounter);
+			checkpoint.setLineCounter(lineCounter);
+			checkpoint.setTimeScale(timeScale);
+
+			applicationLogic.saveTraces(pendingTraces, checkpoint);
+			pendingTraces.clear();
+		}
+	}
+
+	/**
+	 * Compute the number of lines handled per second by a stage.
+	 * 
+	 * @param elapsedTime
+	 *        the time spent within the stage, in nanoseconds
+	 * @return a string representation of the rate
+	 */
+	private String getLineRate(long elapsedTime) {
+		return elapsedTime == 0 ? "-" : String.format("%.0f", (lineCounter - startLine) * 1e9 / elapsedTime);
+	}
+
+	/**
+	 * Compute the number of megabytes read per second.
+	 * 
+	 * @param elapsedTime
+	 *        the time spent reading, in nanoseconds
+	 * @return a string representation of the rate
+	 */
+	private String getByteRate(long elapsedTime) {
+		return elapsedTime == 0 ? "-" : String.format("%.1f", byteCounter * 1e9 / elapsedTime / (1024 * 1024));
+	}
+
 	/**
 	 * Stop the engine
 	 * 
@@ -247,4 +680,31 @@ public class TraceLoader implements IEngine {
 	@Override
 	public void stop() {
 	}
+
+	/**
+	 * A chunk of consecutive trace lines, parsed by a worker of the pool.
+	 */
+	private static class TraceChunk implements Callable<TraceChunk> {
+
+		private List<CharSequence> lines = new ArrayList<>(CHUNK_SIZE);
+		private long[] positions = new long[CHUNK_SIZE];
+		private Trace[] traces = new Trace[0];
+		private long parseTime;
+
+		@Override
+		public TraceChunk call() {
+
+			long startTime = System.nanoTime();
+
+			traces = new Trace[lines.size()];
+
+			for (int i = 0; i < traces.length; i++) {
+				traces[i] = TraceLoaderUtils.parseTraceLine(lines.get(i));
+			}
+
+			parseTime = System.nanoTime() - startTime;
+
+			return this;
+		}
+	}
 }
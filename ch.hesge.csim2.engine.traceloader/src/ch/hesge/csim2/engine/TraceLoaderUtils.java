@@ -1,8 +1,5 @@
 package ch.hesge.csim2.engine;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import ch.hesge.csim2.core.model.Trace;
 
 /**
@@ -10,16 +7,20 @@ import ch.hesge.csim2.core.model.Trace;
  */
 public class TraceLoaderUtils {
 
-	// Private static attributes
-	private static Pattern traceLinePattern;
+	// Public constants
+	public static final long SECONDS_TO_NANOS = 1000000000L;
+	public static final long MILLIS_TO_NANOS = 1000000L;
 
-	// Regex used to match each trace line (validation)
-	private static String traceLineRegex = "(?<endtag>END\\s)?" + "(?<dynapack>\\S+)?" + "\\s" + "(?<dynaclass>\\S+)?" + "\\s" + "(?<statpack>\\S+)?" + "\\s" + "(?<statclass>\\S+)?" + "\\s" + "\\[(?<threadid>\\d+)\\]" + "\\s" + "(?<signature>.*\\(.*\\))" + "\\s" + "AS" + "\\s" + "(?<returntype>.+)" + "\\s" + "\\[(?<timestamp>\\d+)\\]" + "\\s*";
+	// Private constants
+	private static final String CLOCK_HEADER = "#clock";
 
-	// Static initializer
-	static {
-		traceLinePattern = Pattern.compile(traceLineRegex);
-	}
+	// Private static attributes
+	private static ThreadLocal<TraceLineParser> traceLineParser = new ThreadLocal<TraceLineParser>() {
+		@Override
+		protected TraceLineParser initialValue() {
+			return new TraceLineParser();
+		}
+	};
 
 	/**
 	 * Parse a string and extract Trace information contained in it.
@@ -38,53 +39,60 @@ public class TraceLoaderUtils {
 	 * 			END package class package CDBCTherm [5308] RecBinX(CStdioFile,eIDRB,TCHAR,void,int) AS void [1392998705]
 	 * 
 	 * </pre>
+	 * 
+	 * Each thread uses its own TraceLineParser, so this method may be called
+	 * concurrently.
 	 */
-	public static Trace parseTraceLine(String traceLine) {
-
-		Trace trace = null;
-		Matcher regexMatcher = traceLinePattern.matcher(traceLine);
+	public static Trace parseTraceLine(CharSequence traceLine) {
 
-		if (regexMatcher.matches()) {
+		Trace trace = new Trace();
 
-			trace = new Trace();
+		if (!traceLineParser.get().parse(traceLine, trace)) {
+			trace = null;
+		}
 
-			boolean isEnteringTrace = regexMatcher.group("endtag") == null;
+		return trace;
+	}
 
-			String strThreadId = regexMatcher.group("threadid");
-			long threadId = Long.valueOf(strThreadId);
+	/**
+	 * Retrieve the factor converting timestamps expressed in a clock unit
+	 * into nanoseconds.
+	 * 
+	 * @param clockUnit
+	 *        the unit, either 'seconds', 'millis' or 'nanos'
+	 * @return the scale to apply or -1 if the unit is unknown
+	 */
+	public static long getClockScale(String clockUnit) {
+
+		switch (clockUnit.trim().toLowerCase()) {
+			case "seconds":
+				return SECONDS_TO_NANOS;
+			case "millis":
+				return MILLIS_TO_NANOS;
+			case "nanos":
+				return 1;
+			default:
+				return -1;
+		}
+	}
 
-			String strTimestamp = regexMatcher.group("timestamp");
-			long timestamp = Long.valueOf(strTimestamp);
+	/**
+	 * Parse the header written by trace loggers to declare the unit of their
+	 * timestamps, for instance '#clock millis'.
+	 * 
+	 * @param traceLine
+	 *        the line to check
+	 * @return the scale converting timestamps of the file into nanoseconds or
+	 *         -1 if the line is not a valid clock header
+	 */
+	public static long getClockHeaderScale(CharSequence traceLine) {
 
-			String instanceId     = "0";
-			String staticPackage  = regexMatcher.group("statpack");
-			String staticClass    = regexMatcher.group("statclass");
-			String dynamicPackage = regexMatcher.group("dynapack");
-			String dynamicClass   = regexMatcher.group("dynaclass");
+		String headerLine = traceLine.toString().trim();
 
-			// Split class in classname and instance id, if available
-			if (staticClass.contains("#")) {
-				instanceId  = staticClass.split("#")[1];
-				staticClass = staticClass.split("#")[0];
-			}
-			
-			// Split class in classname and instance id, if available
-			if (dynamicClass.contains("#")) {
-				dynamicClass = dynamicClass.split("#")[0];
-			}
-			
-			trace.setEnteringTrace(isEnteringTrace);
-			trace.setStaticPackage(staticPackage);
-			trace.setStaticClass(staticClass);
-			trace.setInstanceId(instanceId);
-			trace.setDynamicPackage(dynamicPackage);
-			trace.setDynamicClass(dynamicClass);
-			trace.setThreadId(threadId);
-			trace.setSignature(regexMatcher.group("signature"));
-			trace.setReturnType(regexMatcher.group("returntype"));
-			trace.setTimestamp(timestamp);
+		if (!headerLine.startsWith(CLOCK_HEADER + " ")) {
+			return -1;
 		}
 
-		return trace;
+		return getClockScale(headerLine.substring(CLOCK_HEADER.length()));
 	}
 }
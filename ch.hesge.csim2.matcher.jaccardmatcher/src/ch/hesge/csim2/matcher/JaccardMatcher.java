@@ -4,7 +4,7 @@
 package ch.hesge.csim2.matcher;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -18,11 +18,20 @@ import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.StemConcept;
 import ch.hesge.csim2.core.model.StemMethod;
 import ch.hesge.csim2.core.utils.Console;
+import ch.hesge.csim2.core.utils.IMethodScorer;
+import ch.hesge.csim2.core.utils.MatchingEngine;
+import ch.hesge.csim2.core.utils.StemTermIndex;
 
 /**
  * This engine allow matching calculation based
  * on the Jaccard similarity measure.
  * 
+ * A method and a concept sharing no term have a null similarity. So with a
+ * positive threshold, only concepts sharing a term with a method (retrieved
+ * through the stem term index) are scored.
+ * 
+ * Methods are scored in parallel through the MatchingEngine.
+ * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
  * @author Eric Harth
@@ -75,61 +84,54 @@ public class JaccardMatcher implements IMethodConceptMatcher {
 	 * @return
 	 *         a map of (MethodId, List<MethodConceptMatch>)
 	 */
-	public Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(Project project, float threshold) {
-
-		List<MethodConceptMatch> matchings = new ArrayList<>();
+	public Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(final Project project, final float threshold) {
 
 		// Load concepts, methods and stems data
 		Map<Integer, SourceMethod> methodMap = applicationLogic.getSourceMethodMap(project);
-		Map<Integer, Concept> conceptMap     = applicationLogic.getConceptMap(project);
-		Map<Integer, StemMethod> stemMethodTreeMap   = applicationLogic.getStemMethodTreeMap(project);
-		Map<Integer, StemConcept> stemConceptTreeMap = applicationLogic.getStemConceptTreeMap(project);;
-		
-		double maxWeight = 0d;
+		final Map<Integer, Concept> conceptMap     = applicationLogic.getConceptMap(project);
+		final Map<Integer, StemMethod> stemMethodTreeMap   = applicationLogic.getStemMethodTreeMap(project);
+		final Map<Integer, StemConcept> stemConceptTreeMap = applicationLogic.getStemConceptTreeMap(project);
+		final StemTermIndex termIndex = applicationLogic.getStemTermIndex(project);
 
-		// Scan all method and lookup for matching concepts
-		for (SourceMethod method : methodMap.values()) {
-			for (Concept concept : conceptMap.values()) {
+		// Null similarities are selected by a threshold not positive
+		final boolean isExhaustive = threshold <= 0 || StemTermIndex.isExhaustiveMatching();
 
-				List<StemMethod> matchingMethodStems = new ArrayList<>();
-				List<StemConcept> matchingConceptStems = new ArrayList<>();
-				
-				double similarity = computeSimilarity(method, concept, stemMethodTreeMap, stemConceptTreeMap, matchingMethodStems, matchingConceptStems);
+		// Scan all method in parallel and lookup for matching concepts
+		return MatchingEngine.getMethodMatchingMap(methodMap.values(), new IMethodScorer() {
 
-				// Register result within the matchMap
-				if (similarity >= threshold) {
+			@Override
+			public List<MethodConceptMatch> scoreMethod(SourceMethod method, int methodIndex) {
 
-					MethodConceptMatch match = new MethodConceptMatch();
+				List<MethodConceptMatch> matchings = new ArrayList<>();
+				Collection<Concept> concepts = isExhaustive ? conceptMap.values() : termIndex.getCandidateConcepts(method, conceptMap);
 
-					match.setProject(project);
-					match.setSourceClass(method.getSourceClass());
-					match.setSourceMethod(method);
-					match.setConcept(concept);
-					match.setWeight(similarity);
-					match.getStemMethods().addAll(matchingMethodStems);
-					match.getStemConcepts().addAll(matchingConceptStems);
+				for (Concept concept : concepts) {
 
-					matchings.add(match);
-					maxWeight = Math.max(maxWeight, similarity);
-				}
-			}
-		}
+					List<StemMethod> matchingMethodStems = new ArrayList<>();
+					List<StemConcept> matchingConceptStems = new ArrayList<>();
+					
+					double similarity = computeSimilarity(method, concept, stemMethodTreeMap, stemConceptTreeMap, matchingMethodStems, matchingConceptStems);
 
-		Map<Integer, List<MethodConceptMatch>> matchingMap = new HashMap<>();
+					// Register result within the matchMap
+					if (similarity >= threshold) {
 
-		// Now, aggregate all matchings by method
-		for (MethodConceptMatch match : matchings) {
+						MethodConceptMatch match = new MethodConceptMatch();
 
-			// Create an method list if not already initialized
-			if (!matchingMap.containsKey(match.getSourceMethod().getKeyId())) {
-				matchingMap.put(match.getSourceMethod().getKeyId(), new ArrayList<>());
-			}
+						match.setProject(project);
+						match.setSourceClass(method.getSourceClass());
+						match.setSourceMethod(method);
+						match.setConcept(concept);
+						match.setWeight(similarity);
+						match.getStemMethods().addAll(matchingMethodStems);
+						match.getStemConcepts().addAll(matchingConceptStems);
 
-			// Add the match to the array for the specific method
-			matchingMap.get(match.getSourceMethod().getKeyId()).add(match);
-		}
+						matchings.add(match);
+					}
+				}
 
-		return matchingMap;
+				return matchings;
+			}
+		});
 	}
 
 	/**
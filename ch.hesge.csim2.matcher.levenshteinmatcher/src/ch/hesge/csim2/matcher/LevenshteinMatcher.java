@@ -4,9 +4,12 @@
 package ch.hesge.csim2.matcher;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import ch.hesge.csim2.core.logic.ApplicationLogic;
 import ch.hesge.csim2.core.model.Concept;
@@ -16,11 +19,21 @@ import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.StemConcept;
 import ch.hesge.csim2.core.model.StemMethod;
+import ch.hesge.csim2.core.utils.IMethodScorer;
+import ch.hesge.csim2.core.utils.MatchingEngine;
+import ch.hesge.csim2.core.utils.StemTermIndex;
 
 /**
  * This engine allow matching calculation based
  * on the Levenshtein similarity measure.
  * 
+ * Since the similarity of a method and a concept is the average similarity
+ * of their terms, it can only exceed the threshold if at least one pair of
+ * terms does. Near terms are therefore computed once over all distinct terms,
+ * and only concepts having a term near to one of a method are scored.
+ * 
+ * Methods are scored in parallel through the MatchingEngine.
+ * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
  * @author Eric Harth
@@ -73,61 +86,90 @@ public class LevenshteinMatcher implements IMethodConceptMatcher {
 	 * @return
 	 *         a map of (MethodId, List<MethodConceptMatch>)
 	 */
-	public Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(Project project, float threshold) {
-
-		List<MethodConceptMatch> matchings = new ArrayList<>();
+	public Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(final Project project, final float threshold) {
 
 		// Load concepts, methods and stems data
 		Map<Integer, SourceMethod> methodMap = applicationLogic.getSourceMethodMap(project);
-		Map<Integer, Concept> conceptMap     = applicationLogic.getConceptMap(project);
-		Map<Integer, StemMethod> stemMethodTreeMap   = applicationLogic.getStemMethodTreeMap(project);
-		Map<Integer, StemConcept> stemConceptTreeMap = applicationLogic.getStemConceptTreeMap(project);;
-		
-		double maxWeight = 0d;
+		final Map<Integer, Concept> conceptMap     = applicationLogic.getConceptMap(project);
+		final Map<Integer, StemMethod> stemMethodTreeMap   = applicationLogic.getStemMethodTreeMap(project);
+		final Map<Integer, StemConcept> stemConceptTreeMap = applicationLogic.getStemConceptTreeMap(project);
+		final StemTermIndex termIndex = applicationLogic.getStemTermIndex(project);
+
+		// With a negative threshold, all terms are near
+		final boolean isExhaustive = threshold < 0 || StemTermIndex.isExhaustiveMatching();
+		final Map<String, Set<String>> nearTerms = isExhaustive ? null : getNearTerms(termIndex, threshold);
 
-		// Scan all method and lookup for matching concepts
-		for (SourceMethod method : methodMap.values()) {
-			for (Concept concept : conceptMap.values()) {
+		// Scan all method in parallel and lookup for matching concepts
+		return MatchingEngine.getMethodMatchingMap(methodMap.values(), new IMethodScorer() {
 
-				List<StemMethod> matchingMethodStems = new ArrayList<>();
-				List<StemConcept> matchingConceptStems = new ArrayList<>();
+			@Override
+			public List<MethodConceptMatch> scoreMethod(SourceMethod method, int methodIndex) {
 
-				double similarity = computeSimilarity(method, concept, stemMethodTreeMap, stemConceptTreeMap, matchingMethodStems, matchingConceptStems);
+				List<MethodConceptMatch> matchings = new ArrayList<>();
+				Collection<Concept> concepts = isExhaustive ? conceptMap.values() : termIndex.getCandidateConcepts(method, conceptMap, nearTerms);
 
-				// Register result within the matchMap
-				if (similarity > threshold) {
+				for (Concept concept : concepts) {
 
-					MethodConceptMatch match = new MethodConceptMatch();
+					List<StemMethod> matchingMethodStems = new ArrayList<>();
+					List<StemConcept> matchingConceptStems = new ArrayList<>();
 
-					match.setProject(project);
-					match.setSourceClass(method.getSourceClass());
-					match.setSourceMethod(method);
-					match.setConcept(concept);
-					match.setWeight(similarity);
-					match.getStemMethods().addAll(matchingMethodStems);
-					match.getStemConcepts().addAll(matchingConceptStems);
+					double similarity = computeSimilarity(method, concept, stemMethodTreeMap, stemConceptTreeMap, matchingMethodStems, matchingConceptStems);
 
-					matchings.add(match);
-					maxWeight = Math.max(maxWeight, similarity);
+					// Register result within the matchMap
+					if (similarity > threshold) {
+
+						MethodConceptMatch match = new MethodConceptMatch();
+
+						match.setProject(project);
+						match.setSourceClass(method.getSourceClass());
+						match.setSourceMethod(method);
+						match.setConcept(concept);
+						match.setWeight(similarity);
+						match.getStemMethods().addAll(matchingMethodStems);
+						match.getStemConcepts().addAll(matchingConceptStems);
+
+						matchings.add(match);
+					}
 				}
+
+				return matchings;
 			}
-		}
+		});
+	}
+
+	/**
+	 * Retrieve for each method term, all concept terms whose similarity is
+	 * above the threshold.
+	 * 
+	 * @param termIndex
+	 *        the index of all terms
+	 * @param threshold
+	 *        the threshold to use when selecting terms
+	 * @return a map of (method term, near concept terms)
+	 */
+	private Map<String, Set<String>> getNearTerms(StemTermIndex termIndex, float threshold) {
 
-		Map<Integer, List<MethodConceptMatch>> matchingMap = new HashMap<>();
+		Map<String, Set<String>> nearTerms = new HashMap<>();
 
-		// Now, aggregate all matchings by method
-		for (MethodConceptMatch match : matchings) {
+		for (String methodTerm : termIndex.getMethodTerms()) {
 
-			// Create an method list if not already initialized
-			if (!matchingMap.containsKey(match.getSourceMethod().getKeyId())) {
-				matchingMap.put(match.getSourceMethod().getKeyId(), new ArrayList<>());
+			Set<String> conceptTerms = new HashSet<>();
+
+			for (String conceptTerm : termIndex.getConceptTerms()) {
+
+				double levenshteinSimilarity = 1d - computeLevenshteinDistance(methodTerm, conceptTerm);
+
+				if (levenshteinSimilarity > threshold) {
+					conceptTerms.add(conceptTerm);
+				}
 			}
 
-			// Add the match to the array for the specific method
-			matchingMap.get(match.getSourceMethod().getKeyId()).add(match);
+			if (!conceptTerms.isEmpty()) {
+				nearTerms.put(methodTerm, conceptTerms);
+			}
 		}
 
-		return matchingMap;
+		return nearTerms;
 	}
 
 	/**
@@ -4,7 +4,7 @@
 package ch.hesge.csim2.matcher;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -19,11 +19,20 @@ import ch.hesge.csim2.core.model.StemConceptType;
 import ch.hesge.csim2.core.model.StemMethod;
 import ch.hesge.csim2.core.model.StemMethodType;
 import ch.hesge.csim2.core.utils.Console;
+import ch.hesge.csim2.core.utils.IMethodScorer;
+import ch.hesge.csim2.core.utils.MatchingEngine;
+import ch.hesge.csim2.core.utils.StemTermIndex;
 
 /**
  * This engine allow matching calculation based
  * on the source-code, ontology item comparison.
  * 
+ * All matching rules compare terms for equality, so that a method and a
+ * concept sharing no term have a null similarity. Only concepts sharing a
+ * term with a method (retrieved through the stem term index) are scored.
+ * 
+ * Methods are scored in parallel through the MatchingEngine.
+ * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
  * @author Eric Harth
@@ -33,14 +42,12 @@ public class SourceMatcher implements IMethodConceptMatcher {
 
 	// Private attributes
 	private ApplicationLogic applicationLogic;
-	private List<MethodConceptMatch> matchings;
 
 	/**
 	 * Default constructor
 	 */
 	public SourceMatcher() {
 		applicationLogic = ApplicationLogic.UNIQUE_INSTANCE;
-		matchings = new ArrayList<>();
 	}
 
 	/**
@@ -78,67 +85,63 @@ public class SourceMatcher implements IMethodConceptMatcher {
 	 * @return
 	 *         a map of (MethodId, List<MethodConceptMatch>)
 	 */
-	public Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(Project project, float threshold) {
+	public Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(final Project project, final float threshold) {
 
-		matchings.clear();
-		
 		// Load stem concepts and methods
-		Map<Integer, StemMethod> stemMethodTreeMap   = applicationLogic.getStemMethodTreeMap(project);
-		Map<Integer, StemConcept> stemConceptTreeMap = applicationLogic.getStemConceptTreeMap(project);
+		final Map<Integer, StemMethod> stemMethodTreeMap   = applicationLogic.getStemMethodTreeMap(project);
+		final Map<Integer, StemConcept> stemConceptTreeMap = applicationLogic.getStemConceptTreeMap(project);
 
 		// Load concepts, methods and stems data
 		Map<Integer, SourceMethod> methodMap = applicationLogic.getSourceMethodMap(project);
-		Map<Integer, Concept> conceptMap = applicationLogic.getConceptMap(project);
+		final Map<Integer, Concept> conceptMap = applicationLogic.getConceptMap(project);
+		final StemTermIndex termIndex = applicationLogic.getStemTermIndex(project);
+
+		// Null similarities are selected by a negative threshold
+		final boolean isExhaustive = threshold < 0 || StemTermIndex.isExhaustiveMatching();
 		
-		// Scan all method and lookup for matching concepts
-		for (SourceMethod method : methodMap.values()) {
-			for (Concept concept : conceptMap.values()) {
+		// Scan all method in parallel and lookup for matching concepts
+		return MatchingEngine.getMethodMatchingMap(methodMap.values(), new IMethodScorer() {
 
-				ArrayList<StemConcept> matchingStemConcepts = new ArrayList<>();
-				ArrayList<StemMethod> matchingStemMethods = new ArrayList<>();
+			@Override
+			public List<MethodConceptMatch> scoreMethod(SourceMethod method, int methodIndex) {
 
-				StemConcept rootStemConcept = stemConceptTreeMap.get(concept.getKeyId());
-				StemMethod rootStemMethod   = stemMethodTreeMap.get(method.getKeyId());
+				List<MethodConceptMatch> matchings = new ArrayList<>();
+				Collection<Concept> concepts = isExhaustive ? conceptMap.values() : termIndex.getCandidateConcepts(method, conceptMap);
 
-				// Compute structural similarity
-				double similarity = computeSimilarity(concept, method, rootStemConcept, rootStemMethod, matchingStemConcepts, matchingStemMethods);
+				for (Concept concept : concepts) {
 
-				// Compute structural similarity
-				//double similarity = computeSimilarity2(method, concept, stemMethodTreeMap, stemConceptTreeMap, matchingStemMethods, matchingStemConcepts);
+					ArrayList<StemConcept> matchingStemConcepts = new ArrayList<>();
+					ArrayList<StemMethod> matchingStemMethods = new ArrayList<>();
 
-				// Register result within the matchMap
-				if (similarity > threshold) {
-					
-					MethodConceptMatch match = new MethodConceptMatch();
+					StemConcept rootStemConcept = stemConceptTreeMap.get(concept.getKeyId());
+					StemMethod rootStemMethod   = stemMethodTreeMap.get(method.getKeyId());
 
-					match.setProject(project);
-					match.setSourceClass(method.getSourceClass());
-					match.setSourceMethod(method);
-					match.setConcept(concept);
-					match.setWeight(similarity);
-					match.getStemMethods().addAll(matchingStemMethods);
-					match.getStemConcepts().addAll(matchingStemConcepts);
+					// Compute structural similarity
+					double similarity = computeSimilarity(concept, method, rootStemConcept, rootStemMethod, matchingStemConcepts, matchingStemMethods);
 
-					matchings.add(match);
-				}
-			}
-		}
+					// Compute structural similarity
+					//double similarity = computeSimilarity2(method, concept, stemMethodTreeMap, stemConceptTreeMap, matchingStemMethods, matchingStemConcepts);
 
-		Map<Integer, List<MethodConceptMatch>> matchingMap = new HashMap<>();
-
-		// Now, aggregate all matchings by method
-		for (MethodConceptMatch match : matchings) {
+					// Register result within the matchMap
+					if (similarity > threshold) {
+						
+						MethodConceptMatch match = new MethodConceptMatch();
 
-			// Create an method list if not already initialized
-			if (!matchingMap.containsKey(match.getSourceMethod().getKeyId())) {
-				matchingMap.put(match.getSourceMethod().getKeyId(), new ArrayList<>());
-			}
+						match.setProject(project);
+						match.setSourceClass(method.getSourceClass());
+						match.setSourceMethod(method);
+						match.setConcept(concept);
+						match.setWeight(similarity);
+						match.getStemMethods().addAll(matchingStemMethods);
+						match.getStemConcepts().addAll(matchingStemConcepts);
 
-			// Add the match to the array for the specific method
-			matchingMap.get(match.getSourceMethod().getKeyId()).add(match);
-		}
+						matchings.add(match);
+					}
+				}
 
-		return matchingMap;
+				return matchings;
+			}
+		});
 	}
 
 	/**
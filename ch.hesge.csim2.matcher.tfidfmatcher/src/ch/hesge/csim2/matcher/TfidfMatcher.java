@@ -4,9 +4,9 @@
 package ch.hesge.csim2.matcher;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import ch.hesge.csim2.core.logic.ApplicationLogic;
 import ch.hesge.csim2.core.model.Concept;
@@ -16,14 +16,21 @@ import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.StemConcept;
 import ch.hesge.csim2.core.model.StemMethod;
-import ch.hesge.csim2.core.utils.SimpleMatrix;
+import ch.hesge.csim2.core.utils.IMethodScorer;
+import ch.hesge.csim2.core.utils.IntIndexMap;
+import ch.hesge.csim2.core.utils.MatchingEngine;
 import ch.hesge.csim2.core.utils.SimpleVector;
+import ch.hesge.csim2.core.utils.SparseMatrix;
+import ch.hesge.csim2.core.utils.SparseVector;
 import ch.hesge.csim2.core.utils.StemMatrix;
 
 /**
  * This engine allow matching calculation based
  * on the source-code, ontology item comparison, weighted by TFIDF.
  * 
+ * TFIDF matrices are sparse, since each concept or method only refers
+ * a few terms among all terms of the project.
+ * 
  * Copyright HEG Geneva 2014, Switzerland
  * 
  * @author Eric Harth
@@ -76,9 +83,7 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 	 * @return
 	 *         a map of (MethodId, List<MethodConceptMatch>)
 	 */
-	public Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(Project project, float threshold) {
-
-		List<MethodConceptMatch> matchings = new ArrayList<>();
+	public Map<Integer, List<MethodConceptMatch>> getMethodMatchingMap(final Project project, final float threshold) {
 
 		// Retrieve concept and method map
 		Map<Integer, Concept> conceptMap = applicationLogic.getConceptMap(project);
@@ -89,89 +94,51 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 		Map<String, List<StemMethod>> stemMethodsMap = applicationLogic.getStemMethodByTermMap(project);
 
 		// Get linear concepts method and terms (used in matrix cols/rows)
-		List<Concept> concepts = new ArrayList<>(conceptMap.values());
-		List<SourceMethod> methods = new ArrayList<>(methodMap.values());
-		List<String> conceptTerms = new ArrayList<>(stemConceptsMap.keySet());
-		List<String> methodTerms = new ArrayList<>(stemMethodsMap.keySet());
+		final List<Concept> concepts = new ArrayList<>(conceptMap.values());
+		final List<SourceMethod> methods = new ArrayList<>(methodMap.values());
+		final List<String> conceptTerms = new ArrayList<>(stemConceptsMap.keySet());
+		Set<String> methodTerms = stemMethodsMap.keySet();
 
 		// Calculate TFIDF matrix for concepts
-		StemMatrix<StemConcept> stemConceptMatrix = new StemMatrix<>(conceptTerms.size(), concepts.size());
-		SimpleMatrix conceptTfidfMatrix = getConceptTfidfMatrix(conceptTerms, concepts, conceptMap, stemConceptsMap, stemConceptMatrix);
+		final StemMatrix<StemConcept> stemConceptMatrix = new StemMatrix<>(conceptTerms.size(), concepts.size());
+		final SparseMatrix conceptTfidfMatrix = getConceptTfidfMatrix(conceptTerms, concepts, stemConceptsMap, stemConceptMatrix);
 
 		// Calculate TFIDF matrix for methods
-		StemMatrix<StemMethod> stemMethodMatrix = new StemMatrix<>(conceptTerms.size(), methods.size());
-		SimpleMatrix methodTfidfMatrix = getMethodTfidfMatrix(conceptTerms, methodTerms, methods, methodMap, stemMethodsMap, stemMethodMatrix, conceptTfidfMatrix);
-
-		// Scan all methods
-		for (int i = 0; i < methods.size(); i++) {
-
-			SourceMethod sourceMethod = methods.get(i);
-
-			// Retrieve the associated tfidf vector
-			SimpleVector tfidfMethodVector = methodTfidfMatrix.getColumnVector(i);
-
-			// Lookup over all concept vectors
-			for (int j = 0; j < conceptTfidfMatrix.getColumnDimension(); j++) {
-
-				Concept concept = concepts.get(j);
-
-				// Retrieve current concept vector
-				SimpleVector tfidfConceptVector = conceptTfidfMatrix.getColumnVector(j);
-				
-				// Propagate tfidfConcept values to tfidfMethod
-				tfidfMethodVector.ebeMultiply(tfidfConceptVector);
-
-				// Skip null vectors
-				if (!tfidfMethodVector.isNullVector() && !tfidfConceptVector.isNullVector()) {
-					
-					// Now calculate similarity between method and concept vectors
-					double similarity = tfidfMethodVector.cosine(tfidfConceptVector);
-					
-					// If threshold is reached, register result within the matchMap
-					if (similarity > threshold) {
-
-						MethodConceptMatch match = new MethodConceptMatch();
+		final StemMatrix<StemMethod> stemMethodMatrix = new StemMatrix<>(conceptTerms.size(), methods.size());
+		final SparseMatrix methodTfidfMatrix = getMethodTfidfMatrix(conceptTerms, methodTerms, methods, stemMethodsMap, stemMethodMatrix, conceptTfidfMatrix);
 
-						match.setProject(project);
-						match.setSourceClass(sourceMethod.getSourceClass());
-						match.setSourceMethod(sourceMethod);
-						match.setConcept(concept);
-						match.setWeight(similarity);
+		// Retrieve all concept vectors once, shared by all methods
+		final List<SparseVector> conceptVectors = new ArrayList<>();
+		for (int j = 0; j < conceptTfidfMatrix.getColumnDimension(); j++) {
+			conceptVectors.add(conceptTfidfMatrix.getColumnVector(j));
+		}
 
-						// Gather concept and method stems found for matching
-						for (int k = 0; k < conceptTerms.size(); k++) {
+		// Scan all methods in parallel, method index being the column in method matrix
+		return MatchingEngine.getMethodMatchingMap(methods, new IMethodScorer() {
 
-							if (tfidfMethodVector.getValue(k) > 0) {
-								match.getStemConcepts().addAll(stemConceptMatrix.get(k, j));
-								match.getStemMethods().addAll(stemMethodMatrix.get(k, i));
-							}
-						}
+			@Override
+			public List<MethodConceptMatch> scoreMethod(SourceMethod sourceMethod, int methodIndex) {
 
-						matchings.add(match);
-					}				
-				}
-			}
-			
+				List<MethodConceptMatch> matchings = new ArrayList<>();
 
-			/*
-			// Check if terms in method contains the current term
-			// If method vector is null, skip
-			if (!tfidfMethodVector.isNullVector()) {
+				// Retrieve the associated tfidf vector
+				SparseVector tfidfMethodVector = methodTfidfMatrix.getColumnVector(methodIndex);
 
-				// Select all concepts with similarity factor > 0
+				// Lookup over all concept vectors
 				for (int j = 0; j < conceptTfidfMatrix.getColumnDimension(); j++) {
 
-					// Retrieve current concept vector
 					Concept concept = concepts.get(j);
-					SimpleVector termConceptVector = conceptTfidfMatrix.getColumnVector(j);
 
-					// If concept vector is null, skip
-					if (!termConceptVector.isNullVector()) {
-
-						// Calculate similarity between method and concept vectors
-						double similarity = tfidfMethodVector.cosine(termConceptVector);
+					// Retrieve current concept vector
+					SparseVector tfidfConceptVector = conceptVectors.get(j);
 
-						// Register result within the matchMap
+					// Skip null vectors
+					if (!tfidfMethodVector.isNullVector() && !tfidfConceptVector.isNullVector()) {
+				
+						// Now calculate similarity between method and concept vectors
+						double similarity = tfidfMethodVector.cosine(tfidfConceptVector);
+				
+						// If threshold is reached, register result within the matchMap
 						if (similarity > threshold) {
 
 							MethodConceptMatch match = new MethodConceptMatch();
@@ -183,11 +150,12 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 							match.setWeight(similarity);
 
 							// Gather concept and method stems found for matching
-							for (int k = 0; k < conceptTerms.size(); k++) {
+							for (int l = 0; l < tfidfMethodVector.getNonZeroCount(); l++) {
 
-								if (tfidfMethodVector.getValue(k) > 0) {
+								if (tfidfMethodVector.getNonZeroValue(l) > 0) {
+									int k = tfidfMethodVector.getNonZeroIndex(l);
 									match.getStemConcepts().addAll(stemConceptMatrix.get(k, j));
-									match.getStemMethods().addAll(stemMethodMatrix.get(k, i));
+									match.getStemMethods().addAll(stemMethodMatrix.get(k, methodIndex));
 								}
 							}
 
@@ -195,25 +163,55 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 						}
 					}
 				}
-			}
-			*/
-		}
+			
+				/*
+				// Check if terms in method contains the current term
+				// If method vector is null, skip
+				if (!tfidfMethodVector.isNullVector()) {
 
-		Map<Integer, List<MethodConceptMatch>> matchingMap = new HashMap<>();
+					// Select all concepts with similarity factor > 0
+					for (int j = 0; j < conceptTfidfMatrix.getColumnDimension(); j++) {
 
-		// Now, aggregate all matchings by method
-		for (MethodConceptMatch match : matchings) {
+						// Retrieve current concept vector
+						Concept concept = concepts.get(j);
+						SparseVector termConceptVector = conceptTfidfMatrix.getColumnVector(j);
 
-			// Create an method list if not already initialized
-			if (!matchingMap.containsKey(match.getSourceMethod().getKeyId())) {
-				matchingMap.put(match.getSourceMethod().getKeyId(), new ArrayList<>());
-			}
+						// If concept vector is null, skip
+						if (!termConceptVector.isNullVector()) {
 
-			// Add the match to the array for the specific method
-			matchingMap.get(match.getSourceMethod().getKeyId()).add(match);
-		}
+							// Calculate similarity between method and concept vectors
+							double similarity = tfidfMethodVector.cosine(termConceptVector);
+
+							// Register result within the matchMap
+							if (similarity > threshold) {
+
+								MethodConceptMatch match = new MethodConceptMatch();
+
+								match.setProject(project);
+								match.setSourceClass(sourceMethod.getSourceClass());
+								match.setSourceMethod(sourceMethod);
+								match.setConcept(concept);
+								match.setWeight(similarity);
+
+								// Gather concept and method stems found for matching
+								for (int k = 0; k < conceptTerms.size(); k++) {
+
+									if (tfidfMethodVector.getValue(k) > 0) {
+										match.getStemConcepts().addAll(stemConceptMatrix.get(k, j));
+										match.getStemMethods().addAll(stemMethodMatrix.get(k, methodIndex));
+									}
+								}
+
+								matchings.add(match);
+							}
+						}
+					}
+				}
+				*/
 
-		return matchingMap;
+				return matchings;
+			}
+		});
 	}
 
 	/**
@@ -266,8 +264,6 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 	 *        the terms used to compute weights
 	 * @param concepts
 	 *        the concepts used to compute weights
-	 * @param conceptMap
-	 *        a map of all concepts classified by their keyId
 	 * @param stemConceptsMap
 	 *        the stems linking terms and concepts
 	 * @param stemConceptMatrix
@@ -275,10 +271,16 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 	 * @return
 	 *         a tf-idf matrix
 	 */
-	private static SimpleMatrix getConceptTfidfMatrix(List<String> conceptTerms, List<Concept> concepts, Map<Integer, Concept> conceptMap, Map<String, List<StemConcept>> stemConceptsMap, StemMatrix<StemConcept> stemConceptMatrix) {
+	private static SparseMatrix getConceptTfidfMatrix(List<String> conceptTerms, List<Concept> concepts, Map<String, List<StemConcept>> stemConceptsMap, StemMatrix<StemConcept> stemConceptMatrix) {
 
 		SimpleVector totalTermInConcept = new SimpleVector(concepts.size());
-		SimpleMatrix termOccurrenceInConcept = new SimpleMatrix(conceptTerms.size(), concepts.size());
+		SparseMatrix termOccurrenceInConcept = new SparseMatrix(conceptTerms.size(), concepts.size());
+
+		// Retrieve column associated to each concept
+		IntIndexMap conceptIndexMap = new IntIndexMap(concepts.size());
+		for (int j = 0; j < concepts.size(); j++) {
+			conceptIndexMap.put(concepts.get(j).getKeyId(), j);
+		}
 
 		// Scan all terms and build an occurrence matrix.
 		// For instance:
@@ -303,9 +305,12 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 				for (StemConcept stem : stemConceptsMap.get(conceptTerm)) {
 
 					// Retrieve column associated to concept
-					int conceptId = stem.getConceptId();
-					Concept concept = conceptMap.get(conceptId);
-					int j = concepts.indexOf(concept);
+					int j = conceptIndexMap.get(stem.getConceptId());
+
+					// Skip stems of unknown concepts
+					if (j == -1) {
+						continue;
+					}
 
 					// Count term occurrences in concept
 					termOccurrenceInConcept.addValue(i, j, 1d);
@@ -316,25 +321,18 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 		}
 
 		// Calculate the term frequency: tf = termOccurrenceInConcept / totalTermInConcept
-		SimpleMatrix tfMatrix = new SimpleMatrix(conceptTerms.size(), concepts.size());
-		for (int i = 0; i < tfMatrix.getRowDimension(); i++) {
-			SimpleVector occurrenceInConcept = termOccurrenceInConcept.getRowVector(i);
-			SimpleVector tfRowVector = occurrenceInConcept.ebeDivide(totalTermInConcept);
-			tfMatrix.setRowVector(i, tfRowVector);
-		}
+		SparseMatrix tfMatrix = termOccurrenceInConcept.divideColumns(totalTermInConcept);
 
 		// Calculate the inverse term frequency: idf = log( totalConceptCount / (1 + occurrenceInConcept )
-		SimpleMatrix idfMatrix = new SimpleMatrix(conceptTerms.size(), concepts.size());
-		for (int i = 0; i < idfMatrix.getRowDimension(); i++) {
-			SimpleVector occurrenceInConcept = termOccurrenceInConcept.getRowVector(i);
-			SimpleVector idfRowVector = new SimpleVector(idfMatrix.getColumnDimension());
-			idfRowVector.setValues(Math.log(concepts.size() / (1d + occurrenceInConcept.getZeroNorm())));
-			idfMatrix.setRowVector(i, idfRowVector);
+		// (idf being the same for all concepts, a single value is kept per term)
+		SimpleVector occurrenceInConcept = termOccurrenceInConcept.getRowNonZeroCounts();
+		SimpleVector idfVector = new SimpleVector(conceptTerms.size());
+		for (int i = 0; i < idfVector.getDimension(); i++) {
+			idfVector.setValue(i, Math.log(concepts.size() / (1d + occurrenceInConcept.getValue(i))));
 		}
 
 		// Finally calculate final matrix: tfidf = tf * idf
-		SimpleMatrix tfidfMatrix = new SimpleMatrix(conceptTerms.size(), concepts.size());
-		tfidfMatrix = tfMatrix.ebeMultiply(idfMatrix);
+		SparseMatrix tfidfMatrix = tfMatrix.multiplyRows(idfVector);
 
 		return tfidfMatrix;
 	}
@@ -368,8 +366,6 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 	 *        the terms used to compute weights
 	 * @param methods
 	 *        the methods used to compute weights
-	 * @param methodMap
-	 *        a map of all methods classified by their keyId
 	 * @param stemMethodsMap
 	 *        the stems linking terms and methods
 	 * @param stemMethodMatrix
@@ -377,9 +373,15 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 	 * @return
 	 *         a tf-idf matrix
 	 */
-	private static SimpleMatrix getMethodTfidfMatrix(List<String> conceptTerms, List<String> methodTerms, List<SourceMethod> methods, Map<Integer, SourceMethod> methodMap, Map<String, List<StemMethod>> stemMethodsMap, StemMatrix<StemMethod> stemMethodMatrix, SimpleMatrix termConceptMatrix) {
+	private static SparseMatrix getMethodTfidfMatrix(List<String> conceptTerms, Set<String> methodTerms, List<SourceMethod> methods, Map<String, List<StemMethod>> stemMethodsMap, StemMatrix<StemMethod> stemMethodMatrix, SparseMatrix termConceptMatrix) {
 
-		SimpleMatrix tfidfMatrix = new SimpleMatrix(conceptTerms.size(), methods.size());
+		SparseMatrix tfidfMatrix = new SparseMatrix(conceptTerms.size(), methods.size());
+
+		// Retrieve column associated to each method
+		IntIndexMap methodIndexMap = new IntIndexMap(methods.size());
+		for (int j = 0; j < methods.size(); j++) {
+			methodIndexMap.put(methods.get(j).getKeyId(), j);
+		}
 
 		// Scan all concept terms
 		for (int i = 0; i < conceptTerms.size(); i++) {
@@ -394,10 +396,13 @@ public class TfidfMatcher implements IMethodConceptMatcher {
 				for (StemMethod stem : stemMethodsMap.get(conceptTerm)) {
 					
 					// Retrieve column associated to method
-					int methodId = stem.getSourceMethodId();
-					SourceMethod method = methodMap.get(methodId);
-					int j = methods.indexOf(method);
-					
+					int j = methodIndexMap.get(stem.getSourceMethodId());
+
+					// Skip stems of unknown methods
+					if (j == -1) {
+						continue;
+					}
+
 					// Init cell with 1.0 (cell with no method matching term are marked by 0.0)
 					tfidfMatrix.setValue(i, j, 1d);
 					stemMethodMatrix.add(i, j, stem);
@@ -0,0 +1,30 @@
+# ************************************************************
+# CSIM2 database update
+#
+# Trace timestamps and durations are expressed in nanoseconds.
+# Durations no longer fit in int(11).
+#
+# Existing traces keep the unit of the logger which produced
+# them: seconds for C++ traces, milliseconds for Java traces.
+# The unit is recognized per scenario from its timestamps (since
+# epoch, seconds stay below 1e11, milliseconds below 1e14) and
+# each scenario is converted with its own factor. Scenarios
+# already in nanoseconds are left unchanged.
+# ************************************************************
+
+ALTER TABLE `traces` MODIFY `duration` bigint(20) DEFAULT NULL;
+
+CREATE TEMPORARY TABLE `trace_clocks` AS
+  SELECT `scenario_id`,
+         CASE WHEN MAX(`timestamp`) < 100000000000 THEN 1000000000
+              WHEN MAX(`timestamp`) < 100000000000000 THEN 1000000
+              ELSE 1 END AS `time_scale`
+  FROM `traces`
+  GROUP BY `scenario_id`;
+
+UPDATE `traces` t
+  INNER JOIN `trace_clocks` c ON c.`scenario_id` = t.`scenario_id`
+  SET t.`timestamp` = t.`timestamp` * c.`time_scale`, t.`duration` = t.`duration` * c.`time_scale`
+  WHERE c.`time_scale` > 1;
+
+DROP TEMPORARY TABLE `trace_clocks`;
@@ -0,0 +1,17 @@
+# ************************************************************
+# CSIM2 database update
+#
+# Checkpoints committed with each batch of traces loaded, so
+# that an interrupted trace loading can be resumed.
+# ************************************************************
+
+CREATE TABLE `trace_checkpoints` (
+  `scenario_id` int(11) NOT NULL,
+  `filename` varchar(1000) DEFAULT NULL,
+  `position` bigint(20) unsigned DEFAULT NULL,
+  `trace_counter` int(11) DEFAULT NULL,
+  `line_counter` int(11) DEFAULT NULL,
+  `time_scale` bigint(20) DEFAULT NULL,
+  `open_traces` longtext,
+  PRIMARY KEY (`scenario_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
@@ -0,0 +1,21 @@
+# ************************************************************
+# CSIM2 database update
+#
+# Content hash of each source file analyzed, so that only files
+# changed since the last analysis are parsed again. Classes keep
+# the file they were found in and the name of their superclass,
+# to be linked again when their superclass is analyzed again.
+# ************************************************************
+
+CREATE TABLE `source_files` (
+  `key_id` int(11) NOT NULL AUTO_INCREMENT,
+  `project_id` int(11) DEFAULT NULL,
+  `filename` varchar(1000) DEFAULT NULL,
+  `content_hash` varchar(64) DEFAULT NULL,
+  PRIMARY KEY (`key_id`),
+  KEY `FILE_PROJECT` (`project_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+ALTER TABLE `source_classes` ADD `file_id` int(11) DEFAULT '-1';
+ALTER TABLE `source_classes` ADD `superclass_name` varchar(300) DEFAULT NULL;
+ALTER TABLE `source_classes` ADD KEY `CLASS_FILE` (`file_id`);
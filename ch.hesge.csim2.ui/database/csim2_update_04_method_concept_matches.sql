@@ -0,0 +1,36 @@
+# ************************************************************
+# CSIM2 database update
+#
+# Matchings computed by each matcher, so that they are computed
+# once and reused. Matchings are identified by project, matcher
+# name and version, and threshold (as entered, text). Matching
+# stems are stored as comma separated stem ids.
+#
+# Each computation is recorded in method_concept_matchers, so
+# that a matcher having found no matching is not run again.
+# ************************************************************
+
+CREATE TABLE `method_concept_matchers` (
+  `key_id` int(11) NOT NULL AUTO_INCREMENT,
+  `project_id` int(11) NOT NULL,
+  `matcher_name` varchar(100) NOT NULL,
+  `matcher_version` varchar(50) NOT NULL,
+  `threshold` varchar(20) NOT NULL,
+  PRIMARY KEY (`key_id`),
+  UNIQUE KEY `MATCHER_KEY` (`project_id`,`matcher_name`,`matcher_version`,`threshold`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+CREATE TABLE `method_concept_matches` (
+  `key_id` int(11) NOT NULL AUTO_INCREMENT,
+  `project_id` int(11) NOT NULL,
+  `matcher_name` varchar(100) NOT NULL,
+  `matcher_version` varchar(50) NOT NULL,
+  `threshold` varchar(20) NOT NULL,
+  `method_id` int(11) DEFAULT NULL,
+  `concept_id` int(11) DEFAULT NULL,
+  `weight` double DEFAULT NULL,
+  `stem_concept_ids` longtext,
+  `stem_method_ids` longtext,
+  PRIMARY KEY (`key_id`),
+  KEY `MATCH_MATCHER` (`project_id`,`matcher_name`,`matcher_version`,`threshold`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
@@ -0,0 +1,11 @@
+# ************************************************************
+# CSIM2 database update
+#
+# Names of the classes declared by each source file analyzed,
+# so that an incremental analysis parses again all files
+# declaring a class found in a file changed or deleted.
+# Files analyzed before keep NULL (not recorded, unlike an
+# empty list) and the next analysis parses all files again.
+# ************************************************************
+
+ALTER TABLE `source_files` ADD `class_names` longtext DEFAULT NULL;
@@ -0,0 +1,29 @@
+# ************************************************************
+# CSIM2 database update
+#
+# Values are now bound through prepared statements, so that
+# missing strings are stored as NULL. Rows saved before hold
+# the string 'null' instead, and are converted to NULL.
+# ************************************************************
+
+UPDATE `concepts` SET `name` = NULL WHERE `name` = 'null';
+UPDATE `concepts` SET `bounds` = NULL WHERE `bounds` = 'null';
+
+UPDATE `concept_links` SET `qualifier` = NULL WHERE `qualifier` = 'null';
+
+UPDATE `source_methods` SET `filename` = NULL WHERE `filename` = 'null';
+UPDATE `source_methods` SET `name` = NULL WHERE `name` = 'null';
+UPDATE `source_methods` SET `signature` = NULL WHERE `signature` = 'null';
+UPDATE `source_methods` SET `return_type` = NULL WHERE `return_type` = 'null';
+
+UPDATE `stem_concepts` SET `term` = NULL WHERE `term` = 'null';
+UPDATE `stem_methods` SET `term` = NULL WHERE `term` = 'null';
+
+UPDATE `traces` SET `dynamic_package` = NULL WHERE `dynamic_package` = 'null';
+UPDATE `traces` SET `dynamic_class` = NULL WHERE `dynamic_class` = 'null';
+UPDATE `traces` SET `instance_id` = NULL WHERE `instance_id` = 'null';
+UPDATE `traces` SET `static_package` = NULL WHERE `static_package` = 'null';
+UPDATE `traces` SET `static_class` = NULL WHERE `static_class` = 'null';
+UPDATE `traces` SET `signature` = NULL WHERE `signature` = 'null';
+UPDATE `traces` SET `parameters` = NULL WHERE `parameters` = 'null';
+UPDATE `traces` SET `return_type` = NULL WHERE `return_type` = 'null';
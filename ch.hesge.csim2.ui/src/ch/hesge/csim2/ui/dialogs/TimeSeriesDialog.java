@@ -429,7 +429,7 @@ public class TimeSeriesDialog extends JDialog implements ActionListener, ChangeL
 	public void setTimeSeries(TimeSeries timeSeries) {
 		
 		this.timeSeries = timeSeries;
-		this.traceSize  = timeSeries.getTraceMatrix().getColumnDimension();
+		this.traceSize  = timeSeries.getStepCount();
 		
 		conceptTable.setConcepts(timeSeries.getTraceConcepts());
 		traceSizeField.setText(String.format("%d", traceSize));
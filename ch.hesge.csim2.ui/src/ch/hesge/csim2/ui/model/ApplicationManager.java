@@ -26,6 +26,7 @@ import ch.hesge.csim2.core.model.SourceMethod;
 import ch.hesge.csim2.core.model.StemConcept;
 import ch.hesge.csim2.core.model.StemMethod;
 import ch.hesge.csim2.core.model.TimeSeries;
+import ch.hesge.csim2.core.model.TimeSeriesPyramid;
 import ch.hesge.csim2.core.model.Trace;
 import ch.hesge.csim2.ui.dialogs.AboutDialog;
 import ch.hesge.csim2.ui.dialogs.NameDialog;
@@ -394,6 +395,35 @@ public class ApplicationManager {
 		return applicationLogic.getFilteredTimeSeries(timeSeries, segmentCount, threshold, concepts);
 	}
 
+	/**
+	 * Retrieve the segmented time series associated to a scenario traces.
+	 */
+	public TimeSeries getSegmentedTimeSeries(Project project, Scenario scenario, IMethodConceptMatcher matcher, float matchingThreshold, int segmentCount, double threshold) {
+		return applicationLogic.getSegmentedTimeSeries(project, scenario, matcher, matchingThreshold, segmentCount, threshold);
+	}
+
+	/**
+	 * Retrieve the pyramid of concept occurrences associated to a scenario
+	 * traces.
+	 */
+	public TimeSeriesPyramid getTimeSeriesPyramid(Project project, Scenario scenario, IMethodConceptMatcher matcher, float matchingThreshold, double threshold) {
+		return applicationLogic.getTimeSeriesPyramid(project, scenario, matcher, matchingThreshold, threshold);
+	}
+
+	/**
+	 * Create a segmented time series from a pyramid.
+	 */
+	public TimeSeries getSegmentedTimeSeries(TimeSeriesPyramid pyramid, int segmentCount) {
+		return applicationLogic.getSegmentedTimeSeries(pyramid, segmentCount);
+	}
+
+	/**
+	 * Create a filtered time series from a segmented one.
+	 */
+	public TimeSeries getFilteredTimeSeries(TimeSeries segmentedSeries, List<Concept> concepts) {
+		return applicationLogic.getFilteredTimeSeries(segmentedSeries, concepts);
+	}
+
 	/**
 	 * Create an initialize a new application instance.
 	 */
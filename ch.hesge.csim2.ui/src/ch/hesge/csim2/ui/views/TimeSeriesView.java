@@ -30,6 +30,7 @@ import ch.hesge.csim2.core.model.IMethodConceptMatcher;
 import ch.hesge.csim2.core.model.Project;
 import ch.hesge.csim2.core.model.Scenario;
 import ch.hesge.csim2.core.model.TimeSeries;
+import ch.hesge.csim2.core.model.TimeSeriesPyramid;
 import ch.hesge.csim2.core.utils.SimpleVector;
 import ch.hesge.csim2.ui.combo.MatcherComboBox;
 import ch.hesge.csim2.ui.combo.ScenarioComboBox;
@@ -46,6 +47,10 @@ public class TimeSeriesView extends JPanel implements ActionListener {
 	private ApplicationManager appManager;
 	private List<Scenario> scenarios;
 	private List<Concept> selectedConcepts;
+	private Scenario scenario;
+	private IMethodConceptMatcher matcher;
+	private float matchingThreshold;
+	private TimeSeriesPyramid pyramid;
 	private TimeSeries timeSeries;
 	private TimeSeries filteredSeries;
 	private int segmentCount;
@@ -231,8 +236,8 @@ public class TimeSeriesView extends JPanel implements ActionListener {
 			
 			threshold    = DEFAULT_THRESHOLD;
 			segmentCount = DEFAULT_SEGMENT_COUNT;
-			Scenario scenario = (Scenario) scenarioComboBox.getSelectedItem();
-			IMethodConceptMatcher matcher = (IMethodConceptMatcher) matcherComboBox.getSelectedItem();
+			scenario = (Scenario) scenarioComboBox.getSelectedItem();
+			matcher = (IMethodConceptMatcher) matcherComboBox.getSelectedItem();
 
 			if (scenario == null || matcher == null) {
 				filteredSeries = null;
@@ -245,13 +250,16 @@ public class TimeSeriesView extends JPanel implements ActionListener {
 					public void run() {
 
 						// Retrieve threshold
-						float threshold = Float.valueOf(thresholdField.getText());
+						matchingThreshold = Float.valueOf(thresholdField.getText());
 
-						// Retrieve timeseries associated to the current scenario
-						timeSeries = appManager.getTimeSeries(project, scenario, matcher, threshold);
+						// Retrieve occurrences pyramid associated to the current scenario
+						pyramid = appManager.getTimeSeriesPyramid(project, scenario, matcher, matchingThreshold, matchingThreshold);
 
-						// Extract segmented information
-						filteredSeries = appManager.getFilteredTimeSeries(timeSeries, segmentCount, threshold, null);
+						// Retrieve segmented timeseries
+						timeSeries = appManager.getSegmentedTimeSeries(pyramid, segmentCount);
+
+						// Extract concepts found in segments
+						filteredSeries = appManager.getFilteredTimeSeries(timeSeries, null);
 
 						// Keep concepts found, for future use in dialog
 						selectedConcepts = filteredSeries.getTraceConcepts();
@@ -296,8 +304,14 @@ public class TimeSeriesView extends JPanel implements ActionListener {
 					@Override
 					public void run() {
 
+						// Retrieve occurrences pyramid, rebuilt only if threshold has changed
+						pyramid = appManager.getTimeSeriesPyramid(project, scenario, matcher, matchingThreshold, threshold);
+
+						// Retrieve segmented timeseries with new parameters
+						timeSeries = appManager.getSegmentedTimeSeries(pyramid, segmentCount);
+
 						// Retrieve filtered timeseries 
-						filteredSeries = appManager.getFilteredTimeSeries(timeSeries, segmentCount, threshold, selectedConcepts);
+						filteredSeries = appManager.getFilteredTimeSeries(timeSeries, selectedConcepts);
 
 						// Keep concepts found, for future use in dialog
 						selectedConcepts = filteredSeries.getTraceConcepts();